@@ -37,6 +37,7 @@ public interface ShortLinkRemoteService {
         Map<String, Object> resultMap = new HashMap<String, Object>();
         resultMap.put("gid",requestParam.getGid());
         resultMap.put("orderTag",requestParam.getOrderTag());
+        resultMap.put("cursor",requestParam.getCursor());
         resultMap.put("current",requestParam.getCurrent());
         resultMap.put("size",requestParam.getSize());
         String resultPageStr = HttpUtil.get("http://127.0.0.1:8001/api/short-link/v1/page", resultMap);
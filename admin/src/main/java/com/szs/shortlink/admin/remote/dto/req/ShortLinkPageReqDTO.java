@@ -36,4 +36,9 @@ public class ShortLinkPageReqDTO extends Page {
      * 排序标识
      */
     private String orderTag;
+
+    /**
+     * 键集分页游标，按当天访问排序时传入上一页最后一条完整短链接
+     */
+    private String cursor;
 }
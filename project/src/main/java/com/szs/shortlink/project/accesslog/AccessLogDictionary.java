@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.accesslog;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 访问日志低基数列字典
+ * 值与编码一一对应，编码即值在字典文件中的行号，0 固定表示空值；新值追加写入字典文件后才对外可见，重启后按行号恢复
+ */
+public class AccessLogDictionary implements Closeable {
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final List<String> values = new CopyOnWriteArrayList<>();
+    private final BufferedWriter writer;
+
+    public AccessLogDictionary(Path path) throws IOException {
+        values.add(null);
+        if (Files.exists(path)) {
+            for (String each : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                codes.put(each, values.size());
+                values.add(each);
+            }
+        }
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 获取值的编码，字典中没有时新增
+     *
+     * @param value 列值
+     * @return 编码
+     */
+    public int encode(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            // 字典文件按行存储，值中的换行替换为空格，避免破坏行号
+            String storedValue = value.replace('\n', ' ').replace('\r', ' ');
+            writer.write(storedValue);
+            writer.newLine();
+            writer.flush();
+            int newCode = values.size();
+            values.add(storedValue);
+            codes.put(value, newCode);
+            return newCode;
+        }
+    }
+
+    /**
+     * 获取编码对应的值
+     *
+     * @param code 编码
+     * @return 列值，编码为 0 或不存在时返回 null
+     */
+    public String decode(int code) {
+        return code > 0 && code < values.size() ? values.get(code) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.accesslog;
+
+import lombok.Data;
+
+/**
+ * 段文件中解码后的一条访问日志
+ * 扫描时同一个对象循环复用，需要保留时由调用方自行拷贝
+ */
+@Data
+public class AccessLogRecord {
+
+    /**
+     * 访问时间戳，单位：毫秒
+     */
+    private long timestamp;
+
+    /**
+     * 完整短链接
+     */
+    private String fullShortUrl;
+
+    /**
+     * 写入时的分组标识，分组迁移后以存储中的迁移记录为准
+     */
+    private String gid;
+
+    /**
+     * 用户信息
+     */
+    private String user;
+
+    /**
+     * IP
+     */
+    private String ip;
+
+    /**
+     * 操作系统
+     */
+    private String os;
+
+    /**
+     * 浏览器
+     */
+    private String browser;
+
+    /**
+     * 访问设备
+     */
+    private String device;
+
+    /**
+     * 访问网络
+     */
+    private String network;
+
+    /**
+     * 地区
+     */
+    private String locale;
+}
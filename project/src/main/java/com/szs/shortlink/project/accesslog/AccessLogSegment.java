@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.accesslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 访问日志段文件
+ * 固定大小的内存映射文件，记录依次追加，每条记录为 "4 字节长度 + 记录体"；先写记录体再写长度，
+ * 异常退出时写了一半的记录长度仍为 0，重新打开时从头扫描到第一个长度为 0 的位置即为写入位置
+ * 只允许单线程写入，读取不加锁，只读取发布过的写入位置之前的数据
+ */
+public class AccessLogSegment implements Closeable {
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private volatile int writePosition;
+
+    private AccessLogSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity, int writePosition) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.writePosition = writePosition;
+    }
+
+    /**
+     * 打开或创建段文件，已有文件按文件本身的大小映射
+     *
+     * @param path     段文件路径
+     * @param capacity 新建段文件的大小，单位：字节
+     */
+    public static AccessLogSegment open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int actualCapacity = channel.size() > 0 ? (int) channel.size() : capacity;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, actualCapacity);
+        int position = 0;
+        while (position + LENGTH_BYTES <= actualCapacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + LENGTH_BYTES + length > actualCapacity) {
+                break;
+            }
+            position += LENGTH_BYTES + length;
+        }
+        return new AccessLogSegment(path, channel, buffer, actualCapacity, position);
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param body 记录体
+     * @return 剩余空间不足时返回 false
+     */
+    public boolean append(byte[] body) {
+        int position = writePosition;
+        if (position + LENGTH_BYTES + body.length > capacity) {
+            return false;
+        }
+        buffer.put(position + LENGTH_BYTES, body);
+        buffer.putInt(position, body.length);
+        writePosition = position + LENGTH_BYTES + body.length;
+        return true;
+    }
+
+    /**
+     * 依次访问当前已写入的全部记录
+     *
+     * @param visitor 记录访问者，收到的是共享的只读缓冲区与记录体的偏移量、长度
+     */
+    public void forEach(RecordVisitor visitor) {
+        int limit = writePosition;
+        ByteBuffer readBuffer = buffer.asReadOnlyBuffer();
+        int position = 0;
+        while (position < limit) {
+            int length = readBuffer.getInt(position);
+            visitor.visit(readBuffer, position + LENGTH_BYTES, length);
+            position += LENGTH_BYTES + length;
+        }
+    }
+
+    /**
+     * 把已写入的数据刷到磁盘
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getWritePosition() {
+        return writePosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 段文件记录访问者
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+
+        /**
+         * 访问一条记录
+         *
+         * @param buffer 段文件只读缓冲区
+         * @param offset 记录体起始偏移量
+         * @param length 记录体长度
+         */
+        void visit(ByteBuffer buffer, int offset, int length);
+    }
+}
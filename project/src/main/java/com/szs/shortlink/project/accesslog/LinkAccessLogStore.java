@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.accesslog;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsAccessRecordReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsAccessRecordReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 短链接访问日志存储
+ * 统计落库与监控查询只依赖该接口，返回结构与 LinkAccessLogsMapper 对应查询保持一致，由具体实现决定存放在 MySQL 还是本地段文件
+ */
+public interface LinkAccessLogStore {
+
+    /**
+     * 批量写入访问日志，创建时间取访问发生时间
+     */
+    void insertBatch(List<LinkAccessLogsDO> linkAccessLogsDOList);
+
+    /**
+     * 短链接迁移分组后，把该短链接已有访问日志的分组标识改为新分组
+     */
+    void updateGid(String fullShortUrl, String originGid, String gid);
+
+    /**
+     * 根据短链接获取指定日期内PV、UV、UIP数据
+     */
+    LinkAccessStatsDO findPvUvUidStatsByShortLink(ShortLinkStatsReqDTO requestParam);
+
+    /**
+     * 根据分组获取指定日期内PV、UV、UIP数据
+     */
+    LinkAccessStatsDO findPvUvUidStatsByGroup(ShortLinkGroupStatsReqDTO requestParam);
+
+    /**
+     * 根据短链接获取指定日期内高频访问IP数据
+     */
+    List<HashMap<String, Object>> listTopIpByShortLink(ShortLinkStatsReqDTO requestParam);
+
+    /**
+     * 根据分组获取指定日期内高频访问IP数据
+     */
+    List<HashMap<String, Object>> listTopIpByGroup(ShortLinkGroupStatsReqDTO requestParam);
+
+    /**
+     * 根据短链接获取指定日期内新旧访客数据
+     */
+    HashMap<String, Object> findUvTypeCntByShortLink(ShortLinkStatsReqDTO requestParam);
+
+    /**
+     * 分页查询短链接指定日期内的访问日志，按访问时间倒序
+     */
+    IPage<LinkAccessLogsDO> pageByShortLink(ShortLinkStatsAccessRecordReqDTO requestParam);
+
+    /**
+     * 分页查询分组指定日期内的访问日志，按访问时间倒序
+     */
+    IPage<LinkAccessLogsDO> pageByGroup(ShortLinkGroupStatsAccessRecordReqDTO requestParam);
+
+    /**
+     * 获取用户信息是否新老访客
+     */
+    List<Map<String, Object>> selectUvTypeByUsers(String gid, String fullShortUrl, String startDate, String endDate, List<String> userAccessLogsList);
+
+    /**
+     * 获取分组用户信息是否新老访客
+     */
+    List<Map<String, Object>> selectGroupUvTypeByUsers(String gid, String startDate, String endDate, List<String> userAccessLogsList);
+}
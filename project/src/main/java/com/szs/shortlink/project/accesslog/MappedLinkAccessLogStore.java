@@ -0,0 +1,543 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.accesslog;
+
+import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.szs.shortlink.project.common.convention.exception.ServiceException;
+import com.szs.shortlink.project.config.AccessLogStoreConfiguration;
+import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsAccessRecordReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsAccessRecordReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 基于本地内存映射段文件的短链接访问日志存储，只适用于单节点部署
+ * 数据目录下按访问日期分区，每个分区内是依次编号的追加式段文件；操作系统、浏览器、设备、网络、地区五个低基数列字典编码为整数，
+ * 短链接分组迁移不改写已有记录，而是追加一条迁移记录，查询时以最新分组为准
+ * <p>
+ * 记录体格式：访问时间戳(8) + 完整短链接 + 分组标识 + 五个字典编码(4×5) + 用户信息 + IP，字符串均为 "2 字节长度 + UTF-8 字节"；
+ * 时间戳与完整短链接在最前，扫描时不匹配的记录不解码后续字段
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-link.access-log", name = "store", havingValue = "mmap")
+public class MappedLinkAccessLogStore implements LinkAccessLogStore, InitializingBean, DisposableBean {
+
+    private final AccessLogStoreConfiguration accessLogStoreConfiguration;
+
+    private static final DateTimeFormatter PARTITION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String GID_MOVE_FILE = "gid-moves.log";
+    private static final int TOP_IP_LIMIT = 5;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private final ConcurrentSkipListMap<String, List<AccessLogSegment>> partitions = new ConcurrentSkipListMap<>();
+    private final Map<String, String> gidMoves = new ConcurrentHashMap<>();
+
+    private Path dataPath;
+    private AccessLogDictionary osDictionary;
+    private AccessLogDictionary browserDictionary;
+    private AccessLogDictionary deviceDictionary;
+    private AccessLogDictionary networkDictionary;
+    private AccessLogDictionary localeDictionary;
+    private BufferedWriter gidMoveWriter;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        dataPath = Paths.get(accessLogStoreConfiguration.getDataPath());
+        Path dictionaryPath = dataPath.resolve("dict");
+        Files.createDirectories(dictionaryPath);
+        osDictionary = new AccessLogDictionary(dictionaryPath.resolve("os.dict"));
+        browserDictionary = new AccessLogDictionary(dictionaryPath.resolve("browser.dict"));
+        deviceDictionary = new AccessLogDictionary(dictionaryPath.resolve("device.dict"));
+        networkDictionary = new AccessLogDictionary(dictionaryPath.resolve("network.dict"));
+        localeDictionary = new AccessLogDictionary(dictionaryPath.resolve("locale.dict"));
+        Path gidMovePath = dataPath.resolve(GID_MOVE_FILE);
+        if (Files.exists(gidMovePath)) {
+            for (String each : Files.readAllLines(gidMovePath, StandardCharsets.UTF_8)) {
+                String[] parts = each.split("\t");
+                if (parts.length == 2) {
+                    gidMoves.put(parts[0], parts[1]);
+                }
+            }
+        }
+        gidMoveWriter = Files.newBufferedWriter(gidMovePath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        try (Stream<Path> partitionPaths = Files.list(dataPath)) {
+            for (Path each : partitionPaths.filter(Files::isDirectory).filter(path -> path.getFileName().toString().matches("\\d{8}")).toList()) {
+                partitions.put(each.getFileName().toString(), openSegments(each));
+            }
+        }
+        log.info("短链接访问日志段文件存储加载完成，分区数量：{}", partitions.size());
+    }
+
+    private List<AccessLogSegment> openSegments(Path partitionPath) throws IOException {
+        List<AccessLogSegment> segments = new CopyOnWriteArrayList<>();
+        try (Stream<Path> segmentPaths = Files.list(partitionPath)) {
+            List<Path> sortedPaths = segmentPaths
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingInt(MappedLinkAccessLogStore::segmentNumber))
+                    .toList();
+            for (Path each : sortedPaths) {
+                segments.add(AccessLogSegment.open(each, accessLogStoreConfiguration.getSegmentSize()));
+            }
+        }
+        return segments;
+    }
+
+    private static int segmentNumber(Path segmentPath) {
+        String fileName = segmentPath.getFileName().toString();
+        return Integer.parseInt(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * 批量追加访问日志，段文件不参与数据库事务，处于事务中时等事务提交后再追加，避免回滚重试时重复写入
+     */
+    @Override
+    public void insertBatch(List<LinkAccessLogsDO> linkAccessLogsDOList) {
+        runAfterCommit(() -> append(linkAccessLogsDOList), "追加访问日志失败，丢失访问日志数量：" + linkAccessLogsDOList.size());
+    }
+
+    /**
+     * 按访问日期写入对应分区的最后一个段文件，写满时新建段文件
+     */
+    private synchronized void append(List<LinkAccessLogsDO> linkAccessLogsDOList) {
+        Set<AccessLogSegment> touchedSegments = new HashSet<>();
+        try {
+            for (LinkAccessLogsDO each : linkAccessLogsDOList) {
+                long timestamp = each.getCreateTime() == null ? System.currentTimeMillis() : each.getCreateTime().getTime();
+                byte[] body = encode(timestamp, each);
+                List<AccessLogSegment> segments = partition(partitionKey(timestamp));
+                AccessLogSegment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (segment == null || !segment.append(body)) {
+                    segment = newSegment(partitionKey(timestamp), segments);
+                    if (!segment.append(body)) {
+                        throw new ServiceException("访问日志记录超过段文件大小");
+                    }
+                }
+                touchedSegments.add(segment);
+            }
+        } catch (IOException ex) {
+            throw new ServiceException("写入访问日志段文件失败：" + ex.getMessage());
+        } finally {
+            if (Boolean.TRUE.equals(accessLogStoreConfiguration.getForceOnWrite())) {
+                touchedSegments.forEach(AccessLogSegment::force);
+            }
+        }
+    }
+
+    private List<AccessLogSegment> partition(String partitionKey) throws IOException {
+        List<AccessLogSegment> segments = partitions.get(partitionKey);
+        if (segments != null) {
+            return segments;
+        }
+        Files.createDirectories(dataPath.resolve(partitionKey));
+        segments = new CopyOnWriteArrayList<>();
+        partitions.put(partitionKey, segments);
+        removeExpiredPartitions();
+        return segments;
+    }
+
+    private AccessLogSegment newSegment(String partitionKey, List<AccessLogSegment> segments) throws IOException {
+        Path segmentPath = dataPath.resolve(partitionKey).resolve(segments.size() + SEGMENT_SUFFIX);
+        AccessLogSegment segment = AccessLogSegment.open(segmentPath, accessLogStoreConfiguration.getSegmentSize());
+        segments.add(segment);
+        return segment;
+    }
+
+    private void removeExpiredPartitions() {
+        int retentionDays = accessLogStoreConfiguration.getRetentionDays();
+        if (retentionDays <= 0) {
+            return;
+        }
+        String expiredBefore = LocalDate.now().minusDays(retentionDays).format(PARTITION_FORMATTER);
+        for (String each : new ArrayList<>(partitions.headMap(expiredBefore).keySet())) {
+            List<AccessLogSegment> segments = partitions.remove(each);
+            for (AccessLogSegment segment : segments) {
+                try {
+                    segment.close();
+                    Files.deleteIfExists(segment.getPath());
+                } catch (IOException ex) {
+                    log.warn("删除过期访问日志段文件失败：{}", segment.getPath(), ex);
+                }
+            }
+            try {
+                Files.deleteIfExists(dataPath.resolve(each));
+            } catch (IOException ex) {
+                log.warn("删除过期访问日志分区目录失败：{}", each, ex);
+            }
+        }
+    }
+
+    @Override
+    public void updateGid(String fullShortUrl, String originGid, String gid) {
+        runAfterCommit(() -> appendGidMove(fullShortUrl, gid), "写入访问日志分组迁移记录失败，重启后短链接 " + fullShortUrl + " 的访问日志仍按原分组 " + originGid + " 查询");
+    }
+
+    private synchronized void appendGidMove(String fullShortUrl, String gid) {
+        // 先更新内存中的迁移记录，写文件失败时本次运行期间的查询仍按新分组
+        gidMoves.put(fullShortUrl, gid);
+        try {
+            gidMoveWriter.write(fullShortUrl + "\t" + gid);
+            gidMoveWriter.newLine();
+            gidMoveWriter.flush();
+        } catch (IOException ex) {
+            throw new ServiceException("写入访问日志分组迁移记录失败：" + ex.getMessage());
+        }
+    }
+
+    /**
+     * 处于事务中时事务提交后执行，提交后的异常不能再回滚，只记录日志，避免抛给调用方导致已提交的数据被重复处理
+     */
+    private void runAfterCommit(Runnable runnable, String failureMessage) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    runnable.run();
+                } catch (Throwable ex) {
+                    log.error(failureMessage, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * 扫描访问时间在指定范围内的访问日志
+     *
+     * @param gid          分组标识，为空时不过滤
+     * @param fullShortUrl 完整短链接，为空时不过滤
+     * @param start        开始时间，为空时不限制
+     * @param end          结束时间，为空时不限制
+     * @param consumer     匹配记录的消费者，收到的记录对象会被复用
+     */
+    public void scan(String gid, String fullShortUrl, Date start, Date end, Consumer<AccessLogRecord> consumer) {
+        long startMillis = start == null ? Long.MIN_VALUE : start.getTime();
+        long endMillis = end == null ? Long.MAX_VALUE : end.getTime();
+        NavigableMap<String, List<AccessLogSegment>> scanPartitions = partitions;
+        if (start != null && end != null) {
+            String startKey = partitionKey(startMillis);
+            String endKey = partitionKey(endMillis);
+            if (startKey.compareTo(endKey) > 0) {
+                return;
+            }
+            scanPartitions = partitions.subMap(startKey, true, endKey, true);
+        }
+        AccessLogRecord record = new AccessLogRecord();
+        int[] cursor = new int[1];
+        for (List<AccessLogSegment> segments : scanPartitions.values()) {
+            for (AccessLogSegment segment : segments) {
+                segment.forEach((buffer, offset, length) -> {
+                    long timestamp = buffer.getLong(offset);
+                    if (timestamp < startMillis || timestamp > endMillis) {
+                        return;
+                    }
+                    cursor[0] = offset + Long.BYTES;
+                    String recordUrl = readString(buffer, cursor);
+                    if (fullShortUrl != null && !fullShortUrl.equals(recordUrl)) {
+                        return;
+                    }
+                    String storedGid = readString(buffer, cursor);
+                    String recordGid = gidMoves.getOrDefault(recordUrl, storedGid);
+                    if (gid != null && !gid.equals(recordGid)) {
+                        return;
+                    }
+                    record.setTimestamp(timestamp);
+                    record.setFullShortUrl(recordUrl);
+                    record.setGid(recordGid);
+                    record.setOs(osDictionary.decode(readInt(buffer, cursor)));
+                    record.setBrowser(browserDictionary.decode(readInt(buffer, cursor)));
+                    record.setDevice(deviceDictionary.decode(readInt(buffer, cursor)));
+                    record.setNetwork(networkDictionary.decode(readInt(buffer, cursor)));
+                    record.setLocale(localeDictionary.decode(readInt(buffer, cursor)));
+                    record.setUser(readString(buffer, cursor));
+                    record.setIp(readString(buffer, cursor));
+                    consumer.accept(record);
+                });
+            }
+        }
+    }
+
+    @Override
+    public LinkAccessStatsDO findPvUvUidStatsByShortLink(ShortLinkStatsReqDTO requestParam) {
+        return pvUvUip(requestParam.getGid(), requestParam.getFullShortUrl(), requestParam.getStartDate(), requestParam.getEndDate());
+    }
+
+    @Override
+    public LinkAccessStatsDO findPvUvUidStatsByGroup(ShortLinkGroupStatsReqDTO requestParam) {
+        return pvUvUip(requestParam.getGid(), null, requestParam.getStartDate(), requestParam.getEndDate());
+    }
+
+    private LinkAccessStatsDO pvUvUip(String gid, String fullShortUrl, String startDate, String endDate) {
+        int[] pv = new int[1];
+        Set<String> users = new HashSet<>();
+        Set<String> ips = new HashSet<>();
+        scan(gid, fullShortUrl, DateUtil.parse(startDate), DateUtil.parse(endDate), each -> {
+            pv[0]++;
+            users.add(each.getUser());
+            ips.add(each.getIp());
+        });
+        // 与数据库聚合查询一致，区间内没有访问日志时返回全 0 而不是 null
+        return LinkAccessStatsDO.builder()
+                .pv(pv[0])
+                .uv(users.size())
+                .uip(ips.size())
+                .build();
+    }
+
+    @Override
+    public List<HashMap<String, Object>> listTopIpByShortLink(ShortLinkStatsReqDTO requestParam) {
+        return topIp(requestParam.getGid(), requestParam.getFullShortUrl(), requestParam.getStartDate(), requestParam.getEndDate());
+    }
+
+    @Override
+    public List<HashMap<String, Object>> listTopIpByGroup(ShortLinkGroupStatsReqDTO requestParam) {
+        return topIp(requestParam.getGid(), null, requestParam.getStartDate(), requestParam.getEndDate());
+    }
+
+    private List<HashMap<String, Object>> topIp(String gid, String fullShortUrl, String startDate, String endDate) {
+        Map<String, Integer> ipCounts = new HashMap<>();
+        scan(gid, fullShortUrl, DateUtil.parse(startDate), DateUtil.parse(endDate), each -> ipCounts.merge(String.valueOf(each.getIp()), 1, Integer::sum));
+        return ipCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(TOP_IP_LIMIT)
+                .map(each -> {
+                    HashMap<String, Object> row = new HashMap<>();
+                    row.put("ip", each.getKey());
+                    row.put("count", each.getValue());
+                    return row;
+                })
+                .toList();
+    }
+
+    /**
+     * 与 SQL 语义一致：访问过多天的用户为老访客，只在一天访问且最后访问时间在指定范围内的为新访客
+     */
+    @Override
+    public HashMap<String, Object> findUvTypeCntByShortLink(ShortLinkStatsReqDTO requestParam) {
+        long startMillis = DateUtil.parse(requestParam.getStartDate()).getTime();
+        long endMillis = DateUtil.parse(requestParam.getEndDate()).getTime();
+        Map<String, String> firstDays = new HashMap<>();
+        Set<String> multiDayUsers = new HashSet<>();
+        Map<String, Long> lastAccessTimes = new HashMap<>();
+        scan(requestParam.getGid(), requestParam.getFullShortUrl(), null, null, each -> {
+            String day = partitionKey(each.getTimestamp());
+            String firstDay = firstDays.putIfAbsent(each.getUser(), day);
+            if (firstDay != null && !firstDay.equals(day)) {
+                multiDayUsers.add(each.getUser());
+            }
+            lastAccessTimes.merge(each.getUser(), each.getTimestamp(), Math::max);
+        });
+        int oldUserCnt = multiDayUsers.size();
+        int newUserCnt = 0;
+        for (Map.Entry<String, Long> each : lastAccessTimes.entrySet()) {
+            if (!multiDayUsers.contains(each.getKey()) && each.getValue() >= startMillis && each.getValue() <= endMillis) {
+                newUserCnt++;
+            }
+        }
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("oldUserCnt", oldUserCnt);
+        result.put("newUserCnt", newUserCnt);
+        return result;
+    }
+
+    @Override
+    public IPage<LinkAccessLogsDO> pageByShortLink(ShortLinkStatsAccessRecordReqDTO requestParam) {
+        return page(requestParam.getGid(), requestParam.getFullShortUrl(), requestParam.getStartDate(), requestParam.getEndDate(), requestParam.getCurrent(), requestParam.getSize());
+    }
+
+    @Override
+    public IPage<LinkAccessLogsDO> pageByGroup(ShortLinkGroupStatsAccessRecordReqDTO requestParam) {
+        return page(requestParam.getGid(), null, requestParam.getStartDate(), requestParam.getEndDate(), requestParam.getCurrent(), requestParam.getSize());
+    }
+
+    /**
+     * 分页按访问时间倒序，只保留最新的 "页码 × 每页条数" 条记录，内存占用与翻页深度成正比而不是与时间范围成正比
+     */
+    private IPage<LinkAccessLogsDO> page(String gid, String fullShortUrl, String startDate, String endDate, long current, long size) {
+        int keep = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, current) * size);
+        PriorityQueue<LinkAccessLogsDO> newest = new PriorityQueue<>(Comparator.comparing(LinkAccessLogsDO::getCreateTime));
+        long[] total = new long[1];
+        scan(gid, fullShortUrl, DateUtil.parse(startDate), DateUtil.parse(endDate), each -> {
+            total[0]++;
+            if (newest.size() >= keep && newest.peek().getCreateTime().getTime() >= each.getTimestamp()) {
+                return;
+            }
+            newest.offer(toAccessLogsDO(each));
+            if (newest.size() > keep) {
+                newest.poll();
+            }
+        });
+        List<LinkAccessLogsDO> sorted = new ArrayList<>(newest);
+        sorted.sort(Comparator.comparing(LinkAccessLogsDO::getCreateTime).reversed());
+        int fromIndex = (int) Math.min(sorted.size(), (Math.max(1L, current) - 1) * size);
+        Page<LinkAccessLogsDO> result = new Page<>(current, size, total[0]);
+        result.setRecords(sorted.subList(fromIndex, sorted.size()));
+        return result;
+    }
+
+    @Override
+    public List<Map<String, Object>> selectUvTypeByUsers(String gid, String fullShortUrl, String startDate, String endDate, List<String> userAccessLogsList) {
+        return uvTypeByUsers(gid, fullShortUrl, startDate, endDate, userAccessLogsList);
+    }
+
+    @Override
+    public List<Map<String, Object>> selectGroupUvTypeByUsers(String gid, String startDate, String endDate, List<String> userAccessLogsList) {
+        return uvTypeByUsers(gid, null, startDate, endDate, userAccessLogsList);
+    }
+
+    private List<Map<String, Object>> uvTypeByUsers(String gid, String fullShortUrl, String startDate, String endDate, List<String> users) {
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> userSet = new HashSet<>(users);
+        Map<String, Long> firstAccessTimes = new HashMap<>();
+        scan(gid, fullShortUrl, null, null, each -> {
+            if (userSet.contains(each.getUser())) {
+                firstAccessTimes.merge(each.getUser(), each.getTimestamp(), Math::min);
+            }
+        });
+        long startMillis = DateUtil.parse(startDate).getTime();
+        long endMillis = DateUtil.parse(endDate).getTime();
+        List<Map<String, Object>> result = new ArrayList<>(firstAccessTimes.size());
+        firstAccessTimes.forEach((user, firstAccessTime) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("user", user);
+            row.put("uvType", firstAccessTime >= startMillis && firstAccessTime <= endMillis ? "新访客" : "老访客");
+            result.add(row);
+        });
+        return result;
+    }
+
+    private LinkAccessLogsDO toAccessLogsDO(AccessLogRecord record) {
+        LinkAccessLogsDO linkAccessLogsDO = LinkAccessLogsDO.builder()
+                .fullShortUrl(record.getFullShortUrl())
+                .gid(record.getGid())
+                .user(record.getUser())
+                .ip(record.getIp())
+                .os(record.getOs())
+                .browser(record.getBrowser())
+                .device(record.getDevice())
+                .network(record.getNetwork())
+                .locale(record.getLocale())
+                .build();
+        linkAccessLogsDO.setCreateTime(new Date(record.getTimestamp()));
+        return linkAccessLogsDO;
+    }
+
+    private byte[] encode(long timestamp, LinkAccessLogsDO each) throws IOException {
+        byte[] fullShortUrl = utf8(each.getFullShortUrl());
+        byte[] gid = utf8(each.getGid());
+        byte[] user = utf8(each.getUser());
+        byte[] ip = utf8(each.getIp());
+        ByteBuffer body = ByteBuffer.allocate(Long.BYTES + Integer.BYTES * 5 + Short.BYTES * 4 + fullShortUrl.length + gid.length + user.length + ip.length);
+        body.putLong(timestamp);
+        putString(body, fullShortUrl);
+        putString(body, gid);
+        body.putInt(osDictionary.encode(each.getOs()));
+        body.putInt(browserDictionary.encode(each.getBrowser()));
+        body.putInt(deviceDictionary.encode(each.getDevice()));
+        body.putInt(networkDictionary.encode(each.getNetwork()));
+        body.putInt(localeDictionary.encode(each.getLocale()));
+        putString(body, user);
+        putString(body, ip);
+        return body.array();
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > MAX_STRING_BYTES ? Arrays.copyOf(bytes, MAX_STRING_BYTES) : bytes;
+    }
+
+    private static void putString(ByteBuffer body, byte[] value) {
+        body.putShort((short) value.length);
+        body.put(value);
+    }
+
+    private static String readString(ByteBuffer buffer, int[] cursor) {
+        int length = Short.toUnsignedInt(buffer.getShort(cursor[0]));
+        byte[] bytes = new byte[length];
+        buffer.get(cursor[0] + Short.BYTES, bytes);
+        cursor[0] += Short.BYTES + length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readInt(ByteBuffer buffer, int[] cursor) {
+        int value = buffer.getInt(cursor[0]);
+        cursor[0] += Integer.BYTES;
+        return value;
+    }
+
+    private static String partitionKey(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate().format(PARTITION_FORMATTER);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (List<AccessLogSegment> segments : partitions.values()) {
+            for (AccessLogSegment each : segments) {
+                each.force();
+                each.close();
+            }
+        }
+        osDictionary.close();
+        browserDictionary.close();
+        deviceDictionary.close();
+        networkDictionary.close();
+        localeDictionary.close();
+        gidMoveWriter.close();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.accesslog;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import com.szs.shortlink.project.dao.mapper.LinkAccessLogsMapper;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsAccessRecordReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsAccessRecordReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 MySQL t_link_access_logs 表的短链接访问日志存储
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-link.access-log", name = "store", havingValue = "mysql", matchIfMissing = true)
+public class MysqlLinkAccessLogStore implements LinkAccessLogStore {
+
+    private final LinkAccessLogsMapper linkAccessLogsMapper;
+
+    @Override
+    public void insertBatch(List<LinkAccessLogsDO> linkAccessLogsDOList) {
+        linkAccessLogsMapper.insertBatch(linkAccessLogsDOList);
+    }
+
+    @Override
+    public void updateGid(String fullShortUrl, String originGid, String gid) {
+        LambdaUpdateWrapper<LinkAccessLogsDO> linkAccessLogsUpdateWrapper = Wrappers.lambdaUpdate(LinkAccessLogsDO.class)
+                .eq(LinkAccessLogsDO::getFullShortUrl, fullShortUrl)
+                .eq(LinkAccessLogsDO::getGid, originGid)
+                .eq(LinkAccessLogsDO::getDelFlag, 0);
+        LinkAccessLogsDO linkAccessLogsDO = LinkAccessLogsDO.builder()
+                .gid(gid)
+                .build();
+        linkAccessLogsMapper.update(linkAccessLogsDO, linkAccessLogsUpdateWrapper);
+    }
+
+    @Override
+    public LinkAccessStatsDO findPvUvUidStatsByShortLink(ShortLinkStatsReqDTO requestParam) {
+        return linkAccessLogsMapper.findPvUvUidStatsByShortLink(requestParam);
+    }
+
+    @Override
+    public LinkAccessStatsDO findPvUvUidStatsByGroup(ShortLinkGroupStatsReqDTO requestParam) {
+        return linkAccessLogsMapper.findPvUvUidStatsByGroup(requestParam);
+    }
+
+    @Override
+    public List<HashMap<String, Object>> listTopIpByShortLink(ShortLinkStatsReqDTO requestParam) {
+        return linkAccessLogsMapper.listTopIpByShortLink(requestParam);
+    }
+
+    @Override
+    public List<HashMap<String, Object>> listTopIpByGroup(ShortLinkGroupStatsReqDTO requestParam) {
+        return linkAccessLogsMapper.listTopIpByGroup(requestParam);
+    }
+
+    @Override
+    public HashMap<String, Object> findUvTypeCntByShortLink(ShortLinkStatsReqDTO requestParam) {
+        return linkAccessLogsMapper.findUvTypeCntByShortLink(requestParam);
+    }
+
+    @Override
+    public IPage<LinkAccessLogsDO> pageByShortLink(ShortLinkStatsAccessRecordReqDTO requestParam) {
+        LambdaQueryWrapper<LinkAccessLogsDO> queryWrapper = Wrappers.lambdaQuery(LinkAccessLogsDO.class)
+                .eq(LinkAccessLogsDO::getGid, requestParam.getGid())
+                .eq(LinkAccessLogsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                .between(LinkAccessLogsDO::getCreateTime, requestParam.getStartDate(), requestParam.getEndDate())
+                .eq(LinkAccessLogsDO::getDelFlag, 0)
+                .orderByDesc(LinkAccessLogsDO::getCreateTime);
+        return linkAccessLogsMapper.selectPage(requestParam, queryWrapper);
+    }
+
+    @Override
+    public IPage<LinkAccessLogsDO> pageByGroup(ShortLinkGroupStatsAccessRecordReqDTO requestParam) {
+        LambdaQueryWrapper<LinkAccessLogsDO> queryWrapper = Wrappers.lambdaQuery(LinkAccessLogsDO.class)
+                .eq(LinkAccessLogsDO::getGid, requestParam.getGid())
+                .between(LinkAccessLogsDO::getCreateTime, requestParam.getStartDate(), requestParam.getEndDate())
+                .eq(LinkAccessLogsDO::getDelFlag, 0)
+                .orderByDesc(LinkAccessLogsDO::getCreateTime);
+        return linkAccessLogsMapper.selectPage(requestParam, queryWrapper);
+    }
+
+    @Override
+    public List<Map<String, Object>> selectUvTypeByUsers(String gid, String fullShortUrl, String startDate, String endDate, List<String> userAccessLogsList) {
+        return linkAccessLogsMapper.selectUvTypeByUsers(gid, fullShortUrl, startDate, endDate, userAccessLogsList);
+    }
+
+    @Override
+    public List<Map<String, Object>> selectGroupUvTypeByUsers(String gid, String startDate, String endDate, List<String> userAccessLogsList) {
+        return linkAccessLogsMapper.selectGroupUvTypeByUsers(gid, startDate, endDate, userAccessLogsList);
+    }
+}
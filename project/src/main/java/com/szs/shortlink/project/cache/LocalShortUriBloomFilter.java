@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.hash.MurmurHash;
+import com.szs.shortlink.project.config.LocalBloomFilterConfiguration;
+import com.szs.shortlink.project.dao.mapper.ShortLinkGotoMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY;
+
+/**
+ * 短链接本地布隆过滤器副本
+ * 位数组通过内存映射文件存放在堆外，重启后直接复用快照；各节点通过 Redis Stream 新增日志增量同步，
+ * 副本未就绪（首次启动、日志断档重建中、重建或加载快照后尚未追上新增日志）时回退查询 Redis 布隆过滤器
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalShortUriBloomFilter implements InitializingBean, DisposableBean, MeterBinder {
+
+    private final RBloomFilter<String> shortUriCreateCachePenetrationBloomFilter;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ShortLinkGotoMapper shortLinkGotoMapper;
+    private final LocalBloomFilterConfiguration localBloomFilterConfiguration;
+
+    private static final long SNAPSHOT_MAGIC = 0x53484F5254555249L;
+    private static final int HEADER_SIZE = 128;
+    private static final int LAST_ID_OFFSET = 24;
+    private static final int LAST_ID_MAX_LENGTH = 64;
+    private static final int ADD_LOG_BATCH_SIZE = 1000;
+
+    private MappedByteBuffer bits;
+    private long numBits;
+    private int numHashFunctions;
+    private volatile String lastAppliedId;
+    private volatile boolean ready;
+    private volatile boolean running;
+    private Thread syncThread;
+
+    private final LongAdder localLookups = new LongAdder();
+    private final LongAdder remoteLookups = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!Boolean.TRUE.equals(localBloomFilterConfiguration.getEnable())) {
+            return;
+        }
+        long expectedInsertions = localBloomFilterConfiguration.getExpectedInsertions();
+        double falseProbability = localBloomFilterConfiguration.getFalseProbability();
+        numBits = (long) Math.ceil(-expectedInsertions * Math.log(falseProbability) / (Math.log(2) * Math.log(2)));
+        numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        long bitsBytes = ((numBits + 63) / 64) * 8;
+        if (HEADER_SIZE + bitsBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("本地布隆过滤器超出单个内存映射文件上限，请调小预计元素数量或调大误判率");
+        }
+        openSnapshot(HEADER_SIZE + bitsBytes);
+        running = true;
+        syncThread = new Thread(this::syncLoop, "short-uri_bloom-filter_sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * 判断短链接是否可能存在
+     * 本地副本就绪时完全在进程内判断，否则回退到 Redis 布隆过滤器
+     *
+     * @param fullShortUrl 完整短链接
+     * @return 是否可能存在
+     */
+    public boolean contains(String fullShortUrl) {
+        if (!ready) {
+            remoteLookups.increment();
+            return shortUriCreateCachePenetrationBloomFilter.contains(fullShortUrl);
+        }
+        localLookups.increment();
+        long[] hash = hash(fullShortUrl);
+        long combinedHash = hash[0];
+        for (int i = 0; i < numHashFunctions; i++) {
+            long bitIndex = (combinedHash & Long.MAX_VALUE) % numBits;
+            long word = bits.getLong(HEADER_SIZE + (int) (bitIndex >>> 6) * 8);
+            if ((word & (1L << bitIndex)) == 0) {
+                return false;
+            }
+            combinedHash += hash[1];
+        }
+        return true;
+    }
+
+    /**
+     * 新增短链接：写入 Redis 布隆过滤器与新增日志，并立即写入本地副本
+     *
+     * @param fullShortUrl 完整短链接
+     */
+    public void add(String fullShortUrl) {
+        shortUriCreateCachePenetrationBloomFilter.add(fullShortUrl);
+        if (bits == null) {
+            return;
+        }
+        stringRedisTemplate.opsForStream().add(SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY, Map.of("fullShortUrl", fullShortUrl));
+        put(fullShortUrl);
+    }
+
+    private synchronized void put(String fullShortUrl) {
+        long[] hash = hash(fullShortUrl);
+        long combinedHash = hash[0];
+        for (int i = 0; i < numHashFunctions; i++) {
+            long bitIndex = (combinedHash & Long.MAX_VALUE) % numBits;
+            int position = HEADER_SIZE + (int) (bitIndex >>> 6) * 8;
+            long word = bits.getLong(position);
+            long mask = 1L << bitIndex;
+            if ((word & mask) == 0) {
+                bits.putLong(position, word | mask);
+            }
+            combinedHash += hash[1];
+        }
+    }
+
+    private long[] hash(String fullShortUrl) {
+        return MurmurHash.hash128(fullShortUrl.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void syncLoop() {
+        long nextSnapshotTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(localBloomFilterConfiguration.getSnapshotInterval());
+        while (running) {
+            try {
+                if (lastAppliedId == null || hasAddLogGap(lastAppliedId)) {
+                    ready = false;
+                    if (!rebuildFromDatabase()) {
+                        continue;
+                    }
+                }
+                // 追上新增日志尾部后才就绪，否则重建或快照之后新增的短链接会被误判为不存在
+                if (applyAddLog() && !ready) {
+                    ready = true;
+                    log.info("本地布隆过滤器已追上新增日志，切换为本地判断，新增日志位置：{}", lastAppliedId);
+                }
+                if (System.currentTimeMillis() >= nextSnapshotTime) {
+                    stringRedisTemplate.opsForStream().trim(SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY, localBloomFilterConfiguration.getAddLogMaxLength(), true);
+                    snapshot();
+                    nextSnapshotTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(localBloomFilterConfiguration.getSnapshotInterval());
+                }
+            } catch (Throwable ex) {
+                log.error("本地布隆过滤器同步异常", ex);
+                sleepQuietly(1000L);
+            }
+        }
+    }
+
+    /**
+     * 应用一批新增日志
+     *
+     * @return 是否已读到日志尾部
+     */
+    private boolean applyAddLog() {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                StreamReadOptions.empty().count(ADD_LOG_BATCH_SIZE).block(Duration.ofSeconds(2)),
+                StreamOffset.create(SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY, ReadOffset.from(lastAppliedId))
+        );
+        if (CollUtil.isEmpty(records)) {
+            return true;
+        }
+        records.forEach(each -> {
+            Object fullShortUrl = each.getValue().get("fullShortUrl");
+            if (fullShortUrl != null) {
+                put(fullShortUrl.toString());
+            }
+        });
+        lastAppliedId = records.get(records.size() - 1).getId().getValue();
+        return records.size() < ADD_LOG_BATCH_SIZE;
+    }
+
+    /**
+     * 新增日志已被裁剪到上次同步位置之后，说明中间可能有日志丢失，需要重建
+     * 同步位置为 0-0 的快照同样比较，无法确认日志从未被裁剪时按缺失处理
+     */
+    private boolean hasAddLogGap(String appliedId) {
+        List<MapRecord<String, Object, Object>> firstRecords = stringRedisTemplate.opsForStream()
+                .range(SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY, Range.unbounded(), Limit.limit().count(1));
+        return CollUtil.isNotEmpty(firstRecords) && compareStreamId(firstRecords.get(0).getId().getValue(), appliedId) > 0;
+    }
+
+    /**
+     * 从数据库全量重建，先记录日志尾部位置，重建完成后从该位置继续追赶重建期间的新增
+     * 日志为空时以 Redis 当前时间的前一毫秒作为位置，之后追加的日志都在其后，不会被误判为已裁剪而再次重建
+     * 布隆过滤器不支持删除，已有位无需清空
+     *
+     * @return 是否完整重建，停止导致中断时不更新同步位置与快照，下次启动重新重建
+     */
+    private boolean rebuildFromDatabase() {
+        List<MapRecord<String, Object, Object>> lastRecords = stringRedisTemplate.opsForStream()
+                .reverseRange(SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY, Range.unbounded(), Limit.limit().count(1));
+        String tailId = CollUtil.isEmpty(lastRecords) ? serverTimeStreamId() : lastRecords.get(0).getId().getValue();
+        log.info("本地布隆过滤器开始从数据库重建，新增日志位置：{}", tailId);
+        long total = 0;
+        String lastFullShortUrl = "";
+        while (true) {
+            if (!running) {
+                log.info("本地布隆过滤器重建被停止，已加载 {} 条短链接", total);
+                return false;
+            }
+            List<String> fullShortUrls = shortLinkGotoMapper.listFullShortUrlAfter(lastFullShortUrl, localBloomFilterConfiguration.getRebuildBatchSize());
+            if (CollUtil.isEmpty(fullShortUrls)) {
+                break;
+            }
+            fullShortUrls.forEach(this::put);
+            total += fullShortUrls.size();
+            lastFullShortUrl = fullShortUrls.get(fullShortUrls.size() - 1);
+        }
+        lastAppliedId = tailId;
+        snapshot();
+        log.info("本地布隆过滤器重建完成，共加载 {} 条短链接", total);
+        return true;
+    }
+
+    private void openSnapshot(long fileSize) throws IOException {
+        Path snapshotPath = Paths.get(localBloomFilterConfiguration.getSnapshotPath());
+        if (snapshotPath.getParent() != null) {
+            Files.createDirectories(snapshotPath.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean reusable = channel.size() == fileSize;
+            bits = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (reusable && bits.getLong(0) == SNAPSHOT_MAGIC && bits.getLong(8) == numBits && bits.getInt(16) == numHashFunctions) {
+                lastAppliedId = readLastAppliedId();
+                log.info("本地布隆过滤器加载快照成功，新增日志位置：{}", lastAppliedId);
+                return;
+            }
+        }
+        for (int position = HEADER_SIZE; position < bits.capacity(); position += 8) {
+            bits.putLong(position, 0L);
+        }
+        bits.putLong(0, SNAPSHOT_MAGIC);
+        bits.putLong(8, numBits);
+        bits.putInt(16, numHashFunctions);
+        lastAppliedId = null;
+        writeLastAppliedId("");
+    }
+
+    private String readLastAppliedId() {
+        int length = bits.getInt(20);
+        if (length <= 0 || length > LAST_ID_MAX_LENGTH) {
+            return null;
+        }
+        byte[] idBytes = new byte[length];
+        bits.get(LAST_ID_OFFSET, idBytes);
+        return new String(idBytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeLastAppliedId(String appliedId) {
+        byte[] idBytes = appliedId.getBytes(StandardCharsets.UTF_8);
+        bits.put(LAST_ID_OFFSET, ByteBuffer.allocate(LAST_ID_MAX_LENGTH).put(idBytes).array());
+        bits.putInt(20, idBytes.length);
+    }
+
+    /**
+     * 先刷位数组再写同步位置，保证快照中的同步位置不会超前于位数组
+     */
+    private synchronized void snapshot() {
+        String appliedId = lastAppliedId;
+        if (bits == null || appliedId == null) {
+            return;
+        }
+        bits.force();
+        writeLastAppliedId(appliedId);
+        bits.force();
+    }
+
+    private String serverTimeStreamId() {
+        Long serverTime = stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().time(TimeUnit.MILLISECONDS));
+        return (serverTime - 1) + "-0";
+    }
+
+    private int compareStreamId(String first, String second) {
+        String[] firstParts = first.split("-");
+        String[] secondParts = second.split("-");
+        int result = Long.compare(Long.parseLong(firstParts[0]), Long.parseLong(secondParts[0]));
+        return result != 0 ? result : Long.compare(Long.parseLong(firstParts[1]), Long.parseLong(secondParts[1]));
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("short-link.bloom-filter.local.ready", this, each -> each.ready ? 1 : 0)
+                .register(registry);
+        FunctionCounter.builder("short-link.bloom-filter.lookups", localLookups, LongAdder::sum)
+                .tag("source", "local")
+                .register(registry);
+        FunctionCounter.builder("short-link.bloom-filter.lookups", remoteLookups, LongAdder::sum)
+                .tag("source", "redis")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        ready = false;
+        if (syncThread != null) {
+            syncThread.interrupt();
+            syncThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        snapshot();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import com.szs.shortlink.project.common.convention.exception.ServiceException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_GID_EPOCH_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_GID_EPOCH_LEASE_KEY;
+
+/**
+ * 短链接分组迁移版本号
+ * 修改分组时版本号先自增为奇数，事务结束后再自增为偶数；统计消费者写库前后各读取一次版本号，
+ * 版本号为奇数或前后不一致说明与分组迁移并发，回滚后重新投递，消费链路不再获取分布式锁
+ * 版本号不过期、只增不减，消费者可以按短链接与版本号缓存分组标识；迁移超时改由单独的租约 Key 过期判断
+ */
+@Component
+@RequiredArgsConstructor
+public class ShortLinkGidEpoch {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 迁移租约超时时间，迁移节点宕机未结束迁移时，租约到期后版本号被推进为偶数
+     */
+    private static final long MIGRATING_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final DefaultRedisScript<Long> GID_EPOCH_BEGIN_SCRIPT;
+    private static final DefaultRedisScript<Long> GID_EPOCH_END_SCRIPT;
+    private static final DefaultRedisScript<List> GID_EPOCH_GET_SCRIPT;
+
+    static {
+        GID_EPOCH_BEGIN_SCRIPT = new DefaultRedisScript<>();
+        GID_EPOCH_BEGIN_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_gid_epoch_begin.lua")));
+        GID_EPOCH_BEGIN_SCRIPT.setResultType(Long.class);
+        GID_EPOCH_END_SCRIPT = new DefaultRedisScript<>();
+        GID_EPOCH_END_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_gid_epoch_end.lua")));
+        GID_EPOCH_END_SCRIPT.setResultType(Long.class);
+        GID_EPOCH_GET_SCRIPT = new DefaultRedisScript<>();
+        GID_EPOCH_GET_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_gid_epoch_get.lua")));
+        GID_EPOCH_GET_SCRIPT.setResultType(List.class);
+    }
+
+    /**
+     * 开始分组迁移，处于事务中时在事务结束（提交或回滚）后结束迁移，否则需要调用方自行结束
+     *
+     * @param fullShortUrl 完整短链接
+     * @return 迁移中的版本号
+     */
+    public long beginMigration(String fullShortUrl) {
+        Long epoch = stringRedisTemplate.execute(
+                GID_EPOCH_BEGIN_SCRIPT,
+                List.of(String.format(SHORT_LINK_GID_EPOCH_KEY, fullShortUrl), String.format(SHORT_LINK_GID_EPOCH_LEASE_KEY, fullShortUrl)),
+                String.valueOf(MIGRATING_TIMEOUT_MILLIS)
+        );
+        if (epoch == null || epoch < 0) {
+            throw new ServiceException("短链接正在修改分组，请稍后再试...");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    endMigration(fullShortUrl, epoch);
+                }
+            });
+        }
+        return epoch;
+    }
+
+    /**
+     * 结束分组迁移
+     *
+     * @param fullShortUrl 完整短链接
+     * @param beginEpoch   开始迁移时返回的版本号
+     */
+    public void endMigration(String fullShortUrl, long beginEpoch) {
+        stringRedisTemplate.execute(
+                GID_EPOCH_END_SCRIPT,
+                List.of(String.format(SHORT_LINK_GID_EPOCH_KEY, fullShortUrl), String.format(SHORT_LINK_GID_EPOCH_LEASE_KEY, fullShortUrl)),
+                String.valueOf(beginEpoch)
+        );
+    }
+
+    /**
+     * 批量读取版本号，一次 Lua 脚本往返，租约已过期的迁移在读取时推进为已结束
+     *
+     * @param fullShortUrls 完整短链接集合
+     * @return 完整短链接与版本号映射，从未迁移过的短链接版本号为 0
+     */
+    public Map<String, Long> getEpochs(Collection<String> fullShortUrls) {
+        List<String> urls = List.copyOf(fullShortUrls);
+        if (urls.isEmpty()) {
+            return new HashMap<>();
+        }
+        List<String> keys = new ArrayList<>(urls.size() * 2);
+        urls.forEach(each -> keys.add(String.format(SHORT_LINK_GID_EPOCH_KEY, each)));
+        urls.forEach(each -> keys.add(String.format(SHORT_LINK_GID_EPOCH_LEASE_KEY, each)));
+        List<?> values = stringRedisTemplate.execute(GID_EPOCH_GET_SCRIPT, keys);
+        Map<String, Long> result = new HashMap<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            result.put(urls.get(i), value == null ? 0L : ((Number) value).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * 版本号是否处于迁移中
+     */
+    public static boolean isMigrating(long epoch) {
+        return epoch % 2 == 1;
+    }
+}
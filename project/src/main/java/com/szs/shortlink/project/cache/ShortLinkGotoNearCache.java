@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.szs.shortlink.project.config.GotoNearCacheConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.GOTO_SHORT_LINK_INVALIDATE_CHANNEL;
+
+/**
+ * 短链接跳转本地缓存
+ * 位于 Redis 跳转缓存之前，按容量和过期时间双重淘汰；短链接修改或删除时通过 Redis 发布订阅通知所有节点失效
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkGotoNearCache implements MessageListener, MeterBinder, InitializingBean {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final GotoNearCacheConfiguration gotoNearCacheConfiguration;
+
+    private Cache<String, String> gotoCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        long expireAfterWriteNanos = TimeUnit.SECONDS.toNanos(gotoNearCacheConfiguration.getExpireAfterWrite());
+        gotoCache = Caffeine.newBuilder()
+                .maximumSize(gotoNearCacheConfiguration.getMaximumSize())
+                .expireAfter(new Expiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(@NonNull String key, @NonNull String value, long currentTime) {
+                        return expireAfterWriteNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@NonNull String key, @NonNull String value, long currentTime, long currentDuration) {
+                        return expireAfterWriteNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(@NonNull String key, @NonNull String value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取本地缓存的原始链接
+     *
+     * @param fullShortUrl 完整短链接
+     * @return 原始链接，未命中返回 null
+     */
+    public String get(String fullShortUrl) {
+        if (!isEnable()) {
+            return null;
+        }
+        return gotoCache.getIfPresent(fullShortUrl);
+    }
+
+    /**
+     * 写入本地缓存，过期时间取配置时间
+     *
+     * @param fullShortUrl 完整短链接
+     * @param originUrl    原始链接
+     */
+    public void put(String fullShortUrl, String originUrl) {
+        put(fullShortUrl, originUrl, TimeUnit.SECONDS.toMillis(gotoNearCacheConfiguration.getExpireAfterWrite()));
+    }
+
+    /**
+     * 写入本地缓存，过期时间取配置时间与短链接剩余有效期的较小值
+     *
+     * @param fullShortUrl    完整短链接
+     * @param originUrl       原始链接
+     * @param validTimeMillis 短链接剩余有效期，单位：毫秒
+     */
+    public void put(String fullShortUrl, String originUrl, long validTimeMillis) {
+        if (!isEnable()) {
+            return;
+        }
+        long expireMillis = Math.min(validTimeMillis, TimeUnit.SECONDS.toMillis(gotoNearCacheConfiguration.getExpireAfterWrite()));
+        if (expireMillis <= 0) {
+            return;
+        }
+        gotoCache.policy().expireVariably().ifPresentOrElse(
+                each -> each.put(fullShortUrl, originUrl, expireMillis, TimeUnit.MILLISECONDS),
+                () -> gotoCache.put(fullShortUrl, originUrl)
+        );
+    }
+
+    /**
+     * 失效本节点缓存并广播至其他节点
+     * 处于事务中时，事务提交后再次失效并广播，避免其他节点在提交前读到旧数据重新回填
+     *
+     * @param fullShortUrl 完整短链接
+     */
+    public void invalidate(String fullShortUrl) {
+        gotoCache.invalidate(fullShortUrl);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    gotoCache.invalidate(fullShortUrl);
+                    publishInvalidate(fullShortUrl);
+                }
+            });
+            return;
+        }
+        publishInvalidate(fullShortUrl);
+    }
+
+    private void publishInvalidate(String fullShortUrl) {
+        try {
+            stringRedisTemplate.convertAndSend(GOTO_SHORT_LINK_INVALIDATE_CHANNEL, fullShortUrl);
+        } catch (Throwable ex) {
+            log.error("广播短链接跳转本地缓存失效异常，短链接：{}", fullShortUrl, ex);
+        }
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        gotoCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, gotoCache, "short-link.goto.near-cache");
+    }
+
+    private boolean isEnable() {
+        return Boolean.TRUE.equals(gotoNearCacheConfiguration.getEnable());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.lang.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * 短链接统计增量批次重试队列
+ * 统计写库事务提交后再将增量写入 Redis，写入失败时消息已确认不能重新投递，只能在本节点内重试；
+ * 每个批次带唯一标识，写入脚本在同一次执行中以 SET NX 登记标识后再累加，超时等无法确认是否已执行的失败重试时不会重复计入
+ *
+ * @param <T> 批次类型
+ */
+final class ShortLinkStatsBatchRetryQueue<T> {
+
+    private final Queue<RetryBatch<T>> retryBatches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retryBatchCount = new AtomicInteger();
+
+    /**
+     * 生成批次唯一标识
+     */
+    static String newBatchId() {
+        return UUID.fastUUID().toString(true);
+    }
+
+    /**
+     * 批次标识有效期，为最长重试时间的两倍，重试期间及过期后检查时标识都还在
+     */
+    static long fenceTimeout(long expireMillis) {
+        return expireMillis * 2;
+    }
+
+    /**
+     * 加入重试队列
+     *
+     * @param batchId  批次唯一标识
+     * @param batch    批次数据
+     * @param capacity 队列最大批次数
+     * @return 队列已满时返回 false
+     */
+    boolean offer(String batchId, T batch, int capacity) {
+        if (retryBatchCount.incrementAndGet() > capacity) {
+            retryBatchCount.decrementAndGet();
+            return false;
+        }
+        retryBatches.offer(new RetryBatch<>(batchId, batch, System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * 按加入顺序重试，遇到未完成的批次即停止，剩余批次等待下次重试
+     * 超过最长重试时间的批次不再写入，交给过期处理确认是否已写入过
+     *
+     * @param writer         写入函数，参数为批次标识与批次数据，返回是否写入成功，异常不会抛出
+     * @param expireMillis   最长重试时间，单位：毫秒
+     * @param expiredHandler 过期处理函数，返回是否处理完成，未完成时留在队列中下次再处理
+     */
+    void retry(BiPredicate<String, T> writer, long expireMillis, BiPredicate<String, T> expiredHandler) {
+        long now = System.currentTimeMillis();
+        RetryBatch<T> each;
+        while ((each = retryBatches.peek()) != null) {
+            boolean completed = now - each.getCreateTime() >= expireMillis
+                    ? expiredHandler.test(each.getBatchId(), each.getBatch())
+                    : writer.test(each.getBatchId(), each.getBatch());
+            if (!completed) {
+                return;
+            }
+            retryBatches.poll();
+            retryBatchCount.decrementAndGet();
+        }
+    }
+
+    boolean isEmpty() {
+        return retryBatches.isEmpty();
+    }
+
+    /**
+     * 队列中尚未完成的批次数据
+     */
+    List<T> pendingBatches() {
+        return retryBatches.stream().map(RetryBatch::getBatch).toList();
+    }
+
+    /**
+     * 等待重试的批次
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class RetryBatch<T> {
+
+        private final String batchId;
+        private final T batch;
+        private final long createTime;
+    }
+}
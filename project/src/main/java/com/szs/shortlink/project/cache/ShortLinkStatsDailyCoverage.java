@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按天写入的 Redis 统计结构覆盖范围
+ * 记录开始写入的日期与写入失败的日期（缺口），区间查询只在完整覆盖且不含缺口时由 Redis 回答，否则回退到访问日志
+ */
+@Slf4j
+final class ShortLinkStatsDailyCoverage {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String sinceKey;
+    private final String gapsKey;
+    private final Supplier<Integer> retainDays;
+    private final String name;
+
+    /**
+     * 开始写入的日期，开始当天只包含部分访问，不参与区间查询
+     */
+    private volatile LocalDate since;
+
+    /**
+     * 写入失败但尚未登记到 Redis 的日期，登记前本节点查询同样视为未覆盖
+     */
+    private final Set<String> pendingGapDates = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param stringRedisTemplate Redis 操作模板
+     * @param sinceKey            开始写入日期 Key
+     * @param gapsKey             写入失败日期集合 Key
+     * @param retainDays          保留天数，读取配置的最新值
+     * @param name                统计结构名称，用于日志
+     */
+    ShortLinkStatsDailyCoverage(StringRedisTemplate stringRedisTemplate, String sinceKey, String gapsKey, Supplier<Integer> retainDays, String name) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sinceKey = sinceKey;
+        this.gapsKey = gapsKey;
+        this.retainDays = retainDays;
+        this.name = name;
+    }
+
+    /**
+     * 写入失败日期集合 Key，查询时与统计数据在同一管道中读取
+     */
+    byte[] gapsKey() {
+        return gapsKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 首次写入成功后登记开始写入日期，多个节点以最早登记的为准
+     */
+    void recordSince() {
+        if (since != null) {
+            return;
+        }
+        stringRedisTemplate.opsForValue().setIfAbsent(sinceKey, LocalDate.now().toString());
+        String sinceValue = stringRedisTemplate.opsForValue().get(sinceKey);
+        if (StrUtil.isNotBlank(sinceValue)) {
+            since = LocalDate.parse(sinceValue);
+        }
+    }
+
+    /**
+     * 完整覆盖的第一天，为开始写入日期的下一天与保留范围起点中的较晚者
+     *
+     * @return 尚未开始写入时返回 null
+     */
+    LocalDate coveredStart() {
+        if (since == null) {
+            String sinceValue = stringRedisTemplate.opsForValue().get(sinceKey);
+            if (StrUtil.isBlank(sinceValue)) {
+                return null;
+            }
+            since = LocalDate.parse(sinceValue);
+        }
+        LocalDate retainStart = LocalDate.now().minusDays(retainDays.get());
+        LocalDate firstFullDay = since.plusDays(1);
+        return firstFullDay.isAfter(retainStart) ? firstFullDay : retainStart;
+    }
+
+    /**
+     * 登记写入失败的日期
+     */
+    void markGapDates(Collection<LocalDate> dates) {
+        dates.forEach(each -> pendingGapDates.add(each.toString()));
+        flushGapDates();
+    }
+
+    /**
+     * 将本节点记录的写入失败日期登记到 Redis，Redis 不可用时保留到下次写入或查询时重试
+     */
+    void flushGapDates() {
+        if (pendingGapDates.isEmpty()) {
+            return;
+        }
+        List<String> gapDates = new ArrayList<>(pendingGapDates);
+        try {
+            stringRedisTemplate.opsForSet().add(gapsKey, gapDates.toArray(new String[0]));
+            stringRedisTemplate.expire(gapsKey, retainDays.get() + 1L, TimeUnit.DAYS);
+            gapDates.forEach(pendingGapDates::remove);
+        } catch (Throwable ex) {
+            log.warn("登记{}写入失败日期异常：{}", name, gapDates, ex);
+        }
+    }
+
+    /**
+     * 区间内是否存在写入失败的日期
+     *
+     * @param gapDates Redis 中登记的写入失败日期
+     */
+    boolean hasGap(Collection<?> gapDates, LocalDate start, LocalDate end) {
+        Set<String> actualGapDates = new HashSet<>(pendingGapDates);
+        if (gapDates != null) {
+            gapDates.forEach(each -> actualGapDates.add(each.toString()));
+        }
+        return actualGapDates.stream()
+                .map(LocalDate::parse)
+                .anyMatch(each -> !each.isBefore(start) && !each.isAfter(end));
+    }
+
+    /**
+     * 保留范围内的日期，从最早一天到今天
+     */
+    List<LocalDate> retainDates() {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = today.minusDays(retainDays.get()); !date.isAfter(today); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    /**
+     * 某天数据的过期时间，保留天数结束后的零点，单位：秒
+     */
+    long expireAt(LocalDate date) {
+        return date.plusDays(retainDays.get() + 1L)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toEpochSecond();
+    }
+
+    static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
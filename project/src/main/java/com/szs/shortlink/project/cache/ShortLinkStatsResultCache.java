@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import com.szs.shortlink.project.config.StatsResultCacheConfiguration;
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsCacheRangeDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_RESULT_GROUP_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_RESULT_LINK_KEY;
+
+/**
+ * 短链接监控结果缓存
+ * 已结束的天不再产生新的统计数据，其查询结果按查询项与日期区间缓存在 Redis Hash 中；今天及跨天后尚未结束的前一天每次实时查询
+ * 短链接修改分组、移入移出回收站或删除，以及已结束日期收到延迟统计时，相关短链接与分组的缓存失效
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkStatsResultCache {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StatsResultCacheConfiguration statsResultCacheConfiguration;
+
+    private static final DefaultRedisScript<Long> STATS_RESULT_PUT_SCRIPT;
+
+    static {
+        STATS_RESULT_PUT_SCRIPT = new DefaultRedisScript<>();
+        STATS_RESULT_PUT_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_stats_result_put.lua")));
+        STATS_RESULT_PUT_SCRIPT.setResultType(Long.class);
+    }
+
+    /**
+     * 按已结束日期拆分查询区间，未开启缓存时全部为实时段
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 缓存段与实时段
+     */
+    public ShortLinkStatsCacheRangeDTO splitRange(String startDate, String endDate) {
+        LocalDate start = toLocalDate(startDate);
+        LocalDate end = toLocalDate(endDate);
+        if (!isEnable()) {
+            return ShortLinkStatsCacheRangeDTO.builder()
+                    .cachedStart(start.toString())
+                    .cachedEnd(start.minusDays(1).toString())
+                    .liveStart(start.toString())
+                    .liveEnd(end.toString())
+                    .build();
+        }
+        LocalDate closedEnd = closedEnd();
+        LocalDate cachedEnd = end.isBefore(closedEnd) ? end : closedEnd;
+        LocalDate liveStart = start.isAfter(closedEnd) ? start : closedEnd.plusDays(1);
+        return ShortLinkStatsCacheRangeDTO.builder()
+                .cachedStart(start.toString())
+                .cachedEnd(cachedEnd.toString())
+                .liveStart(liveStart.toString())
+                .liveEnd(end.toString())
+                .build();
+    }
+
+    /**
+     * 单个短链接监控结果缓存 Key
+     */
+    public String linkKey(String gid, String fullShortUrl) {
+        return String.format(SHORT_LINK_STATS_RESULT_LINK_KEY, gid, fullShortUrl);
+    }
+
+    /**
+     * 分组监控结果缓存 Key
+     */
+    public String groupKey(String gid) {
+        return String.format(SHORT_LINK_STATS_RESULT_GROUP_KEY, gid);
+    }
+
+    /**
+     * 读取缓存的查询结果，Redis 异常时按未命中处理
+     *
+     * @param cacheKey 缓存 Key
+     * @param field    查询项与日期区间
+     * @param type     查询结果类型
+     * @return 查询结果，未命中返回 null
+     */
+    public <T> T get(String cacheKey, String field, Type type) {
+        try {
+            Object cached = stringRedisTemplate.opsForHash().get(cacheKey, field);
+            return cached == null ? null : JSON.parseObject(cached.toString(), type);
+        } catch (Throwable ex) {
+            log.warn("读取短链接监控结果缓存异常，Key：{}，字段：{}", cacheKey, field, ex);
+            return null;
+        }
+    }
+
+    /**
+     * 写入查询结果，缓存有效期从 Key 创建时开始计算，后续写入不刷新，空结果不缓存
+     *
+     * @param cacheKey 缓存 Key
+     * @param field    查询项与日期区间
+     * @param value    查询结果
+     */
+    public void put(String cacheKey, String field, Object value) {
+        if (value == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(
+                    STATS_RESULT_PUT_SCRIPT,
+                    List.of(cacheKey),
+                    field, JSON.toJSONString(value), String.valueOf(statsResultCacheConfiguration.getTtl())
+            );
+        } catch (Throwable ex) {
+            log.warn("写入短链接监控结果缓存异常，Key：{}，字段：{}", cacheKey, field, ex);
+        }
+    }
+
+    /**
+     * 短链接修改分组、移入移出回收站或删除后失效短链接在各分组下的缓存以及各分组的缓存
+     * 处于事务中时，事务提交后再次失效，避免提交前的并发查询读到旧分组数据重新回填
+     *
+     * @param fullShortUrl 完整短链接
+     * @param gids         涉及的分组标识
+     */
+    public void invalidate(String fullShortUrl, String... gids) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String each : gids) {
+            if (StrUtil.isNotBlank(each)) {
+                keys.add(linkKey(each, fullShortUrl));
+                keys.add(groupKey(each));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        deleteKeys(keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteKeys(keys);
+                }
+            });
+        }
+    }
+
+    /**
+     * 统计事务提交后，写入已结束日期的延迟统计使对应短链接与分组的缓存失效
+     * 延迟消费、重试或延迟队列超过关闭延迟后才写入时，已缓存的结果不再准确
+     *
+     * @param accessStats 本批次写入的按小时访问统计
+     */
+    public void invalidateLateWrites(Collection<LinkAccessStatsDO> accessStats) {
+        if (!isEnable() || CollUtil.isEmpty(accessStats)) {
+            return;
+        }
+        List<LinkAccessStatsDO> actualAccessStats = new ArrayList<>(accessStats);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidateLateWrites(actualAccessStats);
+                }
+            });
+            return;
+        }
+        doInvalidateLateWrites(actualAccessStats);
+    }
+
+    private void doInvalidateLateWrites(List<LinkAccessStatsDO> accessStats) {
+        LocalDate closedEnd = closedEnd();
+        Set<String> keys = new LinkedHashSet<>();
+        for (LinkAccessStatsDO each : accessStats) {
+            if (each.getDate() != null && !toLocalDate(each.getDate()).isAfter(closedEnd)) {
+                keys.add(linkKey(each.getGid(), each.getFullShortUrl()));
+                keys.add(groupKey(each.getGid()));
+            }
+        }
+        if (!keys.isEmpty()) {
+            log.info("已结束日期收到延迟统计，失效监控结果缓存：{}", keys);
+            deleteKeys(keys);
+        }
+    }
+
+    /**
+     * 最后一个已结束的日期，跨天后延迟消费与重试仍可能写入前一天，超过关闭延迟后才视为结束，
+     * 之后到达的延迟统计由 {@link #invalidateLateWrites(Collection)} 失效缓存
+     */
+    private LocalDate closedEnd() {
+        return LocalDateTime.now()
+                .minus(statsResultCacheConfiguration.getCloseDelay(), ChronoUnit.MILLIS)
+                .toLocalDate()
+                .minusDays(1);
+    }
+
+    private void deleteKeys(Set<String> keys) {
+        try {
+            stringRedisTemplate.delete(keys);
+        } catch (Throwable ex) {
+            log.error("失效短链接监控结果缓存异常，Key：{}", keys, ex);
+        }
+    }
+
+    private LocalDate toLocalDate(String date) {
+        return toLocalDate(DateUtil.parse(date));
+    }
+
+    private LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private boolean isEnable() {
+        return Boolean.TRUE.equals(statsResultCacheConfiguration.getEnable());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 管道批量执行 Lua 脚本
+ * 与 {@link StringRedisTemplate#execute} 执行脚本一致，先按 SHA1 执行，脚本未加载（NOSCRIPT）时再发送脚本原文，
+ * 避免每次调用都传输完整脚本
+ */
+final class ShortLinkStatsScriptPipeline {
+
+    private ShortLinkStatsScriptPipeline() {
+    }
+
+    /**
+     * 在一个管道中按 SHA1 多次执行同一脚本，只对返回 NOSCRIPT 的调用改用脚本原文重新执行
+     * 脚本未加载时 EVALSHA 不会执行任何命令，重新执行不会重复写入
+     *
+     * @param stringRedisTemplate Redis 操作模板
+     * @param script              脚本
+     * @param numKeys             每次调用的 Key 数量
+     * @param keysAndArgsList     每次调用的 Key 与参数
+     */
+    static void evalSha(StringRedisTemplate stringRedisTemplate, DefaultRedisScript<?> script, int numKeys, List<byte[][]> keysAndArgsList) {
+        if (keysAndArgsList.isEmpty()) {
+            return;
+        }
+        byte[] sha1 = script.getSha1().getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                keysAndArgsList.forEach(each -> connection.scriptingCommands().evalSha(sha1, ReturnType.INTEGER, numKeys, each));
+                return null;
+            });
+        } catch (RedisPipelineException ex) {
+            List<Object> results = ex.getResults();
+            if (results.size() != keysAndArgsList.size()) {
+                throw ex;
+            }
+            List<byte[][]> noScriptCalls = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) instanceof Throwable failure) {
+                    if (!isNoScript(failure)) {
+                        throw ex;
+                    }
+                    noScriptCalls.add(keysAndArgsList.get(i));
+                }
+            }
+            byte[] scriptBytes = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                noScriptCalls.forEach(each -> connection.scriptingCommands().eval(scriptBytes, ReturnType.INTEGER, numKeys, each));
+                return null;
+            });
+        }
+    }
+
+    private static boolean isNoScript(Throwable failure) {
+        for (Throwable each = failure; each != null; each = each.getCause()) {
+            if (each.getMessage() != null && each.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import com.alibaba.fastjson2.JSON;
+import com.szs.shortlink.project.config.StatsTodayConfiguration;
+import com.szs.shortlink.project.dao.entity.LinkStatsTodayDO;
+import com.szs.shortlink.project.dao.entity.ShortLinkDO;
+import com.szs.shortlink.project.dao.mapper.LinkStatsTodayMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_BATCH_FENCE_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TODAY_FLUSH_LOCK_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TODAY_GIDS_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TODAY_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TODAY_RANK_KEY;
+
+/**
+ * 短链接当天访问统计缓存
+ * 每个短链接每天一个计数哈希，每个分组每天按 PV、UV、UIP 各维护一个排行有序集合；
+ * 分页查询当天数据及按当天访问排序直接读取 Redis，今日统计表仅在日期结束后由定时任务批量覆盖写入
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkTodayStatsCache implements SmartLifecycle {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedissonClient redissonClient;
+    private final LinkStatsTodayMapper linkStatsTodayMapper;
+    private final StatsTodayConfiguration statsTodayConfiguration;
+
+    public static final String PV_FIELD = "pv";
+    public static final String UV_FIELD = "uv";
+    public static final String UIP_FIELD = "uip";
+
+    private static final DateTimeFormatter DATE_KEY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DefaultRedisScript<Long> TODAY_STATS_MOVE_SCRIPT;
+    private static final DefaultRedisScript<Long> TODAY_STATS_INCREMENT_SCRIPT;
+
+    static {
+        TODAY_STATS_MOVE_SCRIPT = new DefaultRedisScript<>();
+        TODAY_STATS_MOVE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_today_stats_move.lua")));
+        TODAY_STATS_MOVE_SCRIPT.setResultType(Long.class);
+        TODAY_STATS_INCREMENT_SCRIPT = new DefaultRedisScript<>();
+        TODAY_STATS_INCREMENT_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_today_stats_increment.lua")));
+        TODAY_STATS_INCREMENT_SCRIPT.setResultType(Long.class);
+    }
+
+    /**
+     * 事务提交后写入 Redis 失败的批次，消息已确认不能重新投递，今日统计表又会被日终刷新覆盖，只能在本节点内重试写入 Redis
+     */
+    private final ShortLinkStatsBatchRetryQueue<List<LinkStatsTodayDO>> retryQueue = new ShortLinkStatsBatchRetryQueue<>();
+
+    private ScheduledExecutorService flushScheduler;
+    private volatile boolean running;
+
+    /**
+     * 将分页排序标识转换为当天排行统计项
+     *
+     * @param orderTag 排序标识
+     * @return 统计项，非当天访问排序时返回 null
+     */
+    public static String rankField(String orderTag) {
+        if (orderTag == null) {
+            return null;
+        }
+        return switch (orderTag) {
+            case "todayPv" -> PV_FIELD;
+            case "todayUv" -> UV_FIELD;
+            case "todayUip" -> UIP_FIELD;
+            default -> null;
+        };
+    }
+
+    public boolean isEnable() {
+        return Boolean.TRUE.equals(statsTodayConfiguration.getEnable());
+    }
+
+    /**
+     * 累计一批短链接当天访问数据，处于事务中时事务提交后再写入 Redis；未开启时直接累加今日统计表
+     *
+     * @param todayStats 按短链接与日期聚合后的访问增量
+     */
+    public void increment(List<LinkStatsTodayDO> todayStats) {
+        if (CollUtil.isEmpty(todayStats)) {
+            return;
+        }
+        if (!isEnable()) {
+            linkStatsTodayMapper.shortLinkTodayStateBatch(todayStats);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bufferIncrement(todayStats);
+                }
+            });
+            return;
+        }
+        bufferIncrement(todayStats);
+    }
+
+    /**
+     * 分组内当天访问排行的短链接数量
+     */
+    public long rankSize(String gid, String field) {
+        return Optional.ofNullable(stringRedisTemplate.opsForZSet().zCard(rankKey(today(), gid, field))).orElse(0L);
+    }
+
+    /**
+     * 短链接在分组当天访问排行中的倒序名次，作为键集分页游标定位下一页起点
+     *
+     * @return 名次，从 0 开始；不在排行中时返回 null
+     */
+    public Long reverseRank(String gid, String field, String fullShortUrl) {
+        return stringRedisTemplate.opsForZSet().reverseRank(rankKey(today(), gid, field), fullShortUrl);
+    }
+
+    /**
+     * 按倒序名次区间获取分组当天访问排行中的短链接
+     *
+     * @param start 开始名次，包含
+     * @param end   结束名次，包含；-1 表示到末尾
+     */
+    public List<String> reverseRange(String gid, String field, long start, long end) {
+        Set<String> fullShortUrls = stringRedisTemplate.opsForZSet().reverseRange(rankKey(today(), gid, field), start, end);
+        return fullShortUrls == null ? Collections.emptyList() : new ArrayList<>(fullShortUrls);
+    }
+
+    /**
+     * 批量判断短链接是否在分组当天访问排行中，一批短链接通过管道一次往返读取
+     *
+     * @return 在排行中的完整短链接
+     */
+    public Set<String> filterRanked(String gid, String field, List<String> fullShortUrls) {
+        if (CollUtil.isEmpty(fullShortUrls)) {
+            return Collections.emptySet();
+        }
+        byte[] rankKey = bytes(rankKey(today(), gid, field));
+        List<Object> scores = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            fullShortUrls.forEach(each -> connection.zSetCommands().zScore(rankKey, bytes(each)));
+            return null;
+        });
+        Set<String> ranked = new HashSet<>();
+        for (int i = 0; i < fullShortUrls.size(); i++) {
+            if (scores.get(i) != null) {
+                ranked.add(fullShortUrls.get(i));
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * 短链接移入回收站或删除后移出分组当天的三个访问排行，避免按当天访问排序分页时占位导致页面不满；当天计数哈希保留
+     *
+     * @param gid           分组标识
+     * @param fullShortUrls 完整短链接
+     */
+    public void removeRank(String gid, String... fullShortUrls) {
+        if (!isEnable() || fullShortUrls.length == 0) {
+            return;
+        }
+        runAfterCommit(() -> {
+            String dateKey = today();
+            try {
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    byte[][] members = Arrays.stream(fullShortUrls).map(ShortLinkTodayStatsCache::bytes).toArray(byte[][]::new);
+                    for (String field : List.of(PV_FIELD, UV_FIELD, UIP_FIELD)) {
+                        connection.zSetCommands().zRem(bytes(rankKey(dateKey, gid, field)), members);
+                    }
+                    return null;
+                });
+            } catch (Throwable ex) {
+                log.error("移除短链接当天访问排行异常，分组标识：{}，短链接：{}", gid, fullShortUrls, ex);
+            }
+        });
+    }
+
+    /**
+     * 短链接从回收站恢复后按当天计数哈希重新加入分组当天的访问排行
+     *
+     * @param gid          分组标识
+     * @param fullShortUrl 完整短链接
+     */
+    public void restoreRank(String gid, String fullShortUrl) {
+        if (!isEnable()) {
+            return;
+        }
+        runAfterCommit(() -> {
+            String dateKey = today();
+            try {
+                List<Object> values = stringRedisTemplate.opsForHash().multiGet(
+                        String.format(SHORT_LINK_STATS_TODAY_KEY, dateKey, fullShortUrl),
+                        List.of(PV_FIELD, UV_FIELD, UIP_FIELD)
+                );
+                if (values.stream().allMatch(Objects::isNull)) {
+                    return;
+                }
+                long retainMillis = retainMillis();
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    List<String> fields = List.of(PV_FIELD, UV_FIELD, UIP_FIELD);
+                    for (int i = 0; i < fields.size(); i++) {
+                        byte[] rankKey = bytes(rankKey(dateKey, gid, fields.get(i)));
+                        connection.zSetCommands().zAdd(rankKey, toInt(values.get(i)), bytes(fullShortUrl));
+                        connection.keyCommands().pExpire(rankKey, retainMillis);
+                    }
+                    return null;
+                });
+            } catch (Throwable ex) {
+                log.error("恢复短链接当天访问排行异常，分组标识：{}，短链接：{}", gid, fullShortUrl, ex);
+            }
+        });
+    }
+
+    /**
+     * 为短链接填充当天访问数据，一页短链接通过管道一次往返读取
+     *
+     * @param shortLinkDOList 查询出的短链接集合
+     */
+    public void fillToday(Collection<ShortLinkDO> shortLinkDOList) {
+        if (!isEnable() || CollUtil.isEmpty(shortLinkDOList)) {
+            return;
+        }
+        List<ShortLinkDO> actualShortLinks = new ArrayList<>(shortLinkDOList);
+        String dateKey = today();
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                actualShortLinks.forEach(each -> connection.hashCommands().hMGet(
+                        bytes(String.format(SHORT_LINK_STATS_TODAY_KEY, dateKey, each.getFullShortUrl())),
+                        bytes(PV_FIELD), bytes(UV_FIELD), bytes(UIP_FIELD)
+                ));
+                return null;
+            });
+            for (int i = 0; i < actualShortLinks.size(); i++) {
+                List<?> values = (List<?>) results.get(i);
+                ShortLinkDO each = actualShortLinks.get(i);
+                each.setTodayPv(toInt(values.get(0)));
+                each.setTodayUv(toInt(values.get(1)));
+                each.setTodayUip(toInt(values.get(2)));
+            }
+        } catch (Throwable ex) {
+            log.warn("查询短链接当天访问统计异常", ex);
+        }
+    }
+
+    /**
+     * 短链接变更分组时，事务提交后将保留期内各天排行中的访问量转移到新分组
+     */
+    public void moveGid(String fullShortUrl, String originGid, String gid) {
+        if (!isEnable()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doMoveGid(fullShortUrl, originGid, gid);
+                }
+            });
+            return;
+        }
+        doMoveGid(fullShortUrl, originGid, gid);
+    }
+
+    private void runAfterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+            return;
+        }
+        runnable.run();
+    }
+
+    private void doMoveGid(String fullShortUrl, String originGid, String gid) {
+        String retainTimeout = String.valueOf(retainMillis());
+        for (LocalDate date : retainDates(true)) {
+            String dateKey = date.format(DATE_KEY_FORMATTER);
+            try {
+                stringRedisTemplate.execute(TODAY_STATS_MOVE_SCRIPT, List.of(
+                        rankKey(dateKey, originGid, PV_FIELD), rankKey(dateKey, originGid, UV_FIELD), rankKey(dateKey, originGid, UIP_FIELD),
+                        rankKey(dateKey, gid, PV_FIELD), rankKey(dateKey, gid, UV_FIELD), rankKey(dateKey, gid, UIP_FIELD),
+                        String.format(SHORT_LINK_STATS_TODAY_GIDS_KEY, dateKey)
+                ), fullShortUrl, gid, retainTimeout);
+            } catch (Throwable ex) {
+                log.error("转移短链接当天访问排行异常，短链接：{}，日期：{}", fullShortUrl, dateKey, ex);
+            }
+        }
+    }
+
+    private void bufferIncrement(List<LinkStatsTodayDO> todayStats) {
+        String batchId = ShortLinkStatsBatchRetryQueue.newBatchId();
+        if (!writeIncrement(batchId, todayStats) && !retryQueue.offer(batchId, todayStats, statsTodayConfiguration.getRetryCapacity())) {
+            log.error("短链接当天访问统计重试队列已满，丢弃本批次：{}", JSON.toJSONString(todayStats));
+        }
+    }
+
+    /**
+     * 重试写入失败的批次，遇到失败即停止，剩余批次等待下次重试
+     */
+    private void retryFailedIncrements() {
+        retryQueue.retry(this::writeIncrement, statsTodayConfiguration.getRetryExpireTime(), (batchId, todayStats) -> {
+            log.error("短链接当天访问统计超过最长重试时间仍未确认写入，丢弃本批次：{}", JSON.toJSONString(todayStats));
+            return true;
+        });
+    }
+
+    /**
+     * 一次 Lua 脚本原子写入一批当天访问增量，脚本以批次标识去重，失败重试同一批次不会重复累加
+     *
+     * @return 是否写入成功（含此前已写入），异常不会抛出
+     */
+    private boolean writeIncrement(String batchId, List<LinkStatsTodayDO> todayStats) {
+        List<String> keys = new ArrayList<>(todayStats.size() * 5 + 1);
+        List<String> args = new ArrayList<>(todayStats.size() * 5 + 2);
+        keys.add(String.format(SHORT_LINK_STATS_BATCH_FENCE_KEY, batchId));
+        args.add(String.valueOf(ShortLinkStatsBatchRetryQueue.fenceTimeout(statsTodayConfiguration.getRetryExpireTime())));
+        args.add(String.valueOf(retainMillis()));
+        for (LinkStatsTodayDO each : todayStats) {
+            String dateKey = DateUtil.format(each.getDate(), "yyyyMMdd");
+            keys.add(String.format(SHORT_LINK_STATS_TODAY_KEY, dateKey, each.getFullShortUrl()));
+            keys.add(rankKey(dateKey, each.getGid(), PV_FIELD));
+            keys.add(rankKey(dateKey, each.getGid(), UV_FIELD));
+            keys.add(rankKey(dateKey, each.getGid(), UIP_FIELD));
+            keys.add(String.format(SHORT_LINK_STATS_TODAY_GIDS_KEY, dateKey));
+            args.add(each.getFullShortUrl());
+            args.add(each.getGid());
+            args.add(String.valueOf(toInt(each.getTodayPv())));
+            args.add(String.valueOf(toInt(each.getTodayUv())));
+            args.add(String.valueOf(toInt(each.getTodayUip())));
+        }
+        try {
+            stringRedisTemplate.execute(TODAY_STATS_INCREMENT_SCRIPT, keys, args.toArray());
+            return true;
+        } catch (Throwable ex) {
+            log.error("写入短链接当天访问统计异常，稍后重试，短链接数量：{}", todayStats.size(), ex);
+            return false;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!isEnable()) {
+            return;
+        }
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("short-link_stats_today_flusher");
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+        long flushInterval = statsTodayConfiguration.getFlushInterval();
+        flushScheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        long retryInterval = statsTodayConfiguration.getRetryInterval();
+        flushScheduler.scheduleWithFixedDelay(this::retryFailedIncrements, retryInterval, retryInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 将保留期内已结束日期的当天访问统计覆盖写入今日统计表，延迟到达的统计会重新标记分组并在下次检查时重新写入
+     */
+    private void flush() {
+        RLock lock = redissonClient.getLock(SHORT_LINK_STATS_TODAY_FLUSH_LOCK_KEY);
+        try {
+            if (!lock.tryLock()) {
+                return;
+            }
+        } catch (Throwable ex) {
+            log.error("获取短链接当天访问统计刷新锁异常", ex);
+            return;
+        }
+        try {
+            for (LocalDate date : retainDates(false)) {
+                String dateKey = date.format(DATE_KEY_FORMATTER);
+                Set<String> gids = stringRedisTemplate.opsForSet().members(String.format(SHORT_LINK_STATS_TODAY_GIDS_KEY, dateKey));
+                if (CollUtil.isNotEmpty(gids)) {
+                    gids.forEach(each -> flushGid(date, dateKey, each));
+                }
+            }
+        } catch (Throwable ex) {
+            log.error("刷新短链接当天访问统计异常", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushGid(LocalDate date, String dateKey, String gid) {
+        String gidsKey = String.format(SHORT_LINK_STATS_TODAY_GIDS_KEY, dateKey);
+        // 先移除标记再读取，读取之后到达的统计会重新打上标记
+        stringRedisTemplate.opsForSet().remove(gidsKey, gid);
+        try {
+            Set<String> fullShortUrls = stringRedisTemplate.opsForZSet().range(rankKey(dateKey, gid, PV_FIELD), 0, -1);
+            if (CollUtil.isEmpty(fullShortUrls)) {
+                return;
+            }
+            Date actualDate = Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            for (List<String> each : CollUtil.split(fullShortUrls, statsTodayConfiguration.getFlushBatchSize())) {
+                List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    each.forEach(item -> connection.hashCommands().hMGet(
+                            bytes(String.format(SHORT_LINK_STATS_TODAY_KEY, dateKey, item)),
+                            bytes(PV_FIELD), bytes(UV_FIELD), bytes(UIP_FIELD)
+                    ));
+                    return null;
+                });
+                List<LinkStatsTodayDO> linkStatsTodayDOList = new ArrayList<>(each.size());
+                for (int i = 0; i < each.size(); i++) {
+                    List<?> values = (List<?>) results.get(i);
+                    linkStatsTodayDOList.add(LinkStatsTodayDO.builder()
+                            .gid(gid)
+                            .fullShortUrl(each.get(i))
+                            .date(actualDate)
+                            .todayPv(toInt(values.get(0)))
+                            .todayUv(toInt(values.get(1)))
+                            .todayUip(toInt(values.get(2)))
+                            .build());
+                }
+                linkStatsTodayMapper.overwriteTodayStateBatch(linkStatsTodayDOList);
+            }
+        } catch (Throwable ex) {
+            stringRedisTemplate.opsForSet().add(gidsKey, gid);
+            log.error("刷新短链接当天访问统计异常，分组标识：{}，日期：{}", gid, dateKey, ex);
+        }
+    }
+
+    /**
+     * 保留期内的日期
+     *
+     * @param includeToday 是否包含当天
+     */
+    private List<LocalDate> retainDates(boolean includeToday) {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = statsTodayConfiguration.getRetainDays() - 1; i >= (includeToday ? 0 : 1); i--) {
+            dates.add(today.minusDays(i));
+        }
+        return dates;
+    }
+
+    private long retainMillis() {
+        return TimeUnit.DAYS.toMillis(statsTodayConfiguration.getRetainDays());
+    }
+
+    private static String rankKey(String dateKey, String gid, String field) {
+        return String.format(SHORT_LINK_STATS_TODAY_RANK_KEY, dateKey, gid, field);
+    }
+
+    private static String today() {
+        return LocalDate.now().format(DATE_KEY_FORMATTER);
+    }
+
+    private static Integer toInt(Object value) {
+        return value == null ? 0 : Integer.parseInt(value.toString());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            try {
+                flushScheduler.awaitTermination(statsTodayConfiguration.getRetryInterval(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            retryFailedIncrements();
+            if (!retryQueue.isEmpty()) {
+                List<List<LinkStatsTodayDO>> pendingBatches = retryQueue.pendingBatches();
+                log.error("停止时仍有短链接当天访问统计未写入 Redis，批次数量：{}，数据：{}", pendingBatches.size(), JSON.toJSONString(pendingBatches));
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.config.StatsTopIpConfiguration;
+import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOP_IP_GAPS_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOP_IP_GROUP_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOP_IP_LINK_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOP_IP_SINCE_KEY;
+
+/**
+ * 短链接高频访问 IP 统计
+ * 统计落库时按短链接和分组各维护每天一个容量固定的 IP 计数有序集合（Space-Saving 算法），
+ * 区间高频访问 IP 由区间内每天的有序集合累加后取前几名得出，无需扫描访问日志；
+ * 计数在统计事务提交后写入且每次提交只写一次，写入失败的日期登记为缺口，包含缺口的区间回退到访问日志聚合
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkTopIpSketch implements InitializingBean {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StatsTopIpConfiguration statsTopIpConfiguration;
+
+    private static final String SHORT_LINK_TOP_IP_RECORD_LUA_SCRIPT_PATH = "lua/short_link_top_ip_record.lua";
+    private static final String SHORT_LINK_TOP_IP_MOVE_LUA_SCRIPT_PATH = "lua/short_link_top_ip_move.lua";
+
+    private static final DefaultRedisScript<Long> SHORT_LINK_TOP_IP_RECORD_SCRIPT;
+    private static final DefaultRedisScript<Long> SHORT_LINK_TOP_IP_MOVE_SCRIPT;
+
+    /**
+     * 返回的高频访问 IP 数量，与访问日志聚合查询保持一致
+     */
+    private static final int TOP_IP_SIZE = 5;
+    private static final DateTimeFormatter DATE_KEY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    static {
+        SHORT_LINK_TOP_IP_RECORD_SCRIPT = new DefaultRedisScript<>();
+        SHORT_LINK_TOP_IP_RECORD_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(SHORT_LINK_TOP_IP_RECORD_LUA_SCRIPT_PATH)));
+        SHORT_LINK_TOP_IP_RECORD_SCRIPT.setResultType(Long.class);
+        SHORT_LINK_TOP_IP_MOVE_SCRIPT = new DefaultRedisScript<>();
+        SHORT_LINK_TOP_IP_MOVE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(SHORT_LINK_TOP_IP_MOVE_LUA_SCRIPT_PATH)));
+        SHORT_LINK_TOP_IP_MOVE_SCRIPT.setResultType(Long.class);
+    }
+
+    private ShortLinkStatsDailyCoverage coverage;
+
+    @Override
+    public void afterPropertiesSet() {
+        coverage = new ShortLinkStatsDailyCoverage(stringRedisTemplate, SHORT_LINK_STATS_TOP_IP_SINCE_KEY, SHORT_LINK_STATS_TOP_IP_GAPS_KEY,
+                statsTopIpConfiguration::getRetainDays, "短链接高频访问 IP 计数");
+    }
+
+    /**
+     * 登记一批访问日志中的 IP 访问次数，处于事务中时事务提交后再写入
+     *
+     * @param accessLogs 访问日志集合
+     */
+    public void add(List<LinkAccessLogsDO> accessLogs) {
+        if (!isEnable() || CollUtil.isEmpty(accessLogs)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doAdd(accessLogs);
+                }
+            });
+            return;
+        }
+        doAdd(accessLogs);
+    }
+
+    /**
+     * 累加短链接区间内每天的 IP 计数，返回结构与访问日志聚合查询一致
+     *
+     * @param fullShortUrl 完整短链接
+     * @param startDate    开始日期
+     * @param endDate      结束日期
+     * @return 高频访问 IP 集合，区间超出计数覆盖范围时返回 null
+     */
+    public List<HashMap<String, Object>> listTopIpByShortLink(String fullShortUrl, String startDate, String endDate) {
+        return listTopIp(SHORT_LINK_STATS_TOP_IP_LINK_KEY, fullShortUrl, startDate, endDate);
+    }
+
+    /**
+     * 累加分组区间内每天的 IP 计数，返回结构与访问日志聚合查询一致
+     *
+     * @param gid       分组标识
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 高频访问 IP 集合，区间超出计数覆盖范围时返回 null
+     */
+    public List<HashMap<String, Object>> listTopIpByGroup(String gid, String startDate, String endDate) {
+        return listTopIp(SHORT_LINK_STATS_TOP_IP_GROUP_KEY, gid, startDate, endDate);
+    }
+
+    /**
+     * 短链接迁移分组后，把短链接保留范围内每天的 IP 计数从原分组扣减并并入新分组
+     *
+     * @param fullShortUrl 完整短链接
+     * @param originGid    原分组标识
+     * @param gid          新分组标识
+     */
+    public void moveGid(String fullShortUrl, String originGid, String gid) {
+        if (!isEnable() || StrUtil.equals(originGid, gid)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doMoveGid(fullShortUrl, originGid, gid);
+                }
+            });
+            return;
+        }
+        doMoveGid(fullShortUrl, originGid, gid);
+    }
+
+    private void doAdd(List<LinkAccessLogsDO> accessLogs) {
+        Map<String, LocalDate> keyDates = new LinkedHashMap<>();
+        try {
+            coverage.flushGapDates();
+            // 先在批次内按 Key 与 IP 聚合计数，每个 Key 一次脚本调用
+            Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+            for (LinkAccessLogsDO each : accessLogs) {
+                LocalDate date = ShortLinkStatsDailyCoverage.toLocalDate(each.getCreateTime() != null ? each.getCreateTime() : new Date());
+                String dateKey = date.format(DATE_KEY_FORMATTER);
+                String ip = StrUtil.nullToEmpty(each.getIp());
+                addCount(counts, keyDates, String.format(SHORT_LINK_STATS_TOP_IP_LINK_KEY, each.getFullShortUrl(), dateKey), date, ip);
+                addCount(counts, keyDates, String.format(SHORT_LINK_STATS_TOP_IP_GROUP_KEY, each.getGid(), dateKey), date, ip);
+            }
+            byte[] capacity = String.valueOf(statsTopIpConfiguration.getCapacity()).getBytes(StandardCharsets.UTF_8);
+            List<byte[][]> keysAndArgsList = new ArrayList<>(counts.size());
+            counts.forEach((key, ipCounts) -> {
+                byte[][] keysAndArgs = new byte[3 + ipCounts.size() * 2][];
+                int index = 0;
+                keysAndArgs[index++] = key.getBytes(StandardCharsets.UTF_8);
+                keysAndArgs[index++] = capacity;
+                keysAndArgs[index++] = String.valueOf(coverage.expireAt(keyDates.get(key))).getBytes(StandardCharsets.UTF_8);
+                for (Map.Entry<String, Long> entry : ipCounts.entrySet()) {
+                    keysAndArgs[index++] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    keysAndArgs[index++] = String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8);
+                }
+                keysAndArgsList.add(keysAndArgs);
+            });
+            ShortLinkStatsScriptPipeline.evalSha(stringRedisTemplate, SHORT_LINK_TOP_IP_RECORD_SCRIPT, 1, keysAndArgsList);
+            coverage.recordSince();
+        } catch (Throwable ex) {
+            // 管道可能已部分写入，计数脚本不是幂等的，涉及的日期不再由计数回答，区间查询回退到访问日志
+            log.error("写入短链接高频访问 IP 计数异常，批次大小：{}", accessLogs.size(), ex);
+            coverage.markGapDates(keyDates.values());
+        }
+    }
+
+    private void addCount(Map<String, Map<String, Long>> counts, Map<String, LocalDate> keyDates, String key, LocalDate date, String ip) {
+        counts.computeIfAbsent(key, each -> new LinkedHashMap<>()).merge(ip, 1L, Long::sum);
+        keyDates.putIfAbsent(key, date);
+    }
+
+    private void doMoveGid(String fullShortUrl, String originGid, String gid) {
+        try {
+            byte[] capacity = String.valueOf(statsTopIpConfiguration.getCapacity()).getBytes(StandardCharsets.UTF_8);
+            List<byte[][]> keysAndArgsList = new ArrayList<>();
+            for (LocalDate date : coverage.retainDates()) {
+                String dateKey = date.format(DATE_KEY_FORMATTER);
+                keysAndArgsList.add(new byte[][]{
+                        String.format(SHORT_LINK_STATS_TOP_IP_LINK_KEY, fullShortUrl, dateKey).getBytes(StandardCharsets.UTF_8),
+                        String.format(SHORT_LINK_STATS_TOP_IP_GROUP_KEY, originGid, dateKey).getBytes(StandardCharsets.UTF_8),
+                        String.format(SHORT_LINK_STATS_TOP_IP_GROUP_KEY, gid, dateKey).getBytes(StandardCharsets.UTF_8),
+                        capacity,
+                        String.valueOf(coverage.expireAt(date)).getBytes(StandardCharsets.UTF_8)
+                });
+            }
+            ShortLinkStatsScriptPipeline.evalSha(stringRedisTemplate, SHORT_LINK_TOP_IP_MOVE_SCRIPT, 3, keysAndArgsList);
+        } catch (Throwable ex) {
+            log.error("迁移短链接高频访问 IP 计数异常，短链接：{}，新分组：{}", fullShortUrl, gid, ex);
+        }
+    }
+
+    private List<HashMap<String, Object>> listTopIp(String keyPattern, String subject, String startDate, String endDate) {
+        if (!isEnable()) {
+            return null;
+        }
+        LocalDate start = ShortLinkStatsDailyCoverage.toLocalDate(DateUtil.parse(startDate));
+        LocalDate end = ShortLinkStatsDailyCoverage.toLocalDate(DateUtil.parse(endDate));
+        LocalDate today = LocalDate.now();
+        if (end.isAfter(today)) {
+            end = today;
+        }
+        LocalDate coveredStart = coverage.coveredStart();
+        if (coveredStart == null || start.isBefore(coveredStart)) {
+            return null;
+        }
+        List<byte[]> keys = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            keys.add(String.format(keyPattern, subject, date.format(DATE_KEY_FORMATTER)).getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            coverage.flushGapDates();
+            List<Object> dailyEntries = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sMembers(coverage.gapsKey());
+                keys.forEach(each -> connection.zSetCommands().zRangeWithScores(each, 0, -1));
+                return null;
+            });
+            if (coverage.hasGap((Collection<?>) dailyEntries.get(0), start, end)) {
+                return null;
+            }
+            Map<String, Long> merged = new HashMap<>();
+            for (Object each : dailyEntries.subList(1, dailyEntries.size())) {
+                if (each instanceof Set<?> entries) {
+                    for (Object entry : entries) {
+                        ZSetOperations.TypedTuple<?> tuple = (ZSetOperations.TypedTuple<?>) entry;
+                        if (tuple.getValue() != null && tuple.getScore() != null) {
+                            merged.merge(tuple.getValue().toString(), tuple.getScore().longValue(), Long::sum);
+                        }
+                    }
+                }
+            }
+            return merged.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(TOP_IP_SIZE)
+                    .map(each -> {
+                        HashMap<String, Object> topIp = new HashMap<>();
+                        topIp.put("ip", each.getKey());
+                        topIp.put("count", each.getValue());
+                        return topIp;
+                    })
+                    .toList();
+        } catch (Throwable ex) {
+            log.error("合并短链接高频访问 IP 计数异常，Key：{}", subject, ex);
+            return null;
+        }
+    }
+
+    private boolean isEnable() {
+        return Boolean.TRUE.equals(statsTopIpConfiguration.getEnable());
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.szs.shortlink.project.config.StatsTotalFlushConfiguration;
+import com.szs.shortlink.project.dao.entity.ShortLinkDO;
+import com.szs.shortlink.project.dao.entity.ShortLinkGotoDO;
+import com.szs.shortlink.project.dao.mapper.ShortLinkGotoMapper;
+import com.szs.shortlink.project.dao.mapper.ShortLinkMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_BATCH_FENCE_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOTAL_DELTA_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOTAL_FLUSHING_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_TOTAL_FLUSH_LOCK_KEY;
+
+/**
+ * 短链接累计访问统计缓冲
+ * 统计写库事务提交后累计访问增量写入按分组划分的 Redis 哈希，定时按分组批量更新短链接表，避免热点短链接行锁竞争；
+ * 分页查询时叠加尚未刷新的增量，保证累计访问数据准确
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkTotalStatsBuffer implements SmartLifecycle {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedissonClient redissonClient;
+    private final ShortLinkMapper shortLinkMapper;
+    private final ShortLinkGotoMapper shortLinkGotoMapper;
+    private final StatsTotalFlushConfiguration statsTotalFlushConfiguration;
+
+    private static final String PV_FIELD_PREFIX = "pv:";
+    private static final String UV_FIELD_PREFIX = "uv:";
+    private static final String UIP_FIELD_PREFIX = "uip:";
+
+    private static final DefaultRedisScript<List> TOTAL_STATS_TAKE_SCRIPT;
+    private static final DefaultRedisScript<Long> TOTAL_STATS_MOVE_SCRIPT;
+    private static final DefaultRedisScript<Long> TOTAL_STATS_INCREMENT_SCRIPT;
+
+    static {
+        TOTAL_STATS_TAKE_SCRIPT = new DefaultRedisScript<>();
+        TOTAL_STATS_TAKE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_total_stats_take.lua")));
+        TOTAL_STATS_TAKE_SCRIPT.setResultType(List.class);
+        TOTAL_STATS_MOVE_SCRIPT = new DefaultRedisScript<>();
+        TOTAL_STATS_MOVE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_total_stats_move.lua")));
+        TOTAL_STATS_MOVE_SCRIPT.setResultType(Long.class);
+        TOTAL_STATS_INCREMENT_SCRIPT = new DefaultRedisScript<>();
+        TOTAL_STATS_INCREMENT_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/short_link_total_stats_increment.lua")));
+        TOTAL_STATS_INCREMENT_SCRIPT.setResultType(Long.class);
+    }
+
+    /**
+     * 事务提交后写入 Redis 失败的增量批次，在本节点内按批次标识幂等重试
+     */
+    private final ShortLinkStatsBatchRetryQueue<List<ShortLinkDO>> retryQueue = new ShortLinkStatsBatchRetryQueue<>();
+
+    private ScheduledExecutorService flushScheduler;
+    private volatile boolean running;
+
+    /**
+     * 累计一批短链接访问增量，处于事务中时事务提交后再写入，回滚的批次不计入
+     * 未开启缓冲时直接更新短链接表；写入 Redis 失败时在本节点内重试，不抛出异常
+     *
+     * @param totalStats 按短链接聚合后的累计访问增量
+     */
+    public void increment(Collection<ShortLinkDO> totalStats) {
+        if (CollUtil.isEmpty(totalStats)) {
+            return;
+        }
+        if (!isEnable()) {
+            incrementDirectly(totalStats);
+            return;
+        }
+        List<ShortLinkDO> actualTotalStats = new ArrayList<>(totalStats);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bufferIncrement(actualTotalStats);
+                }
+            });
+            return;
+        }
+        bufferIncrement(actualTotalStats);
+    }
+
+    /**
+     * 为短链接叠加尚未刷新到短链接表的累计访问增量
+     *
+     * @param shortLinkDOList 查询出的短链接集合
+     */
+    public void fillUnflushed(Collection<ShortLinkDO> shortLinkDOList) {
+        if (!isEnable() || CollUtil.isEmpty(shortLinkDOList)) {
+            return;
+        }
+        List<ShortLinkDO> actualShortLinks = new ArrayList<>(shortLinkDOList);
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ShortLinkDO each : actualShortLinks) {
+                    byte[][] fields = {
+                            bytes(PV_FIELD_PREFIX + each.getFullShortUrl()),
+                            bytes(UV_FIELD_PREFIX + each.getFullShortUrl()),
+                            bytes(UIP_FIELD_PREFIX + each.getFullShortUrl())
+                    };
+                    connection.hashCommands().hMGet(bytes(String.format(SHORT_LINK_STATS_TOTAL_DELTA_KEY, each.getGid())), fields);
+                    connection.hashCommands().hMGet(bytes(String.format(SHORT_LINK_STATS_TOTAL_FLUSHING_KEY, each.getGid())), fields);
+                }
+                return null;
+            });
+            for (int i = 0; i < actualShortLinks.size(); i++) {
+                List<?> deltas = (List<?>) results.get(i * 2);
+                List<?> flushingDeltas = (List<?>) results.get(i * 2 + 1);
+                ShortLinkDO each = actualShortLinks.get(i);
+                each.setTotalPv(sum(each.getTotalPv(), deltas.get(0), flushingDeltas.get(0)));
+                each.setTotalUv(sum(each.getTotalUv(), deltas.get(1), flushingDeltas.get(1)));
+                each.setTotalUip(sum(each.getTotalUip(), deltas.get(2), flushingDeltas.get(2)));
+            }
+        } catch (Throwable ex) {
+            log.warn("查询短链接未刷新累计访问增量异常，返回短链接表中的累计访问数据", ex);
+        }
+    }
+
+    /**
+     * 短链接修改分组后将原分组下尚未刷新的累计访问增量转移到新分组，处于事务中时事务提交后再转移
+     * 原分组刷新中的增量由刷新任务在批量更新未匹配到短链接时按新分组重新缓冲
+     *
+     * @param fullShortUrl 完整短链接
+     * @param originGid    原分组标识
+     * @param gid          新分组标识
+     */
+    public void moveGid(String fullShortUrl, String originGid, String gid) {
+        if (!isEnable()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doMoveGid(fullShortUrl, originGid, gid);
+                }
+            });
+            return;
+        }
+        doMoveGid(fullShortUrl, originGid, gid);
+    }
+
+    private void doMoveGid(String fullShortUrl, String originGid, String gid) {
+        try {
+            stringRedisTemplate.execute(
+                    TOTAL_STATS_MOVE_SCRIPT,
+                    List.of(
+                            String.format(SHORT_LINK_STATS_TOTAL_DELTA_KEY, originGid),
+                            String.format(SHORT_LINK_STATS_TOTAL_DELTA_KEY, gid),
+                            SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY
+                    ),
+                    gid, PV_FIELD_PREFIX + fullShortUrl, UV_FIELD_PREFIX + fullShortUrl, UIP_FIELD_PREFIX + fullShortUrl
+            );
+        } catch (Throwable ex) {
+            // 未转移的增量在原分组刷新时批量更新未匹配，仍会按新分组重新缓冲
+            log.error("转移短链接累计访问增量异常，短链接：{}，原分组标识：{}", fullShortUrl, originGid, ex);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!isEnable()) {
+            return;
+        }
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("short-link_stats_total_flusher");
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+        long interval = statsTotalFlushConfiguration.getInterval();
+        flushScheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        long retryInterval = statsTotalFlushConfiguration.getRetryInterval();
+        flushScheduler.scheduleWithFixedDelay(this::retryFailedIncrements, retryInterval, retryInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 刷新所有分组的累计访问增量，仅获取到分布式锁的节点执行，同一分组的刷新中哈希不会被并发重复写入
+     */
+    private void flush() {
+        RLock lock = redissonClient.getLock(SHORT_LINK_STATS_TOTAL_FLUSH_LOCK_KEY);
+        try {
+            if (!lock.tryLock()) {
+                return;
+            }
+        } catch (Throwable ex) {
+            log.error("获取短链接累计访问增量刷新锁异常", ex);
+            return;
+        }
+        try {
+            Set<String> dirtyGids = stringRedisTemplate.opsForSet().members(SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY);
+            if (dirtyGids != null) {
+                dirtyGids.forEach(this::flushGid);
+            }
+        } catch (Throwable ex) {
+            log.error("刷新短链接累计访问增量异常", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushGid(String gid) {
+        // 先移除脏标记再取增量，取增量之后新到的增量会重新打上标记
+        stringRedisTemplate.opsForSet().remove(SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY, gid);
+        String flushingKey = String.format(SHORT_LINK_STATS_TOTAL_FLUSHING_KEY, gid);
+        try {
+            List<?> fieldValues = stringRedisTemplate.execute(
+                    TOTAL_STATS_TAKE_SCRIPT,
+                    List.of(String.format(SHORT_LINK_STATS_TOTAL_DELTA_KEY, gid), flushingKey, SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY),
+                    gid
+            );
+            if (CollUtil.isEmpty(fieldValues)) {
+                return;
+            }
+            List<ShortLinkDO> deltas = parseDeltas(gid, fieldValues);
+            for (List<ShortLinkDO> each : CollUtil.split(deltas, statsTotalFlushConfiguration.getBatchSize())) {
+                int matchedRows = shortLinkMapper.incrementStatsBatch(gid, each);
+                if (matchedRows < each.size()) {
+                    rerouteMovedLinks(gid, each);
+                }
+                // 每条语句提交后立即删除已写入的字段，刷新中断时只重试未写入的部分
+                stringRedisTemplate.opsForHash().delete(flushingKey, each.stream()
+                        .flatMap(item -> List.of(PV_FIELD_PREFIX, UV_FIELD_PREFIX, UIP_FIELD_PREFIX).stream().map(prefix -> prefix + item.getFullShortUrl()))
+                        .toArray());
+            }
+        } catch (Throwable ex) {
+            stringRedisTemplate.opsForSet().add(SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY, gid);
+            log.error("刷新短链接累计访问增量异常，分组标识：{}", gid, ex);
+        }
+    }
+
+    /**
+     * 批量更新只匹配未删除的短链接，未匹配到的短链接已迁移至其他分组，将增量转移到新分组的增量哈希，下次刷新时写入
+     */
+    private void rerouteMovedLinks(String gid, List<ShortLinkDO> deltas) {
+        LambdaQueryWrapper<ShortLinkDO> queryWrapper = Wrappers.lambdaQuery(ShortLinkDO.class)
+                .select(ShortLinkDO::getFullShortUrl)
+                .eq(ShortLinkDO::getGid, gid)
+                .eq(ShortLinkDO::getDelFlag, 0)
+                .eq(ShortLinkDO::getDelTime, 0L)
+                .in(ShortLinkDO::getFullShortUrl, deltas.stream().map(ShortLinkDO::getFullShortUrl).toList());
+        Set<String> existingUrls = shortLinkMapper.selectList(queryWrapper).stream()
+                .map(ShortLinkDO::getFullShortUrl)
+                .collect(Collectors.toSet());
+        List<ShortLinkDO> movedDeltas = new ArrayList<>();
+        for (ShortLinkDO each : deltas) {
+            if (existingUrls.contains(each.getFullShortUrl())) {
+                continue;
+            }
+            ShortLinkGotoDO shortLinkGotoDO = shortLinkGotoMapper.selectOne(Wrappers.lambdaQuery(ShortLinkGotoDO.class)
+                    .eq(ShortLinkGotoDO::getFullShortUrl, each.getFullShortUrl()));
+            if (shortLinkGotoDO == null || Objects.equals(shortLinkGotoDO.getGid(), gid)) {
+                log.warn("短链接不存在，丢弃累计访问增量，短链接：{}，分组标识：{}", each.getFullShortUrl(), gid);
+                continue;
+            }
+            each.setGid(shortLinkGotoDO.getGid());
+            movedDeltas.add(each);
+        }
+        bufferIncrement(movedDeltas);
+    }
+
+    private void bufferIncrement(List<ShortLinkDO> totalStats) {
+        if (totalStats.isEmpty()) {
+            return;
+        }
+        String batchId = ShortLinkStatsBatchRetryQueue.newBatchId();
+        if (writeIncrement(batchId, totalStats) || retryQueue.offer(batchId, totalStats, statsTotalFlushConfiguration.getRetryCapacity())) {
+            return;
+        }
+        // 队列已满时批次标识仍可能在途写入，只有确认标识不存在才能直接更新短链接表
+        log.error("短链接累计访问增量重试队列已满，批次标识：{}", batchId);
+        if (!fallbackIncrement(batchId, totalStats)) {
+            log.error("短链接累计访问增量无法确认是否已写入，丢弃本批次增量：{}", JSON.toJSONString(totalStats));
+        }
+    }
+
+    /**
+     * 重试写入失败的批次，遇到失败即停止，剩余批次等待下次重试；超过最长重试时间的批次确认未写入后直接更新短链接表
+     */
+    private void retryFailedIncrements() {
+        try {
+            retryQueue.retry(this::writeIncrement, statsTotalFlushConfiguration.getRetryExpireTime(), this::fallbackIncrement);
+        } catch (Throwable ex) {
+            log.error("重试写入短链接累计访问增量异常", ex);
+        }
+    }
+
+    /**
+     * 一次 Lua 脚本原子写入一批累计访问增量，脚本以批次标识去重，失败重试同一批次不会重复累加
+     *
+     * @return 是否写入成功（含此前已写入），异常不会抛出
+     */
+    private boolean writeIncrement(String batchId, List<ShortLinkDO> totalStats) {
+        List<String> keys = new ArrayList<>(totalStats.size() + 2);
+        List<String> args = new ArrayList<>(totalStats.size() * 5 + 1);
+        keys.add(String.format(SHORT_LINK_STATS_BATCH_FENCE_KEY, batchId));
+        keys.add(SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY);
+        args.add(String.valueOf(ShortLinkStatsBatchRetryQueue.fenceTimeout(statsTotalFlushConfiguration.getRetryExpireTime())));
+        for (ShortLinkDO each : totalStats) {
+            keys.add(String.format(SHORT_LINK_STATS_TOTAL_DELTA_KEY, each.getGid()));
+            args.add(each.getGid());
+            args.add(each.getFullShortUrl());
+            args.add(String.valueOf(Optional.ofNullable(each.getTotalPv()).orElse(0)));
+            args.add(String.valueOf(Optional.ofNullable(each.getTotalUv()).orElse(0)));
+            args.add(String.valueOf(Optional.ofNullable(each.getTotalUip()).orElse(0)));
+        }
+        try {
+            stringRedisTemplate.execute(TOTAL_STATS_INCREMENT_SCRIPT, keys, args.toArray());
+            return true;
+        } catch (Throwable ex) {
+            log.error("写入短链接累计访问增量异常，稍后重试，短链接数量：{}", totalStats.size(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * 批次标识不存在说明写入脚本从未执行，直接更新短链接表；标识存在说明已写入 Redis，无需处理
+     *
+     * @return 是否处理完成，无法确认标识是否存在或更新短链接表失败时返回 false
+     */
+    private boolean fallbackIncrement(String batchId, List<ShortLinkDO> totalStats) {
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(String.format(SHORT_LINK_STATS_BATCH_FENCE_KEY, batchId)))) {
+                return true;
+            }
+            incrementDirectly(totalStats);
+            log.warn("短链接累计访问增量未能写入 Redis，已直接更新短链接表，短链接数量：{}", totalStats.size());
+            return true;
+        } catch (Throwable ex) {
+            log.error("短链接累计访问增量直接更新短链接表异常，批次标识：{}", batchId, ex);
+            return false;
+        }
+    }
+
+    private void incrementDirectly(Collection<ShortLinkDO> totalStats) {
+        totalStats.forEach(each -> shortLinkMapper.incrementStats(each.getGid(), each.getFullShortUrl(), each.getTotalPv(), each.getTotalUv(), each.getTotalUip()));
+    }
+
+    private List<ShortLinkDO> parseDeltas(String gid, List<?> fieldValues) {
+        Map<String, ShortLinkDO> deltas = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < fieldValues.size(); i += 2) {
+            String field = fieldValues.get(i).toString();
+            int value = Integer.parseInt(fieldValues.get(i + 1).toString());
+            String prefix = field.substring(0, field.indexOf(':') + 1);
+            String fullShortUrl = field.substring(prefix.length());
+            ShortLinkDO delta = deltas.computeIfAbsent(fullShortUrl, each -> ShortLinkDO.builder()
+                    .gid(gid)
+                    .fullShortUrl(each)
+                    .totalPv(0)
+                    .totalUv(0)
+                    .totalUip(0)
+                    .build());
+            switch (prefix) {
+                case PV_FIELD_PREFIX -> delta.setTotalPv(value);
+                case UV_FIELD_PREFIX -> delta.setTotalUv(value);
+                case UIP_FIELD_PREFIX -> delta.setTotalUip(value);
+                default -> log.warn("未知的短链接累计访问增量字段：{}", field);
+            }
+        }
+        return new ArrayList<>(deltas.values());
+    }
+
+    private static Integer sum(Integer base, Object delta, Object flushingDelta) {
+        return Optional.ofNullable(base).orElse(0)
+                + (delta == null ? 0 : Integer.parseInt(delta.toString()))
+                + (flushingDelta == null ? 0 : Integer.parseInt(flushingDelta.toString()));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean isEnable() {
+        return Boolean.TRUE.equals(statsTotalFlushConfiguration.getEnable());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            try {
+                flushScheduler.awaitTermination(statsTotalFlushConfiguration.getInterval(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            retryFailedIncrements();
+            if (!retryQueue.isEmpty()) {
+                List<List<ShortLinkDO>> pendingBatches = retryQueue.pendingBatches();
+                log.error("停止时仍有短链接累计访问增量未写入 Redis，批次数量：{}，数据：{}", pendingBatches.size(), JSON.toJSONString(pendingBatches));
+            }
+            flush();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.config.StatsSketchConfiguration;
+import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_SKETCH_GAPS_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_SKETCH_GROUP_GAPS_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_SKETCH_GROUP_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_SKETCH_LINK_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_SKETCH_SINCE_KEY;
+
+/**
+ * 短链接每日访客与 IP 去重 HyperLogLog
+ * 统计落库时按短链接和分组各写入每天一个 HyperLogLog，区间 UV、UIP 由 PFCOUNT 合并区间内每天的 HyperLogLog 得出，标准误差约 0.81%
+ * HyperLogLog 写入是幂等的，消息重试不会重复计数；写入失败的日期登记为缺口，包含缺口的区间回退到访问日志去重
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkVisitorSketch implements InitializingBean {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StatsSketchConfiguration statsSketchConfiguration;
+
+    private static final String UV_FIELD = "uv";
+    private static final String UIP_FIELD = "uip";
+    private static final DateTimeFormatter DATE_KEY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private ShortLinkStatsDailyCoverage coverage;
+
+    @Override
+    public void afterPropertiesSet() {
+        coverage = new ShortLinkStatsDailyCoverage(stringRedisTemplate, SHORT_LINK_STATS_SKETCH_SINCE_KEY, SHORT_LINK_STATS_SKETCH_GAPS_KEY,
+                statsSketchConfiguration::getRetainDays, "短链接每日去重 HyperLogLog");
+    }
+
+    /**
+     * 登记一批访问日志中的访客与 IP，处于事务中时事务提交后再写入
+     *
+     * @param accessLogs 访问日志集合
+     */
+    public void add(List<LinkAccessLogsDO> accessLogs) {
+        if (!isEnable() || CollUtil.isEmpty(accessLogs)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doAdd(accessLogs);
+                }
+            });
+            return;
+        }
+        doAdd(accessLogs);
+    }
+
+    /**
+     * 合并短链接区间内每天的 HyperLogLog 得出去重访客数与 IP 数
+     *
+     * @param fullShortUrl 完整短链接
+     * @param startDate    开始日期
+     * @param endDate      结束日期
+     * @return 仅包含 UV、UIP 的统计实体，区间超出 HyperLogLog 覆盖范围时返回 null
+     */
+    public LinkAccessStatsDO countByShortLink(String fullShortUrl, String startDate, String endDate) {
+        return count(SHORT_LINK_STATS_SKETCH_LINK_KEY, fullShortUrl, null, startDate, endDate);
+    }
+
+    /**
+     * 合并分组区间内每天的 HyperLogLog 得出去重访客数与 IP 数
+     *
+     * @param gid       分组标识
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 仅包含 UV、UIP 的统计实体，区间超出 HyperLogLog 覆盖范围或包含短链接迁出的日期时返回 null
+     */
+    public LinkAccessStatsDO countByGroup(String gid, String startDate, String endDate) {
+        return count(SHORT_LINK_STATS_SKETCH_GROUP_KEY, gid, String.format(SHORT_LINK_STATS_SKETCH_GROUP_GAPS_KEY, gid), startDate, endDate);
+    }
+
+    /**
+     * 短链接迁移分组后，把短链接保留范围内每天的 HyperLogLog 合并到新分组
+     * HyperLogLog 不支持删除元素，原分组保留范围内的日期登记为该分组的缺口，直到这些日期过期前原分组的区间查询都回退到访问日志
+     *
+     * @param fullShortUrl 完整短链接
+     * @param originGid    原分组标识
+     * @param gid          新分组标识
+     */
+    public void moveGid(String fullShortUrl, String originGid, String gid) {
+        if (!isEnable() || StrUtil.equals(originGid, gid)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doMoveGid(fullShortUrl, originGid, gid);
+                }
+            });
+            return;
+        }
+        doMoveGid(fullShortUrl, originGid, gid);
+    }
+
+    private void doAdd(List<LinkAccessLogsDO> accessLogs) {
+        Map<String, LocalDate> keyDates = new LinkedHashMap<>();
+        try {
+            coverage.flushGapDates();
+            Map<String, Set<String>> elements = new LinkedHashMap<>();
+            for (LinkAccessLogsDO each : accessLogs) {
+                LocalDate date = ShortLinkStatsDailyCoverage.toLocalDate(each.getCreateTime() != null ? each.getCreateTime() : new Date());
+                String dateKey = date.format(DATE_KEY_FORMATTER);
+                String user = StrUtil.nullToEmpty(each.getUser());
+                String ip = StrUtil.nullToEmpty(each.getIp());
+                addElement(elements, keyDates, String.format(SHORT_LINK_STATS_SKETCH_LINK_KEY, UV_FIELD, each.getFullShortUrl(), dateKey), date, user);
+                addElement(elements, keyDates, String.format(SHORT_LINK_STATS_SKETCH_LINK_KEY, UIP_FIELD, each.getFullShortUrl(), dateKey), date, ip);
+                addElement(elements, keyDates, String.format(SHORT_LINK_STATS_SKETCH_GROUP_KEY, UV_FIELD, each.getGid(), dateKey), date, user);
+                addElement(elements, keyDates, String.format(SHORT_LINK_STATS_SKETCH_GROUP_KEY, UIP_FIELD, each.getGid(), dateKey), date, ip);
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                elements.forEach((key, values) -> {
+                    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                    byte[][] valueBytes = values.stream()
+                            .map(value -> value.getBytes(StandardCharsets.UTF_8))
+                            .toArray(byte[][]::new);
+                    connection.hyperLogLogCommands().pfAdd(keyBytes, valueBytes);
+                    connection.keyCommands().expireAt(keyBytes, coverage.expireAt(keyDates.get(key)));
+                });
+                return null;
+            });
+            coverage.recordSince();
+        } catch (Throwable ex) {
+            // 管道可能已部分写入，涉及的日期不再由 HyperLogLog 回答，区间查询回退到访问日志
+            log.error("写入短链接每日去重 HyperLogLog 异常，批次大小：{}", accessLogs.size(), ex);
+            coverage.markGapDates(keyDates.values());
+        }
+    }
+
+    private void addElement(Map<String, Set<String>> elements, Map<String, LocalDate> keyDates, String key, LocalDate date, String value) {
+        elements.computeIfAbsent(key, each -> new LinkedHashSet<>()).add(value);
+        keyDates.putIfAbsent(key, date);
+    }
+
+    private void doMoveGid(String fullShortUrl, String originGid, String gid) {
+        markGroupGapDates(originGid);
+        try {
+            List<String[]> mergePairs = new ArrayList<>();
+            List<LocalDate> mergeDates = new ArrayList<>();
+            for (LocalDate date : coverage.retainDates()) {
+                String dateKey = date.format(DATE_KEY_FORMATTER);
+                for (String field : List.of(UV_FIELD, UIP_FIELD)) {
+                    mergePairs.add(new String[]{
+                            String.format(SHORT_LINK_STATS_SKETCH_GROUP_KEY, field, gid, dateKey),
+                            String.format(SHORT_LINK_STATS_SKETCH_LINK_KEY, field, fullShortUrl, dateKey)
+                    });
+                    mergeDates.add(date);
+                }
+            }
+            // 只合并存在的短链接 HyperLogLog，避免为没有访问的天创建空的分组 HyperLogLog
+            List<Object> exists = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                mergePairs.forEach(each -> connection.keyCommands().exists(each[1].getBytes(StandardCharsets.UTF_8)));
+                return null;
+            });
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < mergePairs.size(); i++) {
+                    if (!Boolean.TRUE.equals(exists.get(i))) {
+                        continue;
+                    }
+                    byte[] destKey = mergePairs.get(i)[0].getBytes(StandardCharsets.UTF_8);
+                    connection.hyperLogLogCommands().pfMerge(destKey, destKey, mergePairs.get(i)[1].getBytes(StandardCharsets.UTF_8));
+                    connection.keyCommands().expireAt(destKey, coverage.expireAt(mergeDates.get(i)));
+                }
+                return null;
+            });
+        } catch (Throwable ex) {
+            log.error("迁移短链接每日去重 HyperLogLog 异常，短链接：{}，新分组：{}", fullShortUrl, gid, ex);
+        }
+    }
+
+    /**
+     * 将保留范围内的日期登记为原分组的缺口，HyperLogLog 中这些日期仍包含迁出短链接的访客
+     * 登记失败时退化为所有主体的缺口，宁可回退到访问日志也不返回偏大的去重数
+     */
+    private void markGroupGapDates(String originGid) {
+        List<LocalDate> dates = coverage.retainDates();
+        String groupGapsKey = String.format(SHORT_LINK_STATS_SKETCH_GROUP_GAPS_KEY, originGid);
+        try {
+            stringRedisTemplate.opsForSet().add(groupGapsKey, dates.stream().map(LocalDate::toString).toArray(String[]::new));
+            stringRedisTemplate.expireAt(groupGapsKey, new Date(TimeUnit.SECONDS.toMillis(coverage.expireAt(LocalDate.now()))));
+        } catch (Throwable ex) {
+            log.error("登记短链接迁出分组的去重 HyperLogLog 缺口异常，原分组：{}", originGid, ex);
+            coverage.markGapDates(dates);
+        }
+    }
+
+    private LinkAccessStatsDO count(String keyPattern, String subject, String subjectGapsKey, String startDate, String endDate) {
+        if (!isEnable()) {
+            return null;
+        }
+        LocalDate start = ShortLinkStatsDailyCoverage.toLocalDate(DateUtil.parse(startDate));
+        LocalDate end = ShortLinkStatsDailyCoverage.toLocalDate(DateUtil.parse(endDate));
+        LocalDate today = LocalDate.now();
+        if (end.isAfter(today)) {
+            end = today;
+        }
+        LocalDate coveredStart = coverage.coveredStart();
+        if (coveredStart == null || start.isBefore(coveredStart) || start.isAfter(end)) {
+            return null;
+        }
+        List<String> uvKeys = new ArrayList<>();
+        List<String> uipKeys = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            String dateKey = date.format(DATE_KEY_FORMATTER);
+            uvKeys.add(String.format(keyPattern, UV_FIELD, subject, dateKey));
+            uipKeys.add(String.format(keyPattern, UIP_FIELD, subject, dateKey));
+        }
+        try {
+            coverage.flushGapDates();
+            List<Object> counts = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sMembers(coverage.gapsKey());
+                if (subjectGapsKey != null) {
+                    connection.setCommands().sMembers(subjectGapsKey.getBytes(StandardCharsets.UTF_8));
+                }
+                connection.hyperLogLogCommands().pfCount(toBytes(uvKeys));
+                connection.hyperLogLogCommands().pfCount(toBytes(uipKeys));
+                return null;
+            });
+            int countIndex = subjectGapsKey != null ? 2 : 1;
+            if (coverage.hasGap((Collection<?>) counts.get(0), start, end)
+                    || (subjectGapsKey != null && coverage.hasGap((Collection<?>) counts.get(1), start, end))) {
+                return null;
+            }
+            return LinkAccessStatsDO.builder()
+                    .uv(((Long) counts.get(countIndex)).intValue())
+                    .uip(((Long) counts.get(countIndex + 1)).intValue())
+                    .build();
+        } catch (Throwable ex) {
+            log.error("合并短链接每日去重 HyperLogLog 异常，Key：{}", subject, ex);
+            return null;
+        }
+    }
+
+    private byte[][] toBytes(List<String> keys) {
+        return keys.stream()
+                .map(each -> each.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    private boolean isEnable() {
+        return Boolean.TRUE.equals(statsSketchConfiguration.getEnable());
+    }
+}
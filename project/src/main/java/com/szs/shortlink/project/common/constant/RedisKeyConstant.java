@@ -27,6 +27,11 @@ public class RedisKeyConstant {
      */
     public static final String GOTO_SHORT_LINK_KEY = "short-link:goto:%s";
 
+    /**
+     * 短链接跳转本地缓存失效广播 Channel
+     */
+    public static final String GOTO_SHORT_LINK_INVALIDATE_CHANNEL = "short-link:channel:goto-invalidate";
+
     /**
      * 短链接空值跳转前缀 Key
      */
@@ -38,9 +43,14 @@ public class RedisKeyConstant {
     public static final String LOCK_GOTO_SHORT_LINK_KEY = "short-link:lock:goto:%s";
 
     /**
-     * 短链接修改分组 ID 锁前缀 Key
+     * 短链接分组迁移版本号 Key，奇数表示迁移中，偶数表示迁移完成
+     */
+    public static final String SHORT_LINK_GID_EPOCH_KEY = "short-link:gid-epoch:%s";
+
+    /**
+     * 短链接分组迁移租约 Key，迁移节点宕机未结束迁移时租约到期，版本号随后被推进为偶数
      */
-    public static final String LOCK_GID_UPDATE_KEY = "short-link:lock:update-gid:%s";
+    public static final String SHORT_LINK_GID_EPOCH_LEASE_KEY = "short-link:gid-epoch-lease:%s";
 
     /**
      * 短链接延迟队列消费统计 Key
@@ -57,6 +67,136 @@ public class RedisKeyConstant {
      */
     public static final String SHORT_LINK_STATS_UIP_KEY = "short-link:stats:uip:";
 
+    /**
+     * 短链接统计每日访客 HyperLogLog 缓存标识，参数为完整短链接与日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_UV_HLL_KEY = "short-link:stats:uv-hll:%s:%s";
+
+    /**
+     * 短链接统计每日 IP HyperLogLog 缓存标识，参数为完整短链接与日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_UIP_HLL_KEY = "short-link:stats:uip-hll:%s:%s";
+
+    /**
+     * 判断滑动窗口内首次访问时合并之前各天 HyperLogLog 的临时 Key，仅在 Lua 脚本内使用并随即删除
+     */
+    public static final String SHORT_LINK_STATS_HLL_WINDOW_TMP_KEY = "short-link:stats:hll-window-tmp";
+
+    /**
+     * 短链接每日访客与 IP 去重 HyperLogLog Key，参数为统计项（uv 或 uip）、完整短链接与日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_SKETCH_LINK_KEY = "short-link:stats:sketch:link:%s:%s:%s";
+
+    /**
+     * 分组每日访客与 IP 去重 HyperLogLog Key，参数为统计项（uv 或 uip）、分组标识与日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_SKETCH_GROUP_KEY = "short-link:stats:sketch:group:%s:%s:%s";
+
+    /**
+     * 开始写入每日去重 HyperLogLog 的日期（yyyy-MM-dd），当天及之前的区间仍按访问日志去重
+     */
+    public static final String SHORT_LINK_STATS_SKETCH_SINCE_KEY = "short-link:stats:sketch-since";
+
+    /**
+     * 写入每日去重 HyperLogLog 失败的日期集合（yyyy-MM-dd），这些日期的区间仍按访问日志去重
+     */
+    public static final String SHORT_LINK_STATS_SKETCH_GAPS_KEY = "short-link:stats:sketch-gaps";
+
+    /**
+     * 分组每日去重 HyperLogLog 不可用日期集合 Key，参数为分组标识，短链接迁出后原分组保留范围内的日期不再由 HyperLogLog 回答
+     */
+    public static final String SHORT_LINK_STATS_SKETCH_GROUP_GAPS_KEY = "short-link:stats:sketch-group-gaps:%s";
+
+    /**
+     * 短链接每日高频访问 IP 计数有序集合 Key，参数为完整短链接与日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_TOP_IP_LINK_KEY = "short-link:stats:top-ip:link:%s:%s";
+
+    /**
+     * 分组每日高频访问 IP 计数有序集合 Key，参数为分组标识与日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_TOP_IP_GROUP_KEY = "short-link:stats:top-ip:group:%s:%s";
+
+    /**
+     * 开始写入每日高频访问 IP 计数的日期（yyyy-MM-dd），当天及之前的区间仍按访问日志聚合
+     */
+    public static final String SHORT_LINK_STATS_TOP_IP_SINCE_KEY = "short-link:stats:top-ip-since";
+
+    /**
+     * 写入每日高频访问 IP 计数失败的日期集合（yyyy-MM-dd），这些日期的区间仍按访问日志聚合
+     */
+    public static final String SHORT_LINK_STATS_TOP_IP_GAPS_KEY = "short-link:stats:top-ip-gaps";
+
+    /**
+     * 短链接累计访问增量哈希 Key，参数为分组标识，字段为统计项与完整短链接
+     */
+    public static final String SHORT_LINK_STATS_TOTAL_DELTA_KEY = "short-link:stats:total-delta:%s";
+
+    /**
+     * 短链接累计访问刷新中增量哈希 Key，参数为分组标识
+     */
+    public static final String SHORT_LINK_STATS_TOTAL_FLUSHING_KEY = "short-link:stats:total-flushing:%s";
+
+    /**
+     * 存在待刷新累计访问增量的分组标识集合 Key
+     */
+    public static final String SHORT_LINK_STATS_TOTAL_DIRTY_GIDS_KEY = "short-link:stats:total-dirty-gids";
+
+    /**
+     * 短链接累计访问增量刷新锁标识，保证同一时刻只有一个节点刷新
+     */
+    public static final String SHORT_LINK_STATS_TOTAL_FLUSH_LOCK_KEY = "short-link:lock:stats-total-flush";
+
+    /**
+     * 短链接当天访问统计哈希 Key，参数为日期（yyyyMMdd）与完整短链接
+     */
+    public static final String SHORT_LINK_STATS_TODAY_KEY = "short-link:stats:today:%s:%s";
+
+    /**
+     * 分组内短链接当天访问排行 Key，参数为日期（yyyyMMdd）、分组标识与统计项
+     */
+    public static final String SHORT_LINK_STATS_TODAY_RANK_KEY = "short-link:stats:today-rank:%s:%s:%s";
+
+    /**
+     * 当天存在访问、待刷新到今日统计表的分组标识集合 Key，参数为日期（yyyyMMdd）
+     */
+    public static final String SHORT_LINK_STATS_TODAY_GIDS_KEY = "short-link:stats:today-gids:%s";
+
+    /**
+     * 短链接当天访问统计刷新锁标识
+     */
+    public static final String SHORT_LINK_STATS_TODAY_FLUSH_LOCK_KEY = "short-link:lock:stats-today-flush";
+
+    /**
+     * 统计增量批次已写入标识 Key，参数为批次唯一标识，写入 Redis 失败的批次重试时据此避免重复累加
+     */
+    public static final String SHORT_LINK_STATS_BATCH_FENCE_KEY = "short-link:stats:batch-fence:%s";
+
+    /**
+     * 短链接统计汇总水位 Key，值为已完成日、月汇总的最后一天（yyyy-MM-dd）
+     */
+    public static final String SHORT_LINK_STATS_ROLLUP_WATERMARK_KEY = "short-link:stats-rollup:watermark";
+
+    /**
+     * 短链接统计汇总低水位 Key，值为已完成日、月汇总的第一天（yyyy-MM-dd），更早的天未汇总
+     */
+    public static final String SHORT_LINK_STATS_ROLLUP_LOW_WATERMARK_KEY = "short-link:stats-rollup:low-watermark";
+
+    /**
+     * 短链接统计汇总任务锁标识，保证同一时刻只有一个节点执行汇总
+     */
+    public static final String SHORT_LINK_STATS_ROLLUP_LOCK_KEY = "short-link:lock:stats-rollup";
+
+    /**
+     * 单个短链接监控结果缓存 Key，参数为分组标识与完整短链接，Hash 字段为查询项与日期区间
+     */
+    public static final String SHORT_LINK_STATS_RESULT_LINK_KEY = "short-link:stats:result:link:%s:%s";
+
+    /**
+     * 分组监控结果缓存 Key，参数为分组标识，Hash 字段为查询项与日期区间
+     */
+    public static final String SHORT_LINK_STATS_RESULT_GROUP_KEY = "short-link:stats:result:group:%s";
+
     /**
      * 短链接监控消息保存队列 Topic 缓存标识
      */
@@ -67,6 +207,11 @@ public class RedisKeyConstant {
      */
     public static final String SHORT_LINK_STATS_STREAM_GROUP_KEY = "short-link:stats-stream:only-group";
 
+    /**
+     * 短链接布隆过滤器新增日志 Stream Key，各节点本地布隆过滤器副本据此增量同步
+     */
+    public static final String SHORT_URI_BLOOM_FILTER_ADD_LOG_KEY = "short-link:bloom-filter:add-log";
+
     /**
      * 创建短链接锁标识
      */
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.common.database;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 查询截止时间拦截器
+ * 在截止时间内执行的查询按剩余时间设置 JDBC 语句超时，超时后由数据库驱动取消仍在执行的 SQL，
+ * 中断查询线程无法取消阻塞在网络读取上的 JDBC 调用
+ */
+@Intercepts({@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})})
+public class QueryDeadlineInterceptor implements Interceptor {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    /**
+     * 在截止时间内执行查询，期间当前线程执行的 SQL 均设置语句超时
+     *
+     * @param deadlineNanos 截止时间，{@link System#nanoTime()} 时间基准
+     * @param supplier      查询
+     * @return 查询结果
+     */
+    public static <T> T callWithDeadline(long deadlineNanos, Supplier<T> supplier) {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.set(deadlineNanos);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                DEADLINE_NANOS.remove();
+            } else {
+                DEADLINE_NANOS.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Statement statement = (Statement) invocation.proceed();
+        Long deadlineNanos = DEADLINE_NANOS.get();
+        if (deadlineNanos == null) {
+            return statement;
+        }
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMillis <= 0) {
+            statement.close();
+            throw new SQLTimeoutException("查询已超过截止时间");
+        }
+        // JDBC 语句超时单位为秒，向上取整，避免剩余不足一秒时设置为 0 即不限时
+        int timeoutSeconds = (int) Math.min(Integer.MAX_VALUE, (remainingMillis + 999) / 1000);
+        if (statement.getQueryTimeout() == 0 || statement.getQueryTimeout() > timeoutSeconds) {
+            statement.setQueryTimeout(timeoutSeconds);
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.common.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * 消息幂等状态
+ */
+@RequiredArgsConstructor
+public enum MessageIdempotentStatusEnum {
+
+    /**
+     * 本次成功占有消息，需要执行消费流程
+     */
+    CLAIMED(0),
+
+    /**
+     * 其他消费者正在处理
+     */
+    PROCESSING(1),
+
+    /**
+     * 消息已消费完成
+     */
+    ACCOMPLISHED(2);
+
+    @Getter
+    private final int code;
+
+    public static MessageIdempotentStatusEnum of(long code) {
+        return Arrays.stream(values())
+                .filter(each -> each.code == code)
+                .findFirst()
+                .orElse(PROCESSING);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.common.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 短链接统计维度，对应按天记录的维度统计表及其维度列
+ */
+@Getter
+@RequiredArgsConstructor
+public enum StatsDimensionEnum {
+
+    /**
+     * 地区（省份）
+     */
+    LOCALE("locale", "t_link_locale_stats", "province"),
+
+    /**
+     * 操作系统
+     */
+    OS("os", "t_link_os_stats", "os"),
+
+    /**
+     * 浏览器
+     */
+    BROWSER("browser", "t_link_browser_stats", "browser"),
+
+    /**
+     * 访问设备
+     */
+    DEVICE("device", "t_link_device_stats", "device"),
+
+    /**
+     * 访问网络
+     */
+    NETWORK("network", "t_link_network_stats", "network");
+
+    /**
+     * 月汇总表中的维度标识
+     */
+    private final String dimension;
+
+    /**
+     * 按天记录的维度统计表
+     */
+    private final String table;
+
+    /**
+     * 维度统计表中的维度列
+     */
+    private final String column;
+}
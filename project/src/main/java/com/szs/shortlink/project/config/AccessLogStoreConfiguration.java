@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接访问日志存储配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.access-log")
+public class AccessLogStoreConfiguration {
+
+    /**
+     * 访问日志存储引擎：mysql 写入 t_link_access_logs；mmap 写入本地按天分区的追加式内存映射文件，只适用于单节点部署
+     */
+    private String store = "mysql";
+
+    /**
+     * mmap 存储引擎的数据目录
+     */
+    private String dataPath = "./data/access-log";
+
+    /**
+     * 单个段文件大小，写满后在同一天的分区内新建段文件，单位：字节
+     */
+    private Integer segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * 分区保留天数，超过的分区在新建分区时删除，0 表示永久保留
+     */
+    private Integer retentionDays = 0;
+
+    /**
+     * 每批写入后是否强制把内存映射的脏页刷到磁盘
+     */
+    private Boolean forceOnWrite = false;
+}
@@ -20,6 +20,7 @@ package com.szs.shortlink.project.config;
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.szs.shortlink.project.common.database.QueryDeadlineInterceptor;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -40,4 +41,12 @@ public class DataBaseConfiguration {
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
         return interceptor;
     }
+
+    /**
+     * 查询截止时间插件，按调用方设置的截止时间为 SQL 设置语句超时
+     */
+    @Bean
+    public QueryDeadlineInterceptor queryDeadlineInterceptor() {
+        return new QueryDeadlineInterceptor();
+    }
 }
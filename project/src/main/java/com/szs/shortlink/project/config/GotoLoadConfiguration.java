@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接跳转缓存未命中回源配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.goto-cache.load")
+public class GotoLoadConfiguration {
+
+    /**
+     * 回源前是否尝试获取分布式锁，关闭后每个节点每个短链接仅一次回源
+     */
+    private Boolean lockEnable = Boolean.TRUE;
+
+    /**
+     * 获取分布式锁最长等待时间，超时后直接回源，单位：毫秒
+     */
+    private Long lockWaitTime = 200L;
+
+    /**
+     * 等待同节点其他线程回源结果的最长时间，单位：毫秒
+     */
+    private Long singleFlightTimeout = 3000L;
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接本地布隆过滤器副本配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.bloom-filter.local")
+public class LocalBloomFilterConfiguration {
+
+    /**
+     * 是否开启本地布隆过滤器副本，关闭后直接查询 Redis 布隆过滤器
+     */
+    private Boolean enable = Boolean.TRUE;
+
+    /**
+     * 预计元素数量，与 Redis 布隆过滤器保持一致
+     */
+    private Long expectedInsertions = 100000000L;
+
+    /**
+     * 误判率，与 Redis 布隆过滤器保持一致
+     */
+    private Double falseProbability = 0.001;
+
+    /**
+     * 内存映射快照文件路径
+     */
+    private String snapshotPath = "data/short-uri-bloom-filter.bin";
+
+    /**
+     * 快照刷盘间隔，单位：秒
+     */
+    private Long snapshotInterval = 60L;
+
+    /**
+     * 新增日志 Stream 保留的最大长度（近似裁剪）
+     */
+    private Long addLogMaxLength = 1000000L;
+
+    /**
+     * 从数据库重建时每批读取条数
+     */
+    private Integer rebuildBatchSize = 5000;
+}
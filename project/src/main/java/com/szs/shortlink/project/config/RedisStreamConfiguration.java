@@ -17,27 +17,16 @@
 
 package com.szs.shortlink.project.config;
 
-import com.szs.shortlink.project.mq.consumer.ShortLinkStatsSaveConsumer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.connection.stream.Consumer;
-import org.springframework.data.redis.connection.stream.MapRecord;
-import org.springframework.data.redis.connection.stream.ReadOffset;
-import org.springframework.data.redis.connection.stream.StreamOffset;
-import org.springframework.data.redis.stream.StreamMessageListenerContainer;
 
-import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_STREAM_GROUP_KEY;
-import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_STREAM_TOPIC_KEY;
-
 /**
  * Redis Stream 消息队列配置
  */
@@ -45,15 +34,18 @@ import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_L
 @RequiredArgsConstructor
 public class RedisStreamConfiguration {
 
-    private final RedisConnectionFactory redisConnectionFactory;
-    private final ShortLinkStatsSaveConsumer shortLinkStatsSaveConsumer;
+    private final StatsConsumeConfiguration statsConsumeConfiguration;
 
+    /**
+     * 短链接监控消息拉取线程池，每个监听者常驻占用一个线程
+     * 无界队列下线程数不会超过核心线程数，核心线程数取监听者数量上限再加一个转移空闲消息的处理线程，监听者按持久化耗时缩减后空闲线程超时回收
+     */
     @Bean
     public ExecutorService asyncStreamConsumer() {
         AtomicInteger index = new AtomicInteger();
-        int processors = Runtime.getRuntime().availableProcessors();
-        return new ThreadPoolExecutor(processors,
-                processors + processors >> 1,
+        int poolSize = Math.max(statsConsumeConfiguration.getListeners(), statsConsumeConfiguration.getMaxListeners()) + 1;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize,
+                poolSize,
                 60,
                 TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(),
@@ -64,24 +56,7 @@ public class RedisStreamConfiguration {
                     return thread;
                 }
         );
-    }
-
-    @Bean(initMethod = "start", destroyMethod = "stop")
-    public StreamMessageListenerContainer<String, MapRecord<String, String, String>> streamMessageListenerContainer(ExecutorService asyncStreamConsumer) {
-        StreamMessageListenerContainer.StreamMessageListenerContainerOptions<String, MapRecord<String, String, String>> options =
-                StreamMessageListenerContainer.StreamMessageListenerContainerOptions
-                        .builder()
-                        // 一次最多获取多少条消息
-                        .batchSize(10)
-                        // 执行从 Stream 拉取到消息的任务流程
-                        .executor(asyncStreamConsumer)
-                        // 如果没有拉取到消息，需要阻塞的时间。不能大于 ${spring.data.redis.timeout}，否则会超时
-                        .pollTimeout(Duration.ofSeconds(3))
-                        .build();
-        StreamMessageListenerContainer<String, MapRecord<String, String, String>> streamMessageListenerContainer =
-                StreamMessageListenerContainer.create(redisConnectionFactory, options);
-        streamMessageListenerContainer.receiveAutoAck(Consumer.from(SHORT_LINK_STATS_STREAM_GROUP_KEY, "stats-consumer"),
-                StreamOffset.create(SHORT_LINK_STATS_STREAM_TOPIC_KEY, ReadOffset.lastConsumed()), shortLinkStatsSaveConsumer);
-        return streamMessageListenerContainer;
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接统计事件总线配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.bus")
+public class StatsBusConfiguration {
+
+    /**
+     * 事件总线类型：redis-stream 经 Redis Stream 投递，多节点共享消费；local 单节点内存环形缓冲区直接落库
+     */
+    private String type = "redis-stream";
+
+    /**
+     * 本地事件总线环形缓冲区容量，向上取整为 2 的幂
+     */
+    private Integer ringBufferSize = 65536;
+
+    /**
+     * 本地事件总线单批次最多落库的事件数量
+     */
+    private Integer flushSize = 512;
+
+    /**
+     * 本地事件总线未凑满批次时的最长等待时间，单位：毫秒
+     */
+    private Long flushInterval = 100L;
+
+    /**
+     * 本地事件总线批次落库失败后的重试间隔，单位：毫秒
+     */
+    private Long retryInterval = 1000L;
+
+    /**
+     * 是否开启预写日志，开启后每批事件落库前先追加写入文件，进程异常退出后重启时重放未完成的批次
+     * 重放为至少一次语义，落库后尚未写入提交记录的批次可能被重复统计
+     */
+    private Boolean walEnable = false;
+
+    /**
+     * 预写日志文件路径
+     */
+    private String walPath = "./data/short-link-stats.wal";
+
+    /**
+     * 每批事件写入预写日志后是否强制刷盘
+     */
+    private Boolean walSync = false;
+
+    /**
+     * 预写日志文件超过该大小且没有未完成批次时清空，单位：字节
+     */
+    private Long walMaxBytes = 64L * 1024 * 1024;
+}
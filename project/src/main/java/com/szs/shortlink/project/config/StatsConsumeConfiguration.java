@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接统计消息消费配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.consume")
+public class StatsConsumeConfiguration {
+
+    /**
+     * 消费者名称前缀，为空时取 "主机名:进程号"，同一节点的多个监听者在前缀后追加序号
+     */
+    private String consumerName;
+
+    /**
+     * 每个节点并行拉取消息的最少监听者数量
+     */
+    private Integer listeners = 2;
+
+    /**
+     * 每个节点并行拉取消息的最多监听者数量，积压时按持久化耗时在最少与最多之间调整
+     */
+    private Integer maxListeners = 8;
+
+    /**
+     * 单次拉取并聚合落库的初始消息数量
+     */
+    private Integer batchSize = 200;
+
+    /**
+     * 自适应调整的最小批次大小
+     */
+    private Integer minBatchSize = 50;
+
+    /**
+     * 自适应调整的最大批次大小
+     */
+    private Integer maxBatchSize = 2000;
+
+    /**
+     * 根据积压量调整批次大小与监听者数量的间隔，单位：毫秒
+     */
+    private Long adjustInterval = 5000L;
+
+    /**
+     * 期望消化积压消息的时间，用于估算需要的监听者数量，单位：毫秒
+     */
+    private Long drainTarget = 30000L;
+
+    /**
+     * 没有消息时单次拉取的阻塞时间，不能大于 spring.data.redis.timeout，单位：毫秒
+     */
+    private Long pollTimeout = 2000L;
+
+    /**
+     * 待确认消息空闲超过该时间视为原消费者宕机，由其他消费者转移后重新处理，单位：毫秒
+     * 需大于消息幂等标识有效期（2 分钟），否则仍在处理中的消息被转移后只会累加投递次数，配置过小时按有效期加 30 秒处理
+     */
+    private Long reclaimIdleTime = 180000L;
+
+    /**
+     * 检查待确认消息的间隔，单位：毫秒
+     */
+    private Long reclaimInterval = 30000L;
+
+    /**
+     * 单次检查转移的最大消息数量
+     */
+    private Integer reclaimBatchSize = 100;
+
+    /**
+     * 消息最大投递次数，超过后记录日志并确认删除，避免异常消息反复重试
+     * 与转移空闲时间的乘积需小于消息已完成标识有效期（6 小时），否则已落库但确认失败的消息在标识过期后会被重复统计
+     */
+    private Integer maxDeliveryCount = 16;
+
+    /**
+     * 按消费者组进度裁剪 Stream 的间隔，单位：毫秒
+     */
+    private Long trimInterval = 60000L;
+
+    /**
+     * 裁剪后 Stream 长度仍超过该值时告警，说明消费积压，单位：条
+     */
+    private Long lengthWarnThreshold = 1000000L;
+}
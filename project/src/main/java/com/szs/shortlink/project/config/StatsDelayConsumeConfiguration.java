@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接统计延迟消息消费配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.delay-consume")
+public class StatsDelayConsumeConfiguration {
+
+    /**
+     * 并行阻塞获取延迟消息的工作线程数量
+     */
+    private Integer workers = 2;
+
+    /**
+     * 单次获取到消息后继续批量取出的最大消息数量
+     */
+    private Integer batchSize = 100;
+
+    /**
+     * 单次阻塞获取的超时时间，超时后重新检查运行状态，单位：毫秒
+     */
+    private Long takeTimeout = 5000L;
+
+    /**
+     * 处理异常后的退避时间，单位：毫秒
+     */
+    private Long errorBackoff = 1000L;
+}
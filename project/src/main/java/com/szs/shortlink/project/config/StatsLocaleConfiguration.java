@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接统计地区解析配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.locale")
+public class StatsLocaleConfiguration {
+
+    /**
+     * 高德 IP 定位接口 Key
+     */
+    private String amapKey;
+
+    /**
+     * 地区解析方式
+     * offline：本地 IP 段库二分查找
+     * amap：逐个调用高德 IP 定位接口
+     */
+    private String resolver = "offline";
+
+    /**
+     * 本地 IP 段库路径，支持 classpath: 与 file: 前缀
+     * 每行格式：起始IP|结束IP|国家|省份|城市|行政区划代码，IP 可以是点分十进制或无符号整数，# 开头为注释
+     */
+    private String offlineDatabase = "classpath:ip/ip-locale.txt";
+
+    /**
+     * 本地 IP 段库未命中或未加载时，是否回退到高德 IP 定位接口
+     */
+    private Boolean amapFallback = true;
+
+    /**
+     * 是否开启地区解析结果本地缓存
+     */
+    private Boolean cacheEnable = true;
+
+    /**
+     * 地区解析结果缓存最大条数
+     */
+    private Long cacheMaximumSize = 200000L;
+
+    /**
+     * 地区解析结果缓存过期时间，单位：秒
+     */
+    private Long cacheExpireAfterWrite = 86400L;
+
+    /**
+     * 解析失败（未命中或远程接口异常）结果的缓存过期时间，单位：秒
+     * 远程接口超时、限流等暂时性失败与真正无法解析无法区分，只短时间缓存，恢复后尽快重新解析
+     */
+    private Long cacheEmptyExpireAfterWrite = 60L;
+
+    /**
+     * 地区解析结果缓存 Key 粒度
+     * ip：按完整 IP 缓存
+     * prefix24：按 IPv4 /24 网段缓存，同一网段共用一次解析结果
+     */
+    private String cacheKeyType = "ip";
+}
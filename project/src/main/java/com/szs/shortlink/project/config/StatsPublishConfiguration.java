@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接统计消息异步批量发送配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.publish")
+public class StatsPublishConfiguration {
+
+    /**
+     * 是否开启异步批量发送，关闭时在跳转线程中同步发送
+     */
+    private Boolean asyncEnable = true;
+
+    /**
+     * 环形缓冲区容量，向上取整为 2 的幂
+     */
+    private Integer ringBufferSize = 65536;
+
+    /**
+     * 单批次最多发送的消息数量
+     */
+    private Integer flushSize = 256;
+
+    /**
+     * 未凑满批次时的最长等待时间，单位：毫秒
+     */
+    private Long flushInterval = 50L;
+
+    /**
+     * 单批次最多发送次数，包含首次发送，超过后丢弃仍未发送成功的消息
+     */
+    private Integer retryMaxAttempts = 5;
+
+    /**
+     * 批次发送失败后首次重试的等待时间，之后每次翻倍，单位：毫秒
+     */
+    private Long retryBackoff = 100L;
+
+    /**
+     * 批次重试的最长等待时间，单位：毫秒
+     */
+    private Long retryMaxBackoff = 2000L;
+}
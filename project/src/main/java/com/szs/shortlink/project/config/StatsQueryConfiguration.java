@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接监控数据查询配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.query")
+public class StatsQueryConfiguration {
+
+    /**
+     * 并行查询线程数量，不超过数据库连接池大小，避免挤占写入链路的连接
+     */
+    private Integer threads = 16;
+
+    /**
+     * 并行查询等待队列容量，队列已满时由请求线程直接执行
+     */
+    private Integer queueCapacity = 512;
+
+    /**
+     * 单次监控请求等待全部查询完成的最长时间，单位：毫秒
+     */
+    private Long timeout = 5000L;
+}
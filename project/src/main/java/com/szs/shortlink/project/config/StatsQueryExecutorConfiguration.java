@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 短链接监控数据查询线程池配置
+ */
+@Configuration
+@RequiredArgsConstructor
+public class StatsQueryExecutorConfiguration {
+
+    private final StatsQueryConfiguration statsQueryConfiguration;
+
+    /**
+     * 短链接监控数据并行查询线程池
+     * 有界队列已满时由请求线程直接执行，高峰期退化为串行查询而不是拒绝请求
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService statsQueryExecutor() {
+        AtomicInteger index = new AtomicInteger();
+        int threads = statsQueryConfiguration.getThreads();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+                threads,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(statsQueryConfiguration.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable);
+                    thread.setName("stats_query_short-link_" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接监控结果缓存配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.result-cache")
+public class StatsResultCacheConfiguration {
+
+    /**
+     * 是否开启监控结果缓存
+     */
+    private Boolean enable = true;
+
+    /**
+     * 跨天后前一天仍视为未结束的时长，覆盖大部分延迟消费与重试写入的时间，超过后到达的延迟统计会失效缓存，单位：毫秒
+     */
+    private Long closeDelay = 600000L;
+
+    /**
+     * 缓存有效期，从缓存 Key 创建时开始计算，写入不刷新，单位：秒
+     */
+    private Long ttl = 604800L;
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接统计汇总表配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.rollup")
+public class StatsRollupConfiguration {
+
+    /**
+     * 是否开启日、月汇总表，开启前需先创建对应的汇总表
+     */
+    private Boolean enable = false;
+
+    /**
+     * 汇总任务执行间隔，单位：毫秒
+     */
+    private Long interval = 600000L;
+
+    /**
+     * 每次汇总时重新计算的最近已结束天数，用于吸收延迟到达的统计数据
+     */
+    private Integer recomputeDays = 2;
+
+    /**
+     * 首次汇总时最多回溯的天数
+     */
+    private Integer backfillDays = 400;
+
+    /**
+     * 单次汇总最多处理的天数，历史数据分多次逐步追平
+     */
+    private Integer maxDaysPerRun = 31;
+}
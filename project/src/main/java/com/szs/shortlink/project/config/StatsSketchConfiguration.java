@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接每日去重 HyperLogLog 配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.sketch")
+public class StatsSketchConfiguration {
+
+    /**
+     * 是否在统计落库时写入每日去重 HyperLogLog，并用于区间 UV、UIP 查询
+     */
+    private Boolean enable = true;
+
+    /**
+     * 每日 HyperLogLog 保留天数，超出保留范围的区间仍按访问日志去重，单位：天
+     */
+    private Integer retainDays = 400;
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接当天访问统计配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.today")
+public class StatsTodayConfiguration {
+
+    /**
+     * 是否由 Redis 维护当天访问统计，关闭时每批统计直接累加今日统计表
+     */
+    private Boolean enable = true;
+
+    /**
+     * Redis 中当天访问统计的保留天数，需大于 1 以便日终刷新与延迟到达的统计
+     */
+    private Integer retainDays = 3;
+
+    /**
+     * 检查并刷新已结束日期统计的间隔，单位：毫秒
+     */
+    private Long flushInterval = 600000L;
+
+    /**
+     * 单条批量写入语句包含的最大短链接数量
+     */
+    private Integer flushBatchSize = 500;
+
+    /**
+     * 写入 Redis 失败的批次在本节点内重试的间隔，单位：毫秒
+     */
+    private Long retryInterval = 5000L;
+
+    /**
+     * 本节点内等待重试的最大批次数，超过后丢弃并记录日志
+     */
+    private Integer retryCapacity = 10000;
+
+    /**
+     * 写入 Redis 失败的批次最长重试时间，超过后记录日志并丢弃，批次已写入标识保留该时间的两倍，单位：毫秒
+     */
+    private Long retryExpireTime = 600000L;
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接高频访问 IP 统计配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.top-ip")
+public class StatsTopIpConfiguration {
+
+    /**
+     * 是否在统计落库时维护每日高频访问 IP 计数，并用于高频访问 IP 查询
+     */
+    private Boolean enable = true;
+
+    /**
+     * 每个短链接或分组每天保留的 IP 数量，访问占比超过 1/容量 的 IP 一定会被保留
+     */
+    private Integer capacity = 100;
+
+    /**
+     * 每日高频访问 IP 计数保留天数，超出保留范围的区间仍按访问日志聚合，单位：天
+     */
+    private Integer retainDays = 400;
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接访客去重配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.visitor")
+public class StatsVisitorConfiguration {
+
+    /**
+     * 访客去重模式
+     * set：每个短链接一个永久 Set，首次访问标识为历史首次，内存随访客数无限增长
+     * hyperloglog：每个短链接每天一个 HyperLogLog，首次访问标识为最近 windowDays 天内首次（近似），
+     * 此模式下历史 UV、UIP 累计值为各窗口内首次访问数之和
+     */
+    private String mode = "set";
+
+    /**
+     * HyperLogLog 模式下判断首次访问的滑动窗口大小，包含当天，单位：天
+     * 当天首次出现的访客再与之前 windowDays - 1 天的 HyperLogLog 合并判断，超出窗口的 HyperLogLog 自动过期
+     */
+    private Integer windowDays = 31;
+
+    public boolean isHyperLogLogMode() {
+        return "hyperloglog".equalsIgnoreCase(mode);
+    }
+}
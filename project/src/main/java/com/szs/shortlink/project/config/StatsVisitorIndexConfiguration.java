@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接访客首末次访问索引配置文件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "short-link.stats.visitor-index")
+public class StatsVisitorIndexConfiguration {
+
+    /**
+     * 是否在统计落库时维护访客首末次访问索引，并用于新老访客判断
+     * 开启前需创建 t_link_visitor 表并按访问日志回填历史访客，否则历史访客会被判断为新访客
+     */
+    private Boolean enable = false;
+}
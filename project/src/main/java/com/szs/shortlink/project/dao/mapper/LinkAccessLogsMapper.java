@@ -22,6 +22,7 @@ import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
 import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
 import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsReqDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
@@ -34,6 +35,18 @@ import java.util.Map;
  */
 public interface LinkAccessLogsMapper extends BaseMapper<LinkAccessLogsDO> {
 
+    /**
+     * 批量插入访问日志，创建时间取访问发生时间
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_access_logs (full_short_url, gid, user, browser, os, ip, network, device, locale, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.user}, #{item.browser}, #{item.os}, #{item.ip}, #{item.network}, #{item.device}, #{item.locale}, #{item.createTime}, NOW(), 0) " +
+            "</foreach>" +
+            "</script>")
+    void insertBatch(@Param("list") List<LinkAccessLogsDO> linkAccessLogsDOList);
+
     /**
      * 根据短链接获取指定日期内高频访问IP数据
      */
@@ -41,6 +41,19 @@ public interface LinkAccessStatsMapper extends BaseMapper<LinkAccessStatsDO> {
             " uip = uip + #{linkAccessStats.uip};")
     void shortLinkStats(@Param("linkAccessStats") LinkAccessStatsDO linkAccessStatsDO);
 
+    /**
+     * 批量记录基础访问监控数据，同一批次内已按小时聚合
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_access_stats (full_short_url, gid, date, pv, uv, uip, hour, weekday, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.date}, #{item.pv}, #{item.uv}, #{item.uip}, #{item.hour}, #{item.weekday}, NOW(), NOW(), 0) " +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE pv = pv + VALUES(pv), uv = uv + VALUES(uv), uip = uip + VALUES(uip), update_time = NOW();" +
+            "</script>")
+    void shortLinkStatsBatch(@Param("list") List<LinkAccessStatsDO> linkAccessStatsDOList);
+
     /**
      * 根据短链接获取指定日期内基础监控数据
      */
@@ -41,6 +41,19 @@ public interface LinkBrowserStatsMapper extends BaseMapper<LinkBrowserStatsDO> {
             "ON DUPLICATE KEY UPDATE cnt = cnt +  #{linkBrowserStats.cnt};")
     void shortLinkBrowserState(@Param("linkBrowserStats") LinkBrowserStatsDO linkBrowserStatsDO);
 
+    /**
+     * 批量记录浏览器访问监控数据，同一批次内已按维度聚合
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_browser_stats (full_short_url, gid, date, cnt, browser, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.date}, #{item.cnt}, #{item.browser}, NOW(), NOW(), 0) " +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt), update_time = NOW();" +
+            "</script>")
+    void shortLinkBrowserStateBatch(@Param("list") List<LinkBrowserStatsDO> linkBrowserStatsDOList);
+
     /**
      * 根据短链接获取指定日期内浏览器监控数据
      */
@@ -40,6 +40,19 @@ public interface LinkDeviceStatsMapper extends BaseMapper<LinkDeviceStatsDO> {
             "ON DUPLICATE KEY UPDATE cnt = cnt +  #{linkDeviceStats.cnt};")
     void shortLinkDeviceState(@Param("linkDeviceStats") LinkDeviceStatsDO linkDeviceStatsDO);
 
+    /**
+     * 批量记录访问设备访问监控数据，同一批次内已按维度聚合
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_device_stats (full_short_url, gid, date, cnt, device, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.date}, #{item.cnt}, #{item.device}, NOW(), NOW(), 0) " +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt), update_time = NOW();" +
+            "</script>")
+    void shortLinkDeviceStateBatch(@Param("list") List<LinkDeviceStatsDO> linkDeviceStatsDOList);
+
     /**
      * 根据短链接获取指定日期内访问设备监控数据
      */
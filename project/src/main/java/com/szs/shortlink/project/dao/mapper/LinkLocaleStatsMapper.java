@@ -40,6 +40,19 @@ public interface LinkLocaleStatsMapper extends BaseMapper<LinkLocaleStatsDO> {
             "ON DUPLICATE KEY UPDATE cnt = cnt +  #{linkLocaleStats.cnt};")
     void shortLinkLocaleState(@Param("linkLocaleStats") LinkLocaleStatsDO linkLocaleStatsDO);
 
+    /**
+     * 批量记录地区访问监控数据，同一批次内已按维度聚合
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_locale_stats (full_short_url, gid, date, cnt, country, province, city, adcode, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.date}, #{item.cnt}, #{item.country}, #{item.province}, #{item.city}, #{item.adcode}, NOW(), NOW(), 0) " +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt), update_time = NOW();" +
+            "</script>")
+    void shortLinkLocaleStateBatch(@Param("list") List<LinkLocaleStatsDO> linkLocaleStatsDOList);
+
     /**
      * 根据短链接获取指定日期内地区监控数据
      */
@@ -41,6 +41,19 @@ public interface LinkOsStatsMapper extends BaseMapper<LinkOsStatsDO> {
             "ON DUPLICATE KEY UPDATE cnt = cnt +  #{linkOsStats.cnt};")
     void shortLinkOsState(@Param("linkOsStats") LinkOsStatsDO linkOsStatsDO);
 
+    /**
+     * 批量记录操作系统访问监控数据，同一批次内已按维度聚合
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_os_stats (full_short_url, gid, date, cnt, os, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.date}, #{item.cnt}, #{item.os}, NOW(), NOW(), 0) " +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt), update_time = NOW();" +
+            "</script>")
+    void shortLinkOsStateBatch(@Param("list") List<LinkOsStatsDO> linkOsStatsDOList);
+
     /**
      * 根据短链接获取指定日期内操作系统监控数据
      */
@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.dao.mapper;
+
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkDeviceStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkLocaleStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkNetworkStatsDO;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRollupRangeDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsReqDTO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 短链接统计日、月汇总持久层
+ * 汇总表：t_link_access_stats_daily（唯一键 full_short_url, gid, date）、t_link_access_stats_monthly（唯一键 full_short_url, gid, month）、
+ * t_link_stats_dimension_monthly（唯一键 full_short_url, gid, month, dimension, value）
+ * 汇总语句均为重算覆盖语义，重复执行结果一致
+ */
+public interface LinkStatsRollupMapper {
+
+    String LINK_FILTER = "full_short_url = #{param.fullShortUrl} AND gid = #{param.gid} ";
+
+    String GROUP_FILTER = "gid = #{param.gid} ";
+
+    String MONTH_RANGE = "AND month BETWEEN #{range.monthStart} AND #{range.monthEnd} ";
+
+    String DAILY_RANGE = "AND date BETWEEN #{range.dailyStart} AND #{range.dailyEnd} ";
+
+    String BASE_RANGE = "AND date BETWEEN #{range.baseStart} AND #{range.baseEnd} ";
+
+    String EDGE_RANGE = "AND (date BETWEEN #{range.headStart} AND #{range.headEnd} " +
+            "OR date BETWEEN #{range.tailStart} AND #{range.tailEnd} " +
+            "OR date BETWEEN #{range.baseStart} AND #{range.baseEnd}) ";
+
+    /**
+     * 获取小时统计表中最早的统计日期，用于首次汇总时确定回溯起点
+     */
+    @Select("SELECT MIN(date) FROM t_link_access_stats;")
+    Date selectEarliestAccessDate();
+
+    /**
+     * 获取日汇总表中最早的汇总日期，用于补齐缺失的汇总低水位
+     */
+    @Select("SELECT MIN(date) FROM t_link_access_stats_daily;")
+    Date selectEarliestRollupDate();
+
+    /**
+     * 将指定日期的小时统计汇总为日统计
+     */
+    @Insert("INSERT INTO t_link_access_stats_daily (full_short_url, gid, date, pv, uv, uip, weekday, create_time, update_time, del_flag) " +
+            "SELECT full_short_url, gid, date, SUM(pv), SUM(uv), SUM(uip), MAX(weekday), NOW(), NOW(), 0 " +
+            "FROM t_link_access_stats " +
+            "WHERE date = #{date} " +
+            "GROUP BY full_short_url, gid, date " +
+            "ON DUPLICATE KEY UPDATE pv = VALUES(pv), uv = VALUES(uv), uip = VALUES(uip), update_time = NOW();")
+    void rollupAccessDaily(@Param("date") String date);
+
+    /**
+     * 将指定自然月的日统计汇总为月统计
+     */
+    @Insert("INSERT INTO t_link_access_stats_monthly (full_short_url, gid, month, pv, uv, uip, create_time, update_time, del_flag) " +
+            "SELECT full_short_url, gid, #{monthStart}, SUM(pv), SUM(uv), SUM(uip), NOW(), NOW(), 0 " +
+            "FROM t_link_access_stats_daily " +
+            "WHERE date BETWEEN #{monthStart} AND #{monthEnd} " +
+            "GROUP BY full_short_url, gid " +
+            "ON DUPLICATE KEY UPDATE pv = VALUES(pv), uv = VALUES(uv), uip = VALUES(uip), update_time = NOW();")
+    void rollupAccessMonthly(@Param("monthStart") String monthStart, @Param("monthEnd") String monthEnd);
+
+    /**
+     * 将指定自然月的维度日统计汇总为月统计，表名与列名取自统计维度枚举，不接受外部输入
+     */
+    @Insert("INSERT INTO t_link_stats_dimension_monthly (full_short_url, gid, month, dimension, value, cnt, create_time, update_time, del_flag) " +
+            "SELECT full_short_url, gid, #{monthStart}, #{dimension}, ${column}, SUM(cnt), NOW(), NOW(), 0 " +
+            "FROM ${table} " +
+            "WHERE date BETWEEN #{monthStart} AND #{monthEnd} " +
+            "GROUP BY full_short_url, gid, ${column} " +
+            "ON DUPLICATE KEY UPDATE cnt = VALUES(cnt), update_time = NOW();")
+    void rollupDimensionMonthly(@Param("dimension") String dimension,
+                                @Param("table") String table,
+                                @Param("column") String column,
+                                @Param("monthStart") String monthStart,
+                                @Param("monthEnd") String monthEnd);
+
+    /**
+     * 短链接变更分组时同步修改日统计汇总的分组标识
+     */
+    @Update("UPDATE t_link_access_stats_daily SET gid = #{gid} WHERE full_short_url = #{fullShortUrl} AND gid = #{originGid};")
+    void updateAccessDailyGid(@Param("fullShortUrl") String fullShortUrl, @Param("originGid") String originGid, @Param("gid") String gid);
+
+    /**
+     * 短链接变更分组时同步修改月统计汇总的分组标识
+     */
+    @Update("UPDATE t_link_access_stats_monthly SET gid = #{gid} WHERE full_short_url = #{fullShortUrl} AND gid = #{originGid};")
+    void updateAccessMonthlyGid(@Param("fullShortUrl") String fullShortUrl, @Param("originGid") String originGid, @Param("gid") String gid);
+
+    /**
+     * 短链接变更分组时同步修改维度月统计汇总的分组标识
+     */
+    @Update("UPDATE t_link_stats_dimension_monthly SET gid = #{gid} WHERE full_short_url = #{fullShortUrl} AND gid = #{originGid};")
+    void updateDimensionMonthlyGid(@Param("fullShortUrl") String fullShortUrl, @Param("originGid") String originGid, @Param("gid") String gid);
+
+    /**
+     * 根据短链接获取指定日期内基础监控数据，已汇总的天读取日汇总表，其余天读取小时统计表
+     */
+    @Select("SELECT " +
+            "    date, " +
+            "    SUM(pv) AS pv, " +
+            "    SUM(uv) AS uv, " +
+            "    SUM(uip) AS uip " +
+            "FROM ( " +
+            "    SELECT date, pv, uv, uip FROM t_link_access_stats_daily WHERE " + LINK_FILTER + DAILY_RANGE +
+            "    UNION ALL " +
+            "    SELECT date, pv, uv, uip FROM t_link_access_stats WHERE " + LINK_FILTER + BASE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    date;")
+    List<LinkAccessStatsDO> listStatsByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内基础监控数据，已汇总的天读取日汇总表，其余天读取小时统计表
+     */
+    @Select("SELECT " +
+            "    date, " +
+            "    SUM(pv) AS pv, " +
+            "    SUM(uv) AS uv, " +
+            "    SUM(uip) AS uip " +
+            "FROM ( " +
+            "    SELECT date, pv, uv, uip FROM t_link_access_stats_daily WHERE " + GROUP_FILTER + DAILY_RANGE +
+            "    UNION ALL " +
+            "    SELECT date, pv, uv, uip FROM t_link_access_stats WHERE " + GROUP_FILTER + BASE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    date;")
+    List<LinkAccessStatsDO> listStatsByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据短链接获取指定日期内星期基础监控数据，已汇总的天读取日汇总表，其余天读取小时统计表
+     */
+    @Select("SELECT " +
+            "    weekday, " +
+            "    SUM(pv) AS pv " +
+            "FROM ( " +
+            "    SELECT weekday, pv FROM t_link_access_stats_daily WHERE " + LINK_FILTER + DAILY_RANGE +
+            "    UNION ALL " +
+            "    SELECT weekday, pv FROM t_link_access_stats WHERE " + LINK_FILTER + BASE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    weekday;")
+    List<LinkAccessStatsDO> listWeekdayStatsByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内星期基础监控数据，已汇总的天读取日汇总表，其余天读取小时统计表
+     */
+    @Select("SELECT " +
+            "    weekday, " +
+            "    SUM(pv) AS pv " +
+            "FROM ( " +
+            "    SELECT weekday, pv FROM t_link_access_stats_daily WHERE " + GROUP_FILTER + DAILY_RANGE +
+            "    UNION ALL " +
+            "    SELECT weekday, pv FROM t_link_access_stats WHERE " + GROUP_FILTER + BASE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    weekday;")
+    List<LinkAccessStatsDO> listWeekdayStatsByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据短链接获取指定日期内地区监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    province, " +
+            "    SUM(cnt) AS cnt " +
+            "FROM ( " +
+            "    SELECT value AS province, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + LINK_FILTER + "AND dimension = 'locale' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT province, cnt FROM t_link_locale_stats " +
+            "    WHERE " + LINK_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    province;")
+    List<LinkLocaleStatsDO> listLocaleByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内地区监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    province, " +
+            "    SUM(cnt) AS cnt " +
+            "FROM ( " +
+            "    SELECT value AS province, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + GROUP_FILTER + "AND dimension = 'locale' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT province, cnt FROM t_link_locale_stats " +
+            "    WHERE " + GROUP_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    province;")
+    List<LinkLocaleStatsDO> listLocaleByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据短链接获取指定日期内浏览器监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    browser, " +
+            "    SUM(cnt) AS count " +
+            "FROM ( " +
+            "    SELECT value AS browser, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + LINK_FILTER + "AND dimension = 'browser' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT browser, cnt FROM t_link_browser_stats " +
+            "    WHERE " + LINK_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    browser;")
+    List<HashMap<String, Object>> listBrowserByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内浏览器监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    browser, " +
+            "    SUM(cnt) AS count " +
+            "FROM ( " +
+            "    SELECT value AS browser, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + GROUP_FILTER + "AND dimension = 'browser' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT browser, cnt FROM t_link_browser_stats " +
+            "    WHERE " + GROUP_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    browser;")
+    List<HashMap<String, Object>> listBrowserByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据短链接获取指定日期内操作系统监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    os, " +
+            "    SUM(cnt) AS count " +
+            "FROM ( " +
+            "    SELECT value AS os, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + LINK_FILTER + "AND dimension = 'os' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT os, cnt FROM t_link_os_stats " +
+            "    WHERE " + LINK_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    os;")
+    List<HashMap<String, Object>> listOsByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内操作系统监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    os, " +
+            "    SUM(cnt) AS count " +
+            "FROM ( " +
+            "    SELECT value AS os, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + GROUP_FILTER + "AND dimension = 'os' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT os, cnt FROM t_link_os_stats " +
+            "    WHERE " + GROUP_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    os;")
+    List<HashMap<String, Object>> listOsByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据短链接获取指定日期内访问设备监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    device, " +
+            "    SUM(cnt) AS cnt " +
+            "FROM ( " +
+            "    SELECT value AS device, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + LINK_FILTER + "AND dimension = 'device' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT device, cnt FROM t_link_device_stats " +
+            "    WHERE " + LINK_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    device;")
+    List<LinkDeviceStatsDO> listDeviceByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内访问设备监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    device, " +
+            "    SUM(cnt) AS cnt " +
+            "FROM ( " +
+            "    SELECT value AS device, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + GROUP_FILTER + "AND dimension = 'device' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT device, cnt FROM t_link_device_stats " +
+            "    WHERE " + GROUP_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    device;")
+    List<LinkDeviceStatsDO> listDeviceByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据短链接获取指定日期内访问网络监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    network, " +
+            "    SUM(cnt) AS cnt " +
+            "FROM ( " +
+            "    SELECT value AS network, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + LINK_FILTER + "AND dimension = 'network' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT network, cnt FROM t_link_network_stats " +
+            "    WHERE " + LINK_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    network;")
+    List<LinkNetworkStatsDO> listNetworkByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+
+    /**
+     * 根据分组获取指定日期内访问网络监控数据，完整自然月读取月汇总表，其余天读取原始统计表
+     */
+    @Select("SELECT " +
+            "    network, " +
+            "    SUM(cnt) AS cnt " +
+            "FROM ( " +
+            "    SELECT value AS network, cnt FROM t_link_stats_dimension_monthly " +
+            "    WHERE " + GROUP_FILTER + "AND dimension = 'network' " + MONTH_RANGE +
+            "    UNION ALL " +
+            "    SELECT network, cnt FROM t_link_network_stats " +
+            "    WHERE " + GROUP_FILTER + EDGE_RANGE +
+            ") t " +
+            "GROUP BY " +
+            "    network;")
+    List<LinkNetworkStatsDO> listNetworkByGroup(@Param("param") ShortLinkGroupStatsReqDTO requestParam, @Param("range") ShortLinkStatsRollupRangeDTO rollupRange);
+}
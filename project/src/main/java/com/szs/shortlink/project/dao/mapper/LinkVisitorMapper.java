@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.szs.shortlink.project.dao.entity.LinkVisitorDO;
+import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 短链接访客首末次访问索引持久层
+ */
+public interface LinkVisitorMapper extends BaseMapper<LinkVisitorDO> {
+
+    /**
+     * 批量登记访客首末次访问时间，同一批次内已按短链接与访客聚合
+     * 首次访问取较早值、最近一次访问取较晚值，消息重复消费不会改变结果
+     */
+    @Insert("<script> " +
+            "INSERT INTO t_link_visitor (full_short_url, gid, user, first_seen, last_seen, create_time, update_time, del_flag) " +
+            "VALUES " +
+            "<foreach item='item' collection='list' separator=','> " +
+            "( #{item.fullShortUrl}, #{item.gid}, #{item.user}, #{item.firstSeen}, #{item.lastSeen}, NOW(), NOW(), 0) " +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE first_seen = LEAST(first_seen, VALUES(first_seen)), last_seen = GREATEST(last_seen, VALUES(last_seen)), update_time = NOW();" +
+            "</script>")
+    void visitorBatch(@Param("list") List<LinkVisitorDO> linkVisitorDOList);
+
+    /**
+     * 根据短链接获取新旧访客数据，判断口径与访问日志查询一致：访问过多个自然日为老访客，仅一个自然日且在指定日期内为新访客
+     */
+    @Select("SELECT " +
+            "    SUM(CASE WHEN DATE(first_seen) < DATE(last_seen) THEN 1 ELSE 0 END) AS oldUserCnt, " +
+            "    SUM(CASE WHEN DATE(first_seen) = DATE(last_seen) AND last_seen >= #{param.startDate} AND last_seen <= #{param.endDate} THEN 1 ELSE 0 END) AS newUserCnt " +
+            "FROM " +
+            "    t_link_visitor " +
+            "WHERE " +
+            "    full_short_url = #{param.fullShortUrl} " +
+            "    AND gid = #{param.gid};")
+    HashMap<String, Object> findUvTypeCntByShortLink(@Param("param") ShortLinkStatsReqDTO requestParam);
+
+    /**
+     * 获取用户信息是否新老访客，按短链接与访客唯一索引点查
+     */
+    @Select("<script> " +
+            "SELECT " +
+            "    user, " +
+            "    CASE " +
+            "        WHEN first_seen BETWEEN #{startDate} AND #{endDate} THEN '新访客' " +
+            "        ELSE '老访客' " +
+            "    END AS uvType " +
+            "FROM " +
+            "    t_link_visitor " +
+            "WHERE " +
+            "    full_short_url = #{fullShortUrl} " +
+            "    AND gid = #{gid} " +
+            "    AND user IN " +
+            "    <foreach item='item' index='index' collection='userAccessLogsList' open='(' separator=',' close=')'> " +
+            "        #{item} " +
+            "    </foreach>;" +
+            "    </script>"
+    )
+    List<Map<String, Object>> selectUvTypeByUsers(
+            @Param("gid") String gid,
+            @Param("fullShortUrl") String fullShortUrl,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate,
+            @Param("userAccessLogsList") List<String> userAccessLogsList
+    );
+
+    /**
+     * 获取分组用户信息是否新老访客，访客在分组内的首次访问取各短链接首次访问的最小值
+     */
+    @Select("<script> " +
+            "SELECT " +
+            "    user, " +
+            "    CASE " +
+            "        WHEN MIN(first_seen) BETWEEN #{startDate} AND #{endDate} THEN '新访客' " +
+            "        ELSE '老访客' " +
+            "    END AS uvType " +
+            "FROM " +
+            "    t_link_visitor " +
+            "WHERE " +
+            "    gid = #{gid} " +
+            "    AND user IN " +
+            "    <foreach item='item' index='index' collection='userAccessLogsList' open='(' separator=',' close=')'> " +
+            "        #{item} " +
+            "    </foreach> " +
+            "GROUP BY " +
+            "    user;" +
+            "    </script>"
+    )
+    List<Map<String, Object>> selectGroupUvTypeByUsers(
+            @Param("gid") String gid,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate,
+            @Param("userAccessLogsList") List<String> userAccessLogsList
+    );
+
+    /**
+     * 短链接变更分组时同步修改访客索引的分组标识
+     */
+    @Update("UPDATE t_link_visitor SET gid = #{gid} WHERE full_short_url = #{fullShortUrl} AND gid = #{originGid};")
+    void updateGid(@Param("fullShortUrl") String fullShortUrl, @Param("originGid") String originGid, @Param("gid") String gid);
+}
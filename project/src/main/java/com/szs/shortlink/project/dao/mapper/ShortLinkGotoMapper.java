@@ -19,9 +19,27 @@ package com.szs.shortlink.project.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.szs.shortlink.project.dao.entity.ShortLinkGotoDO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * 短链接跳转持久层
  */
 public interface ShortLinkGotoMapper extends BaseMapper<ShortLinkGotoDO> {
+
+    /**
+     * 按完整短链接游标分页获取短链接，用于重建本地布隆过滤器
+     */
+    @Select("SELECT " +
+            "    full_short_url " +
+            "FROM " +
+            "    t_link_goto " +
+            "WHERE " +
+            "    full_short_url > #{lastFullShortUrl} " +
+            "ORDER BY " +
+            "    full_short_url " +
+            "LIMIT #{limit};")
+    List<String> listFullShortUrlAfter(@Param("lastFullShortUrl") String lastFullShortUrl, @Param("limit") Integer limit);
 }
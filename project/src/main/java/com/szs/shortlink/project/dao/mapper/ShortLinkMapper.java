@@ -24,6 +24,8 @@ import com.szs.shortlink.project.dto.req.ShortLinkPageReqDTO;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
 /**
  * 短链接持久层
  */
@@ -32,7 +34,7 @@ public interface ShortLinkMapper extends BaseMapper<ShortLinkDO> {
     /**
      * 短链接访问统计自增
      */
-    @Update("update t_link set total_pv = total_pv + #{totalPv}, total_uv = total_uv + #{totalUv}, total_uip = total_uip + #{totalUip} where gid = #{gid} and full_short_url = #{fullShortUrl}")
+    @Update("update t_link set total_pv = total_pv + #{totalPv}, total_uv = total_uv + #{totalUv}, total_uip = total_uip + #{totalUip} where gid = #{gid} and full_short_url = #{fullShortUrl} and del_flag = 0 and del_time = 0")
     void incrementStats(
             @Param("gid") String gid,
             @Param("fullShortUrl") String fullShortUrl,
@@ -41,8 +43,29 @@ public interface ShortLinkMapper extends BaseMapper<ShortLinkDO> {
             @Param("totalUip") Integer totalUip
     );
 
+    /**
+     * 批量自增同一分组下多个短链接的访问统计，按分组路由到单个分表，一条语句完成
+     * 只匹配未删除的短链接，已迁移分组的原记录不计入，由调用方转移到新分组
+     *
+     * @return 匹配到的行数
+     */
+    @Update("<script> " +
+            "UPDATE t_link SET " +
+            "total_pv = total_pv + CASE full_short_url <foreach item='item' collection='list'> WHEN #{item.fullShortUrl} THEN #{item.totalPv} </foreach> ELSE 0 END, " +
+            "total_uv = total_uv + CASE full_short_url <foreach item='item' collection='list'> WHEN #{item.fullShortUrl} THEN #{item.totalUv} </foreach> ELSE 0 END, " +
+            "total_uip = total_uip + CASE full_short_url <foreach item='item' collection='list'> WHEN #{item.fullShortUrl} THEN #{item.totalUip} </foreach> ELSE 0 END " +
+            "WHERE gid = #{gid} AND del_flag = 0 AND del_time = 0 AND full_short_url IN " +
+            "<foreach item='item' collection='list' open='(' separator=',' close=')'>#{item.fullShortUrl}</foreach>" +
+            "</script>")
+    int incrementStatsBatch(@Param("gid") String gid, @Param("list") List<ShortLinkDO> shortLinkDOList);
+
     /**
      * 分页统计短链接
      */
     IPage<ShortLinkDO> pageLink(ShortLinkPageReqDTO requestParam);
+
+    /**
+     * 分页统计短链接，不关联今日统计表
+     */
+    IPage<ShortLinkDO> pageLinkWithoutToday(ShortLinkPageReqDTO requestParam);
 }
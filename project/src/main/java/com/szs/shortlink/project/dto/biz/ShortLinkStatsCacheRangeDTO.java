@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.dto.biz;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 短链接监控结果缓存查询区间实体
+ * 查询日期区间按已结束日期拆分为缓存段与实时段，各段起止日期均为 yyyy-MM-dd，开始日期大于结束日期表示该段为空
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortLinkStatsCacheRangeDTO {
+
+    /**
+     * 缓存段开始日期，区间内的天均已结束，结果不再变化
+     */
+    private String cachedStart;
+
+    /**
+     * 缓存段结束日期
+     */
+    private String cachedEnd;
+
+    /**
+     * 实时段开始日期，包含今天及尚未结束的前一天，每次请求实时查询
+     */
+    private String liveStart;
+
+    /**
+     * 实时段结束日期
+     */
+    private String liveEnd;
+
+    /**
+     * 缓存段是否为空
+     */
+    public boolean cachedEmpty() {
+        return cachedStart.compareTo(cachedEnd) > 0;
+    }
+
+    /**
+     * 实时段是否为空
+     */
+    public boolean liveEmpty() {
+        return liveStart.compareTo(liveEnd) > 0;
+    }
+}
@@ -22,6 +22,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Date;
+
 /**
  * 短链接统计实体
  */
@@ -76,6 +78,11 @@ public class ShortLinkStatsRecordDTO {
      */
     private Boolean uipFirstFlag;
 
+    /**
+     * 访问时间
+     */
+    private Date currentDate;
+
     /**
      * 消息队列唯一标识
      */
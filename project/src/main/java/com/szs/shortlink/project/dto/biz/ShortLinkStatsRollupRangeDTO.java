@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.dto.biz;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 短链接统计汇总查询区间实体
+ * 查询日期区间按汇总水位拆分为若干段，各段起止日期均为 yyyy-MM-dd，开始日期大于结束日期表示该段为空
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortLinkStatsRollupRangeDTO {
+
+    /**
+     * 已汇总部分开始日期，读取日汇总表
+     */
+    private String dailyStart;
+
+    /**
+     * 已汇总部分结束日期
+     */
+    private String dailyEnd;
+
+    /**
+     * 已汇总部分中完整自然月的第一个月首日，读取月汇总表
+     */
+    private String monthStart;
+
+    /**
+     * 已汇总部分中完整自然月的最后一个月首日
+     */
+    private String monthEnd;
+
+    /**
+     * 完整自然月之前的零散天开始日期
+     */
+    private String headStart;
+
+    /**
+     * 完整自然月之前的零散天结束日期
+     */
+    private String headEnd;
+
+    /**
+     * 完整自然月之后的零散天开始日期
+     */
+    private String tailStart;
+
+    /**
+     * 完整自然月之后的零散天结束日期
+     */
+    private String tailEnd;
+
+    /**
+     * 未汇总部分开始日期，读取原始统计表
+     */
+    private String baseStart;
+
+    /**
+     * 未汇总部分结束日期
+     */
+    private String baseEnd;
+}
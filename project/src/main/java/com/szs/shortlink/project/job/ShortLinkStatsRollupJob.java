@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.job;
+
+import com.szs.shortlink.project.config.StatsRollupConfiguration;
+import com.szs.shortlink.project.service.ShortLinkStatsRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_ROLLUP_LOCK_KEY;
+
+/**
+ * 短链接统计日、月汇总定时任务
+ * 各节点定时刷新本地汇总水位，仅获取到分布式锁的节点执行汇总
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkStatsRollupJob implements SmartLifecycle {
+
+    private final ShortLinkStatsRollupService shortLinkStatsRollupService;
+    private final StatsRollupConfiguration statsRollupConfiguration;
+    private final RedissonClient redissonClient;
+
+    private ScheduledExecutorService rollupScheduler;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+        if (!Boolean.TRUE.equals(statsRollupConfiguration.getEnable())) {
+            return;
+        }
+        rollupScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("short-link_stats_rollup");
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+        rollupScheduler.scheduleWithFixedDelay(this::execute, 0L, statsRollupConfiguration.getInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    private void execute() {
+        try {
+            shortLinkStatsRollupService.refreshWatermark();
+            RLock lock = redissonClient.getLock(SHORT_LINK_STATS_ROLLUP_LOCK_KEY);
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                // 获取锁后重新加载水位，避免沿用其他节点刚刚推进前的旧水位重复回溯
+                shortLinkStatsRollupService.refreshWatermark();
+                shortLinkStatsRollupService.rollup();
+            } finally {
+                lock.unlock();
+            }
+        } catch (Throwable ex) {
+            log.error("短链接统计汇总异常", ex);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (rollupScheduler != null) {
+            rollupScheduler.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.locale;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpUtil;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.szs.shortlink.project.config.StatsLocaleConfiguration;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.szs.shortlink.project.common.constant.ShortLinkConstant.AMAP_REMOTE_URL;
+
+/**
+ * 高德 IP 定位接口地区解析器
+ * 每次解析都是一次同步 HTTP 调用，受接口延迟与配额限制，仅作为本地 IP 段库的回退
+ */
+@Component
+@RequiredArgsConstructor
+public class AmapIpLocaleResolver implements IpLocaleResolver {
+
+    private final StatsLocaleConfiguration statsLocaleConfiguration;
+
+    @Override
+    public IpLocaleDTO resolve(String ip) {
+        Map<String, Object> localeParamMap = new HashMap<>();
+        localeParamMap.put("key", statsLocaleConfiguration.getAmapKey());
+        localeParamMap.put("ip", ip);
+        String localeResultStr = HttpUtil.get(AMAP_REMOTE_URL, localeParamMap);
+        JSONObject localeResultObj = JSON.parseObject(localeResultStr);
+        String infoCode = localeResultObj.getString("infocode");
+        if (StrUtil.isBlank(infoCode) || !StrUtil.equals(infoCode, "10000")) {
+            return null;
+        }
+        String province = localeResultObj.getString("province");
+        boolean unknownFlag = StrUtil.isBlank(province) || StrUtil.equals(province, "[]");
+        return IpLocaleDTO.builder()
+                .country("中国")
+                .province(unknownFlag ? "未知" : province)
+                .city(unknownFlag ? "未知" : localeResultObj.getString("city"))
+                .adcode(unknownFlag ? "未知" : localeResultObj.getString("adcode"))
+                .build();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.locale;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.szs.shortlink.project.config.StatsLocaleConfiguration;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带本地缓存的 IP 地区解析器，统计消费者注入的默认实现
+ * 同一 NAT 或运营商出口的大量访问只解析一次；解析失败的结果只短时间缓存，
+ * 避免远程接口故障期间反复回退，又不会把超时、限流等暂时性失败当作无法解析保留一整天
+ */
+@Primary
+@Component
+@RequiredArgsConstructor
+public class CachedIpLocaleResolver implements IpLocaleResolver, InitializingBean, MeterBinder {
+
+    private final StatsLocaleConfiguration statsLocaleConfiguration;
+    private final CompositeIpLocaleResolver compositeIpLocaleResolver;
+
+    private Cache<String, Optional<IpLocaleDTO>> localeCache;
+    private Timer resolveTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        long expireNanos = TimeUnit.SECONDS.toNanos(statsLocaleConfiguration.getCacheExpireAfterWrite());
+        long emptyExpireNanos = TimeUnit.SECONDS.toNanos(statsLocaleConfiguration.getCacheEmptyExpireAfterWrite());
+        localeCache = Caffeine.newBuilder()
+                .maximumSize(statsLocaleConfiguration.getCacheMaximumSize())
+                .expireAfter(new Expiry<String, Optional<IpLocaleDTO>>() {
+                    @Override
+                    public long expireAfterCreate(@NonNull String key, @NonNull Optional<IpLocaleDTO> value, long currentTime) {
+                        return value.isPresent() ? expireNanos : emptyExpireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@NonNull String key, @NonNull Optional<IpLocaleDTO> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(@NonNull String key, @NonNull Optional<IpLocaleDTO> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public IpLocaleDTO resolve(String ip) {
+        if (!isCacheEnable()) {
+            return timedResolve(ip);
+        }
+        return localeCache.get(cacheKey(ip), each -> Optional.ofNullable(timedResolve(ip))).orElse(null);
+    }
+
+    @Override
+    public Map<String, IpLocaleDTO> resolveAll(Collection<String> ips) {
+        Map<String, String> cacheKeyToIp = new LinkedHashMap<>();
+        ips.forEach(each -> cacheKeyToIp.putIfAbsent(cacheKey(each), each));
+        Map<String, Optional<IpLocaleDTO>> cachedLocales = isCacheEnable()
+                ? localeCache.getAll(cacheKeyToIp.keySet(), missingKeys -> {
+                    Map<String, Optional<IpLocaleDTO>> loaded = new HashMap<>();
+                    missingKeys.forEach(each -> loaded.put(each, Optional.ofNullable(timedResolve(cacheKeyToIp.get(each)))));
+                    return loaded;
+                })
+                : new HashMap<>();
+        Map<String, IpLocaleDTO> result = new HashMap<>();
+        for (String each : ips) {
+            Optional<IpLocaleDTO> locale = isCacheEnable()
+                    ? cachedLocales.getOrDefault(cacheKey(each), Optional.empty())
+                    : Optional.ofNullable(timedResolve(each));
+            locale.ifPresent(actual -> result.put(each, actual));
+        }
+        return result;
+    }
+
+    private IpLocaleDTO timedResolve(String ip) {
+        if (resolveTimer == null) {
+            return compositeIpLocaleResolver.resolve(ip);
+        }
+        return resolveTimer.record(() -> compositeIpLocaleResolver.resolve(ip));
+    }
+
+    /**
+     * 按配置粒度计算缓存 Key，/24 网段只对 IPv4 生效
+     */
+    private String cacheKey(String ip) {
+        if (ip == null) {
+            return "";
+        }
+        if ("prefix24".equals(statsLocaleConfiguration.getCacheKeyType())) {
+            int lastDot = ip.lastIndexOf('.');
+            if (lastDot > 0 && ip.indexOf(':') < 0) {
+                return ip.substring(0, lastDot);
+            }
+        }
+        return ip;
+    }
+
+    private boolean isCacheEnable() {
+        return Boolean.TRUE.equals(statsLocaleConfiguration.getCacheEnable());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, localeCache, "short-link.locale.cache");
+        resolveTimer = Timer.builder("short-link.locale.resolve")
+                .description("缓存未命中时底层解析器耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+}
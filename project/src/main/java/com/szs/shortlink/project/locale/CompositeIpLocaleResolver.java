@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.locale;
+
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.config.StatsLocaleConfiguration;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 组合 IP 地区解析器
+ * 按配置选择本地 IP 段库或高德接口；使用本地 IP 段库时，未命中可回退到高德接口
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CompositeIpLocaleResolver implements IpLocaleResolver {
+
+    private final StatsLocaleConfiguration statsLocaleConfiguration;
+    private final OfflineIpLocaleResolver offlineIpLocaleResolver;
+    private final AmapIpLocaleResolver amapIpLocaleResolver;
+
+    @Override
+    public IpLocaleDTO resolve(String ip) {
+        if (StrUtil.equals(statsLocaleConfiguration.getResolver(), "amap")) {
+            return resolveQuietly(amapIpLocaleResolver, ip);
+        }
+        IpLocaleDTO locale = offlineIpLocaleResolver.resolve(ip);
+        if (locale == null && Boolean.TRUE.equals(statsLocaleConfiguration.getAmapFallback())) {
+            locale = resolveQuietly(amapIpLocaleResolver, ip);
+        }
+        return locale;
+    }
+
+    private IpLocaleDTO resolveQuietly(IpLocaleResolver ipLocaleResolver, String ip) {
+        try {
+            return ipLocaleResolver.resolve(ip);
+        } catch (Throwable ex) {
+            log.warn("查询访问 IP 地区信息异常，IP：{}", ip, ex);
+            return null;
+        }
+    }
+}
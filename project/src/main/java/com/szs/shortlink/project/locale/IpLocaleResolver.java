@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.locale;
+
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IP 地区解析器
+ */
+public interface IpLocaleResolver {
+
+    /**
+     * 解析 IP 所属地区
+     *
+     * @param ip 访问 IP
+     * @return 地区信息，无法解析返回 null
+     */
+    IpLocaleDTO resolve(String ip);
+
+    /**
+     * 批量解析 IP 所属地区
+     *
+     * @param ips 访问 IP 集合
+     * @return IP 与地区信息映射，无法解析的 IP 不在结果中
+     */
+    default Map<String, IpLocaleDTO> resolveAll(Collection<String> ips) {
+        Map<String, IpLocaleDTO> result = new HashMap<>();
+        for (String each : ips) {
+            IpLocaleDTO locale = resolve(each);
+            if (locale != null) {
+                result.put(each, locale);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.locale;
+
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.config.StatsLocaleConfiguration;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地 IP 段库地区解析器
+ * IP 段按起始地址排序后存入基本类型数组，地区信息去重后按下标引用，单次解析为一次二分查找，不产生网络调用
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OfflineIpLocaleResolver implements IpLocaleResolver, InitializingBean {
+
+    private final StatsLocaleConfiguration statsLocaleConfiguration;
+    private final ResourceLoader resourceLoader;
+
+    private volatile IpRangeTable ipRangeTable;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!StrUtil.equals(statsLocaleConfiguration.getResolver(), "offline")) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Throwable ex) {
+            log.warn("加载本地 IP 段库失败，地区解析将{}，路径：{}",
+                    Boolean.TRUE.equals(statsLocaleConfiguration.getAmapFallback()) ? "回退到高德接口" : "记为未知",
+                    statsLocaleConfiguration.getOfflineDatabase(), ex);
+        }
+    }
+
+    /**
+     * 重新加载本地 IP 段库，加载完成后原子替换，加载期间不影响解析
+     */
+    public void reload() throws Exception {
+        Resource resource = resourceLoader.getResource(statsLocaleConfiguration.getOfflineDatabase());
+        List<long[]> ranges = new ArrayList<>();
+        List<IpLocaleDTO> locales = new ArrayList<>();
+        Map<String, Integer> localeIndexMap = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StrUtil.isBlank(line) || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\|", -1);
+                if (fields.length < 6) {
+                    continue;
+                }
+                long start = parseIpv4OrNumber(fields[0].trim());
+                long end = parseIpv4OrNumber(fields[1].trim());
+                if (start < 0 || end < start) {
+                    continue;
+                }
+                String localeKey = String.join("|", fields[2], fields[3], fields[4], fields[5]);
+                int localeIndex = localeIndexMap.computeIfAbsent(localeKey, each -> {
+                    locales.add(IpLocaleDTO.builder()
+                            .country(fields[2])
+                            .province(fields[3])
+                            .city(fields[4])
+                            .adcode(fields[5])
+                            .build());
+                    return locales.size() - 1;
+                });
+                ranges.add(new long[]{start, end, localeIndex});
+            }
+        }
+        ranges.sort(Comparator.comparingLong(each -> each[0]));
+        int size = ranges.size();
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        int[] localeIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            long[] range = ranges.get(i);
+            starts[i] = (int) range[0];
+            ends[i] = (int) range[1];
+            localeIndexes[i] = (int) range[2];
+        }
+        ipRangeTable = new IpRangeTable(starts, ends, localeIndexes, locales.toArray(new IpLocaleDTO[0]));
+        log.info("本地 IP 段库加载完成，IP 段数量：{}，地区数量：{}", size, locales.size());
+    }
+
+    /**
+     * 本地 IP 段库是否已加载
+     */
+    public boolean isLoaded() {
+        return ipRangeTable != null;
+    }
+
+    @Override
+    public IpLocaleDTO resolve(String ip) {
+        IpRangeTable table = ipRangeTable;
+        if (table == null || ip == null) {
+            return null;
+        }
+        long address = parseIpv4(ip);
+        if (address < 0) {
+            return null;
+        }
+        return table.find((int) address);
+    }
+
+    private long parseIpv4OrNumber(String value) {
+        if (value.indexOf('.') < 0) {
+            try {
+                long address = Long.parseLong(value);
+                return address >= 0 && address <= 0xFFFFFFFFL ? address : -1;
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+        return parseIpv4(value);
+    }
+
+    /**
+     * 解析点分十进制 IPv4 地址，非法地址或 IPv6 返回 -1
+     */
+    static long parseIpv4(String ip) {
+        long address = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return -1;
+                }
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || dots != 3) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    /**
+     * 不可变 IP 段表，地址以无符号整数比较
+     */
+    private static final class IpRangeTable {
+
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] localeIndexes;
+        private final IpLocaleDTO[] locales;
+
+        private IpRangeTable(int[] starts, int[] ends, int[] localeIndexes, IpLocaleDTO[] locales) {
+            this.starts = starts;
+            this.ends = ends;
+            this.localeIndexes = localeIndexes;
+            this.locales = locales;
+        }
+
+        private IpLocaleDTO find(int address) {
+            int low = 0;
+            int high = starts.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (Integer.compareUnsigned(starts[mid], address) <= 0) {
+                    candidate = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (candidate < 0 || Integer.compareUnsigned(address, ends[candidate]) > 0) {
+                return null;
+            }
+            return locales[localeIndexes[candidate]];
+        }
+    }
+}
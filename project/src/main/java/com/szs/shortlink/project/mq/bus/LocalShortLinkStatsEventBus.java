@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.bus;
+
+import com.szs.shortlink.project.config.StatsBusConfiguration;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+import com.szs.shortlink.project.mq.consumer.ShortLinkStatsSaveConsumer;
+import com.szs.shortlink.project.mq.producer.ShortLinkStatsRingBuffer;
+import com.szs.shortlink.project.mq.producer.ShortLinkStatsSaveProducer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于本地内存环形缓冲区的短链接统计事件总线，只适用于单节点部署与压测
+ * 跳转线程无锁写入环形缓冲区，单个消费线程凑批后一次管道往返登记访客，再直接聚合落库，不经过 Redis Stream；
+ * 开启预写日志时每批事件落库前先追加到文件，重启时重放未完成的批次，仍在缓冲区中尚未凑批的事件在进程异常退出时会丢失
+ * 重放为至少一次语义：落库事务提交后、提交记录写入前进程退出的批次会再次落库，对应的访问量重复统计一次
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-link.stats.bus", name = "type", havingValue = "local")
+public class LocalShortLinkStatsEventBus implements ShortLinkStatsEventBus, InitializingBean, DisposableBean, MeterBinder {
+
+    private final ShortLinkStatsSaveProducer shortLinkStatsSaveProducer;
+    private final ShortLinkStatsSaveConsumer shortLinkStatsSaveConsumer;
+    private final StatsBusConfiguration statsBusConfiguration;
+
+    private ShortLinkStatsRingBuffer ringBuffer;
+    private ShortLinkStatsWriteAheadLog writeAheadLog;
+    private Thread consumeThread;
+    private volatile boolean running;
+
+    /**
+     * 消费线程是否已挂起等待新事件
+     */
+    private final AtomicBoolean parked = new AtomicBoolean();
+
+    private final LongAdder consumedEvents = new LongAdder();
+    private final LongAdder blockedPublishes = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ringBuffer = new ShortLinkStatsRingBuffer(statsBusConfiguration.getRingBufferSize());
+        if (Boolean.TRUE.equals(statsBusConfiguration.getWalEnable())) {
+            writeAheadLog = new ShortLinkStatsWriteAheadLog(
+                    statsBusConfiguration.getWalPath(),
+                    Boolean.TRUE.equals(statsBusConfiguration.getWalSync()),
+                    statsBusConfiguration.getWalMaxBytes()
+            );
+            replay(writeAheadLog.recover());
+        }
+        running = true;
+        consumeThread = new Thread(this::consumeLoop, "short-link_stats_local_bus");
+        consumeThread.setDaemon(true);
+        consumeThread.start();
+    }
+
+    /**
+     * 发布短链接统计事件，缓冲区写满时在调用线程自旋等待消费线程腾出槽位，形成反压而不丢弃事件
+     * 消费线程空闲挂起时由写入成功的发布线程唤醒
+     */
+    @Override
+    public void publish(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
+        if (ringBuffer.offer(fullShortUrl, gid, statsRecord)) {
+            signalConsumer();
+            return;
+        }
+        blockedPublishes.increment();
+        while (!ringBuffer.offer(fullShortUrl, gid, statsRecord)) {
+            if (!running) {
+                log.warn("本地事件总线已停止，丢弃短链接统计事件：{}", fullShortUrl);
+                return;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        signalConsumer();
+    }
+
+    private void signalConsumer() {
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(consumeThread);
+        }
+    }
+
+    private void replay(List<List<ShortLinkStatsEvent>> batches) throws Exception {
+        if (batches.isEmpty()) {
+            writeAheadLog.reset();
+            return;
+        }
+        log.info("重放短链接统计预写日志中未完成的批次 {} 个", batches.size());
+        for (List<ShortLinkStatsEvent> each : batches) {
+            List<String> fullShortUrls = each.stream().map(ShortLinkStatsEvent::getFullShortUrl).toList();
+            List<ShortLinkStatsRecordDTO> statsRecords = each.stream().map(ShortLinkStatsEvent::getStatsRecord).toList();
+            if (!shortLinkStatsSaveConsumer.saveLocalBatch(fullShortUrls, statsRecords)) {
+                throw new IllegalStateException("重放短链接统计预写日志失败，保留日志文件等待下次启动重放");
+            }
+        }
+        writeAheadLog.reset();
+    }
+
+    private void consumeLoop() {
+        int flushSize = statsBusConfiguration.getFlushSize();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(statsBusConfiguration.getFlushInterval());
+        String[] fullShortUrls = new String[flushSize];
+        String[] gids = new String[flushSize];
+        ShortLinkStatsRecordDTO[] statsRecords = new ShortLinkStatsRecordDTO[flushSize];
+        int pending = 0;
+        long firstPendingNanos = 0L;
+        while (running || ringBuffer.size() > 0) {
+            int drained = ringBuffer.drainTo(fullShortUrls, gids, statsRecords, pending, flushSize - pending);
+            if (pending == 0 && drained > 0) {
+                firstPendingNanos = System.nanoTime();
+            }
+            pending += drained;
+            long waitedNanos = System.nanoTime() - firstPendingNanos;
+            if (pending == flushSize || (pending > 0 && (waitedNanos >= flushIntervalNanos || !running))) {
+                flush(fullShortUrls, gids, statsRecords, pending);
+                pending = 0;
+                continue;
+            }
+            if (drained == 0) {
+                awaitEvents(pending > 0 ? flushIntervalNanos - waitedNanos : 0L);
+            }
+        }
+        if (pending > 0) {
+            flush(fullShortUrls, gids, statsRecords, pending);
+        }
+    }
+
+    /**
+     * 挂起等待新事件，先登记挂起状态再检查缓冲区，发布线程在写入后看到挂起状态即唤醒，不会丢失唤醒
+     *
+     * @param timeoutNanos 最长等待时间，不大于 0 时一直等待到有新事件或停止
+     */
+    private void awaitEvents(long timeoutNanos) {
+        parked.set(true);
+        if (running && ringBuffer.size() == 0) {
+            if (timeoutNanos > 0) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            } else {
+                LockSupport.park(this);
+            }
+        } else {
+            Thread.onSpinWait();
+        }
+        parked.set(false);
+    }
+
+    /**
+     * 登记访客、写预写日志后落库，落库失败时按间隔重试直到成功或停止，期间缓冲区写满会反压跳转线程
+     * 落库成功后不再重试落库，提交预写日志失败只记录日志，该批次在下次启动回放时可能重复计入
+     */
+    private void flush(String[] fullShortUrls, String[] gids, ShortLinkStatsRecordDTO[] statsRecords, int count) {
+        List<String> batchUrls = new ArrayList<>(Arrays.asList(fullShortUrls).subList(0, count));
+        List<ShortLinkStatsRecordDTO> batchRecords = new ArrayList<>(Arrays.asList(statsRecords).subList(0, count));
+        List<ShortLinkStatsEvent> events = null;
+        if (writeAheadLog != null) {
+            events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                events.add(new ShortLinkStatsEvent(fullShortUrls[i], gids[i], statsRecords[i]));
+            }
+        }
+        Arrays.fill(fullShortUrls, 0, count, null);
+        Arrays.fill(gids, 0, count, null);
+        Arrays.fill(statsRecords, 0, count, null);
+        boolean visitorChecked = false;
+        long seq = -1L;
+        while (true) {
+            try {
+                if (!visitorChecked) {
+                    shortLinkStatsSaveProducer.checkVisitorsBatch(batchUrls, batchRecords);
+                    visitorChecked = true;
+                }
+                if (writeAheadLog != null && seq < 0) {
+                    seq = writeAheadLog.append(events);
+                }
+                if (shortLinkStatsSaveConsumer.saveLocalBatch(batchUrls, batchRecords)) {
+                    consumedEvents.add(count);
+                    commitWriteAheadLog(seq, count);
+                    return;
+                }
+            } catch (Throwable ex) {
+                log.error("本地事件总线处理短链接统计批次异常，批次大小：{}", count, ex);
+            }
+            failedBatches.increment();
+            if (!running) {
+                log.error("本地事件总线停止，未落库的短链接统计批次 {} 条{}", count, seq >= 0 ? "保留在预写日志中" : "被丢弃");
+                return;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(statsBusConfiguration.getRetryInterval()));
+        }
+    }
+
+    /**
+     * 批次已落库，提交失败时不能重试，重复写入提交记录会使未完成批次计数出错
+     */
+    private void commitWriteAheadLog(long seq, int count) {
+        if (seq < 0) {
+            return;
+        }
+        try {
+            writeAheadLog.commit(seq);
+        } catch (Throwable ex) {
+            log.error("短链接统计批次已落库，提交预写日志失败，下次启动回放时该批次 {} 条可能重复计入，序号：{}", count, seq, ex);
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("short-link.stats.bus.buffer.size", this, each -> each.ringBuffer == null ? 0 : each.ringBuffer.size())
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.bus.events", consumedEvents, LongAdder::sum)
+                .tag("result", "consumed")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.bus.events", blockedPublishes, LongAdder::sum)
+                .tag("result", "blocked")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.bus.batches", failedBatches, LongAdder::sum)
+                .tag("result", "failed")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        if (consumeThread != null) {
+            LockSupport.unpark(consumeThread);
+            consumeThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+}
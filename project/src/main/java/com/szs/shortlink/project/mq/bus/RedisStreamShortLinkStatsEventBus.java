@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.bus;
+
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+import com.szs.shortlink.project.mq.producer.ShortLinkStatsAsyncPublisher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 Redis Stream 的短链接统计事件总线
+ * 事件经异步发布器批量写入 Redis Stream，由各节点的消费者组共同消费落库
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-link.stats.bus", name = "type", havingValue = "redis-stream", matchIfMissing = true)
+public class RedisStreamShortLinkStatsEventBus implements ShortLinkStatsEventBus {
+
+    private final ShortLinkStatsAsyncPublisher shortLinkStatsAsyncPublisher;
+
+    @Override
+    public void publish(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
+        shortLinkStatsAsyncPublisher.publish(fullShortUrl, gid, statsRecord);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.bus;
+
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+
+/**
+ * 短链接统计事件总线
+ * 跳转链路只依赖该接口发布访问事件，由具体实现决定经 Redis Stream 还是本地内存投递到统计落库
+ */
+public interface ShortLinkStatsEventBus {
+
+    /**
+     * 发布短链接统计事件
+     *
+     * @param fullShortUrl 完整短链接
+     * @param gid          分组标识，可以为空
+     * @param statsRecord  短链接统计实体参数
+     */
+    void publish(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord);
+}
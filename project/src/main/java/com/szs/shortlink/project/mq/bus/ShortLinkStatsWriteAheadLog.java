@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.bus;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地事件总线预写日志
+ * 每行一条 JSON 记录：批次记录 {"type":"B","seq":序号,"events":[...]} 在落库前追加，提交记录 {"type":"C","seq":序号} 在落库后追加；
+ * 重启时没有提交记录的批次即为未完成批次。只由事件总线的单个消费线程读写，不做并发控制
+ * 提交记录与落库事务不是原子的，两者之间进程退出时已落库的批次也会被当作未完成批次重放
+ */
+@Slf4j
+public class ShortLinkStatsWriteAheadLog implements Closeable {
+
+    private static final String BATCH_RECORD = "B";
+    private static final String COMMIT_RECORD = "C";
+
+    private final Path path;
+    private final boolean sync;
+    private final long maxBytes;
+
+    private FileChannel channel;
+    private long nextSeq = 1L;
+    private long uncommittedBatches;
+
+    public ShortLinkStatsWriteAheadLog(String path, boolean sync, long maxBytes) {
+        this.path = Paths.get(path);
+        this.sync = sync;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 读取上次运行未完成的批次并打开日志文件，必须在追加之前调用一次
+     * 异常退出时最后一行可能只写了一半，解析失败的行直接跳过
+     *
+     * @return 未完成批次的事件集合，按写入顺序排列
+     */
+    public List<List<ShortLinkStatsEvent>> recover() throws IOException {
+        Map<Long, List<ShortLinkStatsEvent>> batches = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        JSONObject record = JSON.parseObject(line);
+                        long seq = record.getLongValue("seq");
+                        if (BATCH_RECORD.equals(record.getString("type"))) {
+                            batches.put(seq, record.getList("events", ShortLinkStatsEvent.class));
+                        } else if (COMMIT_RECORD.equals(record.getString("type"))) {
+                            batches.remove(seq);
+                        }
+                    } catch (Throwable ex) {
+                        log.warn("跳过无法解析的短链接统计预写日志记录：{}", line);
+                    }
+                }
+            }
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new ArrayList<>(batches.values());
+    }
+
+    /**
+     * 追加一个批次
+     *
+     * @param events 本批次事件
+     * @return 批次序号，落库成功后用于提交
+     */
+    public long append(List<ShortLinkStatsEvent> events) throws IOException {
+        long seq = nextSeq++;
+        JSONObject record = new JSONObject();
+        record.put("type", BATCH_RECORD);
+        record.put("seq", seq);
+        record.put("events", events);
+        write(record);
+        uncommittedBatches++;
+        return seq;
+    }
+
+    /**
+     * 提交一个批次，没有未完成批次且文件超过上限时清空文件
+     *
+     * @param seq 批次序号
+     */
+    public void commit(long seq) throws IOException {
+        JSONObject record = new JSONObject();
+        record.put("type", COMMIT_RECORD);
+        record.put("seq", seq);
+        write(record);
+        uncommittedBatches--;
+        if (uncommittedBatches == 0 && channel.size() > maxBytes) {
+            channel.truncate(0L);
+        }
+    }
+
+    /**
+     * 上次运行未完成的批次全部重放后清空文件
+     */
+    public void reset() throws IOException {
+        channel.truncate(0L);
+        uncommittedBatches = 0L;
+    }
+
+    private void write(JSONObject record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -17,76 +17,209 @@
 
 package com.szs.shortlink.project.mq.consumer;
 
-
-import com.szs.shortlink.project.common.convention.exception.ServiceException;
+import com.alibaba.fastjson2.JSON;
+import com.szs.shortlink.project.common.enums.MessageIdempotentStatusEnum;
+import com.szs.shortlink.project.config.StatsDelayConsumeConfiguration;
 import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
 import com.szs.shortlink.project.mq.idempotent.MessageQueueIdempotentHandler;
-import com.szs.shortlink.project.service.ShortLinkService;
+import com.szs.shortlink.project.mq.producer.DelayShortLinkStatsProducer;
+import com.szs.shortlink.project.mq.producer.ShortLinkStatsSaveProducer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RBlockingDeque;
 import org.redisson.api.RDelayedQueue;
 import org.redisson.api.RedissonClient;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.szs.shortlink.project.common.constant.RedisKeyConstant.DELAY_QUEUE_STATS_KEY;
 
 /**
  * 延迟记录短链接统计组件
+ * 多个工作线程阻塞获取已到期的延迟消息，取到一条后继续批量取出，整批重新投递到短链接监控消息队列
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class DelayShortLinkStatsConsumer implements InitializingBean {
+public class DelayShortLinkStatsConsumer implements SmartLifecycle, MeterBinder {
 
     private final RedissonClient redissonClient;
-    private final ShortLinkService shortLinkService;
     private final MessageQueueIdempotentHandler messageQueueIdempotentHandler;
+    private final ShortLinkStatsSaveProducer shortLinkStatsSaveProducer;
+    private final DelayShortLinkStatsProducer delayShortLinkStatsProducer;
+    private final StatsDelayConsumeConfiguration statsDelayConsumeConfiguration;
+
+    private final LongAdder consumedMessages = new LongAdder();
+    private final LongAdder retriedMessages = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
+
+    private RBlockingDeque<ShortLinkStatsRecordDTO> blockingDeque;
+    private RDelayedQueue<ShortLinkStatsRecordDTO> delayedQueue;
+    private ExecutorService workerExecutor;
+    private DistributionSummary retryAgeSummary;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        blockingDeque = redissonClient.getBlockingDeque(DELAY_QUEUE_STATS_KEY);
+        // 获取延迟队列会启动到期消息转移任务，到期后消息才进入阻塞队列
+        delayedQueue = redissonClient.getDelayedQueue(blockingDeque);
+        int workers = statsDelayConsumeConfiguration.getWorkers();
+        AtomicInteger index = new AtomicInteger();
+        workerExecutor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("delay_short-link_stats_consumer_" + index.incrementAndGet());
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerExecutor.execute(this::takeLoop);
+        }
+    }
+
+    private void takeLoop() {
+        int batchSize = statsDelayConsumeConfiguration.getBatchSize();
+        long takeTimeout = statsDelayConsumeConfiguration.getTakeTimeout();
+        List<ShortLinkStatsRecordDTO> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ShortLinkStatsRecordDTO first = blockingDeque.poll(takeTimeout, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                if (batchSize > 1) {
+                    blockingDeque.drainTo(batch, batchSize - 1);
+                }
+                consume(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable ex) {
+                log.error("延迟记录短链接监控消费异常", ex);
+                batch.forEach(this::retryQuietly);
+                sleepQuietly(statsDelayConsumeConfiguration.getErrorBackoff());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 消费一批已到期的延迟消息
+     * 已完成的消息跳过，正被处理的消息重新延迟投递，其余消息通过管道整批重新投递到消息队列
+     */
+    private void consume(List<ShortLinkStatsRecordDTO> batch) {
+        Map<String, MessageIdempotentStatusEnum> idempotentStatuses = messageQueueIdempotentHandler.claimBatch(batch.stream()
+                .map(ShortLinkStatsRecordDTO::getKeys)
+                .toList());
+        long now = System.currentTimeMillis();
+        List<String> claimedKeys = new ArrayList<>();
+        List<ShortLinkStatsRecordDTO> claimedRecords = new ArrayList<>();
+        List<Map<String, String>> producerMaps = new ArrayList<>();
+        for (ShortLinkStatsRecordDTO each : batch) {
+            if (retryAgeSummary != null && each.getCurrentDate() != null) {
+                retryAgeSummary.record(now - each.getCurrentDate().getTime());
+            }
+            MessageIdempotentStatusEnum idempotentStatus = idempotentStatuses.get(each.getKeys());
+            if (idempotentStatus == MessageIdempotentStatusEnum.ACCOMPLISHED) {
+                continue;
+            }
+            if (idempotentStatus == MessageIdempotentStatusEnum.PROCESSING) {
+                retryQuietly(each);
+                continue;
+            }
+            claimedKeys.add(each.getKeys());
+            claimedRecords.add(each);
+            Map<String, String> producerMap = new HashMap<>();
+            producerMap.put("fullShortUrl", each.getFullShortUrl());
+            producerMap.put("statsRecord", JSON.toJSONString(each));
+            producerMaps.add(producerMap);
+        }
+        if (producerMaps.isEmpty()) {
+            return;
+        }
+        try {
+            shortLinkStatsSaveProducer.sendBatch(producerMaps);
+        } catch (Throwable ex) {
+            log.error("延迟记录短链接监控批量投递异常，重新延迟 {} 条消息", claimedRecords.size(), ex);
+            messageQueueIdempotentHandler.delMessageProcessedBatch(claimedKeys);
+            claimedRecords.forEach(this::retryQuietly);
+            return;
+        }
+        messageQueueIdempotentHandler.setAccomplishBatch(claimedKeys);
+        consumedMessages.add(claimedKeys.size());
+    }
+
+    private void retryQuietly(ShortLinkStatsRecordDTO statsRecord) {
+        try {
+            delayShortLinkStatsProducer.retry(statsRecord);
+            retriedMessages.increment();
+        } catch (Throwable ex) {
+            failedMessages.increment();
+            log.error("延迟记录短链接监控重新投递异常，消息标识：{}", statsRecord.getKeys(), ex);
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-    public void onMessage() {
-        Executors.newSingleThreadExecutor(
-                        runnable -> {
-                            Thread thread = new Thread(runnable);
-                            thread.setName("delay_short-link_stats_consumer");
-                            thread.setDaemon(Boolean.TRUE);
-                            return thread;
-                        })
-                .execute(() -> {
-                    RBlockingDeque<ShortLinkStatsRecordDTO> blockingDeque = redissonClient.getBlockingDeque(DELAY_QUEUE_STATS_KEY);
-                    RDelayedQueue<ShortLinkStatsRecordDTO> delayedQueue = redissonClient.getDelayedQueue(blockingDeque);
-                    for (; ; ) {
-                        try {
-                            ShortLinkStatsRecordDTO statsRecord = delayedQueue.poll();
-                            if (statsRecord != null) {
-                                if (!messageQueueIdempotentHandler.isMessageProcessed(statsRecord.getKeys())) {
-                                    // 判断当前的这个消息流程是否执行完成
-                                    if (messageQueueIdempotentHandler.isAccomplish(statsRecord.getKeys())) {
-                                        return;
-                                    }
-                                    throw new ServiceException("消息未完成流程，需要消息队列重试");
-                                }
-                                try {
-                                    shortLinkService.shortLinkStats(null, null, statsRecord);
-                                } catch (Throwable ex) {
-                                    messageQueueIdempotentHandler.delMessageProcessed(statsRecord.getKeys());
-                                    log.error("延迟记录短链接监控消费异常", ex);
-                                }
-                                messageQueueIdempotentHandler.setAccomplish(statsRecord.getKeys());
-                                continue;
-                            }
-                            LockSupport.parkUntil(500);
-                        } catch (Throwable ignored) {
-                        }
-                    }
-                });
+    @Override
+    public void stop() {
+        running = false;
+        if (workerExecutor != null) {
+            workerExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
     }
 
     @Override
-    public void afterPropertiesSet() throws Exception {
-        onMessage();
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("short-link.stats.delay.queue.size", this, each -> each.blockingDeque == null ? 0 : each.blockingDeque.size())
+                .tag("state", "ready")
+                .register(registry);
+        Gauge.builder("short-link.stats.delay.queue.size", this, each -> each.delayedQueue == null ? 0 : each.delayedQueue.size())
+                .tag("state", "delayed")
+                .register(registry);
+        retryAgeSummary = DistributionSummary.builder("short-link.stats.delay.retry.age")
+                .description("延迟消息重新投递时距离访问发生的时间")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.delay.messages", consumedMessages, LongAdder::sum)
+                .tag("result", "consumed")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.delay.messages", retriedMessages, LongAdder::sum)
+                .tag("result", "retried")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.delay.messages", failedMessages, LongAdder::sum)
+                .tag("result", "failed")
+                .register(registry);
     }
 }
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.consumer;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.dao.entity.LinkAccessLogsDO;
+import com.szs.shortlink.project.dao.entity.LinkAccessStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkBrowserStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkDeviceStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkLocaleStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkNetworkStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkOsStatsDO;
+import com.szs.shortlink.project.dao.entity.LinkStatsTodayDO;
+import com.szs.shortlink.project.dao.entity.LinkVisitorDO;
+import com.szs.shortlink.project.dao.entity.ShortLinkDO;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * 短链接统计批次聚合
+ * 同一批次内的访问按 (完整短链接, 分组标识, 日期, 小时或维度值) 在内存中聚合，热点短链接的 N 次访问每个维度只产生一行写入
+ * 聚合结果按拼接后的聚合键排序，所有批次使用同一个全局顺序，并发批次的多行 INSERT ... ON DUPLICATE KEY UPDATE 以相同顺序加行锁，避免相互死锁；
+ * 该顺序是 Java 字符串顺序，与数据库排序规则下的唯一索引顺序不一定相同，避免死锁只依赖各批次顺序一致
+ */
+public class ShortLinkStatsBatch {
+
+    private final Map<String, LinkAccessStatsDO> accessStats = new TreeMap<>();
+    private final Map<String, LinkLocaleStatsDO> localeStats = new TreeMap<>();
+    private final Map<String, LinkOsStatsDO> osStats = new TreeMap<>();
+    private final Map<String, LinkBrowserStatsDO> browserStats = new TreeMap<>();
+    private final Map<String, LinkDeviceStatsDO> deviceStats = new TreeMap<>();
+    private final Map<String, LinkNetworkStatsDO> networkStats = new TreeMap<>();
+    private final Map<String, LinkStatsTodayDO> todayStats = new TreeMap<>();
+    private final Map<String, ShortLinkDO> totalStats = new TreeMap<>();
+    private final Map<String, LinkVisitorDO> visitors = new TreeMap<>();
+
+    /**
+     * 访问日志逐条保留，不做聚合
+     */
+    @Getter
+    private final List<LinkAccessLogsDO> accessLogs = new ArrayList<>();
+
+    /**
+     * 聚合一次访问
+     *
+     * @param fullShortUrl 完整短链接
+     * @param gid          分组标识
+     * @param statsRecord  短链接统计实体参数
+     * @param locale       地区信息，解析失败为 null，此时不记录地区统计
+     */
+    public void add(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord, IpLocaleDTO locale) {
+        Date currentDate = Optional.ofNullable(statsRecord.getCurrentDate()).orElseGet(Date::new);
+        Date date = DateUtil.beginOfDay(currentDate);
+        String dateKey = DateUtil.formatDate(date);
+        int hour = DateUtil.hour(currentDate, true);
+        int uv = Boolean.TRUE.equals(statsRecord.getUvFirstFlag()) ? 1 : 0;
+        int uip = Boolean.TRUE.equals(statsRecord.getUipFirstFlag()) ? 1 : 0;
+
+        LinkAccessStatsDO linkAccessStatsDO = accessStats.computeIfAbsent(key(fullShortUrl, gid, dateKey, String.format("%02d", hour)), each -> LinkAccessStatsDO.builder()
+                .pv(0)
+                .uv(0)
+                .uip(0)
+                .hour(hour)
+                .weekday(DateUtil.dayOfWeekEnum(currentDate).getIso8601Value())
+                .fullShortUrl(fullShortUrl)
+                .gid(gid)
+                .date(date)
+                .build());
+        linkAccessStatsDO.setPv(linkAccessStatsDO.getPv() + 1);
+        linkAccessStatsDO.setUv(linkAccessStatsDO.getUv() + uv);
+        linkAccessStatsDO.setUip(linkAccessStatsDO.getUip() + uip);
+
+        String actualCountry = "中国";
+        String actualProvince = "未知";
+        String actualCity = "未知";
+        if (locale != null) {
+            actualCountry = locale.getCountry();
+            actualProvince = locale.getProvince();
+            actualCity = locale.getCity();
+            LinkLocaleStatsDO linkLocaleStatsDO = localeStats.computeIfAbsent(key(fullShortUrl, gid, dateKey, locale.getProvince(), locale.getCity(), locale.getAdcode()), each -> LinkLocaleStatsDO.builder()
+                    .province(locale.getProvince())
+                    .city(locale.getCity())
+                    .adcode(locale.getAdcode())
+                    .country(locale.getCountry())
+                    .cnt(0)
+                    .fullShortUrl(fullShortUrl)
+                    .gid(gid)
+                    .date(date)
+                    .build());
+            linkLocaleStatsDO.setCnt(linkLocaleStatsDO.getCnt() + 1);
+        }
+
+        LinkOsStatsDO linkOsStatsDO = osStats.computeIfAbsent(key(fullShortUrl, gid, dateKey, statsRecord.getOs()), each -> LinkOsStatsDO.builder()
+                .os(statsRecord.getOs())
+                .cnt(0)
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .date(date)
+                .build());
+        linkOsStatsDO.setCnt(linkOsStatsDO.getCnt() + 1);
+
+        LinkBrowserStatsDO linkBrowserStatsDO = browserStats.computeIfAbsent(key(fullShortUrl, gid, dateKey, statsRecord.getBrowser()), each -> LinkBrowserStatsDO.builder()
+                .browser(statsRecord.getBrowser())
+                .cnt(0)
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .date(date)
+                .build());
+        linkBrowserStatsDO.setCnt(linkBrowserStatsDO.getCnt() + 1);
+
+        LinkDeviceStatsDO linkDeviceStatsDO = deviceStats.computeIfAbsent(key(fullShortUrl, gid, dateKey, statsRecord.getDevice()), each -> LinkDeviceStatsDO.builder()
+                .device(statsRecord.getDevice())
+                .cnt(0)
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .date(date)
+                .build());
+        linkDeviceStatsDO.setCnt(linkDeviceStatsDO.getCnt() + 1);
+
+        LinkNetworkStatsDO linkNetworkStatsDO = networkStats.computeIfAbsent(key(fullShortUrl, gid, dateKey, statsRecord.getNetwork()), each -> LinkNetworkStatsDO.builder()
+                .network(statsRecord.getNetwork())
+                .cnt(0)
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .date(date)
+                .build());
+        linkNetworkStatsDO.setCnt(linkNetworkStatsDO.getCnt() + 1);
+
+        LinkAccessLogsDO linkAccessLogsDO = LinkAccessLogsDO.builder()
+                .user(statsRecord.getUv())
+                .ip(statsRecord.getRemoteAddr())
+                .browser(statsRecord.getBrowser())
+                .os(statsRecord.getOs())
+                .network(statsRecord.getNetwork())
+                .device(statsRecord.getDevice())
+                .locale(StrUtil.join("-", actualCountry, actualProvince, actualCity))
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .build();
+        linkAccessLogsDO.setCreateTime(currentDate);
+        accessLogs.add(linkAccessLogsDO);
+
+        ShortLinkDO shortLinkDO = totalStats.computeIfAbsent(key(fullShortUrl, gid), each -> ShortLinkDO.builder()
+                .totalPv(0)
+                .totalUv(0)
+                .totalUip(0)
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .build());
+        shortLinkDO.setTotalPv(shortLinkDO.getTotalPv() + 1);
+        shortLinkDO.setTotalUv(shortLinkDO.getTotalUv() + uv);
+        shortLinkDO.setTotalUip(shortLinkDO.getTotalUip() + uip);
+
+        LinkStatsTodayDO linkStatsTodayDO = todayStats.computeIfAbsent(key(fullShortUrl, gid, dateKey), each -> LinkStatsTodayDO.builder()
+                .todayPv(0)
+                .todayUv(0)
+                .todayUip(0)
+                .gid(gid)
+                .fullShortUrl(fullShortUrl)
+                .date(date)
+                .build());
+        linkStatsTodayDO.setTodayPv(linkStatsTodayDO.getTodayPv() + 1);
+        linkStatsTodayDO.setTodayUv(linkStatsTodayDO.getTodayUv() + uv);
+        linkStatsTodayDO.setTodayUip(linkStatsTodayDO.getTodayUip() + uip);
+
+        LinkVisitorDO linkVisitorDO = visitors.computeIfAbsent(key(fullShortUrl, gid, StrUtil.nullToEmpty(statsRecord.getUv())), each -> LinkVisitorDO.builder()
+                .fullShortUrl(fullShortUrl)
+                .gid(gid)
+                .user(statsRecord.getUv())
+                .firstSeen(currentDate)
+                .lastSeen(currentDate)
+                .build());
+        if (currentDate.before(linkVisitorDO.getFirstSeen())) {
+            linkVisitorDO.setFirstSeen(currentDate);
+        }
+        if (currentDate.after(linkVisitorDO.getLastSeen())) {
+            linkVisitorDO.setLastSeen(currentDate);
+        }
+    }
+
+    public boolean isEmpty() {
+        return accessLogs.isEmpty();
+    }
+
+    public List<LinkAccessStatsDO> getAccessStats() {
+        return new ArrayList<>(accessStats.values());
+    }
+
+    public List<LinkLocaleStatsDO> getLocaleStats() {
+        return new ArrayList<>(localeStats.values());
+    }
+
+    public List<LinkOsStatsDO> getOsStats() {
+        return new ArrayList<>(osStats.values());
+    }
+
+    public List<LinkBrowserStatsDO> getBrowserStats() {
+        return new ArrayList<>(browserStats.values());
+    }
+
+    public List<LinkDeviceStatsDO> getDeviceStats() {
+        return new ArrayList<>(deviceStats.values());
+    }
+
+    public List<LinkNetworkStatsDO> getNetworkStats() {
+        return new ArrayList<>(networkStats.values());
+    }
+
+    public List<LinkStatsTodayDO> getTodayStats() {
+        return new ArrayList<>(todayStats.values());
+    }
+
+    public Collection<ShortLinkDO> getTotalStats() {
+        return totalStats.values();
+    }
+
+    public List<LinkVisitorDO> getVisitors() {
+        return new ArrayList<>(visitors.values());
+    }
+
+    /**
+     * 拼接聚合键，小时补零到两位，使 "2" 排在 "10" 之前
+     */
+    private String key(String... parts) {
+        return String.join("\u0001", parts);
+    }
+}
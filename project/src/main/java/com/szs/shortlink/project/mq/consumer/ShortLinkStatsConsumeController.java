@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.consumer;
+
+import com.szs.shortlink.project.config.StatsConsumeConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 短链接监控消息消费自适应控制器
+ * 积压升高时成倍增大批次、积压降低时减半，监听者数量按 "需要的消费速率 / 单个监听者的消费速率" 估算，
+ * 单个监听者的消费速率取观测到的单条消息持久化耗时的指数加权平均
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkStatsConsumeController implements InitializingBean, MeterBinder {
+
+    private final StatsConsumeConfiguration statsConsumeConfiguration;
+
+    /**
+     * 持久化耗时指数加权平均的平滑系数
+     */
+    private static final double LATENCY_EWMA_ALPHA = 0.2D;
+
+    private final LongAdder consumedRecords = new LongAdder();
+    private final AtomicInteger inFlightRecords = new AtomicInteger();
+
+    private volatile int batchSize;
+    private volatile int targetListeners;
+    private volatile long lag;
+    private volatile long pending;
+    private volatile double recordLatencyMillis;
+
+    private long lastConsumedRecords;
+    private long lastLag;
+    private Timer persistTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        batchSize = statsConsumeConfiguration.getBatchSize();
+        targetListeners = statsConsumeConfiguration.getListeners();
+    }
+
+    /**
+     * 当前单次拉取的批次大小
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 当前期望运行的监听者数量
+     */
+    public int getTargetListeners() {
+        return targetListeners;
+    }
+
+    /**
+     * 开始持久化一批消息
+     *
+     * @param records 本批次消息数量
+     */
+    public void beginBatch(int records) {
+        inFlightRecords.addAndGet(records);
+    }
+
+    /**
+     * 一批消息持久化结束，记录耗时
+     *
+     * @param records      本批次消息数量
+     * @param elapsedNanos 持久化耗时，单位：纳秒
+     */
+    public void endBatch(int records, long elapsedNanos) {
+        inFlightRecords.addAndGet(-records);
+        consumedRecords.add(records);
+        if (records == 0) {
+            return;
+        }
+        if (persistTimer != null) {
+            persistTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        double millisPerRecord = elapsedNanos / 1_000_000D / records;
+        recordLatencyMillis = recordLatencyMillis == 0D
+                ? millisPerRecord
+                : LATENCY_EWMA_ALPHA * millisPerRecord + (1 - LATENCY_EWMA_ALPHA) * recordLatencyMillis;
+    }
+
+    /**
+     * 根据消费者组积压量调整批次大小与监听者数量，由单个调度线程周期调用
+     *
+     * @param currentLag     尚未投递给消费者组的消息数量
+     * @param currentPending 已投递未确认的消息数量
+     */
+    public synchronized void adjust(long currentLag, long currentPending) {
+        lag = currentLag;
+        pending = currentPending;
+        int listeners = targetListeners;
+        int nextBatchSize = batchSize;
+        if (currentLag > (long) nextBatchSize * listeners) {
+            nextBatchSize = Math.min(nextBatchSize * 2, statsConsumeConfiguration.getMaxBatchSize());
+        } else if (currentLag < nextBatchSize / 4) {
+            nextBatchSize = Math.max(nextBatchSize / 2, statsConsumeConfiguration.getMinBatchSize());
+        }
+        long consumedNow = consumedRecords.sum();
+        double intervalSeconds = statsConsumeConfiguration.getAdjustInterval() / 1000D;
+        // 流入速率 = 本周期消费条数 + 积压增量
+        double inflowRate = Math.max(0D, (consumedNow - lastConsumedRecords + currentLag - lastLag) / intervalSeconds);
+        double requiredRate = inflowRate + currentLag / (statsConsumeConfiguration.getDrainTarget() / 1000D);
+        lastConsumedRecords = consumedNow;
+        lastLag = currentLag;
+        int nextListeners = listeners;
+        if (recordLatencyMillis > 0D) {
+            double listenerRate = 1000D / recordLatencyMillis;
+            nextListeners = (int) Math.ceil(requiredRate / listenerRate);
+            nextListeners = Math.max(statsConsumeConfiguration.getListeners(), Math.min(nextListeners, statsConsumeConfiguration.getMaxListeners()));
+        }
+        if (nextBatchSize != batchSize || nextListeners != listeners) {
+            log.info("调整短链接监控消息消费参数，积压：{}，批次大小：{} -> {}，监听者：{} -> {}",
+                    currentLag, batchSize, nextBatchSize, listeners, nextListeners);
+        }
+        batchSize = nextBatchSize;
+        targetListeners = nextListeners;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("short-link.stats.consume.lag", this, each -> each.lag)
+                .register(registry);
+        Gauge.builder("short-link.stats.consume.pending", this, each -> each.pending)
+                .register(registry);
+        Gauge.builder("short-link.stats.consume.in-flight", inFlightRecords, AtomicInteger::get)
+                .register(registry);
+        Gauge.builder("short-link.stats.consume.batch-size", this, each -> each.batchSize)
+                .register(registry);
+        Gauge.builder("short-link.stats.consume.listeners", this, each -> each.targetListeners)
+                .register(registry);
+        persistTimer = Timer.builder("short-link.stats.consume.persist")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+}
@@ -17,201 +17,408 @@
 
 package com.szs.shortlink.project.mq.consumer;
 
-import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.date.Week;
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpUtil;
 import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.szs.shortlink.project.common.convention.exception.ServiceException;
+import com.szs.shortlink.project.accesslog.LinkAccessLogStore;
+import com.szs.shortlink.project.cache.ShortLinkGidEpoch;
+import com.szs.shortlink.project.cache.ShortLinkStatsResultCache;
+import com.szs.shortlink.project.cache.ShortLinkTodayStatsCache;
+import com.szs.shortlink.project.cache.ShortLinkTopIpSketch;
+import com.szs.shortlink.project.cache.ShortLinkTotalStatsBuffer;
+import com.szs.shortlink.project.cache.ShortLinkVisitorSketch;
+import com.szs.shortlink.project.common.enums.MessageIdempotentStatusEnum;
+import com.szs.shortlink.project.config.StatsVisitorIndexConfiguration;
 import com.szs.shortlink.project.dao.entity.*;
 import com.szs.shortlink.project.dao.mapper.*;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
 import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+import com.szs.shortlink.project.locale.IpLocaleResolver;
 import com.szs.shortlink.project.mq.idempotent.MessageQueueIdempotentHandler;
 import com.szs.shortlink.project.mq.producer.DelayShortLinkStatsProducer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RReadWriteLock;
-import org.redisson.api.RedissonClient;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
 import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.stream.StreamListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
-import static com.szs.shortlink.project.common.constant.RedisKeyConstant.LOCK_GID_UPDATE_KEY;
-import static com.szs.shortlink.project.common.constant.ShortLinkConstant.AMAP_REMOTE_URL;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_STREAM_GROUP_KEY;
 
 /**
  * 短链接监控状态保存消息队列消费者
+ * 一次拉取到的消息作为一个批次在内存中聚合，再按表执行多行 INSERT ... ON DUPLICATE KEY UPDATE
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class ShortLinkStatsSaveConsumer implements StreamListener<String, MapRecord<String, String, String>> {
+public class ShortLinkStatsSaveConsumer {
 
-    private final ShortLinkMapper shortLinkMapper;
+    private final ShortLinkTotalStatsBuffer shortLinkTotalStatsBuffer;
     private final ShortLinkGotoMapper shortLinkGotoMapper;
-    private final RedissonClient redissonClient;
     private final LinkAccessStatsMapper linkAccessStatsMapper;
     private final LinkLocaleStatsMapper linkLocaleStatsMapper;
     private final LinkOsStatsMapper linkOsStatsMapper;
     private final LinkBrowserStatsMapper linkBrowserStatsMapper;
-    private final LinkAccessLogsMapper linkAccessLogsMapper;
+    private final LinkAccessLogStore linkAccessLogStore;
     private final LinkDeviceStatsMapper linkDeviceStatsMapper;
     private final LinkNetworkStatsMapper linkNetworkStatsMapper;
-    private final LinkStatsTodayMapper linkStatsTodayMapper;
+    private final LinkVisitorMapper linkVisitorMapper;
+    private final StatsVisitorIndexConfiguration statsVisitorIndexConfiguration;
+    private final ShortLinkTodayStatsCache shortLinkTodayStatsCache;
+    private final ShortLinkVisitorSketch shortLinkVisitorSketch;
+    private final ShortLinkTopIpSketch shortLinkTopIpSketch;
+    private final ShortLinkStatsResultCache shortLinkStatsResultCache;
     private final DelayShortLinkStatsProducer delayShortLinkStatsProducer;
     private final StringRedisTemplate stringRedisTemplate;
     private final MessageQueueIdempotentHandler messageQueueIdempotentHandler;
+    private final TransactionTemplate transactionTemplate;
+    private final IpLocaleResolver ipLocaleResolver;
+    private final ShortLinkGidEpoch shortLinkGidEpoch;
 
-    @Value("${short-link.stats.locale.amap-key}")
-    private String statsLocaleAmapKey;
-
-    @Override
-    public void onMessage(MapRecord<String, String, String> message) {
-        String stream = message.getStream();
-        RecordId id = message.getId();
-        if (!messageQueueIdempotentHandler.isMessageProcessed(id.toString())) {
-            // 判断当前的这个消息流程是否执行完成
-            if (messageQueueIdempotentHandler.isAccomplish(id.toString())) {
-                return;
+    /**
+     * 与分组迁移冲突时的最大重试次数，超过后本批次剩余消息全部转入延迟队列
+     */
+    private static final int MAX_GID_EPOCH_ATTEMPTS = 3;
+
+    /**
+     * 短链接分组标识本地缓存，Key 为完整短链接与分组迁移版本号，版本号只增不减，变化后旧缓存自然失效且不会再被命中
+     */
+    private final Cache<String, String> gidCache = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 消费一次拉取到的一批短链接统计消息，持久化成功后才确认并删除，失败的消息留在待确认列表中等待转移重试
+     *
+     * @param records 同一个 Stream 中拉取或转移得到的消息
+     */
+    public void consume(List<MapRecord<String, Object, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<String, MessageIdempotentStatusEnum> idempotentStatuses = messageQueueIdempotentHandler.claimBatch(records.stream()
+                .map(each -> each.getId().toString())
+                .toList());
+        List<PendingStatsMessage> accomplishedMessages = new ArrayList<>();
+        List<PendingStatsMessage> claimedMessages = new ArrayList<>();
+        for (MapRecord<String, Object, Object> each : records) {
+            MessageIdempotentStatusEnum idempotentStatus = idempotentStatuses.get(each.getId().toString());
+            if (idempotentStatus == MessageIdempotentStatusEnum.ACCOMPLISHED) {
+                accomplishedMessages.add(new PendingStatsMessage(each.getStream(), each.getId(), null, null));
+                continue;
             }
-            throw new ServiceException("消息未完成流程，需要消息队列重试");
+            if (idempotentStatus == MessageIdempotentStatusEnum.PROCESSING) {
+                // 其他消费者正在处理，不确认，超时未完成时由待确认消息转移重新处理
+                continue;
+            }
+            try {
+                PendingStatsMessage pendingMessage = parseMessage(each);
+                if (pendingMessage.getFullShortUrl() == null) {
+                    accomplishedMessages.add(pendingMessage);
+                } else {
+                    claimedMessages.add(pendingMessage);
+                }
+            } catch (Throwable ex) {
+                messageQueueIdempotentHandler.delMessageProcessedBatch(List.of(each.getId().toString()));
+                log.error("解析短链接监控消息异常，消息 ID：{}", each.getId(), ex);
+            }
+        }
+        if (!accomplishedMessages.isEmpty()) {
+            completeMessages(accomplishedMessages);
+        }
+        if (!claimedMessages.isEmpty()) {
+            saveShortLinkStatsBatch(claimedMessages);
+        }
+    }
+
+    /**
+     * 保存一批本地事件总线投递的短链接统计，不经过消息队列的幂等占有与确认
+     *
+     * @param fullShortUrls 完整短链接集合
+     * @param statsRecords  与完整短链接一一对应的短链接统计实体参数集合
+     * @return 是否保存成功
+     */
+    public boolean saveLocalBatch(List<String> fullShortUrls, List<ShortLinkStatsRecordDTO> statsRecords) {
+        List<PendingStatsMessage> messages = new ArrayList<>(fullShortUrls.size());
+        for (int i = 0; i < fullShortUrls.size(); i++) {
+            messages.add(new PendingStatsMessage(null, null, fullShortUrls.get(i), statsRecords.get(i)));
+        }
+        return messages.isEmpty() || saveShortLinkStatsBatch(messages);
+    }
+
+    private PendingStatsMessage parseMessage(MapRecord<String, Object, Object> record) {
+        Map<Object, Object> producerMap = record.getValue();
+        ShortLinkStatsRecordDTO statsRecord = JSON.parseObject((String) producerMap.get("statsRecord"), ShortLinkStatsRecordDTO.class);
+        String fullShortUrl = Optional.ofNullable((String) producerMap.get("fullShortUrl"))
+                .filter(StrUtil::isNotBlank)
+                .orElse(statsRecord == null ? null : statsRecord.getFullShortUrl());
+        if (StrUtil.isBlank(fullShortUrl)) {
+            return new PendingStatsMessage(record.getStream(), record.getId(), null, statsRecord);
         }
+        // 首次访问标识由 Lua 脚本在投递时计算，存在时以消息字段为准
+        Optional.ofNullable(producerMap.get("uvFirstFlag")).ifPresent(each -> statsRecord.setUvFirstFlag(Objects.equals(each, "1")));
+        Optional.ofNullable(producerMap.get("uipFirstFlag")).ifPresent(each -> statsRecord.setUipFirstFlag(Objects.equals(each, "1")));
+        return new PendingStatsMessage(record.getStream(), record.getId(), fullShortUrl, statsRecord);
+    }
+
+    /**
+     * 聚合并保存一批短链接统计消息
+     * 写库前后各读取一次分组迁移版本号：迁移中的短链接消息直接转入延迟队列；写库期间版本号发生变化的，回滚本批次，
+     * 把这些短链接的消息转入延迟队列后重试其余消息，延迟队列重新投递时按最新分组记录
+     */
+    private boolean saveShortLinkStatsBatch(List<PendingStatsMessage> batch) {
+        List<PendingStatsMessage> savingMessages = batch;
+        AtomicBoolean committed = new AtomicBoolean();
         try {
-            Map<String, String> producerMap = message.getValue();
-            String fullShortUrl = producerMap.get("fullShortUrl");
-            if (StrUtil.isNotBlank(fullShortUrl)) {
-                String gid = producerMap.get("gid");
-                ShortLinkStatsRecordDTO statsRecord = JSON.parseObject(producerMap.get("statsRecord"), ShortLinkStatsRecordDTO.class);
-                actualSaveShortLinkStats(fullShortUrl, gid, statsRecord);
+            for (int attempt = 1; !savingMessages.isEmpty(); attempt++) {
+                Map<String, Long> beginEpochs = shortLinkGidEpoch.getEpochs(savingMessages.stream()
+                        .map(PendingStatsMessage::getFullShortUrl)
+                        .collect(Collectors.toSet()));
+                Set<String> migratingUrls = beginEpochs.entrySet().stream()
+                        .filter(each -> ShortLinkGidEpoch.isMigrating(each.getValue()))
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+                savingMessages = rerouteMessages(savingMessages, migratingUrls);
+                if (savingMessages.isEmpty()) {
+                    return true;
+                }
+                Map<String, String> gids = resolveGids(beginEpochs);
+                savingMessages = discardUnknownMessages(savingMessages, gids);
+                if (savingMessages.isEmpty()) {
+                    return true;
+                }
+                ShortLinkStatsBatch statsBatch = aggregate(savingMessages, gids);
+                List<PendingStatsMessage> committingMessages = savingMessages;
+                Set<String> changedUrls = transactionTemplate.execute(status -> {
+                    writeStatsBatch(statsBatch);
+                    Map<String, Long> endEpochs = shortLinkGidEpoch.getEpochs(beginEpochs.keySet());
+                    Set<String> actualChangedUrls = endEpochs.entrySet().stream()
+                            .filter(each -> !Objects.equals(each.getValue(), beginEpochs.get(each.getKey())))
+                            .map(Map.Entry::getKey)
+                            .collect(Collectors.toSet());
+                    if (!actualChangedUrls.isEmpty()) {
+                        status.setRollbackOnly();
+                        return actualChangedUrls;
+                    }
+                    // 提交后最先设置消息消费完成，其后的缓存回调异常不会导致已写库的消息被重新消费
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            committed.set(true);
+                            completeCommittedMessages(committingMessages);
+                        }
+
+                        @Override
+                        public int getOrder() {
+                            return Ordered.HIGHEST_PRECEDENCE;
+                        }
+                    });
+                    return actualChangedUrls;
+                });
+                if (CollUtil.isEmpty(changedUrls)) {
+                    return true;
+                }
+                if (attempt >= MAX_GID_EPOCH_ATTEMPTS) {
+                    changedUrls = beginEpochs.keySet();
+                }
+                savingMessages = rerouteMessages(savingMessages, changedUrls);
             }
-            stringRedisTemplate.opsForStream().delete(Objects.requireNonNull(stream), id.getValue());
+            return true;
         } catch (Throwable ex) {
-            // 某某某情况宕机了
-            messageQueueIdempotentHandler.delMessageProcessed(id.toString());
-            log.error("记录短链接监控消费异常", ex);
+            if (committed.get()) {
+                log.error("短链接访问量批量统计已提交，提交后回调异常，批次大小：{}", savingMessages.size(), ex);
+                return true;
+            }
+            messageQueueIdempotentHandler.delMessageProcessedBatch(savingMessages.stream()
+                    .filter(each -> each.getId() != null)
+                    .map(each -> each.getId().toString())
+                    .toList());
+            log.error("短链接访问量批量统计异常，批次大小：{}", savingMessages.size(), ex);
+            return false;
         }
-        messageQueueIdempotentHandler.setAccomplish(id.toString());
     }
 
-    public void actualSaveShortLinkStats(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
-        fullShortUrl = Optional.ofNullable(fullShortUrl).orElse(statsRecord.getFullShortUrl());
-        RReadWriteLock readWriteLock = redissonClient.getReadWriteLock(String.format(LOCK_GID_UPDATE_KEY, fullShortUrl));
-        RLock rLock = readWriteLock.readLock();
-        if (!rLock.tryLock()) {
-            delayShortLinkStatsProducer.send(statsRecord);
-            return;
+    private void writeStatsBatch(ShortLinkStatsBatch statsBatch) {
+        linkAccessStatsMapper.shortLinkStatsBatch(statsBatch.getAccessStats());
+        if (!statsBatch.getLocaleStats().isEmpty()) {
+            linkLocaleStatsMapper.shortLinkLocaleStateBatch(statsBatch.getLocaleStats());
         }
-        try {
-            if (StrUtil.isBlank(gid)) {
-                LambdaQueryWrapper<ShortLinkGotoDO> queryWrapper = Wrappers.lambdaQuery(ShortLinkGotoDO.class)
-                        .eq(ShortLinkGotoDO::getFullShortUrl, fullShortUrl);
-                ShortLinkGotoDO shortLinkGotoDO = shortLinkGotoMapper.selectOne(queryWrapper);
-                gid = shortLinkGotoDO.getGid();
+        linkOsStatsMapper.shortLinkOsStateBatch(statsBatch.getOsStats());
+        linkBrowserStatsMapper.shortLinkBrowserStateBatch(statsBatch.getBrowserStats());
+        linkDeviceStatsMapper.shortLinkDeviceStateBatch(statsBatch.getDeviceStats());
+        linkNetworkStatsMapper.shortLinkNetworkStateBatch(statsBatch.getNetworkStats());
+        linkAccessLogStore.insertBatch(statsBatch.getAccessLogs());
+        if (Boolean.TRUE.equals(statsVisitorIndexConfiguration.getEnable())) {
+            linkVisitorMapper.visitorBatch(statsBatch.getVisitors());
+        }
+        shortLinkTotalStatsBuffer.increment(statsBatch.getTotalStats());
+        shortLinkTodayStatsCache.increment(statsBatch.getTodayStats());
+        shortLinkVisitorSketch.add(statsBatch.getAccessLogs());
+        shortLinkTopIpSketch.add(statsBatch.getAccessLogs());
+        shortLinkStatsResultCache.invalidateLateWrites(statsBatch.getAccessStats());
+    }
+
+    /**
+     * 与分组迁移并发的消息转入延迟队列
+     *
+     * @return 剩余需要保存的消息
+     */
+    private List<PendingStatsMessage> rerouteMessages(List<PendingStatsMessage> messages, Set<String> rerouteUrls) {
+        if (rerouteUrls.isEmpty()) {
+            return messages;
+        }
+        List<PendingStatsMessage> reroutedMessages = new ArrayList<>();
+        List<PendingStatsMessage> remainingMessages = new ArrayList<>();
+        for (PendingStatsMessage each : messages) {
+            if (rerouteUrls.contains(each.getFullShortUrl())) {
+                delayShortLinkStatsProducer.send(each.getStatsRecord());
+                reroutedMessages.add(each);
+            } else {
+                remainingMessages.add(each);
+            }
+        }
+        completeMessages(reroutedMessages);
+        return remainingMessages;
+    }
+
+    /**
+     * 分组标识统一按版本号从短链接跳转表解析，不使用消息中可能已过期的分组标识
+     *
+     * @return 完整短链接与分组标识，跳转记录不存在的短链接不包含在内
+     */
+    private Map<String, String> resolveGids(Map<String, Long> epochs) {
+        Map<String, String> gids = new HashMap<>();
+        epochs.forEach((fullShortUrl, epoch) -> {
+            String gid = gidCache.get(fullShortUrl + "#" + epoch, key -> queryGid(fullShortUrl));
+            if (gid != null) {
+                gids.put(fullShortUrl, gid);
             }
-            int hour = DateUtil.hour(new Date(), true);
-            Week week = DateUtil.dayOfWeekEnum(new Date());
-            int weekValue = week.getIso8601Value();
-            LinkAccessStatsDO linkAccessStatsDO = LinkAccessStatsDO.builder()
-                    .pv(1)
-                    .uv(statsRecord.getUvFirstFlag() ? 1 : 0)
-                    .uip(statsRecord.getUipFirstFlag() ? 1 : 0)
-                    .hour(hour)
-                    .weekday(weekValue)
-                    .fullShortUrl(fullShortUrl)
-                    .gid(gid)
-                    .date(new Date())
-                    .build();
-            linkAccessStatsMapper.shortLinkStats(linkAccessStatsDO);
-            Map<String, Object> localeParamMap = new HashMap<>();
-            localeParamMap.put("key", statsLocaleAmapKey);
-            localeParamMap.put("ip", statsRecord.getRemoteAddr());
-            String localeResultStr = HttpUtil.get(AMAP_REMOTE_URL, localeParamMap);
-            JSONObject localeResultObj = JSON.parseObject(localeResultStr);
-            String infoCode = localeResultObj.getString("infocode");
-            String actualProvince = "未知";
-            String actualCity = "未知";
-            if (StrUtil.isNotBlank(infoCode) && StrUtil.equals(infoCode, "10000")) {
-                String province = localeResultObj.getString("province");
-                boolean unknownFlag = StrUtil.equals(province, "[]");
-                LinkLocaleStatsDO linkLocaleStatsDO = LinkLocaleStatsDO.builder()
-                        .province(actualProvince = unknownFlag ? actualProvince : province)
-                        .city(actualCity = unknownFlag ? actualCity : localeResultObj.getString("city"))
-                        .adcode(unknownFlag ? "未知" : localeResultObj.getString("adcode"))
-                        .cnt(1)
-                        .fullShortUrl(fullShortUrl)
-                        .country("中国")
-                        .gid(gid)
-                        .date(new Date())
-                        .build();
-                linkLocaleStatsMapper.shortLinkLocaleState(linkLocaleStatsDO);
+        });
+        return gids;
+    }
+
+    /**
+     * 跳转记录不存在的短链接无法确定分组，其消息记录日志后直接确认，不影响本批次其余消息
+     *
+     * @return 剩余需要保存的消息
+     */
+    private List<PendingStatsMessage> discardUnknownMessages(List<PendingStatsMessage> messages, Map<String, String> gids) {
+        List<PendingStatsMessage> discardedMessages = new ArrayList<>();
+        List<PendingStatsMessage> remainingMessages = new ArrayList<>();
+        for (PendingStatsMessage each : messages) {
+            if (gids.containsKey(each.getFullShortUrl())) {
+                remainingMessages.add(each);
+            } else {
+                log.warn("短链接跳转记录不存在，丢弃短链接统计消息，消息 ID：{}，统计数据：{}", each.getId(), JSON.toJSONString(each.getStatsRecord()));
+                discardedMessages.add(each);
             }
-            LinkOsStatsDO linkOsStatsDO = LinkOsStatsDO.builder()
-                    .os(statsRecord.getOs())
-                    .cnt(1)
-                    .gid(gid)
-                    .fullShortUrl(fullShortUrl)
-                    .date(new Date())
-                    .build();
-            linkOsStatsMapper.shortLinkOsState(linkOsStatsDO);
-            LinkBrowserStatsDO linkBrowserStatsDO = LinkBrowserStatsDO.builder()
-                    .browser(statsRecord.getBrowser())
-                    .cnt(1)
-                    .gid(gid)
-                    .fullShortUrl(fullShortUrl)
-                    .date(new Date())
-                    .build();
-            linkBrowserStatsMapper.shortLinkBrowserState(linkBrowserStatsDO);
-            LinkDeviceStatsDO linkDeviceStatsDO = LinkDeviceStatsDO.builder()
-                    .device(statsRecord.getDevice())
-                    .cnt(1)
-                    .gid(gid)
-                    .fullShortUrl(fullShortUrl)
-                    .date(new Date())
-                    .build();
-            linkDeviceStatsMapper.shortLinkDeviceState(linkDeviceStatsDO);
-            LinkNetworkStatsDO linkNetworkStatsDO = LinkNetworkStatsDO.builder()
-                    .network(statsRecord.getNetwork())
-                    .cnt(1)
-                    .gid(gid)
-                    .fullShortUrl(fullShortUrl)
-                    .date(new Date())
-                    .build();
-            linkNetworkStatsMapper.shortLinkNetworkState(linkNetworkStatsDO);
-            LinkAccessLogsDO linkAccessLogsDO = LinkAccessLogsDO.builder()
-                    .user(statsRecord.getUv())
-                    .ip(statsRecord.getRemoteAddr())
-                    .browser(statsRecord.getBrowser())
-                    .os(statsRecord.getOs())
-                    .network(statsRecord.getNetwork())
-                    .device(statsRecord.getDevice())
-                    .locale(StrUtil.join("-", "中国", actualProvince, actualCity))
-                    .gid(gid)
-                    .fullShortUrl(fullShortUrl)
-                    .build();
-            linkAccessLogsMapper.insert(linkAccessLogsDO);
-            shortLinkMapper.incrementStats(gid, fullShortUrl, 1, statsRecord.getUvFirstFlag() ? 1 : 0, statsRecord.getUipFirstFlag() ? 1 : 0);
-            LinkStatsTodayDO linkStatsTodayDO = LinkStatsTodayDO.builder()
-                    .todayPv(1)
-                    .todayUv(statsRecord.getUvFirstFlag() ? 1 : 0)
-                    .todayUip(statsRecord.getUipFirstFlag() ? 1 : 0)
-                    .gid(gid)
-                    .fullShortUrl(fullShortUrl)
-                    .date(new Date())
-                    .build();
-            linkStatsTodayMapper.shortLinkTodayState(linkStatsTodayDO);
+        }
+        if (!discardedMessages.isEmpty()) {
+            completeMessages(discardedMessages);
+        }
+        return remainingMessages;
+    }
+
+    /**
+     * 聚合一批消息
+     */
+    private ShortLinkStatsBatch aggregate(List<PendingStatsMessage> messages, Map<String, String> gids) {
+        ShortLinkStatsBatch statsBatch = new ShortLinkStatsBatch();
+        Set<String> remoteAddrs = new HashSet<>();
+        messages.forEach(each -> remoteAddrs.add(StrUtil.nullToEmpty(each.getStatsRecord().getRemoteAddr())));
+        // 一批消息中的不同 IP 一次性解析
+        Map<String, IpLocaleDTO> localeMap = ipLocaleResolver.resolveAll(remoteAddrs);
+        for (PendingStatsMessage each : messages) {
+            String fullShortUrl = each.getFullShortUrl();
+            String gid = gids.get(fullShortUrl);
+            IpLocaleDTO locale = localeMap.get(StrUtil.nullToEmpty(each.getStatsRecord().getRemoteAddr()));
+            statsBatch.add(fullShortUrl, gid, each.getStatsRecord(), locale);
+        }
+        return statsBatch;
+    }
+
+    private String queryGid(String fullShortUrl) {
+        LambdaQueryWrapper<ShortLinkGotoDO> queryWrapper = Wrappers.lambdaQuery(ShortLinkGotoDO.class)
+                .eq(ShortLinkGotoDO::getFullShortUrl, fullShortUrl);
+        ShortLinkGotoDO shortLinkGotoDO = shortLinkGotoMapper.selectOne(queryWrapper);
+        return shortLinkGotoDO == null ? null : shortLinkGotoDO.getGid();
+    }
+
+    /**
+     * 设置已提交批次的消息消费完成，异常只记录日志，未确认的消息转移重试时按幂等状态直接确认
+     */
+    private void completeCommittedMessages(List<PendingStatsMessage> messages) {
+        try {
+            completeMessages(messages);
         } catch (Throwable ex) {
-            log.error("短链接访问量统计异常", ex);
-        } finally {
-            rLock.unlock();
+            log.error("设置短链接统计消息消费完成异常，批次大小：{}", messages.size(), ex);
         }
     }
+
+    /**
+     * 设置消息消费完成，并按 Stream 批量确认、删除
+     */
+    private void completeMessages(List<PendingStatsMessage> messages) {
+        // 本地事件总线投递的消息没有消息 ID，不需要确认
+        List<PendingStatsMessage> streamMessages = messages.stream().filter(each -> each.getId() != null).toList();
+        if (streamMessages.isEmpty()) {
+            return;
+        }
+        messageQueueIdempotentHandler.setAccomplishBatch(streamMessages.stream().map(each -> each.getId().toString()).toList());
+        Map<String, List<RecordId>> streamRecordIds = new HashMap<>();
+        streamMessages.forEach(each -> streamRecordIds.computeIfAbsent(each.getStream(), key -> new ArrayList<>()).add(each.getId()));
+        acknowledgeAndDelete(streamRecordIds);
+    }
+
+    /**
+     * 批量确认并删除消息，所有 Stream 的 XACK、XDEL 通过管道一次往返完成
+     *
+     * @param streamRecordIds Stream 与其待确认消息 ID
+     */
+    public void acknowledgeAndDelete(Map<String, List<RecordId>> streamRecordIds) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            streamRecordIds.forEach((stream, recordIds) -> {
+                byte[] key = stream.getBytes(StandardCharsets.UTF_8);
+                RecordId[] ids = recordIds.toArray(new RecordId[0]);
+                connection.streamCommands().xAck(key, SHORT_LINK_STATS_STREAM_GROUP_KEY, ids);
+                connection.streamCommands().xDel(key, ids);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 等待批量保存的统计消息
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class PendingStatsMessage {
+
+        private final String stream;
+
+        private final RecordId id;
+
+        private final String fullShortUrl;
+
+        private final ShortLinkStatsRecordDTO statsRecord;
+    }
 }
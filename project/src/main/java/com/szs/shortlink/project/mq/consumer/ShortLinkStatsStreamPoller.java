@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.consumer;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.config.StatsConsumeConfiguration;
+import com.szs.shortlink.project.mq.idempotent.MessageQueueIdempotentHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_STREAM_GROUP_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_STREAM_TOPIC_KEY;
+
+/**
+ * 短链接监控消息队列拉取器
+ * 每个节点以独立的消费者名称启动多个监听者，消息持久化成功后手动确认，批次大小与监听者数量由自适应控制器按积压调整；
+ * 后台定时检查消费者组待确认列表，把空闲过久（原消费者宕机或持久化失败）的消息转移到本节点，交给监听者线程池重新处理，
+ * 并按消费者组进度裁剪 Stream
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortLinkStatsStreamPoller implements SmartLifecycle {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ShortLinkStatsSaveConsumer shortLinkStatsSaveConsumer;
+    private final StatsConsumeConfiguration statsConsumeConfiguration;
+    private final ExecutorService asyncStreamConsumer;
+    private final ShortLinkStatsConsumeController shortLinkStatsConsumeController;
+
+    /**
+     * 空闲且没有待确认消息超过该时间的消费者从消费者组中移除
+     */
+    private static final long STALE_CONSUMER_IDLE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 转移空闲消息的最短空闲时间，需超过处理中幂等标识的有效期，避免转移仍在处理中的消息
+     */
+    private static final long MIN_RECLAIM_IDLE_MILLIS = MessageQueueIdempotentHandler.IDEMPOTENT_TTL_MILLIS + TimeUnit.SECONDS.toMillis(30);
+
+    private static final String SHORT_LINK_STATS_STREAM_TRIM_LUA_SCRIPT_PATH = "lua/short_link_stats_stream_trim.lua";
+
+    private static final DefaultRedisScript<List> SHORT_LINK_STATS_STREAM_TRIM_SCRIPT;
+
+    static {
+        SHORT_LINK_STATS_STREAM_TRIM_SCRIPT = new DefaultRedisScript<>();
+        SHORT_LINK_STATS_STREAM_TRIM_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(SHORT_LINK_STATS_STREAM_TRIM_LUA_SCRIPT_PATH)));
+        SHORT_LINK_STATS_STREAM_TRIM_SCRIPT.setResultType(List.class);
+    }
+
+    private final List<String> consumerNames = new ArrayList<>();
+    private AtomicBoolean[] activeListeners;
+    private ScheduledExecutorService reclaimScheduler;
+    private volatile boolean running;
+
+    /**
+     * 上一次转移的消息是否仍在处理中，处理完成前不再转移新的消息
+     */
+    private final AtomicBoolean reclaiming = new AtomicBoolean();
+
+    @Override
+    public void start() {
+        String consumerNamePrefix = StrUtil.isNotBlank(statsConsumeConfiguration.getConsumerName())
+                ? statsConsumeConfiguration.getConsumerName()
+                : NetUtil.getLocalHostName() + ":" + ProcessHandle.current().pid();
+        long reclaimWindow = Math.max(statsConsumeConfiguration.getReclaimIdleTime(), MIN_RECLAIM_IDLE_MILLIS) * statsConsumeConfiguration.getMaxDeliveryCount();
+        if (reclaimWindow >= MessageQueueIdempotentHandler.IDEMPOTENT_ACCOMPLISH_TTL_MILLIS) {
+            log.warn("待确认消息转移空闲时间与最大投递次数的乘积 {} 毫秒不小于已完成标识有效期 {} 毫秒，已落库但确认失败的消息可能被重复统计",
+                    reclaimWindow, MessageQueueIdempotentHandler.IDEMPOTENT_ACCOMPLISH_TTL_MILLIS);
+        }
+        running = true;
+        int maxListeners = Math.max(statsConsumeConfiguration.getListeners(), statsConsumeConfiguration.getMaxListeners());
+        activeListeners = new AtomicBoolean[maxListeners];
+        for (int i = 0; i < maxListeners; i++) {
+            consumerNames.add(consumerNamePrefix + "-" + i);
+            activeListeners[i] = new AtomicBoolean();
+        }
+        startListeners();
+        reclaimScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("stream_reclaimer_short-link_stats");
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+        long reclaimInterval = statsConsumeConfiguration.getReclaimInterval();
+        reclaimScheduler.scheduleWithFixedDelay(this::reclaimIdleMessages, reclaimInterval, reclaimInterval, TimeUnit.MILLISECONDS);
+        long trimInterval = statsConsumeConfiguration.getTrimInterval();
+        reclaimScheduler.scheduleWithFixedDelay(this::trimStream, trimInterval, trimInterval, TimeUnit.MILLISECONDS);
+        long adjustInterval = statsConsumeConfiguration.getAdjustInterval();
+        reclaimScheduler.scheduleWithFixedDelay(this::adjustConsumption, adjustInterval, adjustInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 启动序号小于目标数量且尚未运行的监听者，序号超出目标数量的监听者在下一次拉取前自行退出
+     */
+    private void startListeners() {
+        int targetListeners = Math.min(shortLinkStatsConsumeController.getTargetListeners(), activeListeners.length);
+        for (int i = 0; i < targetListeners; i++) {
+            if (activeListeners[i].compareAndSet(false, true)) {
+                int listenerIndex = i;
+                asyncStreamConsumer.execute(() -> pollLoop(listenerIndex));
+            }
+        }
+    }
+
+    private void pollLoop(int listenerIndex) {
+        String consumerName = consumerNames.get(listenerIndex);
+        Consumer consumer = Consumer.from(SHORT_LINK_STATS_STREAM_GROUP_KEY, consumerName);
+        StreamOffset<String> streamOffset = StreamOffset.create(SHORT_LINK_STATS_STREAM_TOPIC_KEY, ReadOffset.lastConsumed());
+        Duration pollTimeout = Duration.ofMillis(statsConsumeConfiguration.getPollTimeout());
+        try {
+            while (running && listenerIndex < shortLinkStatsConsumeController.getTargetListeners()) {
+                try {
+                    StreamReadOptions readOptions = StreamReadOptions.empty()
+                            .count(shortLinkStatsConsumeController.getBatchSize())
+                            .block(pollTimeout);
+                    List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(consumer, readOptions, streamOffset);
+                    if (records == null || records.isEmpty()) {
+                        continue;
+                    }
+                    shortLinkStatsConsumeController.beginBatch(records.size());
+                    long startNanos = System.nanoTime();
+                    try {
+                        shortLinkStatsSaveConsumer.consume(records);
+                    } finally {
+                        shortLinkStatsConsumeController.endBatch(records.size(), System.nanoTime() - startNanos);
+                    }
+                } catch (Throwable ex) {
+                    log.error("拉取短链接监控消息异常，消费者：{}", consumerName, ex);
+                    sleepQuietly(statsConsumeConfiguration.getPollTimeout());
+                }
+            }
+        } finally {
+            activeListeners[listenerIndex].set(false);
+        }
+    }
+
+    /**
+     * 采集消费者组积压量交给自适应控制器，并按调整后的目标数量启动监听者
+     * 已确认的消息会被删除，Stream 长度减去待确认数量即为尚未投递的积压量
+     */
+    private void adjustConsumption() {
+        try {
+            Long length = stringRedisTemplate.opsForStream().size(SHORT_LINK_STATS_STREAM_TOPIC_KEY);
+            PendingMessagesSummary pendingSummary = stringRedisTemplate.opsForStream().pending(SHORT_LINK_STATS_STREAM_TOPIC_KEY, SHORT_LINK_STATS_STREAM_GROUP_KEY);
+            long pending = pendingSummary == null ? 0L : pendingSummary.getTotalPendingMessages();
+            long lag = Math.max(0L, (length == null ? 0L : length) - pending);
+            shortLinkStatsConsumeController.adjust(lag, pending);
+            if (running) {
+                startListeners();
+            }
+        } catch (Throwable ex) {
+            log.error("调整短链接监控消息消费参数异常", ex);
+        }
+    }
+
+    /**
+     * 转移空闲过久的待确认消息并交给监听者线程池重新处理，超过最大投递次数的消息确认删除
+     * 调度线程只负责检查与转移，持久化在线程池中执行，不阻塞裁剪与消费参数调整
+     */
+    private void reclaimIdleMessages() {
+        if (!reclaiming.compareAndSet(false, true)) {
+            return;
+        }
+        boolean handedOff = false;
+        try {
+            long reclaimIdleTime = Math.max(statsConsumeConfiguration.getReclaimIdleTime(), MIN_RECLAIM_IDLE_MILLIS);
+            PendingMessages pendingMessages = stringRedisTemplate.opsForStream().pending(
+                    SHORT_LINK_STATS_STREAM_TOPIC_KEY,
+                    SHORT_LINK_STATS_STREAM_GROUP_KEY,
+                    Range.unbounded(),
+                    statsConsumeConfiguration.getReclaimBatchSize()
+            );
+            List<RecordId> reclaimIds = new ArrayList<>();
+            List<RecordId> discardIds = new ArrayList<>();
+            for (PendingMessage each : pendingMessages) {
+                if (each.getElapsedTimeSinceLastDelivery().toMillis() < reclaimIdleTime) {
+                    continue;
+                }
+                if (each.getTotalDeliveryCount() >= statsConsumeConfiguration.getMaxDeliveryCount()) {
+                    discardIds.add(each.getId());
+                } else {
+                    reclaimIds.add(each.getId());
+                }
+            }
+            if (!discardIds.isEmpty()) {
+                log.error("短链接监控消息超过最大投递次数，确认删除：{}", discardIds);
+                shortLinkStatsSaveConsumer.acknowledgeAndDelete(Map.of(SHORT_LINK_STATS_STREAM_TOPIC_KEY, discardIds));
+            }
+            if (!reclaimIds.isEmpty()) {
+                List<MapRecord<String, Object, Object>> claimedRecords = stringRedisTemplate.opsForStream().claim(
+                        SHORT_LINK_STATS_STREAM_TOPIC_KEY,
+                        SHORT_LINK_STATS_STREAM_GROUP_KEY,
+                        consumerNames.get(0),
+                        Duration.ofMillis(reclaimIdleTime),
+                        reclaimIds.toArray(new RecordId[0])
+                );
+                log.info("转移空闲短链接监控消息 {} 条", claimedRecords.size());
+                if (!claimedRecords.isEmpty()) {
+                    asyncStreamConsumer.execute(() -> consumeReclaimed(claimedRecords));
+                    handedOff = true;
+                }
+            }
+            removeStaleConsumers();
+        } catch (Throwable ex) {
+            log.error("转移空闲短链接监控消息异常", ex);
+        } finally {
+            if (!handedOff) {
+                reclaiming.set(false);
+            }
+        }
+    }
+
+    private void consumeReclaimed(List<MapRecord<String, Object, Object>> claimedRecords) {
+        try {
+            shortLinkStatsSaveConsumer.consume(claimedRecords);
+        } catch (Throwable ex) {
+            log.error("处理转移的短链接监控消息异常", ex);
+        } finally {
+            reclaiming.set(false);
+        }
+    }
+
+    /**
+     * 按消费者组进度近似裁剪 Stream，只裁剪已投递且已确认的消息，积压期间内存也保持有界
+     * 消息确认后虽已 XDEL，但 Stream 底层节点要等整个节点的消息都删除才会释放，需要 XTRIM 回收
+     */
+    private void trimStream() {
+        try {
+            List<Long> result = stringRedisTemplate.execute(
+                    SHORT_LINK_STATS_STREAM_TRIM_SCRIPT,
+                    List.of(SHORT_LINK_STATS_STREAM_TOPIC_KEY),
+                    SHORT_LINK_STATS_STREAM_GROUP_KEY
+            );
+            if (result == null || result.size() != 2) {
+                return;
+            }
+            if (result.get(1) > statsConsumeConfiguration.getLengthWarnThreshold()) {
+                log.warn("短链接监控消息队列积压，裁剪 {} 条后长度仍为 {}", result.get(0), result.get(1));
+            }
+        } catch (Throwable ex) {
+            log.error("裁剪短链接监控消息队列异常", ex);
+        }
+    }
+
+    private void removeStaleConsumers() {
+        StreamInfo.XInfoConsumers consumers = stringRedisTemplate.opsForStream().consumers(SHORT_LINK_STATS_STREAM_TOPIC_KEY, SHORT_LINK_STATS_STREAM_GROUP_KEY);
+        consumers.forEach(each -> {
+            if (each.pendingCount() == 0
+                    && each.idleTimeMs() > STALE_CONSUMER_IDLE_MILLIS
+                    && !consumerNames.contains(each.consumerName())) {
+                stringRedisTemplate.opsForStream().deleteConsumer(SHORT_LINK_STATS_STREAM_TOPIC_KEY, Consumer.from(SHORT_LINK_STATS_STREAM_GROUP_KEY, each.consumerName()));
+            }
+        });
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (reclaimScheduler != null) {
+            reclaimScheduler.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -17,11 +17,18 @@
 
 package com.szs.shortlink.project.mq.idempotent;
 
+import com.szs.shortlink.project.common.enums.MessageIdempotentStatusEnum;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -37,44 +44,78 @@ public class MessageQueueIdempotentHandler {
     private static final String IDEMPOTENT_KEY_PREFIX = "short-link:idempotent:";
 
     /**
-     * 判断当前消息是否消费过
-     *
-     * @param messageId 消息唯一标识
-     * @return 消息是否消费过
+     * 处理中标识有效期，处理中的消息在此期间不会被其他消费者重复处理
+     */
+    public static final long IDEMPOTENT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * 已完成标识有效期，需远大于待确认消息转移空闲时间与最大投递次数的乘积
+     * 落库后确认消息失败时，消息在此期间被转移重试会按已完成直接确认，不会重复统计
      */
-    public boolean isMessageProcessed(String messageId) {
-        String key = IDEMPOTENT_KEY_PREFIX + messageId;
-        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, "0", 2, TimeUnit.MINUTES));
+    public static final long IDEMPOTENT_ACCOMPLISH_TTL_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private static final DefaultRedisScript<List> IDEMPOTENT_CLAIM_SCRIPT;
+    private static final DefaultRedisScript<Long> IDEMPOTENT_ACCOMPLISH_SCRIPT;
+
+    static {
+        IDEMPOTENT_CLAIM_SCRIPT = new DefaultRedisScript<>();
+        IDEMPOTENT_CLAIM_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/message_idempotent_claim.lua")));
+        IDEMPOTENT_CLAIM_SCRIPT.setResultType(List.class);
+        IDEMPOTENT_ACCOMPLISH_SCRIPT = new DefaultRedisScript<>();
+        IDEMPOTENT_ACCOMPLISH_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/message_idempotent_accomplish.lua")));
+        IDEMPOTENT_ACCOMPLISH_SCRIPT.setResultType(Long.class);
     }
 
     /**
-     * 判断消息消费流程是否执行完成
+     * 批量占有一次拉取到的消息并返回各自幂等状态，一次 Lua 脚本往返
      *
-     * @param messageId 消息唯一标识
-     * @return 消息是否执行完成
+     * @param messageIds 消息唯一标识集合
+     * @return 消息唯一标识与幂等状态映射
      */
-    public boolean isAccomplish(String messageId) {
-        String key = IDEMPOTENT_KEY_PREFIX + messageId;
-        return Objects.equals(stringRedisTemplate.opsForValue().get(key), "1");
+    public Map<String, MessageIdempotentStatusEnum> claimBatch(List<String> messageIds) {
+        Map<String, MessageIdempotentStatusEnum> result = new HashMap<>(messageIds.size());
+        if (messageIds.isEmpty()) {
+            return result;
+        }
+        List<?> statusCodes = stringRedisTemplate.execute(
+                IDEMPOTENT_CLAIM_SCRIPT,
+                messageIds.stream().map(each -> IDEMPOTENT_KEY_PREFIX + each).toList(),
+                String.valueOf(IDEMPOTENT_TTL_MILLIS)
+        );
+        for (int i = 0; i < messageIds.size(); i++) {
+            Object statusCode = statusCodes == null ? null : statusCodes.get(i);
+            result.put(messageIds.get(i), statusCode instanceof Long code
+                    ? MessageIdempotentStatusEnum.of(code)
+                    : MessageIdempotentStatusEnum.PROCESSING);
+        }
+        return result;
     }
 
     /**
-     * 设置消息流程执行完成
+     * 批量设置消息流程执行完成，一次 Lua 脚本往返
      *
-     * @param messageId 消息唯一标识
+     * @param messageIds 消息唯一标识集合
      */
-    public void setAccomplish(String messageId) {
-        String key = IDEMPOTENT_KEY_PREFIX + messageId;
-        stringRedisTemplate.opsForValue().set(key, "1", 2, TimeUnit.MINUTES);
+    public void setAccomplishBatch(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.execute(
+                IDEMPOTENT_ACCOMPLISH_SCRIPT,
+                messageIds.stream().map(each -> IDEMPOTENT_KEY_PREFIX + each).toList(),
+                String.valueOf(IDEMPOTENT_ACCOMPLISH_TTL_MILLIS)
+        );
     }
 
     /**
-     * 如果消息处理遇到异常情况，删除幂等标识
+     * 如果一批消息处理遇到异常情况，批量删除幂等标识
      *
-     * @param messageId 消息唯一标识
+     * @param messageIds 消息唯一标识集合
      */
-    public void delMessageProcessed(String messageId) {
-        String key = IDEMPOTENT_KEY_PREFIX + messageId;
-        stringRedisTemplate.delete(key);
+    public void delMessageProcessedBatch(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.delete(messageIds.stream().map(each -> IDEMPOTENT_KEY_PREFIX + each).toList());
     }
 }
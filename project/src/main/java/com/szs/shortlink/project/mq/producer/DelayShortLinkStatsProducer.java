@@ -47,6 +47,15 @@ public class DelayShortLinkStatsProducer {
      */
     public void send(ShortLinkStatsRecordDTO statsRecord) {
         statsRecord.setKeys(UUID.fastUUID().toString());
+        retry(statsRecord);
+    }
+
+    /**
+     * 保留消息唯一标识重新延迟投递，用于消息正被其他线程处理或处理失败时稍后重试
+     *
+     * @param statsRecord 短链接统计实体参数
+     */
+    public void retry(ShortLinkStatsRecordDTO statsRecord) {
         RBlockingDeque<ShortLinkStatsRecordDTO> blockingDeque = redissonClient.getBlockingDeque(DELAY_QUEUE_STATS_KEY);
         RDelayedQueue<ShortLinkStatsRecordDTO> delayedQueue = redissonClient.getDelayedQueue(blockingDeque);
         delayedQueue.offer(statsRecord, 5, TimeUnit.SECONDS);
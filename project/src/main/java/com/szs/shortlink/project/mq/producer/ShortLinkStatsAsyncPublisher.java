@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.producer;
+
+import com.szs.shortlink.project.config.StatsPublishConfiguration;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 短链接统计消息异步批量发布器
+ * 跳转线程只把统计事件写入环形缓冲区，由后台线程按批次大小或等待时间凑批后通过管道发送到 Redis，跳转响应不再等待 Redis
+ * 缓冲区写满时降级为在调用线程同步发送，保证统计不丢失
+ * 后台线程空闲时挂起，由发布事件的线程唤醒；批次发送失败时按指数退避重试，管道内已成功的消息不再重发
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-link.stats.bus", name = "type", havingValue = "redis-stream", matchIfMissing = true)
+public class ShortLinkStatsAsyncPublisher implements InitializingBean, DisposableBean, MeterBinder {
+
+    private final ShortLinkStatsSaveProducer shortLinkStatsSaveProducer;
+    private final StatsPublishConfiguration statsPublishConfiguration;
+
+    private ShortLinkStatsRingBuffer ringBuffer;
+    private Thread publishThread;
+    private volatile boolean running;
+
+    /**
+     * 后台线程是否已挂起等待新事件
+     */
+    private final AtomicBoolean parked = new AtomicBoolean();
+
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder overflowEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder flushedBatches = new LongAdder();
+    private final LongAdder retriedEvents = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!Boolean.TRUE.equals(statsPublishConfiguration.getAsyncEnable())) {
+            return;
+        }
+        ringBuffer = new ShortLinkStatsRingBuffer(statsPublishConfiguration.getRingBufferSize());
+        running = true;
+        publishThread = new Thread(this::publishLoop, "short-link_stats_publisher");
+        publishThread.setDaemon(true);
+        publishThread.start();
+    }
+
+    /**
+     * 发布短链接统计事件
+     *
+     * @param fullShortUrl 完整短链接
+     * @param gid          分组标识，可以为空
+     * @param statsRecord  短链接统计实体参数
+     */
+    public void publish(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
+        if (running && ringBuffer.offer(fullShortUrl, gid, statsRecord)) {
+            if (parked.get() && parked.compareAndSet(true, false)) {
+                LockSupport.unpark(publishThread);
+            }
+            return;
+        }
+        if (running) {
+            overflowEvents.increment();
+        }
+        shortLinkStatsSaveProducer.sendWithVisitorCheck(fullShortUrl, gid, statsRecord);
+    }
+
+    private void publishLoop() {
+        int flushSize = statsPublishConfiguration.getFlushSize();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(statsPublishConfiguration.getFlushInterval());
+        String[] fullShortUrls = new String[flushSize];
+        String[] gids = new String[flushSize];
+        ShortLinkStatsRecordDTO[] statsRecords = new ShortLinkStatsRecordDTO[flushSize];
+        int pending = 0;
+        long firstPendingNanos = 0L;
+        while (running || ringBuffer.size() > 0) {
+            int drained = ringBuffer.drainTo(fullShortUrls, gids, statsRecords, pending, flushSize - pending);
+            if (pending == 0 && drained > 0) {
+                firstPendingNanos = System.nanoTime();
+            }
+            pending += drained;
+            long waitedNanos = System.nanoTime() - firstPendingNanos;
+            if (pending == flushSize || (pending > 0 && (waitedNanos >= flushIntervalNanos || !running))) {
+                flush(fullShortUrls, gids, statsRecords, pending);
+                pending = 0;
+                continue;
+            }
+            if (drained == 0) {
+                awaitEvents(pending > 0 ? flushIntervalNanos - waitedNanos : 0L);
+            }
+        }
+        if (pending > 0) {
+            flush(fullShortUrls, gids, statsRecords, pending);
+        }
+    }
+
+    /**
+     * 挂起等待新事件，先登记挂起状态再检查缓冲区，发布线程在写入后看到挂起状态即唤醒，不会丢失唤醒
+     *
+     * @param timeoutNanos 最长等待时间，不大于 0 时一直等待到有新事件或停止
+     */
+    private void awaitEvents(long timeoutNanos) {
+        parked.set(true);
+        if (running && ringBuffer.size() == 0) {
+            if (timeoutNanos > 0) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            } else {
+                LockSupport.park(this);
+            }
+        } else {
+            Thread.onSpinWait();
+        }
+        parked.set(false);
+    }
+
+    private void flush(String[] fullShortUrls, String[] gids, ShortLinkStatsRecordDTO[] statsRecords, int count) {
+        int remaining = count;
+        long backoffMillis = statsPublishConfiguration.getRetryBackoff();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                int sent = send(fullShortUrls, gids, statsRecords, remaining);
+                publishedEvents.add(sent);
+                remaining -= sent;
+                if (remaining == 0) {
+                    flushedBatches.increment();
+                    return;
+                }
+                if (attempt >= statsPublishConfiguration.getRetryMaxAttempts() || !running) {
+                    failedEvents.add(remaining);
+                    log.error("批量发送短链接统计消息重试 {} 次仍失败，丢弃 {} 条", attempt, remaining);
+                    return;
+                }
+                retriedEvents.add(remaining);
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+                backoffMillis = Math.min(backoffMillis * 2, statsPublishConfiguration.getRetryMaxBackoff());
+            }
+        } finally {
+            Arrays.fill(fullShortUrls, 0, count, null);
+            Arrays.fill(gids, 0, count, null);
+            Arrays.fill(statsRecords, 0, count, null);
+        }
+    }
+
+    /**
+     * 发送一批消息，管道部分失败时把失败的消息前移到数组头部等待重试
+     * 超时等结果不明确的消息仍会重试，此时可能重复投递
+     *
+     * @return 成功发送的数量
+     */
+    private int send(String[] fullShortUrls, String[] gids, ShortLinkStatsRecordDTO[] statsRecords, int count) {
+        try {
+            shortLinkStatsSaveProducer.sendBatchWithVisitorCheck(fullShortUrls, gids, statsRecords, count);
+            return count;
+        } catch (RedisPipelineException ex) {
+            List<Object> results = ex.getResults();
+            if (results.size() != count) {
+                log.warn("批量发送短链接统计消息异常，整批 {} 条等待重试", count, ex);
+                return 0;
+            }
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (results.get(i) instanceof Throwable) {
+                    fullShortUrls[failed] = fullShortUrls[i];
+                    gids[failed] = gids[i];
+                    statsRecords[failed] = statsRecords[i];
+                    failed++;
+                }
+            }
+            log.warn("批量发送短链接统计消息部分失败，{} 条中 {} 条等待重试", count, failed, ex);
+            return count - failed;
+        } catch (Throwable ex) {
+            log.warn("批量发送短链接统计消息异常，整批 {} 条等待重试", count, ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("short-link.stats.publish.buffer.size", this, each -> each.ringBuffer == null ? 0 : each.ringBuffer.size())
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.publish.events", publishedEvents, LongAdder::sum)
+                .tag("result", "published")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.publish.events", overflowEvents, LongAdder::sum)
+                .tag("result", "overflow")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.publish.events", failedEvents, LongAdder::sum)
+                .tag("result", "failed")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.publish.events", retriedEvents, LongAdder::sum)
+                .tag("result", "retried")
+                .register(registry);
+        FunctionCounter.builder("short-link.stats.publish.batches", flushedBatches, LongAdder::sum)
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        if (publishThread != null) {
+            LockSupport.unpark(publishThread);
+            publishThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
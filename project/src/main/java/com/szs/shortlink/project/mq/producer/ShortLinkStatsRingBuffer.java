@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.producer;
+
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 短链接统计事件环形缓冲区
+ * 多生产者单消费者，槽位预先分配并循环复用，发布事件时不产生额外对象；生产者通过 CAS 抢占序号，无锁
+ */
+public class ShortLinkStatsRingBuffer {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int capacity;
+
+    /**
+     * 下一个待抢占的生产序号
+     */
+    private final AtomicLong producerCursor = new AtomicLong();
+
+    /**
+     * 下一个待消费的序号，仅消费线程写入
+     */
+    private volatile long consumerCursor;
+
+    public ShortLinkStatsRingBuffer(int requestedCapacity) {
+        int actualCapacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.capacity = actualCapacity;
+        this.mask = actualCapacity - 1;
+        this.slots = new Slot[actualCapacity];
+        for (int i = 0; i < actualCapacity; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * 发布统计事件
+     *
+     * @return 缓冲区已满返回 false，由调用方决定降级策略
+     */
+    public boolean offer(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
+        long sequence;
+        do {
+            sequence = producerCursor.get();
+            if (sequence - consumerCursor >= capacity) {
+                return false;
+            }
+        } while (!producerCursor.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.fullShortUrl = fullShortUrl;
+        slot.gid = gid;
+        slot.statsRecord = statsRecord;
+        slot.publishedSequence = sequence;
+        return true;
+    }
+
+    /**
+     * 按发布顺序取出已发布的事件，遇到尚未完成写入的槽位即停止
+     *
+     * @param fullShortUrls 完整短链接接收数组
+     * @param gids          分组标识接收数组
+     * @param statsRecords  统计实体接收数组
+     * @param offset        接收数组起始下标
+     * @param maxCount      最多取出数量
+     * @return 实际取出数量
+     */
+    public int drainTo(String[] fullShortUrls, String[] gids, ShortLinkStatsRecordDTO[] statsRecords, int offset, int maxCount) {
+        long sequence = consumerCursor;
+        int count = 0;
+        while (count < maxCount) {
+            Slot slot = slots[(int) (sequence & mask)];
+            if (slot.publishedSequence != sequence) {
+                break;
+            }
+            fullShortUrls[offset + count] = slot.fullShortUrl;
+            gids[offset + count] = slot.gid;
+            statsRecords[offset + count] = slot.statsRecord;
+            slot.fullShortUrl = null;
+            slot.gid = null;
+            slot.statsRecord = null;
+            count++;
+            sequence++;
+        }
+        if (count > 0) {
+            consumerCursor = sequence;
+        }
+        return count;
+    }
+
+    /**
+     * 当前缓冲区中尚未取出的事件数量
+     */
+    public long size() {
+        return Math.max(0, producerCursor.get() - consumerCursor);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static final class Slot {
+
+        private volatile long publishedSequence = -1;
+
+        private String fullShortUrl;
+
+        private String gid;
+
+        private ShortLinkStatsRecordDTO statsRecord;
+    }
+}
@@ -17,13 +17,34 @@
 
 package com.szs.shortlink.project.mq.producer;
 
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import com.szs.shortlink.project.config.StatsVisitorConfiguration;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_HLL_WINDOW_TMP_KEY;
 import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_STREAM_TOPIC_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_UIP_HLL_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_UIP_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_UV_HLL_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_UV_KEY;
 
 /**
  * 短链接监控状态保存消息队列生产者
@@ -33,6 +54,24 @@ import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_L
 public class ShortLinkStatsSaveProducer {
 
     private final StringRedisTemplate stringRedisTemplate;
+    private final StatsVisitorConfiguration statsVisitorConfiguration;
+
+    private static final String SHORT_LINK_STATS_RECORD_LUA_SCRIPT_PATH = "lua/short_link_stats_record.lua";
+    private static final String SHORT_LINK_STATS_RECORD_HLL_LUA_SCRIPT_PATH = "lua/short_link_stats_record_hll.lua";
+
+    private static final DefaultRedisScript<List> SHORT_LINK_STATS_RECORD_SCRIPT;
+    private static final DefaultRedisScript<List> SHORT_LINK_STATS_RECORD_HLL_SCRIPT;
+
+    private static final DateTimeFormatter HLL_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    static {
+        SHORT_LINK_STATS_RECORD_SCRIPT = new DefaultRedisScript<>();
+        SHORT_LINK_STATS_RECORD_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(SHORT_LINK_STATS_RECORD_LUA_SCRIPT_PATH)));
+        SHORT_LINK_STATS_RECORD_SCRIPT.setResultType(List.class);
+        SHORT_LINK_STATS_RECORD_HLL_SCRIPT = new DefaultRedisScript<>();
+        SHORT_LINK_STATS_RECORD_HLL_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(SHORT_LINK_STATS_RECORD_HLL_LUA_SCRIPT_PATH)));
+        SHORT_LINK_STATS_RECORD_HLL_SCRIPT.setResultType(List.class);
+    }
 
     /**
      * 发送延迟消费短链接统计
@@ -40,4 +79,162 @@ public class ShortLinkStatsSaveProducer {
     public void send(Map<String, String> producerMap) {
         stringRedisTemplate.opsForStream().add(SHORT_LINK_STATS_STREAM_TOPIC_KEY, producerMap);
     }
+
+    /**
+     * 批量发送延迟消费短链接统计，一批消息通过管道一次往返发送
+     *
+     * @param producerMaps 消息内容集合
+     */
+    public void sendBatch(List<Map<String, String>> producerMaps) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[] key = SHORT_LINK_STATS_STREAM_TOPIC_KEY.getBytes(StandardCharsets.UTF_8);
+            for (Map<String, String> each : producerMaps) {
+                Map<byte[], byte[]> body = new LinkedHashMap<>();
+                each.forEach((field, value) -> body.put(field.getBytes(StandardCharsets.UTF_8), StrUtil.nullToEmpty(value).getBytes(StandardCharsets.UTF_8)));
+                connection.streamCommands().xAdd(key, body);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 登记访客与 IP 并发送短链接统计，SADD UV、SADD UIP、XADD 合并为一次 Lua 脚本往返
+     * 首次访问标识由脚本计算后随消息一起投递，并回写到统计实体
+     * HyperLogLog 模式下改为 PFADD 当天的 HyperLogLog，首次访问标识为最近窗口天数内首次（近似）
+     *
+     * @param fullShortUrl 完整短链接
+     * @param gid          分组标识
+     * @param statsRecord  短链接统计实体参数
+     */
+    public void sendWithVisitorCheck(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
+        List<?> firstFlags = stringRedisTemplate.execute(
+                visitorCheckScript(),
+                visitorCheckKeys(fullShortUrl),
+                visitorCheckArgs(fullShortUrl, gid, statsRecord).toArray()
+        );
+        if (firstFlags != null && firstFlags.size() == 2) {
+            statsRecord.setUvFirstFlag(Long.valueOf(1L).equals(firstFlags.get(0)));
+            statsRecord.setUipFirstFlag(Long.valueOf(1L).equals(firstFlags.get(1)));
+        }
+    }
+
+    /**
+     * 批量登记访客与 IP 并发送短链接统计，一批消息通过管道一次往返发送
+     * 管道内使用 EVAL 而非 EVALSHA，避免 Redis 重启后脚本缓存丢失导致整批失败
+     *
+     * @param fullShortUrls 完整短链接数组
+     * @param gids          分组标识数组
+     * @param statsRecords  短链接统计实体参数数组
+     * @param count         本批次消息数量
+     */
+    public void sendBatchWithVisitorCheck(String[] fullShortUrls, String[] gids, ShortLinkStatsRecordDTO[] statsRecords, int count) {
+        byte[] scriptBytes = visitorCheckScript().getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < count; i++) {
+                List<String> keys = visitorCheckKeys(fullShortUrls[i]);
+                List<String> args = visitorCheckArgs(fullShortUrls[i], gids[i], statsRecords[i]);
+                connection.scriptingCommands().eval(scriptBytes, ReturnType.MULTI, keys.size(), toKeysAndArgs(keys, args));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量登记访客与 IP 并回写首次访问标识，不投递消息，供本地事件总线在消费线程中按批次调用
+     * 一批访问通过管道一次往返完成，HyperLogLog 模式下与单条发送使用同一脚本做滑动窗口判断
+     *
+     * @param fullShortUrls 完整短链接集合
+     * @param statsRecords  与完整短链接一一对应的短链接统计实体参数集合
+     */
+    public void checkVisitorsBatch(List<String> fullShortUrls, List<ShortLinkStatsRecordDTO> statsRecords) {
+        if (statsVisitorConfiguration.isHyperLogLogMode()) {
+            byte[] scriptBytes = SHORT_LINK_STATS_RECORD_HLL_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < fullShortUrls.size(); i++) {
+                    List<String> keys = visitorCheckKeys(fullShortUrls.get(i));
+                    List<String> args = visitorCheckArgs(fullShortUrls.get(i), null, statsRecords.get(i), false);
+                    connection.scriptingCommands().eval(scriptBytes, ReturnType.MULTI, keys.size(), toKeysAndArgs(keys, args));
+                }
+                return null;
+            });
+            for (int i = 0; i < statsRecords.size(); i++) {
+                List<?> firstFlags = (List<?>) results.get(i);
+                statsRecords.get(i).setUvFirstFlag(Long.valueOf(1L).equals(firstFlags.get(0)));
+                statsRecords.get(i).setUipFirstFlag(Long.valueOf(1L).equals(firstFlags.get(1)));
+            }
+            return;
+        }
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < fullShortUrls.size(); i++) {
+                List<String> keys = visitorCheckKeys(fullShortUrls.get(i));
+                connection.setCommands().sAdd(keys.get(0).getBytes(StandardCharsets.UTF_8), StrUtil.nullToEmpty(statsRecords.get(i).getUv()).getBytes(StandardCharsets.UTF_8));
+                connection.setCommands().sAdd(keys.get(1).getBytes(StandardCharsets.UTF_8), StrUtil.nullToEmpty(statsRecords.get(i).getRemoteAddr()).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        for (int i = 0; i < statsRecords.size(); i++) {
+            statsRecords.get(i).setUvFirstFlag(Long.valueOf(1L).equals(results.get(i * 2)));
+            statsRecords.get(i).setUipFirstFlag(Long.valueOf(1L).equals(results.get(i * 2 + 1)));
+        }
+    }
+
+    private static byte[][] toKeysAndArgs(List<String> keys, List<String> args) {
+        byte[][] keysAndArgs = new byte[keys.size() + args.size()][];
+        int index = 0;
+        for (String each : keys) {
+            keysAndArgs[index++] = each.getBytes(StandardCharsets.UTF_8);
+        }
+        for (String each : args) {
+            keysAndArgs[index++] = StrUtil.nullToEmpty(each).getBytes(StandardCharsets.UTF_8);
+        }
+        return keysAndArgs;
+    }
+
+    private DefaultRedisScript<List> visitorCheckScript() {
+        return statsVisitorConfiguration.isHyperLogLogMode() ? SHORT_LINK_STATS_RECORD_HLL_SCRIPT : SHORT_LINK_STATS_RECORD_SCRIPT;
+    }
+
+    /**
+     * HyperLogLog 模式下依次为当天访客、当天 IP、消息 Stream、窗口临时 Key，以及窗口内之前各天的访客与 IP HyperLogLog
+     */
+    private List<String> visitorCheckKeys(String fullShortUrl) {
+        if (statsVisitorConfiguration.isHyperLogLogMode()) {
+            LocalDate today = LocalDate.now();
+            List<String> keys = new ArrayList<>(List.of(
+                    String.format(SHORT_LINK_STATS_UV_HLL_KEY, fullShortUrl, today.format(HLL_DATE_FORMATTER)),
+                    String.format(SHORT_LINK_STATS_UIP_HLL_KEY, fullShortUrl, today.format(HLL_DATE_FORMATTER)),
+                    SHORT_LINK_STATS_STREAM_TOPIC_KEY,
+                    SHORT_LINK_STATS_HLL_WINDOW_TMP_KEY
+            ));
+            int windowDays = statsVisitorConfiguration.getWindowDays();
+            for (int i = 1; i < windowDays; i++) {
+                keys.add(String.format(SHORT_LINK_STATS_UV_HLL_KEY, fullShortUrl, today.minusDays(i).format(HLL_DATE_FORMATTER)));
+            }
+            for (int i = 1; i < windowDays; i++) {
+                keys.add(String.format(SHORT_LINK_STATS_UIP_HLL_KEY, fullShortUrl, today.minusDays(i).format(HLL_DATE_FORMATTER)));
+            }
+            return keys;
+        }
+        return List.of(SHORT_LINK_STATS_UV_KEY + fullShortUrl, SHORT_LINK_STATS_UIP_KEY + fullShortUrl, SHORT_LINK_STATS_STREAM_TOPIC_KEY);
+    }
+
+    private List<String> visitorCheckArgs(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord) {
+        return visitorCheckArgs(fullShortUrl, gid, statsRecord, true);
+    }
+
+    private List<String> visitorCheckArgs(String fullShortUrl, String gid, ShortLinkStatsRecordDTO statsRecord, boolean publish) {
+        List<String> args = new ArrayList<>(List.of(
+                statsRecord.getUv(),
+                statsRecord.getRemoteAddr(),
+                fullShortUrl,
+                StrUtil.nullToEmpty(gid),
+                JSON.toJSONString(statsRecord)
+        ));
+        if (statsVisitorConfiguration.isHyperLogLogMode()) {
+            // 每天的 HyperLogLog 需保留到最后一个包含它的窗口结束
+            args.add(String.valueOf(TimeUnit.DAYS.toSeconds(statsVisitorConfiguration.getWindowDays() + 1L)));
+            args.add(publish ? "1" : "0");
+        }
+        return args;
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.service;
+
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRollupRangeDTO;
+
+/**
+ * 短链接统计日、月汇总接口层
+ */
+public interface ShortLinkStatsRollupService {
+
+    /**
+     * 按汇总水位拆分查询日期区间
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 查询区间，未开启汇总或开始日期早于汇总低水位时返回 null，调用方直接查询原始统计表
+     */
+    ShortLinkStatsRollupRangeDTO planRange(String startDate, String endDate);
+
+    /**
+     * 汇总水位之后已结束的天及最近若干天，推进汇总水位
+     */
+    void rollup();
+
+    /**
+     * 从 Redis 重新加载汇总水位与低水位
+     */
+    void refreshWatermark();
+
+    /**
+     * 短链接变更分组时同步修改汇总表的分组标识
+     *
+     * @param fullShortUrl 完整短链接
+     * @param originGid    原始分组标识
+     * @param gid          目标分组标识
+     */
+    void updateGid(String fullShortUrl, String originGid, String gid);
+}
@@ -23,6 +23,10 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.szs.shortlink.project.cache.ShortLinkGotoNearCache;
+import com.szs.shortlink.project.cache.ShortLinkStatsResultCache;
+import com.szs.shortlink.project.cache.ShortLinkTodayStatsCache;
+import com.szs.shortlink.project.cache.ShortLinkTotalStatsBuffer;
 import com.szs.shortlink.project.dao.entity.ShortLinkDO;
 import com.szs.shortlink.project.dao.mapper.ShortLinkMapper;
 import com.szs.shortlink.project.dto.req.RecycleBinRecoverReqDTO;
@@ -47,6 +51,10 @@ import static com.szs.shortlink.project.common.constant.RedisKeyConstant.GOTO_SH
 public class RecycleBinServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLinkDO> implements RecycleBinService {
 
     private final StringRedisTemplate stringRedisTemplate;
+    private final ShortLinkGotoNearCache shortLinkGotoNearCache;
+    private final ShortLinkTotalStatsBuffer shortLinkTotalStatsBuffer;
+    private final ShortLinkTodayStatsCache shortLinkTodayStatsCache;
+    private final ShortLinkStatsResultCache shortLinkStatsResultCache;
 
     @Override
     public void saveRecycleBin(RecycleBinSaveReqDTO requestParam) {
@@ -60,6 +68,9 @@ public class RecycleBinServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLin
                 .build();
         baseMapper.update(shortLinkDO, updateWrapper);
         stringRedisTemplate.delete(String.format(GOTO_SHORT_LINK_KEY, requestParam.getFullShortUrl()));
+        shortLinkGotoNearCache.invalidate(requestParam.getFullShortUrl());
+        shortLinkTodayStatsCache.removeRank(requestParam.getGid(), requestParam.getFullShortUrl());
+        shortLinkStatsResultCache.invalidate(requestParam.getFullShortUrl(), requestParam.getGid());
     }
 
     @Override
@@ -70,6 +81,7 @@ public class RecycleBinServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLin
                 .eq(ShortLinkDO::getDelFlag, 0)
                 .orderByDesc(ShortLinkDO::getUpdateTime);
         IPage<ShortLinkDO> resultPage = baseMapper.selectPage(requestParam, queryWrapper);
+        shortLinkTotalStatsBuffer.fillUnflushed(resultPage.getRecords());
         return resultPage.convert(each -> {
             ShortLinkPageRespDTO result = BeanUtil.toBean(each, ShortLinkPageRespDTO.class);
             result.setDomain("http://" + result.getDomain());
@@ -89,6 +101,9 @@ public class RecycleBinServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLin
                 .build();
         baseMapper.update(shortLinkDO, updateWrapper);
         stringRedisTemplate.delete(String.format(GOTO_IS_NULL_SHORT_LINK_KEY, requestParam.getFullShortUrl()));
+        shortLinkGotoNearCache.invalidate(requestParam.getFullShortUrl());
+        shortLinkTodayStatsCache.restoreRank(requestParam.getGid(), requestParam.getFullShortUrl());
+        shortLinkStatsResultCache.invalidate(requestParam.getFullShortUrl(), requestParam.getGid());
     }
 
     @Override
@@ -105,5 +120,9 @@ public class RecycleBinServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLin
 //        delShortLinkDO.setDelFlag(1);
 //        baseMapper.update(delShortLinkDO, updateWrapper);
         baseMapper.delete(updateWrapper);
+        stringRedisTemplate.delete(String.format(GOTO_SHORT_LINK_KEY, requestParam.getFullShortUrl()));
+        shortLinkGotoNearCache.invalidate(requestParam.getFullShortUrl());
+        shortLinkTodayStatsCache.removeRank(requestParam.getGid(), requestParam.getFullShortUrl());
+        shortLinkStatsResultCache.invalidate(requestParam.getFullShortUrl(), requestParam.getGid());
     }
 }
@@ -29,11 +29,23 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.szs.shortlink.project.accesslog.LinkAccessLogStore;
+import com.szs.shortlink.project.cache.LocalShortUriBloomFilter;
+import com.szs.shortlink.project.cache.ShortLinkGidEpoch;
+import com.szs.shortlink.project.cache.ShortLinkGotoNearCache;
+import com.szs.shortlink.project.cache.ShortLinkStatsResultCache;
+import com.szs.shortlink.project.cache.ShortLinkTodayStatsCache;
+import com.szs.shortlink.project.cache.ShortLinkTopIpSketch;
+import com.szs.shortlink.project.cache.ShortLinkTotalStatsBuffer;
+import com.szs.shortlink.project.cache.ShortLinkVisitorSketch;
 import com.szs.shortlink.project.common.convention.exception.ClientException;
 import com.szs.shortlink.project.common.convention.exception.ServiceException;
 import com.szs.shortlink.project.common.enums.VailDateTypeEnum;
 import com.szs.shortlink.project.config.GotoDomainWhiteListConfiguration;
+import com.szs.shortlink.project.config.GotoLoadConfiguration;
+import com.szs.shortlink.project.config.StatsVisitorIndexConfiguration;
 import com.szs.shortlink.project.dao.entity.*;
 import com.szs.shortlink.project.dao.mapper.*;
 import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
@@ -42,11 +54,14 @@ import com.szs.shortlink.project.dto.req.ShortLinkCreateReqDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkPageReqDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkUpdateReqDTO;
 import com.szs.shortlink.project.dto.resp.*;
+import com.szs.shortlink.project.mq.bus.ShortLinkStatsEventBus;
 import com.szs.shortlink.project.mq.producer.ShortLinkStatsSaveProducer;
 import com.szs.shortlink.project.service.LinkStatsTodayService;
 import com.szs.shortlink.project.service.ShortLinkService;
+import com.szs.shortlink.project.service.ShortLinkStatsRollupService;
 import com.szs.shortlink.project.toolkit.HashUtil;
 import com.szs.shortlink.project.toolkit.LinkUtil;
+import com.szs.shortlink.project.toolkit.SingleFlight;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.Cookie;
@@ -58,11 +73,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.redisson.api.RBloomFilter;
 import org.redisson.api.RLock;
-import org.redisson.api.RReadWriteLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -70,6 +84,7 @@ import org.yaml.snakeyaml.constructor.DuplicateKeyException;
 
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -85,7 +100,7 @@ import static com.szs.shortlink.project.common.constant.RedisKeyConstant.*;
 @RequiredArgsConstructor
 public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLinkDO> implements ShortLinkService {
 
-    private final RBloomFilter<String> shortUriCreateCachePenetrationBloomFilter;
+    private final LocalShortUriBloomFilter localShortUriBloomFilter;
     private final ShortLinkGotoMapper shortLinkGotoMapper;
     private final StringRedisTemplate stringRedisTemplate;
     private final RedissonClient redissonClient;
@@ -93,13 +108,32 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
     private final LinkLocaleStatsMapper linkLocaleStatsMapper;
     private final LinkOsStatsMapper linkOsStatsMapper;
     private final LinkBrowserStatsMapper linkBrowserStatsMapper;
-    private final LinkAccessLogsMapper linkAccessLogsMapper;
+    private final LinkAccessLogStore linkAccessLogStore;
     private final LinkDeviceStatsMapper linkDeviceStatsMapper;
     private final LinkNetworkStatsMapper linkNetworkStatsMapper;
+    private final LinkVisitorMapper linkVisitorMapper;
     private final LinkStatsTodayMapper linkStatsTodayMapper;
     private final LinkStatsTodayService linkStatsTodayService;
+    private final ShortLinkStatsRollupService shortLinkStatsRollupService;
     private final ShortLinkStatsSaveProducer shortLinkStatsSaveProducer;
+    private final ShortLinkStatsEventBus shortLinkStatsEventBus;
     private final GotoDomainWhiteListConfiguration gotoDomainWhiteListConfiguration;
+    private final ShortLinkGotoNearCache shortLinkGotoNearCache;
+    private final ShortLinkTotalStatsBuffer shortLinkTotalStatsBuffer;
+    private final ShortLinkTodayStatsCache shortLinkTodayStatsCache;
+    private final ShortLinkStatsResultCache shortLinkStatsResultCache;
+    private final ShortLinkVisitorSketch shortLinkVisitorSketch;
+    private final ShortLinkTopIpSketch shortLinkTopIpSketch;
+    private final ShortLinkGidEpoch shortLinkGidEpoch;
+    private final GotoLoadConfiguration gotoLoadConfiguration;
+    private final StatsVisitorIndexConfiguration statsVisitorIndexConfiguration;
+
+    private final SingleFlight<String, ShortLinkDO> gotoLoadSingleFlight = new SingleFlight<>();
+
+    /**
+     * 按当天访问排序时补齐部分每次扫描的短链接数量
+     */
+    private static final int TODAY_RANK_TAIL_SCAN_SIZE = 200;
 
     @Value("${short-link.domain.default}")
     private String createShortLinkDefaultDomain;
@@ -158,7 +192,7 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
             requestParam.getOriginUrl(),
             LinkUtil.getLinkCacheValidTime(requestParam.getValidDate()), TimeUnit.MILLISECONDS
         );
-        shortUriCreateCachePenetrationBloomFilter.add(fullShortUrl);
+        localShortUriBloomFilter.add(fullShortUrl);
         return ShortLinkCreateRespDTO.builder()
                 .fullShortUrl("http://" + shortLinkDO.getFullShortUrl())
                 .originUrl(requestParam.getOriginUrl())
@@ -186,7 +220,7 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
             shorUri = HashUtil.hashToBase62(originUrl);
             // 判断短链接是否存在为什么不使用Set结构？详情查看：https://nageoffer.com/shortlink/question
             // 如果布隆过滤器挂了，里边存的数据全丢失了，怎么恢复呢？详情查看：https://nageoffer.com/shortlink/question
-            if (!shortUriCreateCachePenetrationBloomFilter.contains(createShortLinkDefaultDomain+ "/" + shorUri)) {
+            if (!localShortUriBloomFilter.contains(createShortLinkDefaultDomain+ "/" + shorUri)) {
                 break;
             }
             customGenerateCount++;
@@ -426,124 +460,128 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
             baseMapper.update(shortLinkDO, updateWrapper);
         } else {
             // 为什么监控表要加上Gid？不加的话是否就不存在读写锁？详情查看：https://nageoffer.com/shortlink/question
-            RReadWriteLock readWriteLock = redissonClient.getReadWriteLock(String.format(LOCK_GID_UPDATE_KEY, requestParam.getFullShortUrl()));
-            RLock rLock = readWriteLock.writeLock();
-            if (!rLock.tryLock()) {
-                throw new ServiceException("短链接正在被访问，请稍后再试...");
+            // 迁移版本号在事务结束后自动结束，与迁移并发的统计消息由消费者检测后重新投递
+            shortLinkGidEpoch.beginMigration(requestParam.getFullShortUrl());
+            // 加锁读取原记录的最新累计访问数据，避免与累计访问增量刷新并发时新记录复制到旧值
+            LambdaQueryWrapper<ShortLinkDO> lockQueryWrapper = Wrappers.lambdaQuery(ShortLinkDO.class)
+                    .eq(ShortLinkDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(ShortLinkDO::getGid, hasShortLinkDO.getGid())
+                    .eq(ShortLinkDO::getDelFlag, 0)
+                    .eq(ShortLinkDO::getDelTime, 0L)
+                    .last("FOR UPDATE");
+            ShortLinkDO lockedShortLinkDO = Optional.ofNullable(baseMapper.selectOne(lockQueryWrapper)).orElse(hasShortLinkDO);
+            LambdaUpdateWrapper<ShortLinkDO> linkUpdateWrapper = Wrappers.lambdaUpdate(ShortLinkDO.class)
+                    .eq(ShortLinkDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(ShortLinkDO::getGid, hasShortLinkDO.getGid())
+                    .eq(ShortLinkDO::getDelFlag, 0)
+                    .eq(ShortLinkDO::getDelTime, 0L)
+                    .eq(ShortLinkDO::getEnableStatus, 0);
+            ShortLinkDO delShortLinkDO = ShortLinkDO.builder()
+                    .delTime(System.currentTimeMillis())
+                    .build();
+            delShortLinkDO.setDelFlag(1);
+            baseMapper.update(delShortLinkDO, linkUpdateWrapper);
+            ShortLinkDO shortLinkDO = ShortLinkDO.builder()
+                    .domain(createShortLinkDefaultDomain)
+                    .originUrl(requestParam.getOriginUrl())
+                    .gid(requestParam.getGid())
+                    .createdType(hasShortLinkDO.getCreatedType())
+                    .validDateType(requestParam.getValidDateType())
+                    .validDate(requestParam.getValidDate())
+                    .describe(requestParam.getDescribe())
+                    .shortUri(hasShortLinkDO.getShortUri())
+                    .enableStatus(hasShortLinkDO.getEnableStatus())
+                    .totalPv(lockedShortLinkDO.getTotalPv())
+                    .totalUv(lockedShortLinkDO.getTotalUv())
+                    .totalUip(lockedShortLinkDO.getTotalUip())
+                    .fullShortUrl(hasShortLinkDO.getFullShortUrl())
+                    .favicon(getFavicon(requestParam.getOriginUrl()))
+                    .delTime(0L)
+                    .build();
+            baseMapper.insert(shortLinkDO);
+            LambdaQueryWrapper<LinkStatsTodayDO> statsTodayQueryWrapper = Wrappers.lambdaQuery(LinkStatsTodayDO.class)
+                    .eq(LinkStatsTodayDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkStatsTodayDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkStatsTodayDO::getDelFlag, 0);
+            List<LinkStatsTodayDO> linkStatsTodayDOList = linkStatsTodayMapper.selectList(statsTodayQueryWrapper);
+            if (CollUtil.isNotEmpty(linkStatsTodayDOList)) {
+                linkStatsTodayMapper.deleteBatchIds(linkStatsTodayDOList.stream()
+                        .map(LinkStatsTodayDO::getId)
+                        .toList()
+                );
+                linkStatsTodayDOList.forEach(each -> each.setGid(requestParam.getGid()));
+                linkStatsTodayService.saveBatch(linkStatsTodayDOList);
             }
-            try {
-                LambdaUpdateWrapper<ShortLinkDO> linkUpdateWrapper = Wrappers.lambdaUpdate(ShortLinkDO.class)
-                        .eq(ShortLinkDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(ShortLinkDO::getGid, hasShortLinkDO.getGid())
-                        .eq(ShortLinkDO::getDelFlag, 0)
-                        .eq(ShortLinkDO::getDelTime, 0L)
-                        .eq(ShortLinkDO::getEnableStatus, 0);
-                ShortLinkDO delShortLinkDO = ShortLinkDO.builder()
-                        .delTime(System.currentTimeMillis())
-                        .build();
-                delShortLinkDO.setDelFlag(1);
-                baseMapper.update(delShortLinkDO, linkUpdateWrapper);
-                ShortLinkDO shortLinkDO = ShortLinkDO.builder()
-                        .domain(createShortLinkDefaultDomain)
-                        .originUrl(requestParam.getOriginUrl())
-                        .gid(requestParam.getGid())
-                        .createdType(hasShortLinkDO.getCreatedType())
-                        .validDateType(requestParam.getValidDateType())
-                        .validDate(requestParam.getValidDate())
-                        .describe(requestParam.getDescribe())
-                        .shortUri(hasShortLinkDO.getShortUri())
-                        .enableStatus(hasShortLinkDO.getEnableStatus())
-                        .totalPv(hasShortLinkDO.getTotalPv())
-                        .totalUv(hasShortLinkDO.getTotalUv())
-                        .totalUip(hasShortLinkDO.getTotalUip())
-                        .fullShortUrl(hasShortLinkDO.getFullShortUrl())
-                        .favicon(getFavicon(requestParam.getOriginUrl()))
-                        .delTime(0L)
-                        .build();
-                baseMapper.insert(shortLinkDO);
-                LambdaQueryWrapper<LinkStatsTodayDO> statsTodayQueryWrapper = Wrappers.lambdaQuery(LinkStatsTodayDO.class)
-                        .eq(LinkStatsTodayDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkStatsTodayDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkStatsTodayDO::getDelFlag, 0);
-                List<LinkStatsTodayDO> linkStatsTodayDOList = linkStatsTodayMapper.selectList(statsTodayQueryWrapper);
-                if (CollUtil.isNotEmpty(linkStatsTodayDOList)) {
-                    linkStatsTodayMapper.deleteBatchIds(linkStatsTodayDOList.stream()
-                            .map(LinkStatsTodayDO::getId)
-                            .toList()
-                    );
-                    linkStatsTodayDOList.forEach(each -> each.setGid(requestParam.getGid()));
-                    linkStatsTodayService.saveBatch(linkStatsTodayDOList);
-                }
-                LambdaQueryWrapper<ShortLinkGotoDO> linkGotoQueryWrapper = Wrappers.lambdaQuery(ShortLinkGotoDO.class)
-                        .eq(ShortLinkGotoDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(ShortLinkGotoDO::getGid, hasShortLinkDO.getGid());
-                ShortLinkGotoDO shortLinkGotoDO = shortLinkGotoMapper.selectOne(linkGotoQueryWrapper);
-                shortLinkGotoMapper.deleteById(shortLinkGotoDO.getId());
-                shortLinkGotoDO.setGid(requestParam.getGid());
-                shortLinkGotoMapper.insert(shortLinkGotoDO);
-                LambdaUpdateWrapper<LinkAccessStatsDO> linkAccessStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkAccessStatsDO.class)
-                        .eq(LinkAccessStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkAccessStatsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkAccessStatsDO::getDelFlag, 0);
-                LinkAccessStatsDO linkAccessStatsDO = LinkAccessStatsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkAccessStatsMapper.update(linkAccessStatsDO, linkAccessStatsUpdateWrapper);
-                LambdaUpdateWrapper<LinkLocaleStatsDO> linkLocaleStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkLocaleStatsDO.class)
-                        .eq(LinkLocaleStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkLocaleStatsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkLocaleStatsDO::getDelFlag, 0);
-                LinkLocaleStatsDO linkLocaleStatsDO = LinkLocaleStatsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkLocaleStatsMapper.update(linkLocaleStatsDO, linkLocaleStatsUpdateWrapper);
-                LambdaUpdateWrapper<LinkOsStatsDO> linkOsStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkOsStatsDO.class)
-                        .eq(LinkOsStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkOsStatsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkOsStatsDO::getDelFlag, 0);
-                LinkOsStatsDO linkOsStatsDO = LinkOsStatsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkOsStatsMapper.update(linkOsStatsDO, linkOsStatsUpdateWrapper);
-                LambdaUpdateWrapper<LinkBrowserStatsDO> linkBrowserStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkBrowserStatsDO.class)
-                        .eq(LinkBrowserStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkBrowserStatsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkBrowserStatsDO::getDelFlag, 0);
-                LinkBrowserStatsDO linkBrowserStatsDO = LinkBrowserStatsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkBrowserStatsMapper.update(linkBrowserStatsDO, linkBrowserStatsUpdateWrapper);
-                LambdaUpdateWrapper<LinkDeviceStatsDO> linkDeviceStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkDeviceStatsDO.class)
-                        .eq(LinkDeviceStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkDeviceStatsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkDeviceStatsDO::getDelFlag, 0);
-                LinkDeviceStatsDO linkDeviceStatsDO = LinkDeviceStatsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkDeviceStatsMapper.update(linkDeviceStatsDO, linkDeviceStatsUpdateWrapper);
-                LambdaUpdateWrapper<LinkNetworkStatsDO> linkNetworkStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkNetworkStatsDO.class)
-                        .eq(LinkNetworkStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkNetworkStatsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkNetworkStatsDO::getDelFlag, 0);
-                LinkNetworkStatsDO linkNetworkStatsDO = LinkNetworkStatsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkNetworkStatsMapper.update(linkNetworkStatsDO, linkNetworkStatsUpdateWrapper);
-                LambdaUpdateWrapper<LinkAccessLogsDO> linkAccessLogsUpdateWrapper = Wrappers.lambdaUpdate(LinkAccessLogsDO.class)
-                        .eq(LinkAccessLogsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                        .eq(LinkAccessLogsDO::getGid, hasShortLinkDO.getGid())
-                        .eq(LinkAccessLogsDO::getDelFlag, 0);
-                LinkAccessLogsDO linkAccessLogsDO = LinkAccessLogsDO.builder()
-                        .gid(requestParam.getGid())
-                        .build();
-                linkAccessLogsMapper.update(linkAccessLogsDO, linkAccessLogsUpdateWrapper);
-            } finally {
-                rLock.unlock();
+            LambdaQueryWrapper<ShortLinkGotoDO> linkGotoQueryWrapper = Wrappers.lambdaQuery(ShortLinkGotoDO.class)
+                    .eq(ShortLinkGotoDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(ShortLinkGotoDO::getGid, hasShortLinkDO.getGid());
+            ShortLinkGotoDO shortLinkGotoDO = shortLinkGotoMapper.selectOne(linkGotoQueryWrapper);
+            shortLinkGotoMapper.deleteById(shortLinkGotoDO.getId());
+            shortLinkGotoDO.setGid(requestParam.getGid());
+            shortLinkGotoMapper.insert(shortLinkGotoDO);
+            LambdaUpdateWrapper<LinkAccessStatsDO> linkAccessStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkAccessStatsDO.class)
+                    .eq(LinkAccessStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkAccessStatsDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkAccessStatsDO::getDelFlag, 0);
+            LinkAccessStatsDO linkAccessStatsDO = LinkAccessStatsDO.builder()
+                    .gid(requestParam.getGid())
+                    .build();
+            linkAccessStatsMapper.update(linkAccessStatsDO, linkAccessStatsUpdateWrapper);
+            LambdaUpdateWrapper<LinkLocaleStatsDO> linkLocaleStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkLocaleStatsDO.class)
+                    .eq(LinkLocaleStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkLocaleStatsDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkLocaleStatsDO::getDelFlag, 0);
+            LinkLocaleStatsDO linkLocaleStatsDO = LinkLocaleStatsDO.builder()
+                    .gid(requestParam.getGid())
+                    .build();
+            linkLocaleStatsMapper.update(linkLocaleStatsDO, linkLocaleStatsUpdateWrapper);
+            LambdaUpdateWrapper<LinkOsStatsDO> linkOsStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkOsStatsDO.class)
+                    .eq(LinkOsStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkOsStatsDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkOsStatsDO::getDelFlag, 0);
+            LinkOsStatsDO linkOsStatsDO = LinkOsStatsDO.builder()
+                    .gid(requestParam.getGid())
+                    .build();
+            linkOsStatsMapper.update(linkOsStatsDO, linkOsStatsUpdateWrapper);
+            LambdaUpdateWrapper<LinkBrowserStatsDO> linkBrowserStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkBrowserStatsDO.class)
+                    .eq(LinkBrowserStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkBrowserStatsDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkBrowserStatsDO::getDelFlag, 0);
+            LinkBrowserStatsDO linkBrowserStatsDO = LinkBrowserStatsDO.builder()
+                    .gid(requestParam.getGid())
+                    .build();
+            linkBrowserStatsMapper.update(linkBrowserStatsDO, linkBrowserStatsUpdateWrapper);
+            LambdaUpdateWrapper<LinkDeviceStatsDO> linkDeviceStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkDeviceStatsDO.class)
+                    .eq(LinkDeviceStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkDeviceStatsDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkDeviceStatsDO::getDelFlag, 0);
+            LinkDeviceStatsDO linkDeviceStatsDO = LinkDeviceStatsDO.builder()
+                    .gid(requestParam.getGid())
+                    .build();
+            linkDeviceStatsMapper.update(linkDeviceStatsDO, linkDeviceStatsUpdateWrapper);
+            LambdaUpdateWrapper<LinkNetworkStatsDO> linkNetworkStatsUpdateWrapper = Wrappers.lambdaUpdate(LinkNetworkStatsDO.class)
+                    .eq(LinkNetworkStatsDO::getFullShortUrl, requestParam.getFullShortUrl())
+                    .eq(LinkNetworkStatsDO::getGid, hasShortLinkDO.getGid())
+                    .eq(LinkNetworkStatsDO::getDelFlag, 0);
+            LinkNetworkStatsDO linkNetworkStatsDO = LinkNetworkStatsDO.builder()
+                    .gid(requestParam.getGid())
+                    .build();
+            linkNetworkStatsMapper.update(linkNetworkStatsDO, linkNetworkStatsUpdateWrapper);
+            linkAccessLogStore.updateGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
+            if (Boolean.TRUE.equals(statsVisitorIndexConfiguration.getEnable())) {
+                linkVisitorMapper.updateGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
             }
+            shortLinkStatsRollupService.updateGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
+            shortLinkTodayStatsCache.moveGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
+            shortLinkVisitorSketch.moveGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
+            shortLinkTopIpSketch.moveGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
+            shortLinkTotalStatsBuffer.moveGid(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
+            shortLinkStatsResultCache.invalidate(requestParam.getFullShortUrl(), hasShortLinkDO.getGid(), requestParam.getGid());
         }
         // 短链接如何保障缓存和数据库一致性？详情查看：https://nageoffer.com/shortlink/question
         if (!Objects.equals(hasShortLinkDO.getValidDateType(), requestParam.getValidDateType())
-                || !Objects.equals(hasShortLinkDO.getValidDate(), requestParam.getValidDate())) {
+                || !Objects.equals(hasShortLinkDO.getValidDate(), requestParam.getValidDate())
+                || !Objects.equals(hasShortLinkDO.getOriginUrl(), requestParam.getOriginUrl())) {
             stringRedisTemplate.delete(String.format(GOTO_SHORT_LINK_KEY, requestParam.getFullShortUrl()));
             if (hasShortLinkDO.getValidDate() != null && hasShortLinkDO.getValidDate().before(new Date())) {
                 if (Objects.equals(requestParam.getValidDateType(), VailDateTypeEnum.PERMANENT.getType()) || requestParam.getValidDate().after(new Date())) {
@@ -551,6 +589,7 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
                 }
             }
         }
+        shortLinkGotoNearCache.invalidate(requestParam.getFullShortUrl());
     }
 
 
@@ -566,7 +605,16 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
 //                .eq(ShortLinkDO::getEnableStatus,0)
 //                .eq(ShortLinkDO::getDelFlag,0);
 //        IPage<ShortLinkDO> resultPage = baseMapper.selectPage(requestParam, queryWrapper);
-        IPage<ShortLinkDO> resultPage = baseMapper.pageLink(requestParam);
+        IPage<ShortLinkDO> resultPage;
+        if (shortLinkTodayStatsCache.isEnable()) {
+            String rankField = ShortLinkTodayStatsCache.rankField(requestParam.getOrderTag());
+            resultPage = rankField != null ? pageByTodayRank(requestParam, rankField) : baseMapper.pageLinkWithoutToday(requestParam);
+            shortLinkTodayStatsCache.fillToday(resultPage.getRecords());
+        } else {
+            resultPage = baseMapper.pageLink(requestParam);
+        }
+        // 叠加尚未刷新到短链接表的累计访问增量
+        shortLinkTotalStatsBuffer.fillUnflushed(resultPage.getRecords());
         return resultPage.convert(each -> {
             ShortLinkPageRespDTO result = BeanUtil.toBean(each, ShortLinkPageRespDTO.class);
             result.setDomain("http://" + result.getDomain());
@@ -574,6 +622,101 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
         });
     }
 
+    /**
+     * 按当天访问排行分页查询短链接
+     * 排序来自 Redis 中分组当天的排行有序集合，传入游标时从游标短链接的下一名开始；排行之后按创建时间倒序补齐当天未访问的短链接，
+     * 游标位于补齐部分时按其创建时间与 ID 键集向后查询，排行中已失效的短链接在查询时移出排行
+     */
+    private IPage<ShortLinkDO> pageByTodayRank(ShortLinkPageReqDTO requestParam, String rankField) {
+        String gid = requestParam.getGid();
+        long size = requestParam.getSize();
+        Long total = baseMapper.selectCount(Wrappers.lambdaQuery(ShortLinkDO.class)
+                .eq(ShortLinkDO::getGid, gid)
+                .eq(ShortLinkDO::getEnableStatus, 0)
+                .eq(ShortLinkDO::getDelFlag, 0));
+        long rankSize = shortLinkTodayStatsCache.rankSize(gid, rankField);
+        Long cursorRank = null;
+        ShortLinkDO tailCursor = null;
+        if (StrUtil.isNotBlank(requestParam.getCursor())) {
+            cursorRank = shortLinkTodayStatsCache.reverseRank(gid, rankField, requestParam.getCursor());
+            if (cursorRank == null) {
+                tailCursor = baseMapper.selectOne(Wrappers.lambdaQuery(ShortLinkDO.class)
+                        .eq(ShortLinkDO::getGid, gid)
+                        .eq(ShortLinkDO::getFullShortUrl, requestParam.getCursor())
+                        .eq(ShortLinkDO::getDelFlag, 0));
+            }
+        }
+        long start = tailCursor != null ? rankSize : cursorRank != null ? cursorRank + 1 : (requestParam.getCurrent() - 1) * size;
+        List<ShortLinkDO> records = new ArrayList<>();
+        if (start < rankSize) {
+            List<String> fullShortUrls = shortLinkTodayStatsCache.reverseRange(gid, rankField, start, start + size - 1);
+            if (CollUtil.isNotEmpty(fullShortUrls)) {
+                Map<String, ShortLinkDO> shortLinkMap = new HashMap<>();
+                baseMapper.selectList(Wrappers.lambdaQuery(ShortLinkDO.class)
+                        .eq(ShortLinkDO::getGid, gid)
+                        .in(ShortLinkDO::getFullShortUrl, fullShortUrls)
+                        .eq(ShortLinkDO::getEnableStatus, 0)
+                        .eq(ShortLinkDO::getDelFlag, 0)).forEach(each -> shortLinkMap.put(each.getFullShortUrl(), each));
+                fullShortUrls.forEach(each -> Optional.ofNullable(shortLinkMap.get(each)).ifPresent(records::add));
+                String[] invalidUrls = fullShortUrls.stream().filter(each -> !shortLinkMap.containsKey(each)).toArray(String[]::new);
+                shortLinkTodayStatsCache.removeRank(gid, invalidUrls);
+            }
+        }
+        if (start + size > rankSize) {
+            // 键集游标从补齐部分开头或游标之后开始；页码分页需跳过前几页已返回的补齐短链接
+            long tailSkip = tailCursor != null || cursorRank != null ? 0 : Math.max(start - rankSize, 0);
+            records.addAll(pageTodayRankTail(gid, rankField, tailCursor, tailSkip, size - records.size()));
+        }
+        IPage<ShortLinkDO> resultPage = new Page<>(requestParam.getCurrent(), size, total);
+        resultPage.setRecords(records);
+        return resultPage;
+    }
+
+    /**
+     * 按创建时间与 ID 倒序分批扫描分组内的有效短链接，跳过当天访问排行中的短链接，不使用排行全集做 NOT IN
+     *
+     * @param after 键集游标，为空时从头开始
+     * @param skip  需要跳过的补齐短链接数量
+     * @param count 需要返回的数量
+     */
+    private List<ShortLinkDO> pageTodayRankTail(String gid, String rankField, ShortLinkDO after, long skip, long count) {
+        List<ShortLinkDO> records = new ArrayList<>();
+        long skipped = 0;
+        ShortLinkDO cursor = after;
+        while (records.size() < count) {
+            ShortLinkDO last = cursor;
+            List<ShortLinkDO> scanned = baseMapper.selectList(Wrappers.lambdaQuery(ShortLinkDO.class)
+                    .eq(ShortLinkDO::getGid, gid)
+                    .eq(ShortLinkDO::getEnableStatus, 0)
+                    .eq(ShortLinkDO::getDelFlag, 0)
+                    .and(last != null, wrapper -> wrapper
+                            .lt(ShortLinkDO::getCreateTime, last.getCreateTime())
+                            .or(each -> each.eq(ShortLinkDO::getCreateTime, last.getCreateTime()).lt(ShortLinkDO::getId, last.getId())))
+                    .orderByDesc(ShortLinkDO::getCreateTime)
+                    .orderByDesc(ShortLinkDO::getId)
+                    .last("LIMIT " + TODAY_RANK_TAIL_SCAN_SIZE));
+            Set<String> rankedUrls = shortLinkTodayStatsCache.filterRanked(gid, rankField, scanned.stream().map(ShortLinkDO::getFullShortUrl).toList());
+            for (ShortLinkDO each : scanned) {
+                if (rankedUrls.contains(each.getFullShortUrl())) {
+                    continue;
+                }
+                if (skipped < skip) {
+                    skipped++;
+                    continue;
+                }
+                records.add(each);
+                if (records.size() >= count) {
+                    break;
+                }
+            }
+            if (scanned.size() < TODAY_RANK_TAIL_SCAN_SIZE) {
+                break;
+            }
+            cursor = scanned.get(scanned.size() - 1);
+        }
+        return records;
+    }
+
     /**
      *
      * @param requestParam 查询短链接分组内数量请求参数
@@ -611,15 +754,15 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
                 .map(each -> ":" + each)
                 .orElse("");
         String fullShortUrl = serverName + serverPort + "/" + shortUri;
-        String originalLink = stringRedisTemplate.opsForValue().get(String.format(GOTO_SHORT_LINK_KEY, fullShortUrl));
+        String originalLink = getCachedOriginalLink(fullShortUrl);
         if (StrUtil.isNotBlank(originalLink)) {
             ShortLinkStatsRecordDTO statsRecord = buildLinkStatsRecordAndSetUser(fullShortUrl, request, response);
-            shortLinkStats(fullShortUrl, null, statsRecord);
+            shortLinkStatsEventBus.publish(fullShortUrl, null, statsRecord);
 //            shortLinkStats(fullShortUrl, null, request,response);
             ((HttpServletResponse) response).sendRedirect(originalLink);
             return;
         }
-        boolean contains = shortUriCreateCachePenetrationBloomFilter.contains(fullShortUrl);
+        boolean contains = localShortUriBloomFilter.contains(fullShortUrl);
         if (!contains) {
             ((HttpServletResponse) response).sendRedirect("/page/notfound");
             return;
@@ -629,24 +772,50 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
             ((HttpServletResponse) response).sendRedirect("/page/notfound");
             return;
         }
-        RLock lock = redissonClient.getLock(String.format(LOCK_GOTO_SHORT_LINK_KEY, fullShortUrl));
-        lock.lock();
+        ShortLinkDO shortLinkDO = gotoLoadSingleFlight.execute(
+                fullShortUrl,
+                () -> loadShortLinkOnCacheMiss(fullShortUrl),
+                gotoLoadConfiguration.getSingleFlightTimeout()
+        );
+        if (shortLinkDO == null) {
+            ((HttpServletResponse) response).sendRedirect("/page/notfound");
+            return;
+        }
+        ShortLinkStatsRecordDTO statsRecord = buildLinkStatsRecordAndSetUser(fullShortUrl, request, response);
+        shortLinkStatsEventBus.publish(fullShortUrl, shortLinkDO.getGid(), statsRecord);
+        ((HttpServletResponse) response).sendRedirect(shortLinkDO.getOriginUrl());
+    }
+
+    /**
+     * 跳转缓存未命中时回源数据库并回填缓存
+     * 由单飞合并保证同节点同一短链接只有一个线程执行；分布式锁仅有限等待，超时直接回源，避免全集群排队
+     *
+     * @param fullShortUrl 完整短链接
+     * @return 可跳转的短链接，不存在或已过期返回 null；命中 Redis 时分组标识为空
+     */
+    @SneakyThrows
+    private ShortLinkDO loadShortLinkOnCacheMiss(String fullShortUrl) {
+        RLock lock = null;
+        if (Boolean.TRUE.equals(gotoLoadConfiguration.getLockEnable())) {
+            RLock gotoLock = redissonClient.getLock(String.format(LOCK_GOTO_SHORT_LINK_KEY, fullShortUrl));
+            if (gotoLock.tryLock(gotoLoadConfiguration.getLockWaitTime(), TimeUnit.MILLISECONDS)) {
+                lock = gotoLock;
+            }
+        }
         try {
-            originalLink = stringRedisTemplate.opsForValue().get(String.format(GOTO_SHORT_LINK_KEY, fullShortUrl));
+            String originalLink = getCachedOriginalLink(fullShortUrl);
             if (StrUtil.isNotBlank(originalLink)) {
-                ShortLinkStatsRecordDTO statsRecord = buildLinkStatsRecordAndSetUser(fullShortUrl, request, response);
-                shortLinkStats(fullShortUrl, null, statsRecord);
-//                shortLinkStats(fullShortUrl, null, request,response);
-                ((HttpServletResponse) response).sendRedirect(originalLink);
-                return;
+                return ShortLinkDO.builder()
+                        .fullShortUrl(fullShortUrl)
+                        .originUrl(originalLink)
+                        .build();
             }
             LambdaQueryWrapper<ShortLinkGotoDO> linkGotoQueryWrapper = Wrappers.lambdaQuery(ShortLinkGotoDO.class)
                     .eq(ShortLinkGotoDO::getFullShortUrl, fullShortUrl);
             ShortLinkGotoDO shortLinkGotoDO = shortLinkGotoMapper.selectOne(linkGotoQueryWrapper);
             if (shortLinkGotoDO == null) {
                 stringRedisTemplate.opsForValue().set(String.format(GOTO_IS_NULL_SHORT_LINK_KEY, fullShortUrl), "-", 30, TimeUnit.MINUTES);
-                ((HttpServletResponse) response).sendRedirect("/page/notfound");
-                return;
+                return null;
             }
             LambdaQueryWrapper<ShortLinkDO> queryWrapper = Wrappers.lambdaQuery(ShortLinkDO.class)
                     .eq(ShortLinkDO::getGid, shortLinkGotoDO.getGid())
@@ -656,21 +825,47 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
             ShortLinkDO shortLinkDO = baseMapper.selectOne(queryWrapper);
             if (shortLinkDO == null || (shortLinkDO.getValidDate() != null && shortLinkDO.getValidDate().before(new Date()))) {
                 stringRedisTemplate.opsForValue().set(String.format(GOTO_IS_NULL_SHORT_LINK_KEY, fullShortUrl), "-", 30, TimeUnit.MINUTES);
-                ((HttpServletResponse) response).sendRedirect("/page/notfound");
-                return;
+                return null;
             }
             stringRedisTemplate.opsForValue().set(
                     String.format(GOTO_SHORT_LINK_KEY, fullShortUrl),
                     shortLinkDO.getOriginUrl(),
                     LinkUtil.getLinkCacheValidTime(shortLinkDO.getValidDate()), TimeUnit.MILLISECONDS
             );
-            ShortLinkStatsRecordDTO statsRecord = buildLinkStatsRecordAndSetUser(fullShortUrl, request, response);
-            shortLinkStats(fullShortUrl, shortLinkDO.getGid(), statsRecord);
-//            shortLinkStats(fullShortUrl, shortLinkDO.getGid(), request,response);
-            ((HttpServletResponse) response).sendRedirect(shortLinkDO.getOriginUrl());
+            shortLinkGotoNearCache.put(fullShortUrl, shortLinkDO.getOriginUrl(), LinkUtil.getLinkCacheValidTime(shortLinkDO.getValidDate()));
+            return shortLinkDO;
         } finally {
-            lock.unlock();
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 先查本地缓存，未命中再查 Redis 并回填本地缓存
+     * 与 GET 同一管道读取 Redis 跳转缓存的剩余过期时间，本地缓存不晚于 Redis 缓存过期，即不超过短链接有效期
+     */
+    private String getCachedOriginalLink(String fullShortUrl) {
+        String originalLink = shortLinkGotoNearCache.get(fullShortUrl);
+        if (StrUtil.isNotBlank(originalLink)) {
+            return originalLink;
+        }
+        byte[] gotoKey = String.format(GOTO_SHORT_LINK_KEY, fullShortUrl).getBytes(StandardCharsets.UTF_8);
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(gotoKey);
+            connection.keyCommands().pTtl(gotoKey);
+            return null;
+        });
+        originalLink = (String) results.get(0);
+        if (StrUtil.isNotBlank(originalLink)) {
+            Long remainingMillis = (Long) results.get(1);
+            if (remainingMillis != null && remainingMillis > 0) {
+                shortLinkGotoNearCache.put(fullShortUrl, originalLink, remainingMillis);
+            } else if (remainingMillis != null && remainingMillis == -1L) {
+                shortLinkGotoNearCache.put(fullShortUrl, originalLink);
+            }
         }
+        return originalLink;
     }
 
     private ShortLinkStatsRecordDTO buildLinkStatsRecordAndSetUser(String fullShortUrl, ServletRequest request, ServletResponse response) {
@@ -684,18 +879,13 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
             uvCookie.setPath(StrUtil.sub(fullShortUrl, fullShortUrl.indexOf("/"), fullShortUrl.length()));
             ((HttpServletResponse) response).addCookie(uvCookie);
             uvFirstFlag.set(Boolean.TRUE);
-            stringRedisTemplate.opsForSet().add(SHORT_LINK_STATS_UV_KEY + fullShortUrl, uv.get());
         };
         if (ArrayUtil.isNotEmpty(cookies)) {
             Arrays.stream(cookies)
                     .filter(each -> Objects.equals(each.getName(), "uv"))
                     .findFirst()
                     .map(Cookie::getValue)
-                    .ifPresentOrElse(each -> {
-                        uv.set(each);
-                        Long uvAdded = stringRedisTemplate.opsForSet().add(SHORT_LINK_STATS_UV_KEY + fullShortUrl, each);
-                        uvFirstFlag.set(uvAdded != null && uvAdded > 0L);
-                    }, addResponseCookieTask);
+                    .ifPresentOrElse(uv::set, addResponseCookieTask);
         } else {
             addResponseCookieTask.run();
         }
@@ -704,18 +894,18 @@ public class ShortLinkServiceImpl extends ServiceImpl<ShortLinkMapper, ShortLink
         String browser = LinkUtil.getBrowser(((HttpServletRequest) request));
         String device = LinkUtil.getDevice(((HttpServletRequest) request));
         String network = LinkUtil.getNetwork(((HttpServletRequest) request));
-        Long uipAdded = stringRedisTemplate.opsForSet().add(SHORT_LINK_STATS_UIP_KEY + fullShortUrl, remoteAddr);
-        boolean uipFirstFlag = uipAdded != null && uipAdded > 0L;
+        // UV、UIP 首次访问标识由发送统计消息的 Lua 脚本一并计算
         return ShortLinkStatsRecordDTO.builder()
                 .fullShortUrl(fullShortUrl)
                 .uv(uv.get())
                 .uvFirstFlag(uvFirstFlag.get())
-                .uipFirstFlag(uipFirstFlag)
+                .uipFirstFlag(Boolean.FALSE)
                 .remoteAddr(remoteAddr)
                 .os(os)
                 .browser(browser)
                 .device(device)
                 .network(network)
+                .currentDate(new Date())
                 .build();
     }
 
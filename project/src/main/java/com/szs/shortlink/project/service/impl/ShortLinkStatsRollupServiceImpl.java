@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.service.impl;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.szs.shortlink.project.common.enums.StatsDimensionEnum;
+import com.szs.shortlink.project.config.StatsRollupConfiguration;
+import com.szs.shortlink.project.dao.mapper.LinkStatsRollupMapper;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRollupRangeDTO;
+import com.szs.shortlink.project.service.ShortLinkStatsRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Date;
+import java.util.TreeSet;
+
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_ROLLUP_LOW_WATERMARK_KEY;
+import static com.szs.shortlink.project.common.constant.RedisKeyConstant.SHORT_LINK_STATS_ROLLUP_WATERMARK_KEY;
+
+/**
+ * 短链接统计日、月汇总接口实现层
+ * 小时统计表按天汇总为日汇总表，日汇总表与各维度日统计表按自然月汇总为月汇总表；
+ * 低水位与水位之间的天已全部汇总，查询时完整自然月读取月汇总表，零散天读取日汇总表或维度日统计表，水位之后的天读取原始统计表；
+ * 开始日期早于低水位的查询整体读取原始统计表
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShortLinkStatsRollupServiceImpl implements ShortLinkStatsRollupService {
+
+    private final LinkStatsRollupMapper linkStatsRollupMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StatsRollupConfiguration statsRollupConfiguration;
+
+    /**
+     * 本节点缓存的汇总水位，水位只增不减，缓存落后时仅多读原始统计表，不影响结果正确性
+     */
+    private volatile LocalDate watermark;
+
+    /**
+     * 本节点缓存的汇总低水位，首次汇总后不再变化
+     */
+    private volatile LocalDate lowWatermark;
+    private volatile boolean watermarkLoaded;
+
+    @Override
+    public ShortLinkStatsRollupRangeDTO planRange(String startDate, String endDate) {
+        if (!Boolean.TRUE.equals(statsRollupConfiguration.getEnable())) {
+            return null;
+        }
+        if (!watermarkLoaded) {
+            refreshWatermark();
+        }
+        LocalDate start = toLocalDate(DateUtil.parse(startDate));
+        LocalDate end = toLocalDate(DateUtil.parse(endDate));
+        if (lowWatermark == null || start.isBefore(lowWatermark)) {
+            // 低水位之前的天没有汇总数据，不能按汇总表读取
+            return null;
+        }
+        LocalDate rolledEnd = watermark == null || watermark.isBefore(start) ? start.minusDays(1) : min(watermark, end);
+        LocalDate baseStart = rolledEnd.isBefore(start) ? start : rolledEnd.plusDays(1);
+        ShortLinkStatsRollupRangeDTO.ShortLinkStatsRollupRangeDTOBuilder builder = ShortLinkStatsRollupRangeDTO.builder()
+                .dailyStart(start.toString())
+                .dailyEnd(rolledEnd.toString())
+                .baseStart(baseStart.toString())
+                .baseEnd(end.toString());
+        LocalDate firstFullMonth = start.getDayOfMonth() == 1 ? start : start.with(TemporalAdjusters.firstDayOfNextMonth());
+        LocalDate lastFullMonthEnd = rolledEnd.equals(rolledEnd.with(TemporalAdjusters.lastDayOfMonth()))
+                ? rolledEnd
+                : rolledEnd.with(TemporalAdjusters.firstDayOfMonth()).minusDays(1);
+        if (firstFullMonth.isAfter(lastFullMonthEnd)) {
+            // 已汇总部分不足一个完整自然月，全部按零散天处理
+            return builder
+                    .monthStart(firstFullMonth.toString())
+                    .monthEnd(start.with(TemporalAdjusters.firstDayOfMonth()).minusMonths(1).toString())
+                    .headStart(start.toString())
+                    .headEnd(rolledEnd.toString())
+                    .tailStart(start.toString())
+                    .tailEnd(start.minusDays(1).toString())
+                    .build();
+        }
+        return builder
+                .monthStart(firstFullMonth.toString())
+                .monthEnd(lastFullMonthEnd.with(TemporalAdjusters.firstDayOfMonth()).toString())
+                .headStart(start.toString())
+                .headEnd(firstFullMonth.minusDays(1).toString())
+                .tailStart(lastFullMonthEnd.plusDays(1).toString())
+                .tailEnd(rolledEnd.toString())
+                .build();
+    }
+
+    @Override
+    public void rollup() {
+        LocalDate target = LocalDate.now().minusDays(1);
+        LocalDate from;
+        if (watermark == null) {
+            Date earliestDate = linkStatsRollupMapper.selectEarliestAccessDate();
+            if (earliestDate == null) {
+                saveLowWatermark(target);
+                saveWatermark(target);
+                return;
+            }
+            from = max(toLocalDate(earliestDate), target.minusDays(statsRollupConfiguration.getBackfillDays() - 1L));
+            saveLowWatermark(from);
+        } else {
+            if (lowWatermark == null) {
+                // 低水位引入前已完成的汇总从日汇总表最早日期起连续
+                Date earliestRollupDate = linkStatsRollupMapper.selectEarliestRollupDate();
+                saveLowWatermark(earliestRollupDate == null ? watermark.plusDays(1) : toLocalDate(earliestRollupDate));
+            }
+            from = min(watermark.plusDays(1), target.minusDays(statsRollupConfiguration.getRecomputeDays() - 1L));
+        }
+        if (from.isAfter(target)) {
+            return;
+        }
+        LocalDate to = min(target, from.plusDays(statsRollupConfiguration.getMaxDaysPerRun() - 1L));
+        long startTime = System.currentTimeMillis();
+        TreeSet<LocalDate> months = new TreeSet<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            linkStatsRollupMapper.rollupAccessDaily(day.toString());
+            months.add(day.with(TemporalAdjusters.firstDayOfMonth()));
+        }
+        for (LocalDate monthStart : months) {
+            String monthEnd = monthStart.with(TemporalAdjusters.lastDayOfMonth()).toString();
+            linkStatsRollupMapper.rollupAccessMonthly(monthStart.toString(), monthEnd);
+            for (StatsDimensionEnum each : StatsDimensionEnum.values()) {
+                linkStatsRollupMapper.rollupDimensionMonthly(each.getDimension(), each.getTable(), each.getColumn(), monthStart.toString(), monthEnd);
+            }
+        }
+        if (watermark == null || to.isAfter(watermark)) {
+            saveWatermark(to);
+        }
+        log.info("短链接统计汇总完成，日期：{} ~ {}，自然月：{}，耗时：{}ms", from, to, months.size(), System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public void refreshWatermark() {
+        String actualWatermark = stringRedisTemplate.opsForValue().get(SHORT_LINK_STATS_ROLLUP_WATERMARK_KEY);
+        String actualLowWatermark = stringRedisTemplate.opsForValue().get(SHORT_LINK_STATS_ROLLUP_LOW_WATERMARK_KEY);
+        watermark = StrUtil.isBlank(actualWatermark) ? null : LocalDate.parse(actualWatermark);
+        lowWatermark = StrUtil.isBlank(actualLowWatermark) ? null : LocalDate.parse(actualLowWatermark);
+        watermarkLoaded = true;
+    }
+
+    @Override
+    public void updateGid(String fullShortUrl, String originGid, String gid) {
+        if (!Boolean.TRUE.equals(statsRollupConfiguration.getEnable())) {
+            return;
+        }
+        linkStatsRollupMapper.updateAccessDailyGid(fullShortUrl, originGid, gid);
+        linkStatsRollupMapper.updateAccessMonthlyGid(fullShortUrl, originGid, gid);
+        linkStatsRollupMapper.updateDimensionMonthlyGid(fullShortUrl, originGid, gid);
+    }
+
+    private void saveWatermark(LocalDate actualWatermark) {
+        stringRedisTemplate.opsForValue().set(SHORT_LINK_STATS_ROLLUP_WATERMARK_KEY, actualWatermark.toString());
+        watermark = actualWatermark;
+        watermarkLoaded = true;
+    }
+
+    private void saveLowWatermark(LocalDate actualLowWatermark) {
+        stringRedisTemplate.opsForValue().set(SHORT_LINK_STATS_ROLLUP_LOW_WATERMARK_KEY, actualLowWatermark.toString());
+        lowWatermark = actualLowWatermark;
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static LocalDate min(LocalDate first, LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    private static LocalDate max(LocalDate first, LocalDate second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
@@ -21,22 +21,45 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateField;
 import cn.hutool.core.date.DateUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.alibaba.fastjson2.TypeReference;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.szs.shortlink.project.accesslog.LinkAccessLogStore;
+import com.szs.shortlink.project.cache.ShortLinkStatsResultCache;
+import com.szs.shortlink.project.cache.ShortLinkTopIpSketch;
+import com.szs.shortlink.project.cache.ShortLinkVisitorSketch;
+import com.szs.shortlink.project.common.convention.exception.ServiceException;
+import com.szs.shortlink.project.common.database.QueryDeadlineInterceptor;
+import com.szs.shortlink.project.config.StatsQueryConfiguration;
+import com.szs.shortlink.project.config.StatsVisitorIndexConfiguration;
 import com.szs.shortlink.project.dao.entity.*;
 import com.szs.shortlink.project.dao.mapper.*;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsCacheRangeDTO;
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRollupRangeDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsAccessRecordReqDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkGroupStatsReqDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkStatsAccessRecordReqDTO;
 import com.szs.shortlink.project.dto.req.ShortLinkStatsReqDTO;
 import com.szs.shortlink.project.dto.resp.*;
+import com.szs.shortlink.project.service.ShortLinkStatsRollupService;
 import com.szs.shortlink.project.service.ShortLinkStatsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * 短链接监控接口实现层
@@ -47,20 +70,123 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
 
     private final LinkAccessStatsMapper linkAccessStatsMapper;
     private final LinkLocaleStatsMapper linkLocaleStatsMapper;
-    private final LinkAccessLogsMapper linkAccessLogsMapper;
+    private final LinkAccessLogStore linkAccessLogStore;
     private final LinkBrowserStatsMapper linkBrowserStatsMapper;
     private final LinkOsStatsMapper linkOsStatsMapper;
     private final LinkDeviceStatsMapper linkDeviceStatsMapper;
     private final LinkNetworkStatsMapper linkNetworkStatsMapper;
+    private final LinkStatsRollupMapper linkStatsRollupMapper;
+    private final LinkVisitorMapper linkVisitorMapper;
+    private final ShortLinkStatsRollupService shortLinkStatsRollupService;
+    private final ExecutorService statsQueryExecutor;
+    private final StatsQueryConfiguration statsQueryConfiguration;
+    private final StatsVisitorIndexConfiguration statsVisitorIndexConfiguration;
+    private final MeterRegistry meterRegistry;
+    private final ShortLinkStatsResultCache shortLinkStatsResultCache;
+    private final ShortLinkVisitorSketch shortLinkVisitorSketch;
+    private final ShortLinkTopIpSketch shortLinkTopIpSketch;
+
+    private static final String STATS_SCOPE_LINK = "link";
+    private static final String STATS_SCOPE_GROUP = "group";
+
+    private static final Type ACCESS_STATS_LIST_TYPE = new TypeReference<List<LinkAccessStatsDO>>() {
+    }.getType();
+    private static final Type LOCALE_STATS_LIST_TYPE = new TypeReference<List<LinkLocaleStatsDO>>() {
+    }.getType();
+    private static final Type DEVICE_STATS_LIST_TYPE = new TypeReference<List<LinkDeviceStatsDO>>() {
+    }.getType();
+    private static final Type NETWORK_STATS_LIST_TYPE = new TypeReference<List<LinkNetworkStatsDO>>() {
+    }.getType();
+    private static final Type MAP_LIST_TYPE = new TypeReference<List<HashMap<String, Object>>>() {
+    }.getType();
 
     @Override
     public ShortLinkStatsRespDTO oneShortLinkStats(ShortLinkStatsReqDTO requestParam) {
-        List<LinkAccessStatsDO> listStatsByShortLink = linkAccessStatsMapper.listStatsByShortLink(requestParam);
+        // 已结束的天读取结果缓存，今天及尚未结束的前一天实时查询后按查询项合并
+        ShortLinkStatsCacheRangeDTO cacheRange = shortLinkStatsResultCache.splitRange(requestParam.getStartDate(), requestParam.getEndDate());
+        String cacheKey = shortLinkStatsResultCache.linkKey(requestParam.getGid(), requestParam.getFullShortUrl());
+        // 各项监控数据互不依赖，并行查询后统一等待，整体耗时取决于最慢的一项
+        CompletableFuture<List<LinkAccessStatsDO>> listStatsByShortLinkFuture = supplyMergedStats("daily", STATS_SCOPE_LINK, cacheKey, cacheRange, ACCESS_STATS_LIST_TYPE, (startDate, endDate) -> {
+            // 开启汇总时按汇总水位拆分日期区间，完整自然月读取月汇总表，已汇总的天读取日汇总表
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listStatsByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkAccessStatsMapper.listStatsByShortLink(withRange(requestParam, startDate, endDate));
+        }, each -> DateUtil.formatDate(each.getDate()), this::mergeAccessStats);
+        CompletableFuture<LinkAccessStatsDO> pvUvUidStatsByShortLinkFuture = supplyClosedStats("pv-uv-uip", STATS_SCOPE_LINK, cacheKey, cacheRange, LinkAccessStatsDO.class,
+                (startDate, endDate) -> Optional.ofNullable(shortLinkVisitorSketch.countByShortLink(requestParam.getFullShortUrl(), startDate, endDate))
+                        .orElseGet(() -> linkAccessLogStore.findPvUvUidStatsByShortLink(withRange(requestParam, startDate, endDate))));
+        CompletableFuture<List<LinkLocaleStatsDO>> listedLocaleByShortLinkFuture = supplyMergedStats("locale", STATS_SCOPE_LINK, cacheKey, cacheRange, LOCALE_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listLocaleByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkLocaleStatsMapper.listLocaleByShortLink(withRange(requestParam, startDate, endDate));
+        }, LinkLocaleStatsDO::getProvince, this::mergeLocaleStats);
+        CompletableFuture<List<LinkAccessStatsDO>> listHourStatsByShortLinkFuture = supplyMergedStats("hour", STATS_SCOPE_LINK, cacheKey, cacheRange, ACCESS_STATS_LIST_TYPE,
+                (startDate, endDate) -> linkAccessStatsMapper.listHourStatsByShortLink(withRange(requestParam, startDate, endDate)),
+                LinkAccessStatsDO::getHour, this::mergeAccessStats);
+        CompletableFuture<List<HashMap<String, Object>>> listTopIpByShortLinkFuture = supplyClosedStats("top-ip", STATS_SCOPE_LINK, cacheKey, cacheRange, MAP_LIST_TYPE,
+                (startDate, endDate) -> Optional.ofNullable(shortLinkTopIpSketch.listTopIpByShortLink(requestParam.getFullShortUrl(), startDate, endDate))
+                        .orElseGet(() -> linkAccessLogStore.listTopIpByShortLink(withRange(requestParam, startDate, endDate))));
+        CompletableFuture<List<LinkAccessStatsDO>> listWeekdayStatsByShortLinkFuture = supplyMergedStats("weekday", STATS_SCOPE_LINK, cacheKey, cacheRange, ACCESS_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listWeekdayStatsByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkAccessStatsMapper.listWeekdayStatsByShortLink(withRange(requestParam, startDate, endDate));
+        }, LinkAccessStatsDO::getWeekday, this::mergeAccessStats);
+        CompletableFuture<List<HashMap<String, Object>>> listBrowserStatsByShortLinkFuture = supplyMergedStats("browser", STATS_SCOPE_LINK, cacheKey, cacheRange, MAP_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listBrowserByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkBrowserStatsMapper.listBrowserStatsByShortLink(withRange(requestParam, startDate, endDate));
+        }, each -> each.get("browser"), this::mergeCountStats);
+        CompletableFuture<List<HashMap<String, Object>>> listOsStatsByShortLinkFuture = supplyMergedStats("os", STATS_SCOPE_LINK, cacheKey, cacheRange, MAP_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listOsByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkOsStatsMapper.listOsStatsByShortLink(withRange(requestParam, startDate, endDate));
+        }, each -> each.get("os"), this::mergeCountStats);
+        // 新老访客取决于访客的全部访问历史，区间结束后仍会变化，不读取结果缓存
+        CompletableFuture<HashMap<String, Object>> findUvTypeByShortLinkFuture = supplyStats("uv-type", STATS_SCOPE_LINK, () -> isVisitorIndexEnable()
+                ? linkVisitorMapper.findUvTypeCntByShortLink(requestParam)
+                : linkAccessLogStore.findUvTypeCntByShortLink(requestParam));
+        CompletableFuture<List<LinkDeviceStatsDO>> listDeviceStatsByShortLinkFuture = supplyMergedStats("device", STATS_SCOPE_LINK, cacheKey, cacheRange, DEVICE_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listDeviceByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkDeviceStatsMapper.listDeviceStatsByShortLink(withRange(requestParam, startDate, endDate));
+        }, LinkDeviceStatsDO::getDevice, this::mergeDeviceStats);
+        CompletableFuture<List<LinkNetworkStatsDO>> listNetworkStatsByShortLinkFuture = supplyMergedStats("network", STATS_SCOPE_LINK, cacheKey, cacheRange, NETWORK_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listNetworkByShortLink(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkNetworkStatsMapper.listNetworkStatsByShortLink(withRange(requestParam, startDate, endDate));
+        }, LinkNetworkStatsDO::getNetwork, this::mergeNetworkStats);
+        awaitStats(
+                listStatsByShortLinkFuture,
+                pvUvUidStatsByShortLinkFuture,
+                listedLocaleByShortLinkFuture,
+                listHourStatsByShortLinkFuture,
+                listTopIpByShortLinkFuture,
+                listWeekdayStatsByShortLinkFuture,
+                listBrowserStatsByShortLinkFuture,
+                listOsStatsByShortLinkFuture,
+                findUvTypeByShortLinkFuture,
+                listDeviceStatsByShortLinkFuture,
+                listNetworkStatsByShortLinkFuture
+        );
+        List<LinkAccessStatsDO> listStatsByShortLink = listStatsByShortLinkFuture.join();
         if (CollUtil.isEmpty(listStatsByShortLink)) {
             return null;
         }
         // 基础访问数据
-        LinkAccessStatsDO pvUvUidStatsByShortLink = linkAccessLogsMapper.findPvUvUidStatsByShortLink(requestParam);
+        LinkAccessStatsDO pvUvUidStatsByShortLink = pvUvUidStatsByShortLinkFuture.join();
+        if (pvUvUidStatsByShortLink.getPv() == null) {
+            // UV、UIP 由每日 HyperLogLog 合并得出时，PV 取每日访问详情之和
+            pvUvUidStatsByShortLink.setPv(listStatsByShortLink.stream()
+                    .mapToInt(each -> Optional.ofNullable(each.getPv()).orElse(0))
+                    .sum());
+        }
         // 基础访问详情
         List<ShortLinkStatsAccessDailyRespDTO> daily = new ArrayList<>();
         List<String> rangeDates = DateUtil.rangeToList(DateUtil.parse(requestParam.getStartDate()), DateUtil.parse(requestParam.getEndDate()), DateField.DAY_OF_MONTH).stream()
@@ -88,7 +214,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
                 }));
         // 地区访问详情（仅国内）
         List<ShortLinkStatsLocaleCNRespDTO> localeCnStats = new ArrayList<>();
-        List<LinkLocaleStatsDO> listedLocaleByShortLink = linkLocaleStatsMapper.listLocaleByShortLink(requestParam);
+        List<LinkLocaleStatsDO> listedLocaleByShortLink = listedLocaleByShortLinkFuture.join();
         int localeCnSum = listedLocaleByShortLink.stream()
                 .mapToInt(LinkLocaleStatsDO::getCnt)
                 .sum();
@@ -104,7 +230,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 小时访问详情
         List<Integer> hourStats = new ArrayList<>();
-        List<LinkAccessStatsDO> listHourStatsByShortLink = linkAccessStatsMapper.listHourStatsByShortLink(requestParam);
+        List<LinkAccessStatsDO> listHourStatsByShortLink = listHourStatsByShortLinkFuture.join();
         for (int i = 0; i < 24; i++) {
             AtomicInteger hour = new AtomicInteger(i);
             int hourCnt = listHourStatsByShortLink.stream()
@@ -116,7 +242,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         }
         // 高频访问IP详情
         List<ShortLinkStatsTopIpRespDTO> topIpStats = new ArrayList<>();
-        List<HashMap<String, Object>> listTopIpByShortLink = linkAccessLogsMapper.listTopIpByShortLink(requestParam);
+        List<HashMap<String, Object>> listTopIpByShortLink = listTopIpByShortLinkFuture.join();
         listTopIpByShortLink.forEach(each -> {
             ShortLinkStatsTopIpRespDTO statsTopIpRespDTO = ShortLinkStatsTopIpRespDTO.builder()
                     .ip(each.get("ip").toString())
@@ -126,7 +252,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 一周访问详情
         List<Integer> weekdayStats = new ArrayList<>();
-        List<LinkAccessStatsDO> listWeekdayStatsByShortLink = linkAccessStatsMapper.listWeekdayStatsByShortLink(requestParam);
+        List<LinkAccessStatsDO> listWeekdayStatsByShortLink = listWeekdayStatsByShortLinkFuture.join();
         for (int i = 1; i < 8; i++) {
             AtomicInteger weekday = new AtomicInteger(i);
             int weekdayCnt = listWeekdayStatsByShortLink.stream()
@@ -138,7 +264,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         }
         // 浏览器访问详情
         List<ShortLinkStatsBrowserRespDTO> browserStats = new ArrayList<>();
-        List<HashMap<String, Object>> listBrowserStatsByShortLink = linkBrowserStatsMapper.listBrowserStatsByShortLink(requestParam);
+        List<HashMap<String, Object>> listBrowserStatsByShortLink = listBrowserStatsByShortLinkFuture.join();
         int browserSum = listBrowserStatsByShortLink.stream()
                 .mapToInt(each -> Integer.parseInt(each.get("count").toString()))
                 .sum();
@@ -154,7 +280,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 操作系统访问详情
         List<ShortLinkStatsOsRespDTO> osStats = new ArrayList<>();
-        List<HashMap<String, Object>> listOsStatsByShortLink = linkOsStatsMapper.listOsStatsByShortLink(requestParam);
+        List<HashMap<String, Object>> listOsStatsByShortLink = listOsStatsByShortLinkFuture.join();
         int osSum = listOsStatsByShortLink.stream()
                 .mapToInt(each -> Integer.parseInt(each.get("count").toString()))
                 .sum();
@@ -170,7 +296,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 访客访问类型详情
         List<ShortLinkStatsUvRespDTO> uvTypeStats = new ArrayList<>();
-        HashMap<String, Object> findUvTypeByShortLink = linkAccessLogsMapper.findUvTypeCntByShortLink(requestParam);
+        HashMap<String, Object> findUvTypeByShortLink = findUvTypeByShortLinkFuture.join();
         int oldUserCnt = Integer.parseInt(
                 Optional.ofNullable(findUvTypeByShortLink)
                         .map(each -> each.get("oldUserCnt"))
@@ -202,7 +328,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         uvTypeStats.add(oldUvRespDTO);
         // 访问设备类型详情
         List<ShortLinkStatsDeviceRespDTO> deviceStats = new ArrayList<>();
-        List<LinkDeviceStatsDO> listDeviceStatsByShortLink = linkDeviceStatsMapper.listDeviceStatsByShortLink(requestParam);
+        List<LinkDeviceStatsDO> listDeviceStatsByShortLink = listDeviceStatsByShortLinkFuture.join();
         int deviceSum = listDeviceStatsByShortLink.stream()
                 .mapToInt(LinkDeviceStatsDO::getCnt)
                 .sum();
@@ -218,7 +344,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 访问网络类型详情
         List<ShortLinkStatsNetworkRespDTO> networkStats = new ArrayList<>();
-        List<LinkNetworkStatsDO> listNetworkStatsByShortLink = linkNetworkStatsMapper.listNetworkStatsByShortLink(requestParam);
+        List<LinkNetworkStatsDO> listNetworkStatsByShortLink = listNetworkStatsByShortLinkFuture.join();
         int networkSum = listNetworkStatsByShortLink.stream()
                 .mapToInt(LinkNetworkStatsDO::getCnt)
                 .sum();
@@ -251,12 +377,86 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
 
     @Override
     public ShortLinkStatsRespDTO groupShortLinkStats(ShortLinkGroupStatsReqDTO requestParam) {
-        List<LinkAccessStatsDO> listStatsByGroup = linkAccessStatsMapper.listStatsByGroup(requestParam);
+        // 已结束的天读取结果缓存，今天及尚未结束的前一天实时查询后按查询项合并
+        ShortLinkStatsCacheRangeDTO cacheRange = shortLinkStatsResultCache.splitRange(requestParam.getStartDate(), requestParam.getEndDate());
+        String cacheKey = shortLinkStatsResultCache.groupKey(requestParam.getGid());
+        // 各项监控数据互不依赖，并行查询后统一等待，整体耗时取决于最慢的一项
+        CompletableFuture<List<LinkAccessStatsDO>> listStatsByGroupFuture = supplyMergedStats("daily", STATS_SCOPE_GROUP, cacheKey, cacheRange, ACCESS_STATS_LIST_TYPE, (startDate, endDate) -> {
+            // 开启汇总时按汇总水位拆分日期区间，完整自然月读取月汇总表，已汇总的天读取日汇总表
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listStatsByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkAccessStatsMapper.listStatsByGroup(withRange(requestParam, startDate, endDate));
+        }, each -> DateUtil.formatDate(each.getDate()), this::mergeAccessStats);
+        CompletableFuture<LinkAccessStatsDO> pvUvUidStatsByGroupFuture = supplyClosedStats("pv-uv-uip", STATS_SCOPE_GROUP, cacheKey, cacheRange, LinkAccessStatsDO.class,
+                (startDate, endDate) -> Optional.ofNullable(shortLinkVisitorSketch.countByGroup(requestParam.getGid(), startDate, endDate))
+                        .orElseGet(() -> linkAccessLogStore.findPvUvUidStatsByGroup(withRange(requestParam, startDate, endDate))));
+        CompletableFuture<List<LinkLocaleStatsDO>> listedLocaleByGroupFuture = supplyMergedStats("locale", STATS_SCOPE_GROUP, cacheKey, cacheRange, LOCALE_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listLocaleByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkLocaleStatsMapper.listLocaleByGroup(withRange(requestParam, startDate, endDate));
+        }, LinkLocaleStatsDO::getProvince, this::mergeLocaleStats);
+        CompletableFuture<List<LinkAccessStatsDO>> listHourStatsByGroupFuture = supplyMergedStats("hour", STATS_SCOPE_GROUP, cacheKey, cacheRange, ACCESS_STATS_LIST_TYPE,
+                (startDate, endDate) -> linkAccessStatsMapper.listHourStatsByGroup(withRange(requestParam, startDate, endDate)),
+                LinkAccessStatsDO::getHour, this::mergeAccessStats);
+        CompletableFuture<List<HashMap<String, Object>>> listTopIpByGroupFuture = supplyClosedStats("top-ip", STATS_SCOPE_GROUP, cacheKey, cacheRange, MAP_LIST_TYPE,
+                (startDate, endDate) -> Optional.ofNullable(shortLinkTopIpSketch.listTopIpByGroup(requestParam.getGid(), startDate, endDate))
+                        .orElseGet(() -> linkAccessLogStore.listTopIpByGroup(withRange(requestParam, startDate, endDate))));
+        CompletableFuture<List<LinkAccessStatsDO>> listWeekdayStatsByGroupFuture = supplyMergedStats("weekday", STATS_SCOPE_GROUP, cacheKey, cacheRange, ACCESS_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listWeekdayStatsByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkAccessStatsMapper.listWeekdayStatsByGroup(withRange(requestParam, startDate, endDate));
+        }, LinkAccessStatsDO::getWeekday, this::mergeAccessStats);
+        CompletableFuture<List<HashMap<String, Object>>> listBrowserStatsByGroupFuture = supplyMergedStats("browser", STATS_SCOPE_GROUP, cacheKey, cacheRange, MAP_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listBrowserByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkBrowserStatsMapper.listBrowserStatsByGroup(withRange(requestParam, startDate, endDate));
+        }, each -> each.get("browser"), this::mergeCountStats);
+        CompletableFuture<List<HashMap<String, Object>>> listOsStatsByGroupFuture = supplyMergedStats("os", STATS_SCOPE_GROUP, cacheKey, cacheRange, MAP_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listOsByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkOsStatsMapper.listOsStatsByGroup(withRange(requestParam, startDate, endDate));
+        }, each -> each.get("os"), this::mergeCountStats);
+        CompletableFuture<List<LinkDeviceStatsDO>> listDeviceStatsByGroupFuture = supplyMergedStats("device", STATS_SCOPE_GROUP, cacheKey, cacheRange, DEVICE_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listDeviceByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkDeviceStatsMapper.listDeviceStatsByGroup(withRange(requestParam, startDate, endDate));
+        }, LinkDeviceStatsDO::getDevice, this::mergeDeviceStats);
+        CompletableFuture<List<LinkNetworkStatsDO>> listNetworkStatsByGroupFuture = supplyMergedStats("network", STATS_SCOPE_GROUP, cacheKey, cacheRange, NETWORK_STATS_LIST_TYPE, (startDate, endDate) -> {
+            ShortLinkStatsRollupRangeDTO rollupRange = shortLinkStatsRollupService.planRange(startDate, endDate);
+            return rollupRange != null
+                    ? linkStatsRollupMapper.listNetworkByGroup(withRange(requestParam, startDate, endDate), rollupRange)
+                    : linkNetworkStatsMapper.listNetworkStatsByGroup(withRange(requestParam, startDate, endDate));
+        }, LinkNetworkStatsDO::getNetwork, this::mergeNetworkStats);
+        awaitStats(
+                listStatsByGroupFuture,
+                pvUvUidStatsByGroupFuture,
+                listedLocaleByGroupFuture,
+                listHourStatsByGroupFuture,
+                listTopIpByGroupFuture,
+                listWeekdayStatsByGroupFuture,
+                listBrowserStatsByGroupFuture,
+                listOsStatsByGroupFuture,
+                listDeviceStatsByGroupFuture,
+                listNetworkStatsByGroupFuture
+        );
+        List<LinkAccessStatsDO> listStatsByGroup = listStatsByGroupFuture.join();
         if (CollUtil.isEmpty(listStatsByGroup)) {
             return null;
         }
         // 基础访问数据
-        LinkAccessStatsDO pvUvUidStatsByGroup = linkAccessLogsMapper.findPvUvUidStatsByGroup(requestParam);
+        LinkAccessStatsDO pvUvUidStatsByGroup = pvUvUidStatsByGroupFuture.join();
+        if (pvUvUidStatsByGroup.getPv() == null) {
+            // UV、UIP 由每日 HyperLogLog 合并得出时，PV 取每日访问详情之和
+            pvUvUidStatsByGroup.setPv(listStatsByGroup.stream()
+                    .mapToInt(each -> Optional.ofNullable(each.getPv()).orElse(0))
+                    .sum());
+        }
         // 基础访问详情
         List<ShortLinkStatsAccessDailyRespDTO> daily = new ArrayList<>();
         List<String> rangeDates = DateUtil.rangeToList(DateUtil.parse(requestParam.getStartDate()), DateUtil.parse(requestParam.getEndDate()), DateField.DAY_OF_MONTH).stream()
@@ -284,7 +484,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
                 }));
         // 地区访问详情（仅国内）
         List<ShortLinkStatsLocaleCNRespDTO> localeCnStats = new ArrayList<>();
-        List<LinkLocaleStatsDO> listedLocaleByGroup = linkLocaleStatsMapper.listLocaleByGroup(requestParam);
+        List<LinkLocaleStatsDO> listedLocaleByGroup = listedLocaleByGroupFuture.join();
         int localeCnSum = listedLocaleByGroup.stream()
                 .mapToInt(LinkLocaleStatsDO::getCnt)
                 .sum();
@@ -300,7 +500,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 小时访问详情
         List<Integer> hourStats = new ArrayList<>();
-        List<LinkAccessStatsDO> listHourStatsByGroup = linkAccessStatsMapper.listHourStatsByGroup(requestParam);
+        List<LinkAccessStatsDO> listHourStatsByGroup = listHourStatsByGroupFuture.join();
         for (int i = 0; i < 24; i++) {
             AtomicInteger hour = new AtomicInteger(i);
             int hourCnt = listHourStatsByGroup.stream()
@@ -312,7 +512,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         }
         // 高频访问IP详情
         List<ShortLinkStatsTopIpRespDTO> topIpStats = new ArrayList<>();
-        List<HashMap<String, Object>> listTopIpByGroup = linkAccessLogsMapper.listTopIpByGroup(requestParam);
+        List<HashMap<String, Object>> listTopIpByGroup = listTopIpByGroupFuture.join();
         listTopIpByGroup.forEach(each -> {
             ShortLinkStatsTopIpRespDTO statsTopIpRespDTO = ShortLinkStatsTopIpRespDTO.builder()
                     .ip(each.get("ip").toString())
@@ -322,7 +522,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 一周访问详情
         List<Integer> weekdayStats = new ArrayList<>();
-        List<LinkAccessStatsDO> listWeekdayStatsByGroup = linkAccessStatsMapper.listWeekdayStatsByGroup(requestParam);
+        List<LinkAccessStatsDO> listWeekdayStatsByGroup = listWeekdayStatsByGroupFuture.join();
         for (int i = 1; i < 8; i++) {
             AtomicInteger weekday = new AtomicInteger(i);
             int weekdayCnt = listWeekdayStatsByGroup.stream()
@@ -334,7 +534,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         }
         // 浏览器访问详情
         List<ShortLinkStatsBrowserRespDTO> browserStats = new ArrayList<>();
-        List<HashMap<String, Object>> listBrowserStatsByGroup = linkBrowserStatsMapper.listBrowserStatsByGroup(requestParam);
+        List<HashMap<String, Object>> listBrowserStatsByGroup = listBrowserStatsByGroupFuture.join();
         int browserSum = listBrowserStatsByGroup.stream()
                 .mapToInt(each -> Integer.parseInt(each.get("count").toString()))
                 .sum();
@@ -350,7 +550,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 操作系统访问详情
         List<ShortLinkStatsOsRespDTO> osStats = new ArrayList<>();
-        List<HashMap<String, Object>> listOsStatsByGroup = linkOsStatsMapper.listOsStatsByGroup(requestParam);
+        List<HashMap<String, Object>> listOsStatsByGroup = listOsStatsByGroupFuture.join();
         int osSum = listOsStatsByGroup.stream()
                 .mapToInt(each -> Integer.parseInt(each.get("count").toString()))
                 .sum();
@@ -366,7 +566,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 访问设备类型详情
         List<ShortLinkStatsDeviceRespDTO> deviceStats = new ArrayList<>();
-        List<LinkDeviceStatsDO> listDeviceStatsByGroup = linkDeviceStatsMapper.listDeviceStatsByGroup(requestParam);
+        List<LinkDeviceStatsDO> listDeviceStatsByGroup = listDeviceStatsByGroupFuture.join();
         int deviceSum = listDeviceStatsByGroup.stream()
                 .mapToInt(LinkDeviceStatsDO::getCnt)
                 .sum();
@@ -382,7 +582,7 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         // 访问网络类型详情
         List<ShortLinkStatsNetworkRespDTO> networkStats = new ArrayList<>();
-        List<LinkNetworkStatsDO> listNetworkStatsByGroup = linkNetworkStatsMapper.listNetworkStatsByGroup(requestParam);
+        List<LinkNetworkStatsDO> listNetworkStatsByGroup = listNetworkStatsByGroupFuture.join();
         int networkSum = listNetworkStatsByGroup.stream()
                 .mapToInt(LinkNetworkStatsDO::getCnt)
                 .sum();
@@ -414,24 +614,14 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
 
     @Override
     public IPage<ShortLinkStatsAccessRecordRespDTO> shortLinkStatsAccessRecord(ShortLinkStatsAccessRecordReqDTO requestParam) {
-        LambdaQueryWrapper<LinkAccessLogsDO> queryWrapper = Wrappers.lambdaQuery(LinkAccessLogsDO.class)
-                .eq(LinkAccessLogsDO::getGid, requestParam.getGid())
-                .eq(LinkAccessLogsDO::getFullShortUrl, requestParam.getFullShortUrl())
-                .between(LinkAccessLogsDO::getCreateTime, requestParam.getStartDate(), requestParam.getEndDate())
-                .eq(LinkAccessLogsDO::getDelFlag, 0)
-                .orderByDesc(LinkAccessLogsDO::getCreateTime);
-        IPage<LinkAccessLogsDO> linkAccessLogsDOIPage = linkAccessLogsMapper.selectPage(requestParam, queryWrapper);
+        IPage<LinkAccessLogsDO> linkAccessLogsDOIPage = linkAccessLogStore.pageByShortLink(requestParam);
         IPage<ShortLinkStatsAccessRecordRespDTO> actualResult = linkAccessLogsDOIPage.convert(each -> BeanUtil.toBean(each, ShortLinkStatsAccessRecordRespDTO.class));
         List<String> userAccessLogsList = actualResult.getRecords().stream()
                 .map(ShortLinkStatsAccessRecordRespDTO::getUser)
                 .toList();
-        List<Map<String, Object>> uvTypeList = linkAccessLogsMapper.selectUvTypeByUsers(
-                requestParam.getGid(),
-                requestParam.getFullShortUrl(),
-                requestParam.getStartDate(),
-                requestParam.getEndDate(),
-                userAccessLogsList
-        );
+        List<Map<String, Object>> uvTypeList = isVisitorIndexEnable()
+                ? linkVisitorMapper.selectUvTypeByUsers(requestParam.getGid(), requestParam.getFullShortUrl(), requestParam.getStartDate(), requestParam.getEndDate(), userAccessLogsList)
+                : linkAccessLogStore.selectUvTypeByUsers(requestParam.getGid(), requestParam.getFullShortUrl(), requestParam.getStartDate(), requestParam.getEndDate(), userAccessLogsList);
         actualResult.getRecords().forEach(each -> {
             String uvType = uvTypeList.stream()
                     .filter(item -> Objects.equals(each.getUser(), item.get("user")))
@@ -446,22 +636,14 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
 
     @Override
     public IPage<ShortLinkStatsAccessRecordRespDTO> groupShortLinkStatsAccessRecord(ShortLinkGroupStatsAccessRecordReqDTO requestParam) {
-        LambdaQueryWrapper<LinkAccessLogsDO> queryWrapper = Wrappers.lambdaQuery(LinkAccessLogsDO.class)
-                .eq(LinkAccessLogsDO::getGid, requestParam.getGid())
-                .between(LinkAccessLogsDO::getCreateTime, requestParam.getStartDate(), requestParam.getEndDate())
-                .eq(LinkAccessLogsDO::getDelFlag, 0)
-                .orderByDesc(LinkAccessLogsDO::getCreateTime);
-        IPage<LinkAccessLogsDO> linkAccessLogsDOIPage = linkAccessLogsMapper.selectPage(requestParam, queryWrapper);
+        IPage<LinkAccessLogsDO> linkAccessLogsDOIPage = linkAccessLogStore.pageByGroup(requestParam);
         IPage<ShortLinkStatsAccessRecordRespDTO> actualResult = linkAccessLogsDOIPage.convert(each -> BeanUtil.toBean(each, ShortLinkStatsAccessRecordRespDTO.class));
         List<String> userAccessLogsList = actualResult.getRecords().stream()
                 .map(ShortLinkStatsAccessRecordRespDTO::getUser)
                 .toList();
-        List<Map<String, Object>> uvTypeList = linkAccessLogsMapper.selectGroupUvTypeByUsers(
-                requestParam.getGid(),
-                requestParam.getStartDate(),
-                requestParam.getEndDate(),
-                userAccessLogsList
-        );
+        List<Map<String, Object>> uvTypeList = isVisitorIndexEnable()
+                ? linkVisitorMapper.selectGroupUvTypeByUsers(requestParam.getGid(), requestParam.getStartDate(), requestParam.getEndDate(), userAccessLogsList)
+                : linkAccessLogStore.selectGroupUvTypeByUsers(requestParam.getGid(), requestParam.getStartDate(), requestParam.getEndDate(), userAccessLogsList);
         actualResult.getRecords().forEach(each -> {
             String uvType = uvTypeList.stream()
                     .filter(item -> Objects.equals(each.getUser(), item.get("user")))
@@ -473,4 +655,150 @@ public class ShortLinkStatsServiceImpl implements ShortLinkStatsService {
         });
         return actualResult;
     }
+
+    /**
+     * 执行可按天合并的查询项，缓存段读取结果缓存，实时段实时查询后按合并键累加
+     */
+    private <T> CompletableFuture<List<T>> supplyMergedStats(String query, String scope, String cacheKey, ShortLinkStatsCacheRangeDTO cacheRange, Type type,
+                                                             BiFunction<String, String, List<T>> loader, Function<T, Object> keyMapper, BinaryOperator<T> merger) {
+        return supplyStats(query, scope, () -> {
+            if (cacheRange.cachedEmpty()) {
+                return loader.apply(cacheRange.getLiveStart(), cacheRange.getLiveEnd());
+            }
+            List<T> cached = loadCached(query, cacheKey, cacheRange.getCachedStart(), cacheRange.getCachedEnd(), type, loader);
+            if (cacheRange.liveEmpty()) {
+                return cached;
+            }
+            List<T> live = loader.apply(cacheRange.getLiveStart(), cacheRange.getLiveEnd());
+            Map<Object, T> merged = new LinkedHashMap<>();
+            Stream.concat(cached.stream(), live.stream()).forEach(each -> merged.merge(keyMapper.apply(each), each, merger));
+            return new ArrayList<>(merged.values());
+        });
+    }
+
+    /**
+     * 执行不可按天合并的查询项（去重访客、高频 IP），仅在整个区间均已结束时读取结果缓存
+     */
+    private <T> CompletableFuture<T> supplyClosedStats(String query, String scope, String cacheKey, ShortLinkStatsCacheRangeDTO cacheRange, Type type,
+                                                       BiFunction<String, String, T> loader) {
+        return supplyStats(query, scope, () -> cacheRange.liveEmpty()
+                ? loadCached(query, cacheKey, cacheRange.getCachedStart(), cacheRange.getCachedEnd(), type, loader)
+                : loader.apply(cacheRange.getCachedStart(), cacheRange.getLiveEnd()));
+    }
+
+    private <T> T loadCached(String query, String cacheKey, String startDate, String endDate, Type type, BiFunction<String, String, T> loader) {
+        String field = query + ":" + startDate + ":" + endDate;
+        T cached = shortLinkStatsResultCache.get(cacheKey, field, type);
+        if (cached != null) {
+            return cached;
+        }
+        T result = loader.apply(startDate, endDate);
+        shortLinkStatsResultCache.put(cacheKey, field, result);
+        return result;
+    }
+
+    private ShortLinkStatsReqDTO withRange(ShortLinkStatsReqDTO requestParam, String startDate, String endDate) {
+        ShortLinkStatsReqDTO rangeParam = BeanUtil.toBean(requestParam, ShortLinkStatsReqDTO.class);
+        rangeParam.setStartDate(startDate);
+        rangeParam.setEndDate(endDate);
+        return rangeParam;
+    }
+
+    private ShortLinkGroupStatsReqDTO withRange(ShortLinkGroupStatsReqDTO requestParam, String startDate, String endDate) {
+        ShortLinkGroupStatsReqDTO rangeParam = BeanUtil.toBean(requestParam, ShortLinkGroupStatsReqDTO.class);
+        rangeParam.setStartDate(startDate);
+        rangeParam.setEndDate(endDate);
+        return rangeParam;
+    }
+
+    private LinkAccessStatsDO mergeAccessStats(LinkAccessStatsDO first, LinkAccessStatsDO second) {
+        LinkAccessStatsDO merged = BeanUtil.toBean(first, LinkAccessStatsDO.class);
+        merged.setPv(sum(first.getPv(), second.getPv()));
+        merged.setUv(sum(first.getUv(), second.getUv()));
+        merged.setUip(sum(first.getUip(), second.getUip()));
+        return merged;
+    }
+
+    private LinkLocaleStatsDO mergeLocaleStats(LinkLocaleStatsDO first, LinkLocaleStatsDO second) {
+        LinkLocaleStatsDO merged = BeanUtil.toBean(first, LinkLocaleStatsDO.class);
+        merged.setCnt(sum(first.getCnt(), second.getCnt()));
+        return merged;
+    }
+
+    private LinkDeviceStatsDO mergeDeviceStats(LinkDeviceStatsDO first, LinkDeviceStatsDO second) {
+        LinkDeviceStatsDO merged = BeanUtil.toBean(first, LinkDeviceStatsDO.class);
+        merged.setCnt(sum(first.getCnt(), second.getCnt()));
+        return merged;
+    }
+
+    private LinkNetworkStatsDO mergeNetworkStats(LinkNetworkStatsDO first, LinkNetworkStatsDO second) {
+        LinkNetworkStatsDO merged = BeanUtil.toBean(first, LinkNetworkStatsDO.class);
+        merged.setCnt(sum(first.getCnt(), second.getCnt()));
+        return merged;
+    }
+
+    private HashMap<String, Object> mergeCountStats(HashMap<String, Object> first, HashMap<String, Object> second) {
+        HashMap<String, Object> merged = new HashMap<>(first);
+        merged.put("count", Long.parseLong(first.get("count").toString()) + Long.parseLong(second.get("count").toString()));
+        return merged;
+    }
+
+    /**
+     * 新老访客判断是否读取访客首末次访问索引，未开启时仍按访问日志计算
+     */
+    private boolean isVisitorIndexEnable() {
+        return Boolean.TRUE.equals(statsVisitorIndexConfiguration.getEnable());
+    }
+
+    private Integer sum(Integer first, Integer second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return first + second;
+    }
+
+    /**
+     * 在监控查询线程池中执行一项查询，并按查询项、范围与结果记录耗时
+     * 截止时间从提交时开始计算，与请求的等待时间一致，查询中的 SQL 按剩余时间设置语句超时，超时后由数据库取消执行
+     */
+    private <T> CompletableFuture<T> supplyStats(String query, String scope, Supplier<T> supplier) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(statsQueryConfiguration.getTimeout());
+        return CompletableFuture.supplyAsync(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "success";
+            try {
+                return QueryDeadlineInterceptor.callWithDeadline(deadlineNanos, supplier);
+            } catch (RuntimeException ex) {
+                outcome = "error";
+                throw ex;
+            } finally {
+                sample.stop(Timer.builder("short-link.stats.query")
+                        .description("短链接监控单项查询耗时")
+                        .tag("query", query)
+                        .tag("scope", scope)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }, statsQueryExecutor);
+    }
+
+    /**
+     * 等待全部查询完成，超过请求截止时间时取消尚未开始的查询并返回超时异常，执行中的 SQL 由语句超时取消
+     */
+    private void awaitStats(CompletableFuture<?>... futures) {
+        try {
+            CompletableFuture.allOf(futures).get(statsQueryConfiguration.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            Arrays.stream(futures).forEach(each -> each.cancel(true));
+            throw new ServiceException("短链接监控数据查询超时");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ServiceException(ex.getCause().getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("短链接监控数据查询被中断");
+        }
+    }
 }
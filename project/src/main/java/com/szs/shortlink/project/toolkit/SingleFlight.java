@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.toolkit;
+
+import com.szs.shortlink.project.common.convention.exception.ServiceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 单飞请求合并工具类
+ * 同一个 Key 同一时刻只有一个线程执行加载逻辑，其余线程等待同一个结果
+ *
+ * @param <K> 合并请求的 Key 类型
+ * @param <V> 加载结果类型
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlightCalls = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载逻辑，已有相同 Key 的加载在进行中时等待其结果
+     *
+     * @param key           合并请求的 Key
+     * @param loader        加载逻辑
+     * @param timeoutMillis 等待其他线程加载结果的最长时间，单位：毫秒
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader, long timeoutMillis) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> inFlightCall = inFlightCalls.putIfAbsent(key, call);
+        if (inFlightCall != null) {
+            return await(inFlightCall, timeoutMillis);
+        }
+        try {
+            V result = loader.get();
+            call.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlightCalls.remove(key, call);
+        }
+    }
+
+    /**
+     * 当前正在加载中的 Key 数量
+     */
+    public int inFlightCount() {
+        return inFlightCalls.size();
+    }
+
+    private V await(CompletableFuture<V> inFlightCall, long timeoutMillis) {
+        try {
+            return inFlightCall.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ServiceException(ex.getCause().getMessage());
+        } catch (TimeoutException ex) {
+            throw new ServiceException("等待合并请求结果超时");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("等待合并请求结果被中断");
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- 批量设置消息消费完成
+local ttl = ARGV[1]
+for _, key in ipairs(KEYS) do
+    redis.call("SET", key, "1", "PX", ttl)
+end
+return #KEYS
@@ -0,0 +1,13 @@
+-- 批量占有消息并返回各消息幂等状态：0 占有成功，1 处理中，2 已完成
+local ttl = ARGV[1]
+local result = {}
+for i, key in ipairs(KEYS) do
+    if redis.call("SET", key, "0", "NX", "PX", ttl) then
+        result[i] = 0
+    elseif redis.call("GET", key) == "1" then
+        result[i] = 2
+    else
+        result[i] = 1
+    end
+end
+return result
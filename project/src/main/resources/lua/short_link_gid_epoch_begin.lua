@@ -0,0 +1,17 @@
+-- 开始短链接分组迁移：版本号为奇数且迁移租约仍在说明已有迁移在进行，返回 -1；
+-- 租约已过期说明上次迁移超时未结束，先自增为偶数视为已结束。随后自增为奇数并设置迁移租约
+-- 版本号本身不设置过期时间，只增不减，避免过期重置后与之前的版本号重复
+local epochKey = KEYS[1]
+local leaseKey = KEYS[2]
+local migratingTimeout = tonumber(ARGV[1])
+
+local epoch = tonumber(redis.call("GET", epochKey) or "0")
+if epoch % 2 == 1 then
+    if redis.call("EXISTS", leaseKey) == 1 then
+        return -1
+    end
+    redis.call("INCR", epochKey)
+end
+epoch = redis.call("INCR", epochKey)
+redis.call("SET", leaseKey, epoch, "PX", migratingTimeout)
+return epoch
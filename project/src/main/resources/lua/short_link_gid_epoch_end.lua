@@ -0,0 +1,11 @@
+-- 结束短链接分组迁移：仅当版本号仍为开始时的奇数值才自增为偶数并删除迁移租约，避免租约过期后已被后续迁移推进时误改
+local epochKey = KEYS[1]
+local leaseKey = KEYS[2]
+local beginEpoch = ARGV[1]
+
+if redis.call("GET", epochKey) ~= beginEpoch then
+    return 0
+end
+redis.call("INCR", epochKey)
+redis.call("DEL", leaseKey)
+return 1
@@ -0,0 +1,12 @@
+-- 批量读取短链接分组迁移版本号：前一半 KEYS 为版本号，后一半为对应的迁移租约
+-- 版本号为奇数但租约已过期说明迁移节点宕机未结束迁移，自增为偶数视为已结束；不存在的版本号返回 0
+local count = #KEYS / 2
+local epochs = {}
+for i = 1, count do
+    local epoch = tonumber(redis.call("GET", KEYS[i]) or "0")
+    if epoch % 2 == 1 and redis.call("EXISTS", KEYS[count + i]) == 0 then
+        epoch = redis.call("INCR", KEYS[i])
+    end
+    epochs[i] = epoch
+end
+return epochs
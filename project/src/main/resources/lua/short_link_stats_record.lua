@@ -0,0 +1,21 @@
+-- 短链接访问统计：登记访客与 IP 并投递统计消息，一次往返完成
+local uvKey = KEYS[1]
+local uipKey = KEYS[2]
+local streamKey = KEYS[3]
+
+local uv = ARGV[1]
+local remoteAddr = ARGV[2]
+
+-- 首次出现返回 1，否则返回 0
+local uvFirstFlag = redis.call("SADD", uvKey, uv)
+local uipFirstFlag = redis.call("SADD", uipKey, remoteAddr)
+
+-- 统计消息携带首次访问标识，消费者以此为准
+redis.call("XADD", streamKey, "*",
+        "fullShortUrl", ARGV[3],
+        "gid", ARGV[4],
+        "statsRecord", ARGV[5],
+        "uvFirstFlag", tostring(uvFirstFlag),
+        "uipFirstFlag", tostring(uipFirstFlag))
+
+return { uvFirstFlag, uipFirstFlag }
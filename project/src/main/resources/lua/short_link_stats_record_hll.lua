@@ -0,0 +1,43 @@
+-- 短链接访问统计（HyperLogLog 模式）：按天登记访客与 IP，判断是否为滑动窗口内首次访问，并投递统计消息，一次往返完成
+-- KEYS[1]、KEYS[2] 为当天访客与 IP 的 HyperLogLog，KEYS[3] 为统计消息 Stream，KEYS[4] 为窗口判断用的临时 Key，
+-- 其后依次为窗口内之前各天的访客 HyperLogLog 与 IP HyperLogLog，两者数量相同
+local uvKey = KEYS[1]
+local uipKey = KEYS[2]
+local streamKey = KEYS[3]
+local windowTmpKey = KEYS[4]
+local previousDays = (#KEYS - 4) / 2
+
+local uv = ARGV[1]
+local remoteAddr = ARGV[2]
+local expireSeconds = tonumber(ARGV[6])
+local publish = ARGV[7] == "1"
+
+-- PFADD 内部寄存器未变化说明当天已出现（近似），无需再检查之前的天；
+-- 当天首次出现时把之前各天合并到临时 HyperLogLog 后再 PFADD，寄存器变化即窗口内首次出现
+local function firstInWindow(todayKey, value, previousFrom)
+    local changed = redis.call("PFADD", todayKey, value)
+    if redis.call("TTL", todayKey) < 0 then
+        redis.call("EXPIRE", todayKey, expireSeconds)
+    end
+    if changed == 0 or previousDays == 0 then
+        return changed
+    end
+    redis.call("PFMERGE", windowTmpKey, unpack(KEYS, previousFrom, previousFrom + previousDays - 1))
+    changed = redis.call("PFADD", windowTmpKey, value)
+    redis.call("DEL", windowTmpKey)
+    return changed
+end
+
+local uvFirstFlag = firstInWindow(uvKey, uv, 5)
+local uipFirstFlag = firstInWindow(uipKey, remoteAddr, 5 + previousDays)
+
+if publish then
+    redis.call("XADD", streamKey, "*",
+            "fullShortUrl", ARGV[3],
+            "gid", ARGV[4],
+            "statsRecord", ARGV[5],
+            "uvFirstFlag", tostring(uvFirstFlag),
+            "uipFirstFlag", tostring(uipFirstFlag))
+end
+
+return { uvFirstFlag, uipFirstFlag }
@@ -0,0 +1,7 @@
+-- 写入监控结果缓存字段，仅在 Key 没有过期时间（新建）时设置有效期，后续写入不刷新，避免常被查询的缓存永不过期
+local key = KEYS[1]
+redis.call("HSET", key, ARGV[1], ARGV[2])
+if redis.call("TTL", key) < 0 then
+    redis.call("EXPIRE", key, tonumber(ARGV[3]))
+end
+return 1
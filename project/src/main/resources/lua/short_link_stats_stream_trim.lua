@@ -0,0 +1,44 @@
+-- 按消费者组进度裁剪 Stream：MINID 取组内最后投递 ID 与最早待确认 ID 的较小值，未投递与未确认的消息不会被裁剪
+-- 返回 {裁剪条数, 裁剪后长度}
+local stream = KEYS[1]
+local group = ARGV[1]
+
+local function compare(a, b)
+    local aMs, aSeq = string.match(a, "(%d+)-(%d+)")
+    local bMs, bSeq = string.match(b, "(%d+)-(%d+)")
+    aMs, aSeq, bMs, bSeq = tonumber(aMs), tonumber(aSeq), tonumber(bMs), tonumber(bSeq)
+    if aMs ~= bMs then
+        return aMs < bMs and -1 or 1
+    end
+    if aSeq ~= bSeq then
+        return aSeq < bSeq and -1 or 1
+    end
+    return 0
+end
+
+if redis.call("EXISTS", stream) == 0 then
+    return {0, 0}
+end
+
+local lastDeliveredId
+for _, info in ipairs(redis.call("XINFO", "GROUPS", stream)) do
+    local fields = {}
+    for i = 1, #info, 2 do
+        fields[info[i]] = info[i + 1]
+    end
+    if fields["name"] == group then
+        lastDeliveredId = fields["last-delivered-id"]
+    end
+end
+if not lastDeliveredId or lastDeliveredId == "0-0" then
+    return {0, redis.call("XLEN", stream)}
+end
+
+local minId = lastDeliveredId
+local pending = redis.call("XPENDING", stream, group)
+if pending[1] > 0 and compare(pending[2], minId) < 0 then
+    minId = pending[2]
+end
+
+local trimmed = redis.call("XTRIM", stream, "MINID", "~", minId)
+return {trimmed, redis.call("XLEN", stream)}
@@ -0,0 +1,28 @@
+-- 原子写入一批短链接当天访问增量，批次标识已登记说明本批次已写入过，直接返回
+-- KEYS[1] 为批次标识，之后每个短链接依次为计数哈希、PV/UV/UIP 排行与待刷新分组集合
+-- ARGV[1] 为批次标识有效期，ARGV[2] 为当天统计保留时间，之后每个短链接依次为完整短链接、分组标识与 PV/UV/UIP 增量
+if not redis.call("SET", KEYS[1], "1", "NX", "PX", ARGV[1]) then
+    return 0
+end
+
+local retainTimeout = tonumber(ARGV[2])
+local fields = { "pv", "uv", "uip" }
+for i = 0, (#KEYS - 1) / 5 - 1 do
+    local keyIndex = 2 + i * 5
+    local argIndex = 3 + i * 5
+    local statsKey = KEYS[keyIndex]
+    local url = ARGV[argIndex]
+    for j = 1, 3 do
+        local delta = tonumber(ARGV[argIndex + 1 + j])
+        if delta > 0 then
+            redis.call("HINCRBY", statsKey, fields[j], delta)
+        end
+        -- 三个排行都登记成员，按任意统计项排序时当天访问过的短链接都排在未访问的之前
+        redis.call("ZINCRBY", KEYS[keyIndex + j], delta, url)
+        redis.call("PEXPIRE", KEYS[keyIndex + j], retainTimeout)
+    end
+    redis.call("PEXPIRE", statsKey, retainTimeout)
+    redis.call("SADD", KEYS[keyIndex + 4], ARGV[argIndex + 1])
+    redis.call("PEXPIRE", KEYS[keyIndex + 4], retainTimeout)
+end
+return 1
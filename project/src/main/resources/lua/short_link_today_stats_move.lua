@@ -0,0 +1,20 @@
+-- 短链接变更分组时将当天排行中的访问量从原分组转移到新分组，并标记新分组待刷新
+local url = ARGV[1]
+local gid = ARGV[2]
+local retainTimeout = tonumber(ARGV[3])
+
+local moved = 0
+for i = 1, 3 do
+    local score = redis.call("ZSCORE", KEYS[i], url)
+    if score then
+        redis.call("ZREM", KEYS[i], url)
+        redis.call("ZINCRBY", KEYS[i + 3], score, url)
+        redis.call("PEXPIRE", KEYS[i + 3], retainTimeout)
+        moved = 1
+    end
+end
+if moved == 1 then
+    redis.call("SADD", KEYS[7], gid)
+    redis.call("PEXPIRE", KEYS[7], retainTimeout)
+end
+return moved
@@ -0,0 +1,35 @@
+-- 短链接迁移分组：把短链接当天的高频访问 IP 计数从原分组扣减，并按 Space-Saving 算法并入新分组
+local linkKey = KEYS[1]
+local originKey = KEYS[2]
+local targetKey = KEYS[3]
+local capacity = tonumber(ARGV[1])
+local expireAt = tonumber(ARGV[2])
+
+local entries = redis.call("ZRANGE", linkKey, 0, -1, "WITHSCORES")
+if #entries == 0 then
+    return 0
+end
+
+for i = 1, #entries, 2 do
+    local ip = entries[i]
+    local count = tonumber(entries[i + 1])
+    -- 原分组扣减该短链接的计数，扣减至 0 及以下的 IP 移除
+    if redis.call("ZSCORE", originKey, ip) then
+        local remain = tonumber(redis.call("ZINCRBY", originKey, -count, ip))
+        if remain <= 0 then
+            redis.call("ZREM", originKey, ip)
+        end
+    end
+    if redis.call("ZSCORE", targetKey, ip) then
+        redis.call("ZINCRBY", targetKey, count, ip)
+    elseif redis.call("ZCARD", targetKey) < capacity then
+        redis.call("ZADD", targetKey, count, ip)
+    else
+        local min = redis.call("ZRANGE", targetKey, 0, 0, "WITHSCORES")
+        redis.call("ZREM", targetKey, min[1])
+        redis.call("ZADD", targetKey, tonumber(min[2]) + count, ip)
+    end
+end
+
+redis.call("EXPIREAT", targetKey, expireAt)
+return 1
@@ -0,0 +1,22 @@
+-- 短链接高频访问 IP 统计：Space-Saving 算法维护容量固定的 IP 计数有序集合
+local key = KEYS[1]
+local capacity = tonumber(ARGV[1])
+local expireAt = tonumber(ARGV[2])
+
+for i = 3, #ARGV, 2 do
+    local ip = ARGV[i]
+    local count = tonumber(ARGV[i + 1])
+    if redis.call("ZSCORE", key, ip) then
+        redis.call("ZINCRBY", key, count, ip)
+    elseif redis.call("ZCARD", key) < capacity then
+        redis.call("ZADD", key, count, ip)
+    else
+        -- 集合已满时替换计数最小的 IP，新 IP 继承其计数，计数偏大不超过被替换的最小计数
+        local min = redis.call("ZRANGE", key, 0, 0, "WITHSCORES")
+        redis.call("ZREM", key, min[1])
+        redis.call("ZADD", key, tonumber(min[2]) + count, ip)
+    end
+end
+
+redis.call("EXPIREAT", key, expireAt)
+return 1
@@ -0,0 +1,21 @@
+-- 原子写入一批短链接累计访问增量并标记分组待刷新，批次标识已登记说明本批次已写入过，直接返回
+-- KEYS[1] 为批次标识，KEYS[2] 为待刷新分组集合，之后每个短链接一个所属分组的增量哈希
+-- ARGV[1] 为批次标识有效期，之后每个短链接依次为分组标识、完整短链接与 PV/UV/UIP 增量
+if not redis.call("SET", KEYS[1], "1", "NX", "PX", ARGV[1]) then
+    return 0
+end
+
+local prefixes = { "pv:", "uv:", "uip:" }
+for i = 0, #KEYS - 3 do
+    local deltaKey = KEYS[3 + i]
+    local argIndex = 2 + i * 5
+    local url = ARGV[argIndex + 1]
+    for j = 1, 3 do
+        local delta = tonumber(ARGV[argIndex + 1 + j])
+        if delta > 0 then
+            redis.call("HINCRBY", deltaKey, prefixes[j] .. url, delta)
+        end
+    end
+    redis.call("SADD", KEYS[2], ARGV[argIndex])
+end
+return 1
@@ -0,0 +1,20 @@
+-- 短链接变更分组时将原分组增量哈希中尚未刷新的累计访问增量转移到新分组，并标记新分组待刷新
+-- 原分组刷新中哈希里的增量由刷新任务在批量更新未匹配时按新分组重新缓冲，此处不处理，避免重复计入
+local originDeltaKey = KEYS[1]
+local deltaKey = KEYS[2]
+local dirtyGidsKey = KEYS[3]
+local gid = ARGV[1]
+
+local moved = 0
+for i = 2, #ARGV do
+    local delta = redis.call("HGET", originDeltaKey, ARGV[i])
+    if delta then
+        redis.call("HDEL", originDeltaKey, ARGV[i])
+        redis.call("HINCRBY", deltaKey, ARGV[i], tonumber(delta))
+        moved = 1
+    end
+end
+if moved == 1 then
+    redis.call("SADD", dirtyGidsKey, gid)
+end
+return moved
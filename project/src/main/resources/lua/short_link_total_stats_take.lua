@@ -0,0 +1,18 @@
+-- 取出分组下待刷新的累计访问增量：上次未刷完的增量优先返回，否则将增量哈希整体改名为刷新中哈希后返回
+-- 刷新期间新到的增量写入新的增量哈希，互不影响
+local deltaKey = KEYS[1]
+local flushingKey = KEYS[2]
+local dirtyGidsKey = KEYS[3]
+local gid = ARGV[1]
+
+if redis.call("EXISTS", flushingKey) == 1 then
+    if redis.call("EXISTS", deltaKey) == 1 then
+        redis.call("SADD", dirtyGidsKey, gid)
+    end
+    return redis.call("HGETALL", flushingKey)
+end
+if redis.call("EXISTS", deltaKey) == 0 then
+    return {}
+end
+redis.call("RENAME", deltaKey, flushingKey)
+return redis.call("HGETALL", flushingKey)
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 高频访问 IP 统计 Lua 脚本测试
+ * 使用 LuaJ 执行脚本原文，redis.call 由内存有序集合模拟，验证 Space-Saving 替换规则与误差上界
+ */
+class ShortLinkTopIpRecordScriptTest {
+
+    private static final String KEY = "short-link:stats:top-ip:test";
+    private static final long EXPIRE_AT = 1700000000L;
+
+    private String script;
+    private Map<String, Double> sortedSet;
+    private Long expireAt;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("lua/short_link_top_ip_record.lua")) {
+            assertNotNull(inputStream);
+            script = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        sortedSet = new HashMap<>();
+        expireAt = null;
+    }
+
+    @Test
+    void addsUntilCapacityThenIncrementsExistingIp() {
+        record(2, "10.0.0.1", 5, "10.0.0.2", 3);
+        record(2, "10.0.0.1", 2);
+        assertEquals(Map.of("10.0.0.1", 7D, "10.0.0.2", 3D), sortedSet);
+        assertEquals(EXPIRE_AT, expireAt);
+    }
+
+    @Test
+    void fullSetReplacesMinimumAndInheritsItsCount() {
+        record(2, "10.0.0.1", 5, "10.0.0.2", 3);
+        record(2, "10.0.0.3", 1);
+        assertEquals(Map.of("10.0.0.1", 5D, "10.0.0.3", 4D), sortedSet);
+    }
+
+    @Test
+    void equalMinimumCountsEvictLexicographicallySmallestIp() {
+        record(2, "10.0.0.2", 1, "10.0.0.1", 1);
+        record(2, "10.0.0.3", 2);
+        assertNull(sortedSet.get("10.0.0.1"));
+        assertEquals(Map.of("10.0.0.2", 1D, "10.0.0.3", 3D), sortedSet);
+    }
+
+    @Test
+    void skewedStreamStaysWithinSpaceSavingBounds() {
+        int capacity = 10;
+        Random random = new Random(20240601L);
+        Map<String, Long> actualCounts = new HashMap<>();
+        long total = 0;
+        // 每批 50 次访问按 IP 聚合后提交，与统计消费者的批量写入方式一致
+        for (int batch = 0; batch < 200; batch++) {
+            Map<String, Long> batchCounts = new LinkedHashMap<>();
+            for (int i = 0; i < 50; i++) {
+                String ip = "10.0." + skewedIndex(random, 200) + ".1";
+                batchCounts.merge(ip, 1L, Long::sum);
+            }
+            List<Object> pairs = new ArrayList<>();
+            batchCounts.forEach((ip, count) -> {
+                pairs.add(ip);
+                pairs.add(count);
+            });
+            record(capacity, pairs.toArray());
+            batchCounts.forEach((ip, count) -> actualCounts.merge(ip, count, Long::sum));
+            total += 50;
+            assertTrue(sortedSet.size() <= capacity, "集合大小超过容量：" + sortedSet.size());
+        }
+        double errorBound = (double) total / capacity;
+        double estimatedTotal = sortedSet.values().stream().mapToDouble(Double::doubleValue).sum();
+        // 替换时新 IP 继承最小计数，所有计数之和始终等于访问总数
+        assertEquals((double) total, estimatedTotal);
+        for (Map.Entry<String, Double> each : sortedSet.entrySet()) {
+            long actual = actualCounts.get(each.getKey());
+            assertTrue(each.getValue() >= actual, "估计值小于实际值：" + each.getKey());
+            assertTrue(each.getValue() - actual <= errorBound, "估计值偏大超过 N/k：" + each.getKey());
+        }
+        actualCounts.forEach((ip, actual) -> {
+            if (actual > errorBound) {
+                assertTrue(sortedSet.containsKey(ip), "访问量超过 N/k 的 IP 未被保留：" + ip);
+            }
+        });
+    }
+
+    /**
+     * 前几个下标概率更高的偏斜分布，模拟少数 IP 占大部分访问
+     */
+    private int skewedIndex(Random random, int size) {
+        double value = random.nextDouble();
+        return (int) Math.min(size - 1, Math.floor(size * value * value * value));
+    }
+
+    private void record(int capacity, Object... ipCountPairs) {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.set("KEYS", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf(KEY)}));
+        LuaValue[] argv = new LuaValue[ipCountPairs.length + 2];
+        argv[0] = LuaValue.valueOf(String.valueOf(capacity));
+        argv[1] = LuaValue.valueOf(String.valueOf(EXPIRE_AT));
+        for (int i = 0; i < ipCountPairs.length; i++) {
+            argv[i + 2] = LuaValue.valueOf(String.valueOf(ipCountPairs[i]));
+        }
+        globals.set("ARGV", LuaValue.listOf(argv));
+        LuaTable redis = new LuaTable();
+        redis.set("call", new RedisCall());
+        globals.set("redis", redis);
+        globals.load(script, "short_link_top_ip_record").call();
+    }
+
+    /**
+     * 按 Redis Lua 类型转换规则模拟脚本用到的命令：整数回复转为数字，批量回复转为字符串，空回复转为 false
+     */
+    private class RedisCall extends VarArgFunction {
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            String command = args.arg(1).tojstring().toUpperCase();
+            assertEquals(KEY, args.arg(2).tojstring());
+            switch (command) {
+                case "ZSCORE": {
+                    Double score = sortedSet.get(args.arg(3).tojstring());
+                    return score == null ? LuaValue.FALSE : LuaValue.valueOf(formatScore(score));
+                }
+                case "ZINCRBY": {
+                    double score = sortedSet.merge(args.arg(4).tojstring(), parseScore(args.arg(3)), Double::sum);
+                    return LuaValue.valueOf(formatScore(score));
+                }
+                case "ZCARD":
+                    return LuaValue.valueOf(sortedSet.size());
+                case "ZADD":
+                    return LuaValue.valueOf(sortedSet.put(args.arg(4).tojstring(), parseScore(args.arg(3))) == null ? 1 : 0);
+                case "ZREM":
+                    return LuaValue.valueOf(sortedSet.remove(args.arg(3).tojstring()) == null ? 0 : 1);
+                case "ZRANGE": {
+                    assertEquals(0, args.arg(3).toint());
+                    assertEquals(0, args.arg(4).toint());
+                    assertEquals("WITHSCORES", args.arg(5).tojstring().toUpperCase());
+                    LuaTable result = new LuaTable();
+                    sortedSet.entrySet().stream()
+                            .min(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                            .ifPresent(each -> {
+                                result.set(1, LuaValue.valueOf(each.getKey()));
+                                result.set(2, LuaValue.valueOf(formatScore(each.getValue())));
+                            });
+                    return result;
+                }
+                case "EXPIREAT":
+                    expireAt = Long.parseLong(args.arg(3).tojstring());
+                    return LuaValue.valueOf(1);
+                default:
+                    throw new IllegalArgumentException("未模拟的 Redis 命令：" + command);
+            }
+        }
+
+        private double parseScore(LuaValue value) {
+            return Double.parseDouble(value.tojstring());
+        }
+
+        private String formatScore(double score) {
+            return score == Math.rint(score) ? String.valueOf((long) score) : String.valueOf(score);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.locale;
+
+import com.szs.shortlink.project.config.StatsLocaleConfiguration;
+import com.szs.shortlink.project.dto.biz.IpLocaleDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地 IP 段库地区解析器测试
+ * 重点验证以有符号 int 存储的地址在 128.0.0.0 前后按无符号顺序查找
+ */
+class OfflineIpLocaleResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesRangeBoundariesInclusively() throws Exception {
+        OfflineIpLocaleResolver resolver = load(
+                "1.0.0.0|1.0.0.255|中国|福建省|福州市|350100",
+                "1.0.1.0|1.0.3.255|中国|广东省|广州市|440100"
+        );
+        assertEquals("350100", adcode(resolver, "1.0.0.0"));
+        assertEquals("350100", adcode(resolver, "1.0.0.255"));
+        assertEquals("440100", adcode(resolver, "1.0.1.0"));
+        assertEquals("440100", adcode(resolver, "1.0.3.255"));
+        assertNull(resolver.resolve("1.0.4.0"));
+        assertNull(resolver.resolve("0.255.255.255"));
+    }
+
+    @Test
+    void resolvesAddressSpaceExtremes() throws Exception {
+        OfflineIpLocaleResolver resolver = load(
+                "0.0.0.0|0.255.255.255|保留|保留|保留|0",
+                "255.255.255.0|255.255.255.255|广播|广播|广播|1"
+        );
+        assertEquals("0", adcode(resolver, "0.0.0.0"));
+        assertEquals("0", adcode(resolver, "0.255.255.255"));
+        assertEquals("1", adcode(resolver, "255.255.255.0"));
+        assertEquals("1", adcode(resolver, "255.255.255.255"));
+        assertNull(resolver.resolve("1.0.0.0"));
+        assertNull(resolver.resolve("255.255.254.255"));
+    }
+
+    @Test
+    void resolvesRangeCrossingSignBoundary() throws Exception {
+        OfflineIpLocaleResolver resolver = load(
+                "10.0.0.0|10.255.255.255|中国|北京市|北京市|110100",
+                "127.255.255.0|128.0.0.255|中国|上海市|上海市|310100",
+                "200.0.0.0|200.0.0.255|中国|浙江省|杭州市|330100"
+        );
+        // 128.0.0.0 及以上地址以 int 存储为负数，有符号比较会把它们排在 10.0.0.0 之前
+        assertEquals("310100", adcode(resolver, "127.255.255.255"));
+        assertEquals("310100", adcode(resolver, "128.0.0.0"));
+        assertEquals("310100", adcode(resolver, "128.0.0.255"));
+        assertNull(resolver.resolve("128.0.1.0"));
+        assertEquals("330100", adcode(resolver, "200.0.0.128"));
+        assertEquals("110100", adcode(resolver, "10.1.2.3"));
+        assertNull(resolver.resolve("199.255.255.255"));
+        assertNull(resolver.resolve("200.0.1.0"));
+    }
+
+    @Test
+    void sortsUnorderedLinesAndAcceptsNumericAddresses() throws Exception {
+        OfflineIpLocaleResolver resolver = load(
+                "# 注释行",
+                "3758096384|3758096639|中国|四川省|成都市|510100",
+                "",
+                "16777216|16777471|中国|福建省|福州市|350100",
+                "128.0.0.0|128.0.0.255|中国|湖北省|武汉市|420100"
+        );
+        assertEquals("510100", adcode(resolver, "224.0.0.0"));
+        assertEquals("510100", adcode(resolver, "224.0.0.255"));
+        assertEquals("350100", adcode(resolver, "1.0.0.1"));
+        assertEquals("420100", adcode(resolver, "128.0.0.1"));
+        assertNull(resolver.resolve("224.0.1.0"));
+    }
+
+    @Test
+    void skipsInvalidLines() throws Exception {
+        OfflineIpLocaleResolver resolver = load(
+                "1.0.0.255|1.0.0.0|中国|福建省|福州市|350100",
+                "1.0.1.0|1.0.1.255|中国|广东省",
+                "4294967296|4294967296|越界|越界|越界|0",
+                "1.0.2.x|1.0.2.255|非法|非法|非法|0",
+                "1.0.3.0|1.0.3.255|中国|广东省|深圳市|440300"
+        );
+        assertNull(resolver.resolve("1.0.0.100"));
+        assertNull(resolver.resolve("1.0.1.100"));
+        assertNull(resolver.resolve("1.0.2.100"));
+        assertEquals("440300", adcode(resolver, "1.0.3.100"));
+    }
+
+    @Test
+    void returnsNullWhenNotLoadedOrAddressInvalid() throws Exception {
+        OfflineIpLocaleResolver notLoaded = new OfflineIpLocaleResolver(new StatsLocaleConfiguration(), new DefaultResourceLoader());
+        assertFalse(notLoaded.isLoaded());
+        assertNull(notLoaded.resolve("1.0.0.1"));
+        OfflineIpLocaleResolver resolver = load("0.0.0.0|255.255.255.255|全部|全部|全部|0");
+        assertTrue(resolver.isLoaded());
+        assertNull(resolver.resolve(null));
+        assertNull(resolver.resolve("::1"));
+        assertNull(resolver.resolve("1.0.0"));
+        assertNull(resolver.resolve("256.0.0.1"));
+    }
+
+    @Test
+    void parsesDottedIpv4AsUnsignedValue() {
+        assertEquals(0L, OfflineIpLocaleResolver.parseIpv4("0.0.0.0"));
+        assertEquals(0x7FFFFFFFL, OfflineIpLocaleResolver.parseIpv4("127.255.255.255"));
+        assertEquals(0x80000000L, OfflineIpLocaleResolver.parseIpv4("128.0.0.0"));
+        assertEquals(0xFFFFFFFFL, OfflineIpLocaleResolver.parseIpv4("255.255.255.255"));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4(""));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1.2.3"));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1.2.3.4.5"));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1..3.4"));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1.2.3."));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1.2.3.256"));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1.2.3.0004"));
+        assertEquals(-1L, OfflineIpLocaleResolver.parseIpv4("1.2.3.-4"));
+    }
+
+    private OfflineIpLocaleResolver load(String... lines) throws Exception {
+        Path database = tempDir.resolve("ip-locale.txt");
+        Files.write(database, List.of(lines), StandardCharsets.UTF_8);
+        StatsLocaleConfiguration configuration = new StatsLocaleConfiguration();
+        configuration.setOfflineDatabase("file:" + database.toAbsolutePath());
+        OfflineIpLocaleResolver resolver = new OfflineIpLocaleResolver(configuration, new DefaultResourceLoader());
+        resolver.reload();
+        return resolver;
+    }
+
+    private String adcode(OfflineIpLocaleResolver resolver, String ip) {
+        IpLocaleDTO locale = resolver.resolve(ip);
+        return locale == null ? null : locale.getAdcode();
+    }
+}
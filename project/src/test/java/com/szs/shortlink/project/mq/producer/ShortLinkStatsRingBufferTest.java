@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.szs.shortlink.project.mq.producer;
+
+import com.szs.shortlink.project.dto.biz.ShortLinkStatsRecordDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 短链接统计事件环形缓冲区测试
+ */
+class ShortLinkStatsRingBufferTest {
+
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(1024, new ShortLinkStatsRingBuffer(1000).capacity());
+        assertEquals(1024, new ShortLinkStatsRingBuffer(1024).capacity());
+        assertEquals(2048, new ShortLinkStatsRingBuffer(1025).capacity());
+    }
+
+    @Test
+    void offerFailsWhenFullAndSucceedsAfterDrain() {
+        ShortLinkStatsRingBuffer ringBuffer = new ShortLinkStatsRingBuffer(8);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ringBuffer.offer("url-" + i, "gid", null));
+        }
+        assertFalse(ringBuffer.offer("url-8", "gid", null));
+        assertEquals(8, ringBuffer.size());
+
+        String[] fullShortUrls = new String[8];
+        assertEquals(1, ringBuffer.drainTo(fullShortUrls, new String[8], new ShortLinkStatsRecordDTO[8], 0, 1));
+        assertEquals("url-0", fullShortUrls[0]);
+        assertTrue(ringBuffer.offer("url-8", "gid", null));
+        assertFalse(ringBuffer.offer("url-9", "gid", null));
+        assertEquals(8, ringBuffer.size());
+    }
+
+    @Test
+    void drainKeepsOrderAcrossWraparound() {
+        ShortLinkStatsRingBuffer ringBuffer = new ShortLinkStatsRingBuffer(8);
+        String[] fullShortUrls = new String[8];
+        String[] gids = new String[8];
+        ShortLinkStatsRecordDTO[] statsRecords = new ShortLinkStatsRecordDTO[8];
+        int next = 0;
+        int expected = 0;
+        // 每轮写入 5 条，序号多次越过容量，槽位下标反复回绕
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 5; i++) {
+                ShortLinkStatsRecordDTO statsRecord = ShortLinkStatsRecordDTO.builder().uv(String.valueOf(next)).build();
+                assertTrue(ringBuffer.offer("url-" + next, "gid-" + next, statsRecord));
+                next++;
+            }
+            int drained = ringBuffer.drainTo(fullShortUrls, gids, statsRecords, 0, 8);
+            assertEquals(5, drained);
+            for (int i = 0; i < drained; i++) {
+                assertEquals("url-" + expected, fullShortUrls[i]);
+                assertEquals("gid-" + expected, gids[i]);
+                assertEquals(String.valueOf(expected), statsRecords[i].getUv());
+                expected++;
+            }
+            assertEquals(0, ringBuffer.size());
+        }
+        assertEquals(0, ringBuffer.drainTo(fullShortUrls, gids, statsRecords, 0, 8));
+    }
+
+    @Test
+    void drainAppendsAtOffsetAndRespectsMaxCount() {
+        ShortLinkStatsRingBuffer ringBuffer = new ShortLinkStatsRingBuffer(8);
+        for (int i = 0; i < 6; i++) {
+            ringBuffer.offer("url-" + i, null, null);
+        }
+        String[] fullShortUrls = new String[8];
+        String[] gids = new String[8];
+        ShortLinkStatsRecordDTO[] statsRecords = new ShortLinkStatsRecordDTO[8];
+        assertEquals(2, ringBuffer.drainTo(fullShortUrls, gids, statsRecords, 0, 2));
+        assertEquals(3, ringBuffer.drainTo(fullShortUrls, gids, statsRecords, 2, 3));
+        assertArrayEquals(new String[]{"url-0", "url-1", "url-2", "url-3", "url-4", null, null, null}, fullShortUrls);
+        assertNull(gids[0]);
+        assertEquals(1, ringBuffer.size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void concurrentProducersLoseNothingWhenBufferIsFull() throws InterruptedException {
+        int producers = 4;
+        int eventsPerProducer = 20000;
+        ShortLinkStatsRingBuffer ringBuffer = new ShortLinkStatsRingBuffer(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String gid = String.valueOf(p);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    // 缓冲区写满时让出 CPU 后重试，验证满载时不覆盖未消费的槽位
+                    while (!ringBuffer.offer(String.valueOf(i), gid, null)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        int[] nextExpected = new int[producers];
+        String[] fullShortUrls = new String[32];
+        String[] gids = new String[32];
+        ShortLinkStatsRecordDTO[] statsRecords = new ShortLinkStatsRecordDTO[32];
+        long received = 0;
+        while (received < (long) producers * eventsPerProducer) {
+            int drained = ringBuffer.drainTo(fullShortUrls, gids, statsRecords, 0, 32);
+            for (int i = 0; i < drained; i++) {
+                int producer = Integer.parseInt(gids[i]);
+                assertEquals(nextExpected[producer], Integer.parseInt(fullShortUrls[i]), "生产者 " + producer + " 的事件乱序或丢失");
+                nextExpected[producer]++;
+            }
+            received += drained;
+            if (drained == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread each : threads) {
+            each.join();
+        }
+        for (int each : nextExpected) {
+            assertEquals(eventsPerProducer, each);
+        }
+        assertEquals(0, ringBuffer.size());
+    }
+}